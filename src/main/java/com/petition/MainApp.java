@@ -1,6 +1,7 @@
 package com.petition;
 
 import atlantafx.base.theme.PrimerDark;
+import com.petition.dao.PetitionerRepository;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -77,6 +78,15 @@ public class MainApp extends Application {
         }
     }
 
+    /**
+     * 应用程序退出方法
+     * 释放共享的数据仓库
+     */
+    @Override
+    public void stop() {
+        PetitionerRepository.shutdownInstances();
+    }
+
     /**
      * 应用程序主方法
      *
@@ -1,10 +1,13 @@
 package com.petition.controller;
 
+import com.petition.dao.DataChangeEvent;
 import com.petition.model.Petitioner;
 import com.petition.model.enums.RiskLevel;
 import com.petition.service.ExportService;
 import com.petition.service.ImportService;
 import com.petition.service.PetitionerService;
+import com.petition.service.StatisticsService;
+import com.petition.service.StatisticsSnapshot;
 import eu.hansolo.tilesfx.Tile;
 import eu.hansolo.tilesfx.TileBuilder;
 import eu.hansolo.tilesfx.colors.Bright;
@@ -57,6 +60,13 @@ public class DashboardController {
 
     private PetitionerService petitionerService;
 
+    private StatisticsService statisticsService;
+
+    /**
+     * 最近一次加载的统计快照
+     */
+    private StatisticsSnapshot statistics;
+
     // TilesFX统计卡片
     private Tile totalCountTile;
     private Tile highRiskTile;
@@ -70,9 +80,12 @@ public class DashboardController {
     public void initialize() {
         try {
             petitionerService = new PetitionerService();
+            statisticsService = new StatisticsService();
             createTiles();
             loadStatistics();
             loadCharts();
+            // 数据变更后更新卡片和图表
+            DataChangeBinding.bind(petitionerService, this::applyChanges);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -162,52 +175,56 @@ public class DashboardController {
 
     /**
      * 加载统计数据
+     * 一次遍历得到统计快照，卡片和图表共用
      */
     private void loadStatistics() {
         try {
-            List<Petitioner> allPetitioners = petitionerService.getAllPetitioners();
+            statistics = statisticsService.getStatistics();
 
             // 总人数
-            totalCountTile.setValue(allPetitioners.size());
+            totalCountTile.setValue(statistics.getTotalCount());
 
             // 按危险等级统计
-            long highRiskCount = allPetitioners.stream()
-                    .filter(p -> p.getRiskAssessment().getRiskLevel() == RiskLevel.HIGH
-                              || p.getRiskAssessment().getRiskLevel() == RiskLevel.CRITICAL)
-                    .count();
-
-            long mediumRiskCount = allPetitioners.stream()
-                    .filter(p -> p.getRiskAssessment().getRiskLevel() == RiskLevel.MEDIUM)
-                    .count();
-
-            long lowRiskCount = allPetitioners.stream()
-                    .filter(p -> p.getRiskAssessment().getRiskLevel() == RiskLevel.LOW)
-                    .count();
-
-            highRiskTile.setValue(highRiskCount);
-            mediumRiskTile.setValue(mediumRiskCount);
-            lowRiskTile.setValue(lowRiskCount);
+            highRiskTile.setValue(statistics.getHighRiskCount());
+            mediumRiskTile.setValue(statistics.getRiskLevelCount(RiskLevel.MEDIUM));
+            lowRiskTile.setValue(statistics.getRiskLevelCount(RiskLevel.LOW));
 
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * 应用一批数据变更
+     * 统计由服务层随变更增量维护，这里只取最新快照；统计未变化时不重绘卡片和图表
+     *
+     * @param events 变更事件
+     */
+    private void applyChanges(List<DataChangeEvent> events) {
+        StatisticsSnapshot previous = statistics;
+        loadStatistics();
+        if (statistics != previous) {
+            loadCharts();
+        }
+    }
+
     /**
      * 加载图表数据
      */
     private void loadCharts() {
         try {
-            List<Petitioner> allPetitioners = petitionerService.getAllPetitioners();
+            if (statistics == null) {
+                statistics = statisticsService.getStatistics();
+            }
 
             // 加载危险等级分布饼图
-            loadRiskLevelChart(allPetitioners);
+            loadRiskLevelChart(statistics);
 
             // 加载上访次数分布柱状图
-            loadVisitCountChart(allPetitioners);
+            loadVisitCountChart(statistics);
 
             // 加载籍贯分布柱状图
-            loadNativePlaceChart(allPetitioners);
+            loadNativePlaceChart(statistics);
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -217,15 +234,11 @@ public class DashboardController {
     /**
      * 加载危险等级分布饼图
      */
-    private void loadRiskLevelChart(List<Petitioner> petitioners) {
-        Map<RiskLevel, Long> riskDistribution = petitioners.stream()
-                .collect(Collectors.groupingBy(
-                        p -> p.getRiskAssessment().getRiskLevel(),
-                        Collectors.counting()
-                ));
+    private void loadRiskLevelChart(StatisticsSnapshot statistics) {
+        Map<RiskLevel, Integer> riskDistribution = statistics.getRiskLevelDistribution();
 
         ObservableList<PieChart.Data> pieData = FXCollections.observableArrayList();
-        for (Map.Entry<RiskLevel, Long> entry : riskDistribution.entrySet()) {
+        for (Map.Entry<RiskLevel, Integer> entry : riskDistribution.entrySet()) {
             if (entry.getValue() > 0) {
                 pieData.add(new PieChart.Data(
                         entry.getKey().getDisplayName(),
@@ -241,32 +254,12 @@ public class DashboardController {
     /**
      * 加载上访次数分布柱状图
      */
-    private void loadVisitCountChart(List<Petitioner> petitioners) {
+    private void loadVisitCountChart(StatisticsSnapshot statistics) {
         // 统计各个范围的人数
-        long count1_3 = petitioners.stream()
-                .filter(p -> {
-                    int count = p.getPersonalInfo().getVisitCount();
-                    return count >= 1 && count <= 3;
-                })
-                .count();
-
-        long count4_6 = petitioners.stream()
-                .filter(p -> {
-                    int count = p.getPersonalInfo().getVisitCount();
-                    return count >= 4 && count <= 6;
-                })
-                .count();
-
-        long count7_10 = petitioners.stream()
-                .filter(p -> {
-                    int count = p.getPersonalInfo().getVisitCount();
-                    return count >= 7 && count <= 10;
-                })
-                .count();
-
-        long count10Plus = petitioners.stream()
-                .filter(p -> p.getPersonalInfo().getVisitCount() > 10)
-                .count();
+        int count1_3 = statistics.countVisitsBetween(1, 3);
+        int count4_6 = statistics.countVisitsBetween(4, 6);
+        int count7_10 = statistics.countVisitsBetween(7, 10);
+        int count10Plus = statistics.countVisitsBetween(11, Integer.MAX_VALUE);
 
         XYChart.Series<String, Number> series = new XYChart.Series<>();
         series.setName("人数");
@@ -308,15 +301,15 @@ public class DashboardController {
     /**
      * 加载籍贯分布柱状图（前10）
      */
-    private void loadNativePlaceChart(List<Petitioner> petitioners) {
-        // 提取省份（从籍贯中截取省名）
-        Map<String, Long> nativePlaceDistribution = petitioners.stream()
-                .filter(p -> p.getPersonalInfo().getNativePlace() != null
-                          && !p.getPersonalInfo().getNativePlace().isEmpty())
-                .collect(Collectors.groupingBy(
-                        p -> extractProvinceName(p.getPersonalInfo().getNativePlace()),
-                        Collectors.counting()
-                ));
+    private void loadNativePlaceChart(StatisticsSnapshot statistics) {
+        // 提取省份（从籍贯中截取省名），按不同籍贯合并计数
+        Map<String, Long> nativePlaceDistribution = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : statistics.getNativePlaceDistribution().entrySet()) {
+            if (!entry.getKey().isEmpty()) {
+                nativePlaceDistribution.merge(extractProvinceName(entry.getKey()),
+                        (long) entry.getValue(), Long::sum);
+            }
+        }
 
         // 按数量排序，取前10
         List<Map.Entry<String, Long>> sortedEntries = nativePlaceDistribution.entrySet()
@@ -415,12 +408,7 @@ public class DashboardController {
             FormController formController = loader.getController();
             formController.setOnSaveCallback(() -> {
                 // 添加关闭动画
-                com.petition.util.StageUtil.addCloseAnimation(formRoot, () -> {
-                    // 保存成功后刷新数据
-                    loadStatistics();
-                    loadCharts();
-                    formStage.close();
-                });
+                com.petition.util.StageUtil.addCloseAnimation(formRoot, formStage::close);
             });
 
             formStage.showAndWait();
@@ -456,10 +444,6 @@ public class DashboardController {
                         result.getSuccessCount(),
                         result.getErrorCount(),
                         result.getSkippedCount()));
-
-                // 刷新数据
-                loadStatistics();
-                loadCharts();
             }
         } catch (Exception e) {
             e.printStackTrace();
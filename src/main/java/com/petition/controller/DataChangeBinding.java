@@ -0,0 +1,91 @@
+package com.petition.controller;
+
+import com.petition.dao.DataChangeEvent;
+import com.petition.dao.DataChangeListener;
+import com.petition.service.PetitionerService;
+import javafx.application.Platform;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 数据变更与界面之间的桥接
+ * 在数据层线程收到变更事件后只做排队，在JavaFX应用线程中把同一轮积累的事件
+ * 一次交给页面处理，连续修改（如批量导入）只触发一次界面更新
+ *
+ * @author 刘一村
+ * @version 1.0.0
+ */
+final class DataChangeBinding implements DataChangeListener {
+    private final PetitionerService petitionerService;
+    private final Consumer<List<DataChangeEvent>> handler;
+
+    /**
+     * 尚未交给界面处理的事件
+     */
+    private List<DataChangeEvent> pending = new ArrayList<>();
+
+    /**
+     * 是否已提交界面线程任务
+     */
+    private boolean drainScheduled;
+
+    private DataChangeBinding(PetitionerService petitionerService, Consumer<List<DataChangeEvent>> handler) {
+        this.petitionerService = petitionerService;
+        this.handler = handler;
+    }
+
+    /**
+     * 订阅数据变更
+     *
+     * @param petitionerService 业务服务
+     * @param handler 在JavaFX应用线程中处理一批事件（按发生顺序）
+     * @return 订阅对象，页面销毁时调用close()
+     */
+    static DataChangeBinding bind(PetitionerService petitionerService, Consumer<List<DataChangeEvent>> handler) {
+        DataChangeBinding binding = new DataChangeBinding(petitionerService, handler);
+        petitionerService.addChangeListener(binding);
+        return binding;
+    }
+
+    /**
+     * 取消订阅
+     */
+    void close() {
+        petitionerService.removeChangeListener(this);
+        synchronized (this) {
+            pending = new ArrayList<>();
+        }
+    }
+
+    @Override
+    public synchronized void onDataChanged(DataChangeEvent event) {
+        pending.add(event);
+        if (!drainScheduled) {
+            drainScheduled = true;
+            Platform.runLater(this::drain);
+        }
+    }
+
+    /**
+     * 在界面线程中取出积累的事件并处理
+     */
+    private void drain() {
+        List<DataChangeEvent> events;
+        synchronized (this) {
+            events = pending;
+            pending = new ArrayList<>();
+            drainScheduled = false;
+        }
+        if (events.isEmpty()) {
+            return;
+        }
+        try {
+            handler.accept(events);
+        } catch (RuntimeException e) {
+            System.err.println("界面处理数据变更失败: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
@@ -117,6 +117,16 @@ public class DetailController implements Initializable {
         loadRiskAssessment();
     }
 
+    /**
+     * 按ID读取完整记录并显示
+     * 列表页面只持有摘要，打开详情时才加载完整记录
+     *
+     * @param petitionerId 上访人员ID
+     */
+    public void setDataById(String petitionerId) {
+        setData(petitionerService.getPetitionerById(petitionerId).orElse(null));
+    }
+
     /**
      * 设置数据变更回调函数
      *
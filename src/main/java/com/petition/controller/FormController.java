@@ -13,6 +13,7 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 import java.util.ResourceBundle;
 
 /**
@@ -315,6 +316,22 @@ public class FormController implements Initializable {
         loadPetitionerData(petitioner);
     }
 
+    /**
+     * 按ID读取完整记录并设置为编辑模式
+     *
+     * @param petitionerId 上访人员ID
+     */
+    public void setEditModeById(String petitionerId) {
+        Optional<Petitioner> petitioner = petitionerService.getPetitionerById(petitionerId);
+        if (petitioner.isEmpty()) {
+            // 记录已被删除，不能按新增模式保存
+            showError("该人员信息已不存在");
+            saveButton.setDisable(true);
+            return;
+        }
+        setEditMode(petitioner.get());
+    }
+
     /**
      * 设置保存成功回调
      */
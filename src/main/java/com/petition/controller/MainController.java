@@ -105,8 +105,9 @@ public class MainController {
             // 设置当前激活的导航按钮
             currentActiveNav = navDashboard;
 
-            // 更新记录数显示
+            // 更新记录数显示，之后随数据变更更新
             updateRecordCount();
+            DataChangeBinding.bind(petitionerService, events -> updateRecordCount());
 
             // 默认加载仪表盘页面
             Parent dashboardPage = loadPage("dashboard");
@@ -138,10 +139,11 @@ public class MainController {
 
     /**
      * 更新记录数显示
+     * 直接读取记录数，不复制数据列表
      */
     private void updateRecordCount() {
         try {
-            int count = petitionerService.getAllPetitioners().size();
+            int count = petitionerService.getTotalCount();
             recordCountLabel.setText("记录数：" + count);
         } catch (Exception e) {
             recordCountLabel.setText("记录数：0");
@@ -226,9 +228,6 @@ public class MainController {
             // 更新导航按钮状态
             updateNavButtonState(navButton);
 
-            // 更新记录数
-            updateRecordCount();
-
         } catch (Exception e) {
             e.printStackTrace();
             showError("页面加载失败：" + e.getMessage());
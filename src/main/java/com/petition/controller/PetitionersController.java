@@ -1,13 +1,18 @@
 package com.petition.controller;
 
-import com.petition.model.Petitioner;
+import com.petition.dao.DataChangeEvent;
+import com.petition.model.PetitionerSummary;
 import com.petition.model.enums.*;
+import com.petition.dao.SortField;
+import com.petition.dao.SortKey;
+import com.petition.service.LiveQueryPage;
+import com.petition.service.PetitionerQuery;
 import com.petition.service.PetitionerService;
+import com.petition.service.QueryService;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
-import javafx.collections.transformation.FilteredList;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
@@ -23,6 +28,10 @@ import javafx.stage.Stage;
 import java.net.URL;
 import java.time.LocalDate;
 import java.time.Period;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
 
 /**
@@ -54,18 +63,18 @@ public class PetitionersController implements Initializable {
     @FXML private Label countLabel;
 
     // 表格组件
-    @FXML private TableView<Petitioner> petitionersTable;
-    @FXML private TableColumn<Petitioner, String> idColumn;
-    @FXML private TableColumn<Petitioner, String> nameColumn;
-    @FXML private TableColumn<Petitioner, String> genderColumn;
-    @FXML private TableColumn<Petitioner, Integer> ageColumn;
-    @FXML private TableColumn<Petitioner, String> idCardColumn;
-    @FXML private TableColumn<Petitioner, String> phoneColumn;
-    @FXML private TableColumn<Petitioner, String> categoryColumn;
-    @FXML private TableColumn<Petitioner, String> riskLevelColumn;
-    @FXML private TableColumn<Petitioner, Integer> riskScoreColumn;
-    @FXML private TableColumn<Petitioner, String> lastVisitDateColumn;
-    @FXML private TableColumn<Petitioner, Void> actionsColumn;
+    @FXML private TableView<PetitionerSummary> petitionersTable;
+    @FXML private TableColumn<PetitionerSummary, String> idColumn;
+    @FXML private TableColumn<PetitionerSummary, String> nameColumn;
+    @FXML private TableColumn<PetitionerSummary, String> genderColumn;
+    @FXML private TableColumn<PetitionerSummary, Integer> ageColumn;
+    @FXML private TableColumn<PetitionerSummary, String> idCardColumn;
+    @FXML private TableColumn<PetitionerSummary, String> phoneColumn;
+    @FXML private TableColumn<PetitionerSummary, String> categoryColumn;
+    @FXML private TableColumn<PetitionerSummary, String> riskLevelColumn;
+    @FXML private TableColumn<PetitionerSummary, Integer> riskScoreColumn;
+    @FXML private TableColumn<PetitionerSummary, String> lastVisitDateColumn;
+    @FXML private TableColumn<PetitionerSummary, Void> actionsColumn;
 
     // 分页组件
     @FXML private Button firstPageButton;
@@ -79,15 +88,14 @@ public class PetitionersController implements Initializable {
     // ==================== 业务属性 ====================
 
     private final PetitionerService petitionerService = new PetitionerService();
+    private final QueryService queryService = new QueryService();
 
-    // 数据列表
-    private ObservableList<Petitioner> allPetitioners;
-    private FilteredList<Petitioner> filteredPetitioners;
+    // 当前页（列表只读取当前页的摘要，完整记录在查看或编辑时读取），数据变更后按记录更新
+    private final ObservableList<PetitionerSummary> rows = FXCollections.observableArrayList();
+    private final LiveQueryPage page = new LiveQueryPage(queryService, rows, 20);
 
-    // 分页属性
-    private int currentPage = 1;
-    private int pageSize = 20;
-    private int totalPages = 1;
+    // 可排序的列及对应的排序字段
+    private final Map<TableColumn<PetitionerSummary, ?>, SortField> sortFields = new HashMap<>();
 
     // ==================== 初始化方法 ====================
 
@@ -100,6 +108,7 @@ public class PetitionersController implements Initializable {
 
         // 初始化表格列
         initializeTableColumns();
+        initializeSorting();
 
         // 初始化分页组件
         initializePagination();
@@ -107,6 +116,9 @@ public class PetitionersController implements Initializable {
         // 加载数据
         loadData();
 
+        // 之后的增删改按记录更新列表，不再整体重新加载
+        DataChangeBinding.bind(petitionerService, this::applyChanges);
+
         System.out.println("PetitionersController 初始化完成！");
     }
 
@@ -164,10 +176,12 @@ public class PetitionersController implements Initializable {
      * 初始化表格列绑定
      */
     private void initializeTableColumns() {
-        // 编号列(使用行号)
+        petitionersTable.setItems(rows);
+
+        // 编号列(使用行号，按ID查当前页的行号)
         idColumn.setCellValueFactory(cellData -> {
-            int index = petitionersTable.getItems().indexOf(cellData.getValue()) + 1;
-            int globalIndex = (currentPage - 1) * pageSize + index;
+            int index = page.indexOf(cellData.getValue().getId()) + 1;
+            int globalIndex = page.getPageIndex() * page.getPageSize() + index;
             return new SimpleStringProperty(String.valueOf(globalIndex));
         });
 
@@ -177,7 +191,7 @@ public class PetitionersController implements Initializable {
 
         // 性别列
         genderColumn.setCellValueFactory(cellData -> {
-            Gender gender = cellData.getValue().getPersonalInfo().getGender();
+            Gender gender = cellData.getValue().getGender();
             return new SimpleStringProperty(gender != null ? gender.getDisplayName() : "");
         });
 
@@ -194,21 +208,21 @@ public class PetitionersController implements Initializable {
 
         // 联系电话列
         phoneColumn.setCellValueFactory(cellData -> {
-            String phone = cellData.getValue().getPersonalInfo().getPrimaryPhone();
+            String phone = cellData.getValue().getPrimaryPhone();
             return new SimpleStringProperty(phone != null ? phone : "");
         });
 
         // 类别列(暂时显示进京方式)
         categoryColumn.setCellValueFactory(cellData -> {
-            String method = cellData.getValue().getPetitionCase().getEntryMethod() != null
-                ? cellData.getValue().getPetitionCase().getEntryMethod().getDisplayName()
+            String method = cellData.getValue().getEntryMethod() != null
+                ? cellData.getValue().getEntryMethod().getDisplayName()
                 : "未知";
             return new SimpleStringProperty(method);
         });
 
         // 风险等级列(带颜色标识)
         riskLevelColumn.setCellValueFactory(cellData -> {
-            RiskLevel level = cellData.getValue().getRiskAssessment().getRiskLevel();
+            RiskLevel level = cellData.getValue().getRiskLevel();
             return new SimpleStringProperty(level != null ? level.getDisplayName() : "未评估");
         });
         riskLevelColumn.setCellFactory(column -> new TableCell<>() {
@@ -236,7 +250,7 @@ public class PetitionersController implements Initializable {
 
         // 评分列(暂时显示上访次数)
         riskScoreColumn.setCellValueFactory(cellData -> {
-            Integer visitCount = cellData.getValue().getPersonalInfo().getVisitCount();
+            Integer visitCount = cellData.getValue().getVisitCount();
             return new SimpleIntegerProperty(visitCount != null ? visitCount : 0).asObject();
         });
 
@@ -276,6 +290,40 @@ public class PetitionersController implements Initializable {
         });
     }
 
+    /**
+     * 初始化列排序
+     * 点击列头时按对应字段重新查询当前页，不在表格内排序（表格里只有一页数据）
+     */
+    private void initializeSorting() {
+        sortFields.put(nameColumn, SortField.NAME);
+        sortFields.put(idCardColumn, SortField.ID_CARD);
+        sortFields.put(riskLevelColumn, SortField.RISK_LEVEL);
+        sortFields.put(riskScoreColumn, SortField.VISIT_COUNT);
+        sortFields.put(lastVisitDateColumn, SortField.CREATE_TIME);
+        for (TableColumn<PetitionerSummary, ?> column : petitionersTable.getColumns()) {
+            column.setSortable(sortFields.containsKey(column));
+            column.sortTypeProperty().addListener((observable, oldType, newType) -> applyFilters());
+        }
+        petitionersTable.setSortPolicy(table -> true);
+        petitionersTable.getSortOrder().addListener(
+                (javafx.collections.ListChangeListener<TableColumn<PetitionerSummary, ?>>) change -> applyFilters());
+    }
+
+    /**
+     * 表格当前的排序条件
+     */
+    private List<SortKey> currentSort() {
+        List<SortKey> sort = new ArrayList<>();
+        for (TableColumn<PetitionerSummary, ?> column : petitionersTable.getSortOrder()) {
+            SortField field = sortFields.get(column);
+            if (field != null) {
+                sort.add(column.getSortType() == TableColumn.SortType.DESCENDING
+                        ? SortKey.desc(field) : SortKey.asc(field));
+            }
+        }
+        return sort;
+    }
+
     /**
      * 根据身份证号计算年龄
      */
@@ -303,7 +351,7 @@ public class PetitionersController implements Initializable {
         pageSizeComboBox.setItems(FXCollections.observableArrayList(
                 10, 20, 50, 100
         ));
-        pageSizeComboBox.setValue(pageSize);
+        pageSizeComboBox.setValue(page.getPageSize());
     }
 
     /**
@@ -311,57 +359,55 @@ public class PetitionersController implements Initializable {
      */
     private void loadData() {
         System.out.println("正在加载数据...");
+        if (page.hasQuery()) {
+            showPage(page.getPageIndex());
+        } else {
+            applyFilters();
+        }
+        System.out.println("数据加载完成，共 " + page.getTotal() + " 条记录");
+    }
 
+    /**
+     * 应用一批数据变更
+     * 不影响当前页成员和顺序的变更按ID找到对应的行直接改写，只有可能改变当前页时才重新读取
+     *
+     * @param events 按发生顺序排列的变更事件
+     */
+    private void applyChanges(List<DataChangeEvent> events) {
         try {
-            // 从服务层获取所有数据
-            java.util.List<Petitioner> petitioners = petitionerService.getAllPetitioners();
-            allPetitioners = FXCollections.observableArrayList(petitioners);
-
-            // 创建可筛选列表
-            filteredPetitioners = new FilteredList<>(allPetitioners, p -> true);
-
-            // 更新显示
-            updateTableView();
-            updateCountLabel();
-
-            System.out.println("数据加载完成，共 " + allPetitioners.size() + " 条记录");
+            page.apply(events);
         } catch (Exception e) {
-            System.err.println("加载数据失败: " + e.getMessage());
-            e.printStackTrace();
-            showAlert("加载失败", "无法加载数据: " + e.getMessage());
+            showLoadError(e);
         }
+        updatePaginationControls();
+        updateCountLabel();
     }
 
     /**
-     * 更新表格显示(分页)
+     * 显示指定页
+     * 只向查询服务读取该页和总数，翻页的开销与页大小成正比；
+     * 页码超出范围（例如删除了最后一页的记录）时显示最后一页
+     *
+     * @param pageIndex 页码（从0开始）
      */
-    private void updateTableView() {
-        int totalRecords = filteredPetitioners.size();
-
-        // 计算总页数
-        totalPages = (int) Math.ceil((double) totalRecords / pageSize);
-        if (totalPages == 0) totalPages = 1;
-
-        // 确保当前页在有效范围内
-        if (currentPage > totalPages) currentPage = totalPages;
-        if (currentPage < 1) currentPage = 1;
-
-        // 计算分页范围
-        int fromIndex = (currentPage - 1) * pageSize;
-        int toIndex = Math.min(fromIndex + pageSize, totalRecords);
-
-        // 提取当前页数据
-        java.util.List<Petitioner> pageData = filteredPetitioners.subList(fromIndex, toIndex);
-        petitionersTable.setItems(FXCollections.observableArrayList(pageData));
+    private void showPage(int pageIndex) {
+        try {
+            page.load(pageIndex);
+        } catch (Exception e) {
+            showLoadError(e);
+        }
 
         // 更新分页控件状态
         updatePaginationControls();
+        updateCountLabel();
     }
 
     /**
      * 更新分页控件状态
      */
     private void updatePaginationControls() {
+        int currentPage = page.getPageIndex() + 1;
+        int totalPages = page.getPageCount();
         pageField.setText(String.valueOf(currentPage));
         totalPagesLabel.setText("/ " + totalPages + " 页");
 
@@ -375,8 +421,7 @@ public class PetitionersController implements Initializable {
      * 更新记录数标签
      */
     private void updateCountLabel() {
-        int total = filteredPetitioners.size();
-        countLabel.setText("共 " + total + " 条记录");
+        countLabel.setText("共 " + page.getTotal() + " 条记录");
     }
 
     // ==================== 搜索和筛选事件 ====================
@@ -390,97 +435,37 @@ public class PetitionersController implements Initializable {
     }
 
     /**
-     * 应用筛选条件（整合高级查询逻辑）
+     * 应用筛选条件和排序（与高级查询页面共用同一查询模型）
      */
     private void applyFilters() {
-        filteredPetitioners.setPredicate(petitioner -> {
-            // 姓名匹配
-            String nameKeyword = nameField.getText();
-            if (nameKeyword != null && !nameKeyword.trim().isEmpty()) {
-                if (petitioner.getName() == null ||
-                    !petitioner.getName().contains(nameKeyword.trim())) {
-                    return false;
-                }
-            }
-
-            // 身份证号匹配
-            String idCardKeyword = idCardField.getText();
-            if (idCardKeyword != null && !idCardKeyword.trim().isEmpty()) {
-                if (petitioner.getIdCard() == null ||
-                    !petitioner.getIdCard().contains(idCardKeyword.trim())) {
-                    return false;
-                }
-            }
-
-            // 籍贯匹配
-            String nativePlaceKeyword = nativePlaceField.getText();
-            if (nativePlaceKeyword != null && !nativePlaceKeyword.trim().isEmpty()) {
-                if (petitioner.getPersonalInfo() == null ||
-                    petitioner.getPersonalInfo().getNativePlace() == null ||
-                    !petitioner.getPersonalInfo().getNativePlace().contains(nativePlaceKeyword.trim())) {
-                    return false;
-                }
-            }
-
-            // 性别筛选
-            String selectedGender = genderFilter.getValue();
-            if (selectedGender != null && !"全部".equals(selectedGender)) {
-                if (petitioner.getPersonalInfo() == null ||
-                    petitioner.getPersonalInfo().getGender() == null ||
-                    !selectedGender.equals(petitioner.getPersonalInfo().getGender().getDisplayName())) {
-                    return false;
-                }
-            }
-
-            // 文化程度匹配
-            String selectedEducation = educationCombo.getValue();
-            if (selectedEducation != null && !"全部".equals(selectedEducation)) {
-                if (petitioner.getPersonalInfo() == null ||
-                    petitioner.getPersonalInfo().getEducation() == null ||
-                    !selectedEducation.equals(petitioner.getPersonalInfo().getEducation().getDisplayName())) {
-                    return false;
-                }
-            }
-
-            // 婚姻状况匹配
-            String selectedMaritalStatus = maritalStatusCombo.getValue();
-            if (selectedMaritalStatus != null && !"全部".equals(selectedMaritalStatus)) {
-                if (petitioner.getPersonalInfo() == null ||
-                    petitioner.getPersonalInfo().getMaritalStatus() == null ||
-                    !selectedMaritalStatus.equals(petitioner.getPersonalInfo().getMaritalStatus().getDisplayName())) {
-                    return false;
-                }
-            }
-
-            // 危险等级筛选
-            String selectedRiskLevel = riskLevelFilter.getValue();
-            if (selectedRiskLevel != null && !"全部".equals(selectedRiskLevel)) {
-                if (petitioner.getRiskAssessment() == null ||
-                    petitioner.getRiskAssessment().getRiskLevel() == null ||
-                    !selectedRiskLevel.equals(petitioner.getRiskAssessment().getRiskLevel().getDisplayName())) {
-                    return false;
-                }
-            }
-
-            // 进京方式匹配
-            String selectedEntryMethod = entryMethodCombo.getValue();
-            if (selectedEntryMethod != null && !"全部".equals(selectedEntryMethod)) {
-                if (petitioner.getPetitionCase() == null ||
-                    petitioner.getPetitionCase().getEntryMethod() == null ||
-                    !selectedEntryMethod.equals(petitioner.getPetitionCase().getEntryMethod().getDisplayName())) {
-                    return false;
-                }
-            }
-
-            return true;
-        });
-
-        // 重置到第一页
-        currentPage = 1;
-        updateTableView();
+        PetitionerQuery petitionerQuery = new PetitionerQuery();
+        petitionerQuery.setName(nameField.getText());
+        petitionerQuery.setIdCard(idCardField.getText());
+        petitionerQuery.setNativePlaceKeyword(nativePlaceField.getText());
+        petitionerQuery.setGenders(selected(Gender.fromDisplayName(genderFilter.getValue())));
+        petitionerQuery.setEducations(selected(Education.fromDisplayName(educationCombo.getValue())));
+        petitionerQuery.setMaritalStatuses(selected(MaritalStatus.fromDisplayName(maritalStatusCombo.getValue())));
+        petitionerQuery.setRiskLevels(selected(RiskLevel.fromDisplayName(riskLevelFilter.getValue())));
+        petitionerQuery.setEntryMethods(selected(EntryMethod.fromDisplayName(entryMethodCombo.getValue())));
+        petitionerQuery.setSort(currentSort());
+
+        // 从第一页开始显示
+        try {
+            page.setQuery(petitionerQuery.compile());
+        } catch (Exception e) {
+            showLoadError(e);
+        }
+        updatePaginationControls();
         updateCountLabel();
     }
 
+    /**
+     * 下拉框选中的取值（“全部”对应null，表示不限）
+     */
+    private static <E> List<E> selected(E value) {
+        return value != null ? List.of(value) : null;
+    }
+
     /**
      * 重置筛选条件
      */
@@ -508,61 +493,60 @@ public class PetitionersController implements Initializable {
     @FXML
     private void handleRefresh() {
         loadData();
-        updateTableView();
     }
 
     // ==================== 分页事件 ====================
 
     @FXML
     private void handleFirstPage() {
-        currentPage = 1;
-        updateTableView();
+        showPage(0);
     }
 
     @FXML
     private void handlePrevPage() {
-        if (currentPage > 1) {
-            currentPage--;
-            updateTableView();
+        if (page.getPageIndex() > 0) {
+            showPage(page.getPageIndex() - 1);
         }
     }
 
     @FXML
     private void handleNextPage() {
-        if (currentPage < totalPages) {
-            currentPage++;
-            updateTableView();
+        if (page.getPageIndex() + 1 < page.getPageCount()) {
+            showPage(page.getPageIndex() + 1);
         }
     }
 
     @FXML
     private void handleLastPage() {
-        currentPage = totalPages;
-        updateTableView();
+        showPage(page.getPageCount() - 1);
     }
 
     @FXML
     private void handleJumpPage() {
+        int totalPages = page.getPageCount();
         try {
-            int page = Integer.parseInt(pageField.getText());
-            if (page >= 1 && page <= totalPages) {
-                currentPage = page;
-                updateTableView();
+            int number = Integer.parseInt(pageField.getText());
+            if (number >= 1 && number <= totalPages) {
+                showPage(number - 1);
             } else {
-                pageField.setText(String.valueOf(currentPage));
+                pageField.setText(String.valueOf(page.getPageIndex() + 1));
                 showAlert("页码超出范围", "请输入 1 到 " + totalPages + " 之间的页码");
             }
         } catch (NumberFormatException e) {
-            pageField.setText(String.valueOf(currentPage));
+            pageField.setText(String.valueOf(page.getPageIndex() + 1));
             showAlert("输入错误", "请输入有效的页码");
         }
     }
 
     @FXML
     private void handlePageSizeChange() {
-        pageSize = pageSizeComboBox.getValue();
-        currentPage = 1;
-        updateTableView();
+        try {
+            page.setPageSize(pageSizeComboBox.getValue());
+        } catch (Exception e) {
+            showLoadError(e);
+        }
+        updatePaginationControls();
+        updateCountLabel();
     }
 
     // ==================== CRUD 操作事件 ====================
@@ -578,7 +562,7 @@ public class PetitionersController implements Initializable {
     /**
      * 查看人员详情
      */
-    private void handleView(Petitioner petitioner) {
+    private void handleView(PetitionerSummary petitioner) {
         if (petitioner == null) {
             return;
         }
@@ -590,15 +574,12 @@ public class PetitionersController implements Initializable {
 
             // 获取控制器并设置数据
             DetailController controller = loader.getController();
-            controller.setData(petitioner);
-
-            // 设置数据变更回调（删除或编辑后刷新列表）
-            controller.setOnDataChangedCallback(this::loadData);
+            controller.setDataById(petitioner.getId());
 
             // 创建美化的弹窗
             Stage parentStage = (Stage) petitionersTable.getScene().getWindow();
             Stage stage = com.petition.util.StageUtil.createStyledDialog(
-                "👤 人员详细信息 - " + petitioner.getPersonalInfo().getName(),
+                "👤 人员详细信息 - " + petitioner.getName(),
                 root, parentStage, 1100, 750
             );
             stage.show();
@@ -612,7 +593,7 @@ public class PetitionersController implements Initializable {
     /**
      * 编辑人员
      */
-    private void handleEdit(Petitioner petitioner) {
+    private void handleEdit(PetitionerSummary petitioner) {
         if (petitioner != null) {
             openFormDialog(petitioner);
         }
@@ -621,7 +602,7 @@ public class PetitionersController implements Initializable {
     /**
      * 打开表单对话框
      */
-    private void openFormDialog(Petitioner petitioner) {
+    private void openFormDialog(PetitionerSummary petitioner) {
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/form.fxml"));
             Parent root = loader.load();
@@ -631,14 +612,9 @@ public class PetitionersController implements Initializable {
             if (petitioner == null) {
                 controller.setAddMode();
             } else {
-                controller.setEditMode(petitioner);
+                controller.setEditModeById(petitioner.getId());
             }
 
-            // 设置保存成功回调
-            controller.setOnSaveCallback(() -> {
-                loadData(); // 刷新列表
-            });
-
             // 创建美化的弹窗
             Stage parentStage = (Stage) petitionersTable.getScene().getWindow();
             String title = petitioner == null ? "🆕 新增人员" : "✏️ 编辑人员";
@@ -657,7 +633,7 @@ public class PetitionersController implements Initializable {
     /**
      * 删除人员
      */
-    private void handleDelete(Petitioner petitioner) {
+    private void handleDelete(PetitionerSummary petitioner) {
         if (petitioner != null) {
             Alert confirm = new Alert(Alert.AlertType.CONFIRMATION);
             confirm.setTitle("确认删除");
@@ -668,7 +644,6 @@ public class PetitionersController implements Initializable {
                 if (response == ButtonType.OK) {
                     try {
                         petitionerService.deletePetitioner(petitioner.getId());
-                        loadData(); // 重新加载数据
                         showAlert("删除成功", "已删除人员：" + petitioner.getName());
                     } catch (Exception e) {
                         System.err.println("删除失败: " + e.getMessage());
@@ -700,6 +675,15 @@ public class PetitionersController implements Initializable {
 
     // ==================== 工具方法 ====================
 
+    /**
+     * 提示数据加载失败
+     */
+    private void showLoadError(Exception e) {
+        System.err.println("加载数据失败: " + e.getMessage());
+        e.printStackTrace();
+        showAlert("加载失败", "无法加载数据: " + e.getMessage());
+    }
+
     /**
      * 显示提示对话框
      */
@@ -1,13 +1,22 @@
 package com.petition.controller;
 
+import com.petition.dao.DataChangeEvent;
+import com.petition.dao.SortField;
+import com.petition.dao.SortKey;
 import com.petition.model.Petitioner;
+import com.petition.model.PetitionerSummary;
 import com.petition.model.enums.*;
+import com.petition.service.CompiledQuery;
 import com.petition.service.ExportService;
+import com.petition.service.LiveQueryPage;
+import com.petition.service.PetitionerQuery;
+import com.petition.service.PetitionerService;
 import com.petition.service.QueryService;
 import com.petition.util.IdCardUtil;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -23,7 +32,9 @@ import javafx.stage.Stage;
 import java.io.File;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
 
 /**
@@ -51,24 +62,43 @@ public class QueryController implements Initializable {
 
     // 结果显示
     @FXML private Label resultCountLabel;
-    @FXML private TableView<Petitioner> resultTable;
+    @FXML private TableView<PetitionerSummary> resultTable;
+    @FXML private Button prevPageButton;
+    @FXML private Label pageLabel;
+    @FXML private Button nextPageButton;
 
     // 表格列
-    @FXML private TableColumn<Petitioner, Integer> indexColumn;
-    @FXML private TableColumn<Petitioner, String> nameColumn;
-    @FXML private TableColumn<Petitioner, String> idCardColumn;
-    @FXML private TableColumn<Petitioner, String> genderColumn;
-    @FXML private TableColumn<Petitioner, String> nativePlaceColumn;
-    @FXML private TableColumn<Petitioner, Integer> visitCountColumn;
-    @FXML private TableColumn<Petitioner, String> riskLevelColumn;
-    @FXML private TableColumn<Petitioner, String> phoneColumn;
-    @FXML private TableColumn<Petitioner, Void> actionColumn;
+    @FXML private TableColumn<PetitionerSummary, Integer> indexColumn;
+    @FXML private TableColumn<PetitionerSummary, String> nameColumn;
+    @FXML private TableColumn<PetitionerSummary, String> idCardColumn;
+    @FXML private TableColumn<PetitionerSummary, String> genderColumn;
+    @FXML private TableColumn<PetitionerSummary, String> nativePlaceColumn;
+    @FXML private TableColumn<PetitionerSummary, Integer> visitCountColumn;
+    @FXML private TableColumn<PetitionerSummary, String> riskLevelColumn;
+    @FXML private TableColumn<PetitionerSummary, String> phoneColumn;
+    @FXML private TableColumn<PetitionerSummary, Void> actionColumn;
 
     // ==================== 业务属性 ====================
 
-    private final QueryService queryService = new QueryService();
+    private final PetitionerService petitionerService = new PetitionerService();
     private final ExportService exportService = new ExportService();
-    private final ObservableList<Petitioner> resultData = FXCollections.observableArrayList();
+    private final QueryService queryService = new QueryService();
+    private final ObservableList<PetitionerSummary> resultData = FXCollections.observableArrayList();
+
+    /**
+     * 每页显示的结果数
+     */
+    private static final int PAGE_SIZE = 50;
+
+    /**
+     * 当前页的结果，数据变更后按记录更新；未执行查询时为空，不随数据变更追加记录
+     */
+    private final LiveQueryPage page = new LiveQueryPage(queryService, resultData, PAGE_SIZE);
+
+    /**
+     * 可排序的列及对应的排序字段
+     */
+    private final Map<TableColumn<PetitionerSummary, ?>, SortField> sortFields = new HashMap<>();
 
     /**
      * 初始化方法
@@ -78,6 +108,15 @@ public class QueryController implements Initializable {
         initializeComboBoxes();
         initializeSpinners();
         initializeTableColumns();
+        initializeSorting();
+
+        // 数据变更后按记录更新查询结果，页面移除时取消订阅
+        DataChangeBinding binding = DataChangeBinding.bind(petitionerService, this::applyChanges);
+        resultTable.sceneProperty().addListener((observable, oldScene, newScene) -> {
+            if (newScene == null) {
+                binding.close();
+            }
+        });
     }
 
     /**
@@ -151,7 +190,7 @@ public class QueryController implements Initializable {
     private void initializeTableColumns() {
         // 序号列
         indexColumn.setCellValueFactory(cellData -> {
-            int index = resultTable.getItems().indexOf(cellData.getValue()) + 1;
+            int index = page.getPageIndex() * PAGE_SIZE + page.indexOf(cellData.getValue().getId()) + 1;
             return new SimpleIntegerProperty(index).asObject();
         });
 
@@ -169,48 +208,38 @@ public class QueryController implements Initializable {
 
         // 性别列
         genderColumn.setCellValueFactory(cellData -> {
-            if (cellData.getValue().getPersonalInfo() != null &&
-                cellData.getValue().getPersonalInfo().getGender() != null) {
-                return new SimpleStringProperty(cellData.getValue().getPersonalInfo().getGender().getDisplayName());
+            if (cellData.getValue().getGender() != null) {
+                return new SimpleStringProperty(cellData.getValue().getGender().getDisplayName());
             }
             return new SimpleStringProperty("-");
         });
 
         // 籍贯列
         nativePlaceColumn.setCellValueFactory(cellData -> {
-            if (cellData.getValue().getPersonalInfo() != null) {
-                String place = cellData.getValue().getPersonalInfo().getNativePlace();
-                return new SimpleStringProperty(place != null ? place : "-");
-            }
-            return new SimpleStringProperty("-");
+            String place = cellData.getValue().getNativePlace();
+            return new SimpleStringProperty(place != null ? place : "-");
         });
 
         // 上访次数列
         visitCountColumn.setCellValueFactory(cellData -> {
-            if (cellData.getValue().getPersonalInfo() != null &&
-                cellData.getValue().getPersonalInfo().getVisitCount() != null) {
-                return new SimpleIntegerProperty(cellData.getValue().getPersonalInfo().getVisitCount()).asObject();
+            if (cellData.getValue().getVisitCount() != null) {
+                return new SimpleIntegerProperty(cellData.getValue().getVisitCount()).asObject();
             }
             return new SimpleIntegerProperty(0).asObject();
         });
 
         // 危险等级列
         riskLevelColumn.setCellValueFactory(cellData -> {
-            if (cellData.getValue().getRiskAssessment() != null &&
-                cellData.getValue().getRiskAssessment().getRiskLevel() != null) {
-                return new SimpleStringProperty(cellData.getValue().getRiskAssessment().getRiskLevel().getDisplayName());
+            if (cellData.getValue().getRiskLevel() != null) {
+                return new SimpleStringProperty(cellData.getValue().getRiskLevel().getDisplayName());
             }
             return new SimpleStringProperty("-");
         });
 
         // 联系电话列
         phoneColumn.setCellValueFactory(cellData -> {
-            if (cellData.getValue().getPersonalInfo() != null &&
-                cellData.getValue().getPersonalInfo().getPhones() != null &&
-                !cellData.getValue().getPersonalInfo().getPhones().isEmpty()) {
-                return new SimpleStringProperty(cellData.getValue().getPersonalInfo().getPhones().get(0));
-            }
-            return new SimpleStringProperty("-");
+            String phone = cellData.getValue().getPrimaryPhone();
+            return new SimpleStringProperty(phone != null ? phone : "-");
         });
 
         // 操作列
@@ -221,7 +250,7 @@ public class QueryController implements Initializable {
             {
                 viewButton.getStyleClass().add("table-button");
                 viewButton.setOnAction(event -> {
-                    Petitioner petitioner = getTableView().getItems().get(getIndex());
+                    PetitionerSummary petitioner = getTableView().getItems().get(getIndex());
                     handleView(petitioner);
                 });
             }
@@ -241,6 +270,33 @@ public class QueryController implements Initializable {
         resultTable.setItems(resultData);
     }
 
+    /**
+     * 初始化列排序
+     * 点击列头时按对应字段重新查询，排序在查询服务中完成
+     */
+    private void initializeSorting() {
+        Map<TableColumn<PetitionerSummary, ?>, SortField> fields = Map.of(
+                nameColumn, SortField.NAME,
+                idCardColumn, SortField.ID_CARD,
+                visitCountColumn, SortField.VISIT_COUNT,
+                riskLevelColumn, SortField.RISK_LEVEL);
+        sortFields.putAll(fields);
+        for (TableColumn<PetitionerSummary, ?> column : fields.keySet()) {
+            column.sortTypeProperty().addListener((observable, oldType, newType) -> resort());
+        }
+        resultTable.setSortPolicy(table -> true);
+        resultTable.getSortOrder().addListener((ListChangeListener<TableColumn<PetitionerSummary, ?>>) change -> resort());
+    }
+
+    /**
+     * 排序变化后从第一页重新查询
+     */
+    private void resort() {
+        if (page.hasQuery()) {
+            handleSearch();
+        }
+    }
+
     // ==================== 事件处理方法 ====================
 
     /**
@@ -249,128 +305,104 @@ public class QueryController implements Initializable {
     @FXML
     private void handleSearch() {
         try {
-            // 构建查询条件
-            List<Petitioner> allData = queryService.advancedQuery(null);
-            List<Petitioner> filteredData = new ArrayList<>();
-
-            for (Petitioner petitioner : allData) {
-                if (matchesCriteria(petitioner)) {
-                    filteredData.add(petitioner);
-                }
-            }
-
-            // 更新结果
-            resultData.clear();
-            resultData.addAll(filteredData);
-            resultCountLabel.setText("共 " + filteredData.size() + " 条结果");
-
+            // 编译查询条件，由数据仓库按索引执行，从第一页开始显示
+            page.setQuery(buildQuery());
         } catch (Exception e) {
             e.printStackTrace();
             showAlert(Alert.AlertType.ERROR, "错误", "查询失败", e.getMessage());
         }
+        updatePageControls();
     }
 
     /**
-     * 判断人员是否匹配查询条件
+     * 读取指定页的结果
+     * 查询服务只返回本页和总数，翻页的开销与页大小成正比
      */
-    private boolean matchesCriteria(Petitioner petitioner) {
-        // 姓名匹配
-        String nameKeyword = nameField.getText();
-        if (nameKeyword != null && !nameKeyword.trim().isEmpty()) {
-            if (petitioner.getName() == null ||
-                !petitioner.getName().contains(nameKeyword.trim())) {
-                return false;
-            }
-        }
-
-        // 身份证号匹配
-        String idCardKeyword = idCardField.getText();
-        if (idCardKeyword != null && !idCardKeyword.trim().isEmpty()) {
-            if (petitioner.getIdCard() == null ||
-                !petitioner.getIdCard().contains(idCardKeyword.trim())) {
-                return false;
-            }
-        }
-
-        // 籍贯匹配
-        String nativePlaceKeyword = nativePlaceField.getText();
-        if (nativePlaceKeyword != null && !nativePlaceKeyword.trim().isEmpty()) {
-            if (petitioner.getPersonalInfo() == null ||
-                petitioner.getPersonalInfo().getNativePlace() == null ||
-                !petitioner.getPersonalInfo().getNativePlace().contains(nativePlaceKeyword.trim())) {
-                return false;
-            }
-        }
-
-        // 危险等级匹配
-        String selectedRiskLevel = riskLevelCombo.getValue();
-        if (selectedRiskLevel != null && !"全部".equals(selectedRiskLevel)) {
-            if (petitioner.getRiskAssessment() == null ||
-                petitioner.getRiskAssessment().getRiskLevel() == null ||
-                !selectedRiskLevel.equals(petitioner.getRiskAssessment().getRiskLevel().getDisplayName())) {
-                return false;
-            }
-        }
-
-        // 性别匹配
-        String selectedGender = genderCombo.getValue();
-        if (selectedGender != null && !"全部".equals(selectedGender)) {
-            if (petitioner.getPersonalInfo() == null ||
-                petitioner.getPersonalInfo().getGender() == null ||
-                !selectedGender.equals(petitioner.getPersonalInfo().getGender().getDisplayName())) {
-                return false;
-            }
+    private void loadPage(int pageIndex) {
+        try {
+            page.load(pageIndex);
+        } catch (Exception e) {
+            e.printStackTrace();
+            showAlert(Alert.AlertType.ERROR, "错误", "查询失败", e.getMessage());
         }
+        updatePageControls();
+    }
 
-        // 文化程度匹配
-        String selectedEducation = educationCombo.getValue();
-        if (selectedEducation != null && !"全部".equals(selectedEducation)) {
-            if (petitioner.getPersonalInfo() == null ||
-                petitioner.getPersonalInfo().getEducation() == null ||
-                !selectedEducation.equals(petitioner.getPersonalInfo().getEducation().getDisplayName())) {
-                return false;
-            }
-        }
+    /**
+     * 更新结果数和翻页按钮
+     */
+    private void updatePageControls() {
+        resultCountLabel.setText("共 " + page.getTotal() + " 条结果");
+        pageLabel.setText("第 " + (page.getPageIndex() + 1) + " / " + page.getPageCount() + " 页");
+        prevPageButton.setDisable(page.getPageIndex() == 0);
+        nextPageButton.setDisable(page.getPageIndex() + 1 >= page.getPageCount());
+    }
 
-        // 婚姻状况匹配
-        String selectedMaritalStatus = maritalStatusCombo.getValue();
-        if (selectedMaritalStatus != null && !"全部".equals(selectedMaritalStatus)) {
-            if (petitioner.getPersonalInfo() == null ||
-                petitioner.getPersonalInfo().getMaritalStatus() == null ||
-                !selectedMaritalStatus.equals(petitioner.getPersonalInfo().getMaritalStatus().getDisplayName())) {
-                return false;
-            }
+    /**
+     * 上一页
+     */
+    @FXML
+    private void handlePrevPage() {
+        if (page.hasQuery() && page.getPageIndex() > 0) {
+            loadPage(page.getPageIndex() - 1);
         }
+    }
 
-        // 进京方式匹配
-        String selectedEntryMethod = entryMethodCombo.getValue();
-        if (selectedEntryMethod != null && !"全部".equals(selectedEntryMethod)) {
-            if (petitioner.getPetitionCase() == null ||
-                petitioner.getPetitionCase().getEntryMethod() == null ||
-                !selectedEntryMethod.equals(petitioner.getPetitionCase().getEntryMethod().getDisplayName())) {
-                return false;
-            }
+    /**
+     * 下一页
+     */
+    @FXML
+    private void handleNextPage() {
+        if (page.hasQuery() && page.getPageIndex() + 1 < page.getPageCount()) {
+            loadPage(page.getPageIndex() + 1);
         }
+    }
 
-        // 上访次数范围匹配
+    /**
+     * 根据页面上的条件编译查询
+     */
+    private CompiledQuery buildQuery() {
+        PetitionerQuery petitionerQuery = new PetitionerQuery();
+        petitionerQuery.setName(nameField.getText());
+        petitionerQuery.setIdCard(idCardField.getText());
+        petitionerQuery.setNativePlaceKeyword(nativePlaceField.getText());
+        petitionerQuery.setRiskLevels(selected(RiskLevel.fromDisplayName(riskLevelCombo.getValue())));
+        petitionerQuery.setGenders(selected(Gender.fromDisplayName(genderCombo.getValue())));
+        petitionerQuery.setEducations(selected(Education.fromDisplayName(educationCombo.getValue())));
+        petitionerQuery.setMaritalStatuses(selected(MaritalStatus.fromDisplayName(maritalStatusCombo.getValue())));
+        petitionerQuery.setEntryMethods(selected(EntryMethod.fromDisplayName(entryMethodCombo.getValue())));
+
+        // 上访次数范围不是默认的0-100时才作为条件，没有上访次数的记录不匹配
         Integer minCount = minVisitSpinner.getValue();
         Integer maxCount = maxVisitSpinner.getValue();
-
-        // 如果设置了范围条件(不是默认的0-100)
         if (minCount != null && maxCount != null && !(minCount == 0 && maxCount == 100)) {
-            if (petitioner.getPersonalInfo() != null &&
-                petitioner.getPersonalInfo().getVisitCount() != null) {
-                int count = petitioner.getPersonalInfo().getVisitCount();
-                if (count < minCount || count > maxCount) {
-                    return false;
-                }
-            } else {
-                // 如果没有上访次数数据,且设置了非默认范围,则不匹配
-                return false;
+            petitionerQuery.setMinVisitCount(minCount);
+            petitionerQuery.setMaxVisitCount(maxCount);
+        }
+        petitionerQuery.setSort(currentSort());
+        return petitionerQuery.compile();
+    }
+
+    /**
+     * 表格当前的排序条件
+     */
+    private List<SortKey> currentSort() {
+        List<SortKey> sort = new ArrayList<>();
+        for (TableColumn<PetitionerSummary, ?> column : resultTable.getSortOrder()) {
+            SortField field = sortFields.get(column);
+            if (field != null) {
+                sort.add(column.getSortType() == TableColumn.SortType.DESCENDING
+                        ? SortKey.desc(field) : SortKey.asc(field));
             }
         }
+        return sort;
+    }
 
-        return true;
+    /**
+     * 下拉框选中的取值（“全部”对应null，表示不限）
+     */
+    private static <E> List<E> selected(E value) {
+        return value != null ? List.of(value) : null;
     }
 
     /**
@@ -395,8 +427,27 @@ public class QueryController implements Initializable {
         maxVisitSpinner.getValueFactory().setValue(100);
 
         // 清空结果
-        resultData.clear();
-        resultCountLabel.setText("共 0 条结果");
+        page.clear();
+        updatePageControls();
+    }
+
+    /**
+     * 应用一批数据变更
+     * 不影响当前页成员和顺序的变更直接改写对应的行，只有可能改变当前页时才重新读取
+     *
+     * @param events 按发生顺序排列的变更事件
+     */
+    private void applyChanges(List<DataChangeEvent> events) {
+        if (!page.hasQuery()) {
+            return;
+        }
+        try {
+            page.apply(events);
+        } catch (Exception e) {
+            e.printStackTrace();
+            showAlert(Alert.AlertType.ERROR, "错误", "查询失败", e.getMessage());
+        }
+        updatePageControls();
     }
 
     /**
@@ -404,7 +455,7 @@ public class QueryController implements Initializable {
      */
     @FXML
     private void handleExport() {
-        if (resultData.isEmpty()) {
+        if (!page.hasQuery() || page.getTotal() == 0) {
             showAlert(Alert.AlertType.WARNING, "警告", "无数据可导出", "请先执行查询获取结果");
             return;
         }
@@ -421,15 +472,14 @@ public class QueryController implements Initializable {
         if (file != null) {
             try {
                 String fileName = file.getName().toLowerCase();
+                List<Petitioner> records = queryService.findAll(page.getQuery());
                 if (fileName.endsWith(".xlsx")) {
-                    List<Petitioner> dataToExport = new ArrayList<>(resultData);
-                    exportService.exportToExcel(file.getAbsolutePath(), dataToExport);
+                    exportService.exportToExcel(file.getAbsolutePath(), records);
                 } else if (fileName.endsWith(".csv")) {
-                    List<Petitioner> dataToExport = new ArrayList<>(resultData);
-                    exportService.exportToCsv(file.getAbsolutePath(), dataToExport);
+                    exportService.exportToCsv(file.getAbsolutePath(), records);
                 }
                 showAlert(Alert.AlertType.INFORMATION, "成功", "导出成功",
-                    "已导出 " + resultData.size() + " 条记录到：\n" + file.getAbsolutePath());
+                    "已导出 " + records.size() + " 条记录到：\n" + file.getAbsolutePath());
             } catch (Exception e) {
                 e.printStackTrace();
                 showAlert(Alert.AlertType.ERROR, "错误", "导出失败", e.getMessage());
@@ -440,7 +490,7 @@ public class QueryController implements Initializable {
     /**
      * 查看人员详情
      */
-    private void handleView(Petitioner petitioner) {
+    private void handleView(PetitionerSummary petitioner) {
         if (petitioner == null) {
             return;
         }
@@ -450,8 +500,7 @@ public class QueryController implements Initializable {
             Parent root = loader.load();
 
             DetailController controller = loader.getController();
-            controller.setData(petitioner);
-            controller.setOnDataChangedCallback(() -> handleSearch());
+            controller.setDataById(petitioner.getId());
 
             // 创建美化的弹窗
             Stage parentStage = (Stage) resultTable.getScene().getWindow();
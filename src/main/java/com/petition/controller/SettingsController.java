@@ -2,7 +2,7 @@ package com.petition.controller;
 
 import com.petition.dao.BackupManager;
 import com.petition.dao.ConfigManager;
-import com.petition.dao.JsonDataManager;
+import com.petition.dao.PetitionerRepository;
 import com.petition.service.ExportService;
 import com.petition.service.ImportService;
 import javafx.collections.FXCollections;
@@ -49,8 +49,8 @@ public class SettingsController implements Initializable {
     // ==================== 业务属性 ====================
 
     private final ConfigManager configManager = new ConfigManager();
-    private final BackupManager backupManager = new BackupManager(Paths.get("data/petitioners.json"));
-    private final JsonDataManager dataManager = new JsonDataManager();
+    private final PetitionerRepository dataManager = PetitionerRepository.getInstance();
+    private final BackupManager backupManager = new BackupManager(dataManager);
     private final ExportService exportService = new ExportService();
     private final ImportService importService = new ImportService();
 
@@ -2,6 +2,7 @@ package com.petition.controller;
 
 import com.petition.model.enums.*;
 import com.petition.service.StatisticsService;
+import com.petition.service.StatisticsSnapshot;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
@@ -55,13 +56,15 @@ public class StatisticsController implements Initializable {
      */
     private void loadStatistics() {
         try {
-            loadOverviewStats();
-            loadRiskLevelChart();
-            loadGenderChart();
-            loadVisitCountChart();
-            loadEntryMethodChart();
-            loadEducationChart();
-            loadNativePlaceChart();
+            // 所有图表共用一次遍历得到的统计快照
+            StatisticsSnapshot statistics = statisticsService.getStatistics();
+            loadOverviewStats(statistics);
+            loadRiskLevelChart(statistics);
+            loadGenderChart(statistics);
+            loadVisitCountChart(statistics);
+            loadEntryMethodChart(statistics);
+            loadEducationChart(statistics);
+            loadNativePlaceChart(statistics);
         } catch (Exception e) {
             e.printStackTrace();
             showAlert(Alert.AlertType.ERROR, "错误", "加载统计数据失败", e.getMessage());
@@ -71,9 +74,9 @@ public class StatisticsController implements Initializable {
     /**
      * 加载概览统计
      */
-    private void loadOverviewStats() throws Exception {
+    private void loadOverviewStats(StatisticsSnapshot statistics) {
         // 获取风险等级分布
-        Map<RiskLevel, Integer> riskDistribution = statisticsService.getRiskLevelDistribution();
+        Map<RiskLevel, Integer> riskDistribution = statistics.getRiskLevelDistribution();
 
         int total = 0;
         int highRisk = 0;
@@ -102,8 +105,8 @@ public class StatisticsController implements Initializable {
     /**
      * 加载危险等级分布饼图
      */
-    private void loadRiskLevelChart() throws Exception {
-        Map<RiskLevel, Integer> distribution = statisticsService.getRiskLevelDistribution();
+    private void loadRiskLevelChart(StatisticsSnapshot statistics) {
+        Map<RiskLevel, Integer> distribution = statistics.getRiskLevelDistribution();
 
         ObservableList<PieChart.Data> pieData = FXCollections.observableArrayList();
         for (Map.Entry<RiskLevel, Integer> entry : distribution.entrySet()) {
@@ -119,8 +122,8 @@ public class StatisticsController implements Initializable {
     /**
      * 加载性别分布饼图
      */
-    private void loadGenderChart() throws Exception {
-        Map<Gender, Integer> distribution = statisticsService.getGenderDistribution();
+    private void loadGenderChart(StatisticsSnapshot statistics) {
+        Map<Gender, Integer> distribution = statistics.getGenderDistribution();
 
         ObservableList<PieChart.Data> pieData = FXCollections.observableArrayList();
         for (Map.Entry<Gender, Integer> entry : distribution.entrySet()) {
@@ -136,8 +139,8 @@ public class StatisticsController implements Initializable {
     /**
      * 加载上访次数分布柱状图
      */
-    private void loadVisitCountChart() throws Exception {
-        Map<String, Integer> distribution = statisticsService.getVisitCountDistribution();
+    private void loadVisitCountChart(StatisticsSnapshot statistics) {
+        Map<String, Integer> distribution = statistics.getVisitCountDistribution();
 
         XYChart.Series<String, Number> series = new XYChart.Series<>();
         series.setName("人数");
@@ -158,8 +161,8 @@ public class StatisticsController implements Initializable {
     /**
      * 加载进京方式分布柱状图
      */
-    private void loadEntryMethodChart() throws Exception {
-        Map<EntryMethod, Integer> distribution = statisticsService.getEntryMethodDistribution();
+    private void loadEntryMethodChart(StatisticsSnapshot statistics) {
+        Map<EntryMethod, Integer> distribution = statistics.getEntryMethodDistribution();
 
         XYChart.Series<String, Number> series = new XYChart.Series<>();
         series.setName("人数");
@@ -178,8 +181,8 @@ public class StatisticsController implements Initializable {
     /**
      * 加载文化程度分布柱状图
      */
-    private void loadEducationChart() throws Exception {
-        Map<Education, Integer> distribution = statisticsService.getEducationDistribution();
+    private void loadEducationChart(StatisticsSnapshot statistics) {
+        Map<Education, Integer> distribution = statistics.getEducationDistribution();
 
         XYChart.Series<String, Number> series = new XYChart.Series<>();
         series.setName("人数");
@@ -198,8 +201,8 @@ public class StatisticsController implements Initializable {
     /**
      * 加载籍贯分布柱状图
      */
-    private void loadNativePlaceChart() throws Exception {
-        Map<String, Integer> distribution = statisticsService.getNativePlaceDistribution();
+    private void loadNativePlaceChart(StatisticsSnapshot statistics) {
+        Map<String, Integer> distribution = statistics.getNativePlaceDistribution();
 
         // 按数量排序，取前10
         List<Map.Entry<String, Integer>> sortedEntries = new ArrayList<>(distribution.entrySet());
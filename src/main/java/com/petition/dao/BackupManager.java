@@ -1,10 +1,16 @@
 package com.petition.dao;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.petition.model.Petitioner;
+
 import java.io.IOException;
 import java.nio.file.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.Executors;
@@ -15,6 +21,7 @@ import java.util.stream.Stream;
 /**
  * 数据备份管理器
  * 负责数据文件的备份、恢复和自动备份功能
+ * JSON存储直接复制数据文件；数据库存储备份时把全部记录导出为JSON文件，恢复时在数据库内整体替换
  *
  * @author 刘一村
  * @version 1.0.0
@@ -51,6 +58,21 @@ public class BackupManager {
      */
     private final Path dataFilePath;
 
+    /**
+     * 数据管理器（可为null），备份前用于把变更日志合并进数据文件
+     */
+    private final JsonDataManager dataManager;
+
+    /**
+     * 不使用JSON数据文件的数据仓库（可为null），此时备份和恢复都通过仓库读写记录
+     */
+    private final PetitionerRepository repository;
+
+    /**
+     * 数据仓库备份文件的JSON序列化
+     */
+    private final ObjectMapper objectMapper;
+
     /**
      * 最大备份文件数量
      */
@@ -70,6 +92,40 @@ public class BackupManager {
         this(dataFilePath, BACKUP_DIR, 7);
     }
 
+    /**
+     * 带数据管理器的构造函数
+     * 备份前先合并变更日志，恢复后刷新数据管理器的内存缓存
+     *
+     * @param dataManager 数据管理器实例
+     */
+    public BackupManager(JsonDataManager dataManager) {
+        this(dataManager.getDataFilePath(), BACKUP_DIR, 7, dataManager);
+    }
+
+    /**
+     * 按数据仓库构造
+     * JSON数据管理器按数据文件备份，其他数据仓库通过仓库导出和替换全部记录
+     *
+     * @param repository 数据仓库
+     */
+    public BackupManager(PetitionerRepository repository) {
+        this(repository, BACKUP_DIR, 7);
+    }
+
+    /**
+     * 按数据仓库构造（指定备份目录）
+     *
+     * @param repository 数据仓库
+     * @param backupDir 备份目录路径
+     * @param maxBackupCount 最大备份数量
+     */
+    public BackupManager(PetitionerRepository repository, String backupDir, int maxBackupCount) {
+        this(repository instanceof JsonDataManager ? ((JsonDataManager) repository).getDataFilePath() : null,
+                backupDir, maxBackupCount,
+                repository instanceof JsonDataManager ? (JsonDataManager) repository : null,
+                repository instanceof JsonDataManager ? null : repository);
+    }
+
     /**
      * 完整构造函数
      *
@@ -78,7 +134,33 @@ public class BackupManager {
      * @param maxBackupCount 最大备份数量
      */
     public BackupManager(Path dataFilePath, String backupDir, int maxBackupCount) {
+        this(dataFilePath, backupDir, maxBackupCount, null);
+    }
+
+    /**
+     * 完整构造函数（带数据管理器）
+     *
+     * @param dataFilePath 数据文件路径
+     * @param backupDir 备份目录路径
+     * @param maxBackupCount 最大备份数量
+     * @param dataManager 数据管理器实例（可为null）
+     */
+    public BackupManager(Path dataFilePath, String backupDir, int maxBackupCount, JsonDataManager dataManager) {
+        this(dataFilePath, backupDir, maxBackupCount, dataManager, null);
+    }
+
+    private BackupManager(Path dataFilePath, String backupDir, int maxBackupCount,
+                          JsonDataManager dataManager, PetitionerRepository repository) {
+        if (dataFilePath == null && repository == null) {
+            throw new IllegalArgumentException("数据文件路径和数据仓库不能同时为null");
+        }
         this.dataFilePath = dataFilePath;
+        this.dataManager = dataManager;
+        this.repository = repository;
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.registerModule(new JavaTimeModule());
+        this.objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        this.objectMapper.enable(SerializationFeature.INDENT_OUTPUT);
         this.backupDirectory = Paths.get(backupDir);
         this.maxBackupCount = maxBackupCount;
 
@@ -100,14 +182,19 @@ public class BackupManager {
 
     /**
      * 执行备份操作
-     * 将当前数据文件备份到备份目录
+     * 将当前数据文件（数据库存储时为导出的全部记录）备份到备份目录
      *
      * @return 备份文件路径
      * @throws IOException 文件操作异常
      */
     public Path backup() throws IOException {
+        // 把尚未合并的变更日志写入数据文件
+        if (dataManager != null) {
+            dataManager.checkpoint();
+        }
+
         // 检查数据文件是否存在
-        if (!Files.exists(dataFilePath)) {
+        if (!hasCurrentData()) {
             throw new IOException("数据文件不存在: " + dataFilePath);
         }
 
@@ -117,7 +204,7 @@ public class BackupManager {
         Path backupFilePath = backupDirectory.resolve(backupFileName);
 
         // 复制文件到备份目录
-        Files.copy(dataFilePath, backupFilePath, StandardCopyOption.REPLACE_EXISTING);
+        copyCurrentData(backupFilePath);
 
         // 清理旧备份
         cleanupOldBackups();
@@ -127,6 +214,9 @@ public class BackupManager {
 
     /**
      * 从备份文件恢复数据
+     * 替换数据文件时持有与数据管理器提交相同的数据目录锁，
+     * 其他实例不会在替换过程中追加日志或合并快照；替换完成后刷新数据管理器。
+     * 数据库存储时读取备份中的记录，由仓库整体替换
      *
      * @param backupFileName 备份文件名
      * @return 是否恢复成功
@@ -141,19 +231,63 @@ public class BackupManager {
         }
 
         // 在恢复之前先备份当前数据（安全措施）
-        if (Files.exists(dataFilePath)) {
+        if (dataManager != null) {
+            dataManager.checkpoint();
+        }
+        if (hasCurrentData()) {
             String timestamp = LocalDateTime.now().format(DATE_FORMATTER);
             String safetyBackupName = "before_restore_" + timestamp + BACKUP_EXTENSION;
             Path safetyBackupPath = backupDirectory.resolve(safetyBackupName);
-            Files.copy(dataFilePath, safetyBackupPath, StandardCopyOption.REPLACE_EXISTING);
+            copyCurrentData(safetyBackupPath);
+        }
+
+        if (repository != null) {
+            repository.replaceAll(Arrays.asList(objectMapper.readValue(backupFilePath.toFile(), Petitioner[].class)));
+            return true;
+        }
+
+        // 恢复备份文件到数据目录，旧的变更日志不能重放到恢复后的数据上
+        try (DataFileLock.Hold hold = new DataFileLock(JsonDataManager.lockFileFor(dataFilePath)).acquire()) {
+            hold.checkValid();
+            Files.copy(backupFilePath, dataFilePath, StandardCopyOption.REPLACE_EXISTING);
+            Files.deleteIfExists(JsonDataManager.logFileFor(dataFilePath));
+            Files.deleteIfExists(JsonDataManager.checksumFileFor(dataFilePath));
+            // 备份为单个数据文件，恢复后回到单文件布局
+            SegmentedSnapshotStore.delete(JsonDataManager.segmentDirectoryFor(dataFilePath));
         }
 
-        // 恢复备份文件到数据目录
-        Files.copy(backupFilePath, dataFilePath, StandardCopyOption.REPLACE_EXISTING);
+        if (dataManager != null) {
+            dataManager.refresh();
+        }
 
         return true;
     }
 
+    /**
+     * 当前是否有可备份的数据（单个数据文件或分段存储）
+     */
+    private boolean hasCurrentData() {
+        if (repository != null) {
+            return true;
+        }
+        return Files.exists(dataFilePath) || Files.exists(
+                JsonDataManager.segmentDirectoryFor(dataFilePath).resolve(SegmentedSnapshotStore.MANIFEST_FILE));
+    }
+
+    /**
+     * 把当前数据复制为单个备份文件
+     * 分段存储时由数据管理器导出为JSON，数据库存储时导出全部记录，备份文件始终可以直接查看和恢复
+     */
+    private void copyCurrentData(Path target) throws IOException {
+        if (repository != null) {
+            objectMapper.writeValue(target.toFile(), repository.snapshot());
+        } else if (dataManager != null && dataManager.getStorageLayout() == StorageLayout.SEGMENTED) {
+            dataManager.exportJson(target);
+        } else {
+            Files.copy(dataFilePath, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
     /**
      * 恢复最新的备份
      *
@@ -0,0 +1,424 @@
+package com.petition.dao;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.petition.model.Petitioner;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * 变更日志
+ * 快照之后的新增、修改、删除按顺序追加到日志文件（petitioners.log），每行一条JSON记录：
+ * PUT（单条记录）、PUT_ALL（一批记录）或DELETE（一组ID）。加载时在快照之上重放日志，
+ * 日志超过大小或时间阈值后提交后台合并任务，由数据管理器写出新快照后截掉已合并的部分。
+ *
+ * <p>本类不做同步，只在{@link JsonDataManager}的数据锁内使用；写文件的方法还要求调用方持有数据目录锁。</p>
+ *
+ * @author 刘一村
+ * @version 1.0.0
+ */
+class ChangeLog {
+    /**
+     * 触发日志合并的日志大小阈值（字节）
+     */
+    private static final long COMPACT_LOG_SIZE = 1024 * 1024;
+
+    /**
+     * 触发日志合并的日志存在时长阈值（毫秒）
+     */
+    private static final long COMPACT_LOG_AGE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    /**
+     * 日志操作类型：新增或更新
+     */
+    private static final String OP_PUT = "PUT";
+
+    /**
+     * 日志操作类型：批量新增或更新
+     */
+    private static final String OP_PUT_ALL = "PUT_ALL";
+
+    /**
+     * 日志操作类型：删除
+     */
+    private static final String OP_DELETE = "DELETE";
+
+    /**
+     * 日志文件路径
+     */
+    private final Path path;
+
+    /**
+     * 写日志用的ObjectMapper（单行输出）
+     */
+    private final ObjectMapper mapper;
+
+    /**
+     * 合并任务，由后台线程执行
+     */
+    private final Runnable compactTask;
+
+    /**
+     * 当前日志第一条记录的写入时间（毫秒），日志为空时为-1
+     */
+    private long startedAt = -1;
+
+    /**
+     * 是否已提交后台合并任务
+     */
+    private boolean compactionScheduled;
+
+    /**
+     * 后台日志合并线程
+     */
+    private ExecutorService compactionExecutor;
+
+    /**
+     * 构造函数
+     *
+     * @param path 日志文件路径
+     * @param mapper 单行输出的ObjectMapper
+     * @param compactTask 合并任务，日志过大或过旧时提交给后台线程
+     */
+    ChangeLog(Path path, ObjectMapper mapper, Runnable compactTask) {
+        this.path = path;
+        this.mapper = mapper;
+        this.compactTask = compactTask;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    /**
+     * 日志文件是否存在
+     *
+     * @return 是否存在
+     */
+    boolean exists() {
+        return Files.exists(path);
+    }
+
+    /**
+     * 获取日志文件大小
+     *
+     * @return 字节数
+     * @throws IOException 文件读取异常
+     */
+    long size() throws IOException {
+        return Files.size(path);
+    }
+
+    // ==================== 日志记录 ====================
+
+    /**
+     * 构造新增或更新日志记录
+     */
+    ObjectNode putEntry(Petitioner petitioner) {
+        ObjectNode entry = mapper.createObjectNode();
+        entry.put("op", OP_PUT);
+        entry.set("record", mapper.valueToTree(petitioner));
+        return entry;
+    }
+
+    /**
+     * 构造批量新增或更新日志记录
+     */
+    ObjectNode putAllEntry(List<Petitioner> petitioners) {
+        ObjectNode entry = mapper.createObjectNode();
+        entry.put("op", OP_PUT_ALL);
+        ArrayNode records = entry.putArray("records");
+        for (Petitioner petitioner : petitioners) {
+            records.add(mapper.<JsonNode>valueToTree(petitioner));
+        }
+        return entry;
+    }
+
+    /**
+     * 构造删除日志记录
+     */
+    ObjectNode deleteEntry(Collection<String> ids) {
+        ObjectNode entry = mapper.createObjectNode();
+        entry.put("op", OP_DELETE);
+        ArrayNode idArray = entry.putArray("ids");
+        ids.forEach(idArray::add);
+        return entry;
+    }
+
+    /**
+     * 将日志记录序列化为一行文本（不含换行符）
+     *
+     * @param entry 日志记录
+     * @return 单行JSON
+     * @throws IOException 序列化异常
+     */
+    String toLine(ObjectNode entry) throws IOException {
+        return mapper.writeValueAsString(entry);
+    }
+
+    /**
+     * 解析一条日志记录涉及的修改
+     *
+     * @param entry 日志记录
+     * @return 按顺序排列的（ID，修改后的记录）列表，删除时记录为null
+     * @throws IOException 记录解析异常
+     */
+    List<Map.Entry<String, Petitioner>> changesOf(JsonNode entry) throws IOException {
+        List<Map.Entry<String, Petitioner>> changes = new ArrayList<>();
+        String op = entry.path("op").asText();
+        if (OP_PUT.equals(op)) {
+            Petitioner record = mapper.treeToValue(entry.get("record"), Petitioner.class);
+            changes.add(new AbstractMap.SimpleImmutableEntry<>(record.getId(), record));
+        } else if (OP_PUT_ALL.equals(op)) {
+            for (JsonNode node : entry.path("records")) {
+                Petitioner record = mapper.treeToValue(node, Petitioner.class);
+                changes.add(new AbstractMap.SimpleImmutableEntry<>(record.getId(), record));
+            }
+        } else if (OP_DELETE.equals(op)) {
+            for (JsonNode id : entry.path("ids")) {
+                changes.add(new AbstractMap.SimpleImmutableEntry<>(id.asText(), null));
+            }
+        }
+        return changes;
+    }
+
+    // ==================== 读写 ====================
+
+    /**
+     * 向日志文件追加若干行并刷盘
+     *
+     * @param lines 以换行符结尾的日志行
+     * @throws IOException 文件写入异常
+     */
+    void append(String lines) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(lines.getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+    }
+
+    /**
+     * 日志追加成功后调用，日志过大或过旧时提交合并任务
+     *
+     * @param size 追加后的日志大小（字节）
+     */
+    void appended(long size) {
+        long now = System.currentTimeMillis();
+        if (startedAt < 0) {
+            startedAt = now;
+        }
+        if (size >= COMPACT_LOG_SIZE || now - startedAt >= COMPACT_LOG_AGE_MILLIS) {
+            scheduleCompaction();
+        }
+    }
+
+    /**
+     * 重新加载后调用，其他实例写入的日志过大时提交合并任务
+     *
+     * @param size 当前日志大小（字节），不存在时为-1
+     */
+    void loaded(long size) {
+        if (size >= COMPACT_LOG_SIZE) {
+            scheduleCompaction();
+        }
+    }
+
+    /**
+     * 按顺序重放变更日志
+     * 崩溃时可能留下未写完的最后一行，该行对应的修改未被确认，直接忽略
+     *
+     * @param stored 快照中的数据，重放结果直接写入
+     * @throws IOException 文件读取异常
+     */
+    void replay(Map<String, Petitioner> stored) throws IOException {
+        if (!Files.exists(path)) {
+            startedAt = -1;
+            return;
+        }
+
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    lines.add(line);
+                }
+            }
+        }
+
+        for (int i = 0; i < lines.size(); i++) {
+            JsonNode entry;
+            try {
+                entry = mapper.readTree(lines.get(i));
+            } catch (IOException e) {
+                if (i == lines.size() - 1) {
+                    System.err.println("忽略未写完的日志记录: " + path);
+                    break;
+                }
+                throw e;
+            }
+            for (Map.Entry<String, Petitioner> change : changesOf(entry)) {
+                if (change.getValue() != null) {
+                    stored.put(change.getKey(), change.getValue());
+                } else {
+                    stored.remove(change.getKey());
+                }
+            }
+        }
+
+        startedAt = lines.isEmpty() ? -1 : System.currentTimeMillis();
+    }
+
+    /**
+     * 读取其他实例在offset之后追加的日志行
+     * 只处理完整的行，未写完的最后一行留到下次检查
+     *
+     * @param offset 已重放的日志字节数
+     * @param size 当前日志文件大小
+     * @param action 按顺序接收每条修改（ID，修改后的记录，删除时为null）
+     * @return 最后一个完整行之后的字节位置；offset不在行首（日志被改写）或新增内容过大时返回-1，
+     *         由调用方重新读取全部数据
+     * @throws IOException 文件读取异常
+     */
+    long replayTail(long offset, long size, BiConsumer<String, Petitioner> action) throws IOException {
+        long length = size - offset;
+        if (length > Integer.MAX_VALUE) {
+            return -1;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) length);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (offset > 0) {
+                ByteBuffer previous = ByteBuffer.allocate(1);
+                channel.read(previous, offset - 1);
+                if (previous.get(0) != '\n') {
+                    return -1;
+                }
+            }
+            while (buffer.hasRemaining() && channel.read(buffer, offset + buffer.position()) >= 0) {
+                // 读到指定长度或文件末尾
+            }
+        }
+
+        byte[] bytes = buffer.array();
+        int complete = buffer.position();
+        while (complete > 0 && bytes[complete - 1] != '\n') {
+            complete--;
+        }
+
+        String tail = new String(bytes, 0, complete, StandardCharsets.UTF_8);
+        for (String line : tail.split("\n")) {
+            if (line.isBlank()) {
+                continue;
+            }
+            for (Map.Entry<String, Petitioner> change : changesOf(mapper.readTree(line))) {
+                action.accept(change.getKey(), change.getValue());
+            }
+        }
+
+        if (startedAt < 0 && complete > 0) {
+            startedAt = System.currentTimeMillis();
+        }
+        return offset + complete;
+    }
+
+    /**
+     * 删除日志文件（其内容已全部包含在快照中）
+     *
+     * @throws IOException 文件删除异常
+     */
+    void delete() throws IOException {
+        Files.deleteIfExists(path);
+        startedAt = -1;
+    }
+
+    /**
+     * 删除日志中已合并进快照的前半部分，保留之后追加的记录
+     *
+     * @param length 已合并的日志字节数
+     * @throws IOException 文件写入异常
+     */
+    void truncateHead(long length) throws IOException {
+        long currentSize = Files.size(path);
+        if (currentSize <= length) {
+            delete();
+            return;
+        }
+
+        Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel source = FileChannel.open(path, StandardOpenOption.READ);
+             FileChannel target = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = length;
+            while (position < currentSize) {
+                position += source.transferTo(position, currentSize - position, target);
+            }
+            target.force(true);
+        }
+        JsonDataManager.moveAtomically(tempPath, path);
+        startedAt = System.currentTimeMillis();
+    }
+
+    // ==================== 后台合并 ====================
+
+    /**
+     * 提交后台合并任务
+     * 同一时间最多只有一个待执行的合并任务
+     */
+    private void scheduleCompaction() {
+        if (compactionScheduled) {
+            return;
+        }
+
+        if (compactionExecutor == null) {
+            compactionExecutor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "DataCompactionThread");
+                thread.setDaemon(true); // 设置为守护线程
+                return thread;
+            });
+        }
+
+        compactionScheduled = true;
+        compactionExecutor.submit(compactTask);
+    }
+
+    /**
+     * 合并任务开始执行，之后的日志追加可以再次提交合并
+     */
+    void compactionStarted() {
+        compactionScheduled = false;
+    }
+
+    /**
+     * 取出后台合并线程，之后不再提交新的合并任务（直到再次需要合并）
+     *
+     * @return 合并线程，未创建时返回null
+     */
+    ExecutorService detachExecutor() {
+        ExecutorService executor = compactionExecutor;
+        compactionExecutor = null;
+        return executor;
+    }
+}
@@ -0,0 +1,154 @@
+package com.petition.dao;
+
+import com.petition.model.Petitioner;
+
+/**
+ * 数据变更事件
+ * 描述数据管理器中一条记录的新增、修改、删除，或整体重新加载
+ *
+ * @author 刘一村
+ * @version 1.0.0
+ */
+public final class DataChangeEvent {
+    /**
+     * 变更类型
+     */
+    public enum Type {
+        /**
+         * 新增记录
+         */
+        ADDED,
+        /**
+         * 修改记录
+         */
+        UPDATED,
+        /**
+         * 删除记录
+         */
+        REMOVED,
+        /**
+         * 整体重新加载（外部修改、恢复备份、saveAll等），监听器应丢弃增量状态
+         */
+        RELOADED
+    }
+
+    /**
+     * 版本号未知（数据源不提供版本号，或事件尚未发出）
+     */
+    public static final long NO_VERSION = 0;
+
+    private final Type type;
+    private final Petitioner before;
+    private final Petitioner after;
+    private final long version;
+
+    private DataChangeEvent(Type type, Petitioner before, Petitioner after, long version) {
+        this.type = type;
+        this.before = before;
+        this.after = after;
+        this.version = version;
+    }
+
+    /**
+     * 创建新增事件
+     *
+     * @param after 新增的记录
+     * @return 事件
+     */
+    public static DataChangeEvent added(Petitioner after) {
+        return new DataChangeEvent(Type.ADDED, null, after, NO_VERSION);
+    }
+
+    /**
+     * 创建修改事件
+     *
+     * @param before 修改前缓存中的记录
+     * @param after 修改后的记录
+     * @return 事件
+     */
+    public static DataChangeEvent updated(Petitioner before, Petitioner after) {
+        return new DataChangeEvent(Type.UPDATED, before, after, NO_VERSION);
+    }
+
+    /**
+     * 创建删除事件
+     *
+     * @param before 被删除的记录
+     * @return 事件
+     */
+    public static DataChangeEvent removed(Petitioner before) {
+        return new DataChangeEvent(Type.REMOVED, before, null, NO_VERSION);
+    }
+
+    /**
+     * 创建重新加载事件
+     *
+     * @return 事件
+     */
+    public static DataChangeEvent reloaded() {
+        return new DataChangeEvent(Type.RELOADED, null, null, NO_VERSION);
+    }
+
+    /**
+     * 标记事件发出时的数据版本号
+     *
+     * @param version 应用本次变更后的数据版本号
+     * @return 带版本号的事件
+     */
+    DataChangeEvent atVersion(long version) {
+        return new DataChangeEvent(type, before, after, version);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * 获取变更前的记录（新增和重新加载时为null）
+     *
+     * @return 变更前的记录
+     */
+    public Petitioner getBefore() {
+        return before;
+    }
+
+    /**
+     * 获取变更后的记录（删除和重新加载时为null）
+     *
+     * @return 变更后的记录
+     */
+    public Petitioner getAfter() {
+        return after;
+    }
+
+    /**
+     * 获取应用本次变更后的数据版本号
+     * 与同一数据源{@link Page#getVersion()}比较：不大于分页结果版本号的事件已反映在该页中
+     *
+     * @return 版本号，数据源不提供时为{@link #NO_VERSION}
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * 获取变更记录的ID（重新加载时为null）
+     *
+     * @return 记录ID
+     */
+    public String getId() {
+        if (after != null) {
+            return after.getId();
+        }
+        return before != null ? before.getId() : null;
+    }
+
+    @Override
+    public String toString() {
+        return "DataChangeEvent{" +
+                "type=" + type +
+                ", id='" + getId() + '\'' +
+                ", version=" + version +
+                '}';
+    }
+}
@@ -0,0 +1,19 @@
+package com.petition.dao;
+
+/**
+ * 数据变更监听器
+ * 在数据管理器修改内存数据后同步回调，回调时仍持有数据管理器的锁，
+ * 实现应尽快返回；涉及界面更新时需转到JavaFX应用线程执行
+ *
+ * @author 刘一村
+ * @version 1.0.0
+ */
+@FunctionalInterface
+public interface DataChangeListener {
+    /**
+     * 数据发生变更
+     *
+     * @param event 变更事件
+     */
+    void onDataChanged(DataChangeEvent event);
+}
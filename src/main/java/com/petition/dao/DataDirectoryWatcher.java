@@ -0,0 +1,150 @@
+package com.petition.dao;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 数据目录监视器
+ * 用WatchService监视数据目录（及分段存储目录），目录内文件变化时回调；
+ * 短时间内的连续变化合并为一次回调。网络共享盘上文件系统通知可能不可靠，
+ * 因此在没有通知时也定期回调一次，由回调方按文件属性判断是否真的变化
+ *
+ * @author 刘一村
+ * @version 1.0.0
+ */
+final class DataDirectoryWatcher {
+    /**
+     * 收到第一个变化通知后等待后续通知的时间（毫秒）
+     */
+    private static final long SETTLE_MILLIS = 300;
+
+    /**
+     * 没有变化通知时的定期检查间隔（秒）
+     */
+    private static final long POLL_SECONDS = 5;
+
+    private final Path directory;
+    private final Path segmentDirectory;
+    private final Runnable onChange;
+
+    private WatchService watchService;
+    private Thread thread;
+    private volatile boolean running;
+
+    /**
+     * 构造函数
+     *
+     * @param directory 数据目录
+     * @param segmentDirectory 分段存储目录（可能尚不存在）
+     * @param onChange 目录内容变化（或定期检查）时的回调，在监视线程中执行
+     */
+    DataDirectoryWatcher(Path directory, Path segmentDirectory, Runnable onChange) {
+        this.directory = directory;
+        this.segmentDirectory = segmentDirectory;
+        this.onChange = onChange;
+    }
+
+    /**
+     * 注册监视并启动后台线程
+     *
+     * @throws IOException 无法监视目录
+     */
+    synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+        watchService = directory.getFileSystem().newWatchService();
+        register(directory);
+        registerSegmentDirectory();
+
+        running = true;
+        thread = new Thread(this::run, "DataWatchThread");
+        thread.setDaemon(true); // 设置为守护线程
+        thread.start();
+    }
+
+    /**
+     * 停止监视
+     */
+    void close() {
+        Thread current;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            current = thread;
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                System.err.println("关闭目录监视失败: " + e.getMessage());
+            }
+        }
+        if (current != Thread.currentThread()) {
+            try {
+                current.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void register(Path path) throws IOException {
+        path.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+    }
+
+    /**
+     * 分段存储目录可能在启动后才创建，每次收到通知时检查一次
+     */
+    private void registerSegmentDirectory() {
+        if (Files.isDirectory(segmentDirectory)) {
+            try {
+                // 重复注册返回同一个WatchKey
+                register(segmentDirectory);
+            } catch (IOException e) {
+                System.err.println("无法监视分段存储目录: " + e.getMessage());
+            }
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                WatchKey key = watchService.poll(POLL_SECONDS, TimeUnit.SECONDS);
+                if (key != null) {
+                    drain(key);
+                    // 等待写入方完成，期间的通知一并处理
+                    WatchKey next;
+                    while ((next = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                        drain(next);
+                    }
+                    registerSegmentDirectory();
+                }
+                onChange.run();
+            } catch (ClosedWatchServiceException e) {
+                break;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                System.err.println("处理数据目录变化失败: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 丢弃通知内容并重新启用WatchKey
+     * 只需要知道目录有变化，具体哪个文件变化由回调方按文件属性判断
+     */
+    private static void drain(WatchKey key) {
+        key.pollEvents();
+        key.reset();
+    }
+}
@@ -0,0 +1,151 @@
+package com.petition.dao;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 数据目录提交锁
+ * 跨进程用锁文件上的FileChannel独占锁（建议锁），进程内用按路径共享的可重入锁，
+ * 同一进程中打开同一目录的多个数据管理器也互斥。同一线程可重复获取，只有最外层加文件锁
+ *
+ * @author 刘一村
+ * @version 1.0.0
+ */
+final class DataFileLock {
+    /**
+     * 进程内的锁（锁文件路径 -> 可重入锁）
+     * 同一进程对同一文件重复加FileLock会抛出OverlappingFileLockException，必须先在进程内互斥
+     */
+    private static final Map<Path, ReentrantLock> PROCESS_LOCKS = new ConcurrentHashMap<>();
+
+    private final Path lockPath;
+    private final ReentrantLock processLock;
+
+    /**
+     * 当前持有的锁文件通道（只在持有进程内锁时访问）
+     */
+    private FileChannel channel;
+
+    /**
+     * 当前持有的文件锁（只在持有进程内锁时访问）
+     */
+    private FileLock fileLock;
+
+    /**
+     * 构造函数
+     *
+     * @param lockPath 锁文件路径（不存在时自动创建）
+     */
+    DataFileLock(Path lockPath) {
+        this.lockPath = lockPath.toAbsolutePath().normalize();
+        this.processLock = PROCESS_LOCKS.computeIfAbsent(this.lockPath, path -> new ReentrantLock());
+    }
+
+    /**
+     * 获取锁，其他进程持有时阻塞等待
+     *
+     * @return 持有凭证，用try-with-resources释放
+     * @throws IOException 无法打开或锁定锁文件
+     */
+    Hold acquire() throws IOException {
+        processLock.lock();
+        if (processLock.getHoldCount() == 1) {
+            try {
+                channel = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                fileLock = channel.lock();
+            } catch (IOException | RuntimeException e) {
+                closeChannel();
+                processLock.unlock();
+                throw e;
+            }
+        }
+        return new Hold(this);
+    }
+
+    /**
+     * 当前线程是否持有锁
+     *
+     * @return 是否持有
+     */
+    boolean isHeldByCurrentThread() {
+        return processLock.isHeldByCurrentThread();
+    }
+
+    private void release() {
+        try {
+            if (processLock.getHoldCount() == 1 && fileLock != null) {
+                try {
+                    fileLock.release();
+                } catch (IOException e) {
+                    System.err.println("释放数据目录锁失败: " + e.getMessage());
+                }
+                closeChannel();
+            }
+        } finally {
+            processLock.unlock();
+        }
+    }
+
+    private void closeChannel() {
+        fileLock = null;
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("关闭锁文件失败: " + e.getMessage());
+            }
+            channel = null;
+        }
+    }
+
+    /**
+     * 锁的持有凭证
+     */
+    static final class Hold implements AutoCloseable {
+        /**
+         * 不加锁的空凭证（不需要立即写盘的操作使用）
+         */
+        static final Hold NONE = new Hold(null);
+
+        private final DataFileLock owner;
+
+        private Hold(DataFileLock owner) {
+            this.owner = owner;
+        }
+
+        /**
+         * 是否实际持有锁
+         *
+         * @return 空凭证返回false
+         */
+        boolean isLocked() {
+            return owner != null;
+        }
+
+        /**
+         * 写入前确认仍持有锁
+         * 锁文件通道被关闭（例如持有锁的线程被中断）后文件锁随之失效，其他进程可能已经加锁，不能继续写入
+         *
+         * @throws IOException 锁已失效
+         */
+        void checkValid() throws IOException {
+            // 同一线程通过其他实例重入时由最外层实例持有文件锁，本实例没有文件锁可检查
+            if (owner != null && owner.fileLock != null && !owner.fileLock.isValid()) {
+                throw new IOException("数据目录锁已失效: " + owner.lockPath);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (owner != null) {
+                owner.release();
+            }
+        }
+    }
+}
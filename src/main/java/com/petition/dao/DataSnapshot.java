@@ -0,0 +1,69 @@
+package com.petition.dao;
+
+import com.petition.model.Petitioner;
+
+import java.util.List;
+
+/**
+ * 数据快照
+ * 数据管理器在某个版本时全部记录的不可变列表。快照一经发布不再改变，
+ * 统计、导出、备份等后台任务可以在不持有数据锁的情况下遍历，与编辑并行执行
+ *
+ * <p>注意：列表本身不可修改，但其中的记录对象与缓存共享，只能读取。
+ * 数据管理器保存时存入副本、按ID查找时返回副本，缓存中的记录不会被原地修改；
+ * 修改记录应通过findById取得副本，修改后保存。</p>
+ *
+ * @author 刘一村
+ * @version 1.0.0
+ */
+public final class DataSnapshot {
+    private final long version;
+    private final List<Petitioner> records;
+
+    /**
+     * 构造函数
+     *
+     * @param version 数据版本号
+     * @param records 记录列表（复制为不可变列表）
+     */
+    DataSnapshot(long version, List<Petitioner> records) {
+        this.version = version;
+        this.records = List.copyOf(records);
+    }
+
+    /**
+     * 获取数据版本号
+     * 每次新增、修改、删除或重新加载后递增，版本号相同的快照内容相同
+     *
+     * @return 版本号
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * 获取全部记录
+     *
+     * @return 不可修改的记录列表，顺序与loadAll()一致
+     */
+    public List<Petitioner> getRecords() {
+        return records;
+    }
+
+    /**
+     * 获取记录数
+     *
+     * @return 记录数
+     */
+    public int size() {
+        return records.size();
+    }
+
+    @Override
+    public String toString() {
+        return "DataSnapshot{" +
+                "version=" + version +
+                ", size=" + records.size() +
+                '}';
+    }
+}
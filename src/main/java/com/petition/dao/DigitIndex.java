@@ -0,0 +1,338 @@
+package com.petition.dao;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+
+/**
+ * 号码片段索引
+ * 身份证号、手机号按数字编码保存（0-9为本身，X为10），不保留字符串对象。
+ * 对每个号码中连续1到3位的数字组合建立倒排表，另对号码开头的1到3位单独建表：
+ * 不超过3位的片段直接取对应倒排表，更长的片段取各3位组合倒排表的交集后
+ * 在编码上核对，支持前缀和包含两种查找
+ *
+ * <p>号码中的其他字符（如分隔符）把号码分成几段，纯数字片段不可能跨过这些字符匹配，
+ * 分段建索引即可；含其他字符的号码另记一张表，查找含其他字符的片段时作为候选。</p>
+ *
+ * @author 刘一村
+ * @version 1.0.0
+ */
+final class DigitIndex {
+    /**
+     * 编码：X（校验位）
+     */
+    private static final byte X = 10;
+
+    /**
+     * 编码：两个号码之间
+     */
+    private static final byte VALUE_SEPARATOR = 11;
+
+    /**
+     * 编码：号码中数字和X以外的字符
+     */
+    private static final byte OTHER = 12;
+
+    /**
+     * 每位的取值个数（0-9和X）
+     */
+    private static final int RADIX = 11;
+
+    /**
+     * 建倒排表的最长组合位数
+     */
+    private static final int MAX_GRAM = 3;
+
+    /**
+     * 各长度组合在倒排表数组中的起始位置（1位、2位、3位）
+     */
+    private static final int[] GRAM_OFFSETS = {0, 0, RADIX, RADIX + RADIX * RADIX};
+
+    /**
+     * 一类（包含或前缀）组合的总数
+     */
+    private static final int GRAM_COUNT = RADIX + RADIX * RADIX + RADIX * RADIX * RADIX;
+
+    /**
+     * 倒排表：前GRAM_COUNT个为包含组合，之后为前缀组合
+     */
+    private final PostingList[] postings = new PostingList[GRAM_COUNT * 2];
+
+    /**
+     * 含其他字符的号码所属的记录
+     */
+    private PostingList irregular = new PostingList();
+
+    /**
+     * 各记录号码的编码（按记录序号，没有号码为null）
+     */
+    private byte[][] codes = new byte[16][];
+
+    /**
+     * 设置记录的号码
+     * 只更新新旧号码中不同的倒排表，号码未变化时不做任何事
+     *
+     * @param ordinal 记录序号
+     * @param values 号码列表
+     */
+    void put(int ordinal, List<String> values) {
+        byte[] encoded = encode(values);
+        byte[] old = ordinal < codes.length ? codes[ordinal] : null;
+        if (Arrays.equals(encoded, old)) {
+            return;
+        }
+        if (ordinal >= codes.length) {
+            codes = Arrays.copyOf(codes, Math.max(ordinal + 1, codes.length * 2));
+        }
+
+        Set<Integer> oldGrams = gramsOf(old);
+        Set<Integer> newGrams = gramsOf(encoded);
+        for (int gram : oldGrams) {
+            if (!newGrams.contains(gram) && postings[gram].remove(ordinal) && postings[gram].size() == 0) {
+                postings[gram] = null;
+            }
+        }
+        for (int gram : newGrams) {
+            if (!oldGrams.contains(gram)) {
+                if (postings[gram] == null) {
+                    postings[gram] = new PostingList();
+                }
+                postings[gram].add(ordinal);
+            }
+        }
+
+        if (contains(encoded, OTHER)) {
+            irregular.add(ordinal);
+        } else {
+            irregular.remove(ordinal);
+        }
+        codes[ordinal] = encoded;
+    }
+
+    /**
+     * 删除记录的号码
+     *
+     * @param ordinal 记录序号
+     */
+    void remove(int ordinal) {
+        put(ordinal, List.of());
+    }
+
+    /**
+     * 清空索引
+     */
+    void clear() {
+        Arrays.fill(postings, null);
+        codes = new byte[16][];
+        irregular = new PostingList();
+    }
+
+    /**
+     * 查找号码包含（或以之开头）号码片段的记录
+     * 迭代时才核对候选，只取前几条结果时不必核对全部候选
+     *
+     * @param digits 号码片段（只含数字和X）
+     * @param prefixOnly 是否只匹配号码开头
+     * @return 按记录序号升序的迭代器，只在数据锁内使用
+     */
+    PrimitiveIterator.OfInt search(String digits, boolean prefixOnly) {
+        byte[] needle = encode(List.of(digits));
+        if (needle.length <= MAX_GRAM) {
+            // 组合本身就是完整条件，不需要核对
+            PostingList list = postings[gramKey(needle, 0, needle.length, prefixOnly)];
+            return new Matches(list != null ? list.toArray() : new int[0], null, false);
+        }
+
+        Set<Integer> grams = new HashSet<>();
+        for (int i = 0; i + MAX_GRAM <= needle.length; i++) {
+            grams.add(gramKey(needle, i, MAX_GRAM, false));
+        }
+        if (prefixOnly) {
+            grams.add(gramKey(needle, 0, MAX_GRAM, true));
+        }
+        PostingList[] lists = new PostingList[grams.size()];
+        int i = 0;
+        for (int gram : grams) {
+            if (postings[gram] == null) {
+                return new Matches(new int[0], null, false);
+            }
+            lists[i++] = postings[gram];
+        }
+        return new Matches(PostingList.intersectAll(lists), needle, prefixOnly);
+    }
+
+    /**
+     * 查找号码可能包含关键词的记录（查询条件使用）
+     *
+     * @param keyword 关键词（非空）
+     * @return 升序记录序号；关键词是号码片段时为准确结果，否则为含其他字符的号码，需核对原文
+     */
+    int[] candidates(String keyword) {
+        if (!NumberField.isNumber(keyword)) {
+            return irregular.toArray();
+        }
+        PrimitiveIterator.OfInt matches = search(keyword, false);
+        int[] result = new int[16];
+        int count = 0;
+        while (matches.hasNext()) {
+            if (count == result.length) {
+                result = Arrays.copyOf(result, count * 2);
+            }
+            result[count++] = matches.nextInt();
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * 判断编码中是否有从某位置开始的片段
+     */
+    private static boolean matchesAt(byte[] value, int position, byte[] needle) {
+        for (int j = 0; j < needle.length; j++) {
+            if (value[position + j] != needle[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matches(byte[] value, byte[] needle, boolean prefixOnly) {
+        if (value == null) {
+            return false;
+        }
+        for (int i = 0; i + needle.length <= value.length; i++) {
+            boolean valueStart = i == 0 || value[i - 1] == VALUE_SEPARATOR;
+            if ((!prefixOnly || valueStart) && matchesAt(value, i, needle)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean contains(byte[] value, byte code) {
+        if (value == null) {
+            return false;
+        }
+        for (byte b : value) {
+            if (b == code) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 编码号码列表，号码之间用分隔编码隔开
+     *
+     * @return 编码，没有号码时为null
+     */
+    private static byte[] encode(List<String> values) {
+        int length = 0;
+        for (String value : values) {
+            if (!value.isEmpty()) {
+                length += value.length() + 1;
+            }
+        }
+        if (length == 0) {
+            return null;
+        }
+
+        byte[] encoded = new byte[length - 1];
+        int position = 0;
+        for (String value : values) {
+            if (value.isEmpty()) {
+                continue;
+            }
+            if (position > 0) {
+                encoded[position++] = VALUE_SEPARATOR;
+            }
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c >= '0' && c <= '9') {
+                    encoded[position++] = (byte) (c - '0');
+                } else if (c == 'X' || c == 'x') {
+                    encoded[position++] = X;
+                } else {
+                    encoded[position++] = OTHER;
+                }
+            }
+        }
+        return encoded;
+    }
+
+    /**
+     * 计算编码中所有1到3位组合以及各号码开头组合的倒排表位置
+     */
+    private static Set<Integer> gramsOf(byte[] value) {
+        if (value == null) {
+            return Set.of();
+        }
+        Set<Integer> grams = new HashSet<>();
+        for (int i = 0; i < value.length; i++) {
+            boolean valueStart = i == 0 || value[i - 1] == VALUE_SEPARATOR;
+            for (int length = 1; length <= MAX_GRAM && i + length <= value.length; length++) {
+                if (value[i + length - 1] > X) {
+                    break;
+                }
+                grams.add(gramKey(value, i, length, false));
+                if (valueStart) {
+                    grams.add(gramKey(value, i, length, true));
+                }
+            }
+        }
+        return grams;
+    }
+
+    private static int gramKey(byte[] value, int from, int length, boolean prefix) {
+        int key = 0;
+        for (int i = from; i < from + length; i++) {
+            key = key * RADIX + value[i];
+        }
+        return (prefix ? GRAM_COUNT : 0) + GRAM_OFFSETS[length] + key;
+    }
+
+    /**
+     * 候选记录迭代器，需要时逐条核对编码
+     */
+    private final class Matches implements PrimitiveIterator.OfInt {
+        private final int[] candidates;
+        private final byte[] needle;
+        private final boolean prefixOnly;
+        private int position;
+        private int next = -1;
+
+        /**
+         * @param candidates 升序候选
+         * @param needle 需要核对的片段编码，为null表示候选即结果
+         * @param prefixOnly 是否只匹配号码开头
+         */
+        private Matches(int[] candidates, byte[] needle, boolean prefixOnly) {
+            this.candidates = candidates;
+            this.needle = needle;
+            this.prefixOnly = prefixOnly;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next < 0 && position < candidates.length) {
+                int candidate = candidates[position++];
+                if (needle == null || matches(codes[candidate], needle, prefixOnly)) {
+                    next = candidate;
+                }
+            }
+            return next >= 0;
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int result = next;
+            next = -1;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.petition.dao;
+
+import com.petition.model.PersonalInfo;
+import com.petition.model.PetitionCase;
+import com.petition.model.Petitioner;
+import com.petition.model.enums.Education;
+import com.petition.model.enums.EntryMethod;
+import com.petition.model.enums.Gender;
+import com.petition.model.enums.MaritalStatus;
+import com.petition.model.enums.RiskLevel;
+import com.petition.model.enums.TransportMethod;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 可分组筛选的枚举字段
+ * 每个字段的取值都是com.petition.model.enums中的枚举，
+ * 内存存储为每个取值维护一张记录位图，组合筛选和分组计数都是位图运算
+ *
+ * @author 刘一村
+ * @version 1.0.0
+ */
+public enum FacetField {
+    /**
+     * 性别
+     */
+    GENDER("性别", Gender.class),
+
+    /**
+     * 文化程度
+     */
+    EDUCATION("文化程度", Education.class),
+
+    /**
+     * 婚姻状况
+     */
+    MARITAL_STATUS("婚姻状况", MaritalStatus.class),
+
+    /**
+     * 进京方式
+     */
+    ENTRY_METHOD("进京方式", EntryMethod.class),
+
+    /**
+     * 在京交通方式
+     */
+    TRANSPORT_METHOD("在京交通方式", TransportMethod.class),
+
+    /**
+     * 危险等级
+     */
+    RISK_LEVEL("危险等级", RiskLevel.class);
+
+    /**
+     * 字段名称
+     */
+    private final String label;
+
+    /**
+     * 字段取值的枚举类型
+     */
+    private final Class<? extends Enum<?>> type;
+
+    FacetField(String label, Class<? extends Enum<?>> type) {
+        this.label = label;
+        this.type = type;
+    }
+
+    /**
+     * 获取字段名称
+     *
+     * @return 字段名称
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * 获取字段取值的枚举类型
+     *
+     * @return 枚举类型
+     */
+    public Class<? extends Enum<?>> getType() {
+        return type;
+    }
+
+    /**
+     * 获取字段的全部可选值
+     *
+     * @return 按声明顺序排列的枚举值
+     */
+    public Enum<?>[] getOptions() {
+        return type.getEnumConstants();
+    }
+
+    /**
+     * 获取记录在该字段上的取值
+     *
+     * @param petitioner 上访人员
+     * @return 取值，未填写时为null
+     */
+    public Enum<?> getValue(Petitioner petitioner) {
+        PersonalInfo info = petitioner.getPersonalInfo();
+        PetitionCase petitionCase = petitioner.getPetitionCase();
+        return switch (this) {
+            case GENDER -> info != null ? info.getGender() : null;
+            case EDUCATION -> info != null ? info.getEducation() : null;
+            case MARITAL_STATUS -> info != null ? info.getMaritalStatus() : null;
+            case ENTRY_METHOD -> petitionCase != null ? petitionCase.getEntryMethod() : null;
+            case TRANSPORT_METHOD -> petitionCase != null ? petitionCase.getTransportInBeijing() : null;
+            case RISK_LEVEL -> petitioner.getRiskAssessment() != null
+                    ? petitioner.getRiskAssessment().getRiskLevel() : null;
+        };
+    }
+
+    /**
+     * 创建全部字段、全部取值计数为0的分组计数表
+     *
+     * @return 字段 -> 取值（按声明顺序）-> 0
+     */
+    static Map<FacetField, Map<Enum<?>, Integer>> emptyCounts() {
+        Map<FacetField, Map<Enum<?>, Integer>> counts = new EnumMap<>(FacetField.class);
+        for (FacetField field : values()) {
+            Map<Enum<?>, Integer> fieldCounts = new LinkedHashMap<>();
+            for (Enum<?> option : field.getOptions()) {
+                fieldCounts.put(option, 0);
+            }
+            counts.put(field, fieldCounts);
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,885 @@
+package com.petition.dao;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.petition.model.PersonalInfo;
+import com.petition.model.PetitionCase;
+import com.petition.model.Petitioner;
+import com.petition.model.PetitionerSummary;
+import com.petition.model.RiskAssessment;
+import com.petition.model.enums.EntryMethod;
+import com.petition.model.enums.Education;
+import com.petition.model.enums.Gender;
+import com.petition.model.enums.MaritalStatus;
+import com.petition.model.enums.RiskLevel;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * 嵌入式数据库数据仓库（H2，文件模式）
+ * 每条记录保存为一行：完整记录以JSON存放在data列，列表、查询和统计用到的字段
+ * 另外展开为普通列，并在身份证号、姓名、危险等级、更新时间上建立索引。
+ *
+ * <p>与{@link JsonDataManager}不同，数据不常驻内存：按ID、身份证号查找和计数直接查库，
+ * 列表摘要只读取展开的列，查询条件和统计分组在库内执行。所有SQL使用预编译语句，
+ * 批量保存在一个事务内用JDBC批处理写入。</p>
+ *
+ * @author 刘一村
+ * @version 1.0.0
+ */
+public class JdbcPetitionerRepository implements PetitionerRepository {
+    // ==================== 共享实例 ====================
+
+    /**
+     * 进程内共享的数据库仓库（默认数据目录）
+     */
+    private static volatile JdbcPetitionerRepository instance;
+
+    /**
+     * 获取进程内共享的数据库仓库
+     * 首次创建且数据库为空时，导入数据目录中已有的JSON数据
+     *
+     * @return 共享数据库仓库
+     */
+    public static JdbcPetitionerRepository getInstance() {
+        if (instance == null) {
+            synchronized (JdbcPetitionerRepository.class) {
+                if (instance == null) {
+                    JdbcPetitionerRepository repository = new JdbcPetitionerRepository();
+                    try {
+                        repository.importJsonIfEmpty(DATA_DIR);
+                    } catch (IOException e) {
+                        System.err.println("导入JSON数据失败: " + e.getMessage());
+                    }
+                    instance = repository;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 关闭共享实例
+     */
+    public static void shutdownInstance() {
+        synchronized (JdbcPetitionerRepository.class) {
+            if (instance != null) {
+                try {
+                    instance.close();
+                } catch (IOException e) {
+                    System.err.println("关闭数据库失败: " + e.getMessage());
+                }
+                instance = null;
+            }
+        }
+    }
+
+    /**
+     * 判断配置的存储后端名称是否表示数据库
+     *
+     * @param name 配置值
+     * @return 是否使用数据库
+     */
+    static boolean isBackendName(String name) {
+        if (name == null) {
+            return false;
+        }
+        String normalized = name.trim();
+        return "h2".equalsIgnoreCase(normalized) || "jdbc".equalsIgnoreCase(normalized);
+    }
+
+    // ==================== 常量 ====================
+
+    /**
+     * 默认数据目录
+     */
+    private static final String DATA_DIR = "data";
+
+    /**
+     * 数据库文件名（H2会追加.mv.db后缀）
+     */
+    private static final String DATABASE_NAME = "petitioners";
+
+    /**
+     * IN条件每批的参数个数
+     */
+    private static final int IN_CLAUSE_CHUNK = 500;
+
+    /**
+     * 建表和索引语句
+     */
+    private static final String[] SCHEMA = {
+            "CREATE SEQUENCE IF NOT EXISTS petitioner_seq",
+            "CREATE TABLE IF NOT EXISTS petitioners ("
+                    + "id VARCHAR(64) PRIMARY KEY, "
+                    + "seq BIGINT NOT NULL, "
+                    + "id_card VARCHAR, "
+                    + "name VARCHAR, "
+                    + "gender VARCHAR(32), "
+                    + "native_place VARCHAR, "
+                    + "education VARCHAR(32), "
+                    + "marital_status VARCHAR(32), "
+                    + "visit_count INT, "
+                    + "entry_method VARCHAR(32), "
+                    + "risk_level VARCHAR(32), "
+                    + "primary_phone VARCHAR, "
+                    + "phones VARCHAR, "
+                    + "create_time TIMESTAMP, "
+                    + "update_time TIMESTAMP, "
+                    + "data CLOB NOT NULL)",
+            "CREATE INDEX IF NOT EXISTS idx_petitioners_seq ON petitioners(seq)",
+            "CREATE INDEX IF NOT EXISTS idx_petitioners_id_card ON petitioners(id_card)",
+            "CREATE INDEX IF NOT EXISTS idx_petitioners_name ON petitioners(name)",
+            "CREATE INDEX IF NOT EXISTS idx_petitioners_risk_level ON petitioners(risk_level)",
+            "CREATE INDEX IF NOT EXISTS idx_petitioners_update_time ON petitioners(update_time)"
+    };
+
+    /**
+     * 展开列（顺序与bindColumns一致）
+     */
+    private static final String DATA_COLUMNS = "id_card, name, gender, native_place, education, marital_status, "
+            + "visit_count, entry_method, risk_level, primary_phone, phones, create_time, update_time, data";
+
+    private static final String INSERT_SQL = "INSERT INTO petitioners (id, seq, " + DATA_COLUMNS + ") "
+            + "VALUES (?, NEXT VALUE FOR petitioner_seq, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_SQL = "UPDATE petitioners SET id_card = ?, name = ?, gender = ?, "
+            + "native_place = ?, education = ?, marital_status = ?, visit_count = ?, entry_method = ?, "
+            + "risk_level = ?, primary_phone = ?, phones = ?, create_time = ?, update_time = ?, data = ? "
+            + "WHERE id = ?";
+
+    private static final String SUMMARY_COLUMNS = "id, name, id_card, gender, primary_phone, native_place, "
+            + "education, marital_status, visit_count, entry_method, risk_level, create_time, update_time";
+
+    private static final String STATISTICS_COLUMNS = "risk_level, gender, education, marital_status, "
+            + "entry_method, visit_count, native_place";
+
+    /**
+     * 手机号列表在phones列中的分隔符
+     */
+    private static final String PHONE_SEPARATOR = "\n";
+
+    // ==================== 实例属性 ====================
+
+    /**
+     * 数据库连接（所有操作在本对象锁内串行使用）
+     */
+    private final Connection connection;
+
+    /**
+     * data列的JSON序列化
+     */
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 数据变更监听器
+     */
+    private final List<DataChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 数据版本号，每发出一个变更事件递增（只在对象锁内读写）
+     */
+    private long dataVersion;
+
+    /**
+     * 默认构造函数
+     * 数据库文件位于默认数据目录
+     */
+    public JdbcPetitionerRepository() {
+        this(DATA_DIR);
+    }
+
+    /**
+     * 构造函数（支持自定义数据目录）
+     *
+     * @param dataDirectory 数据目录路径
+     */
+    public JdbcPetitionerRepository(String dataDirectory) {
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.registerModule(new JavaTimeModule());
+        this.objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        Path directory = Paths.get(dataDirectory).toAbsolutePath();
+        try {
+            Files.createDirectories(directory);
+            this.connection = DriverManager.getConnection("jdbc:h2:file:" + directory.resolve(DATABASE_NAME));
+            try (Statement statement = connection.createStatement()) {
+                for (String sql : SCHEMA) {
+                    statement.execute(sql);
+                }
+            }
+        } catch (IOException | SQLException e) {
+            throw new RuntimeException("无法打开数据库: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 数据库为空时导入数据目录中的JSON数据（单文件或分段布局）
+     * 原JSON文件保留不动，可随时切换回JSON存储
+     *
+     * @param dataDirectory JSON数据目录
+     * @return 导入的记录数
+     * @throws IOException 读取或写入异常
+     */
+    public int importJsonIfEmpty(String dataDirectory) throws IOException {
+        Path dataFile = Paths.get(dataDirectory, "petitioners.json");
+        Path manifest = JsonDataManager.segmentDirectoryFor(dataFile).resolve(SegmentedSnapshotStore.MANIFEST_FILE);
+        if (count() > 0 || (!Files.exists(dataFile) && !Files.exists(manifest))) {
+            return 0;
+        }
+
+        JsonDataManager source = new JsonDataManager(dataDirectory);
+        try {
+            List<Petitioner> petitioners = source.loadAll();
+            saveBatch(petitioners);
+            return petitioners.size();
+        } finally {
+            source.close();
+        }
+    }
+
+    // ==================== 查询 ====================
+
+    @Override
+    public synchronized List<Petitioner> loadAll() throws IOException {
+        return queryRecords("SELECT data FROM petitioners ORDER BY seq", List.of());
+    }
+
+    @Override
+    public List<Petitioner> snapshot() throws IOException {
+        return Collections.unmodifiableList(loadAll());
+    }
+
+    /**
+     * 获取全部记录的摘要
+     * 只读取展开列，不解析data列中的完整记录
+     */
+    @Override
+    public synchronized List<PetitionerSummary> summaries() throws IOException {
+        String sql = "SELECT " + SUMMARY_COLUMNS + " FROM petitioners ORDER BY seq";
+        List<PetitionerSummary> result = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(sql);
+             ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                result.add(new PetitionerSummary(
+                        rs.getString("id"),
+                        rs.getString("name"),
+                        rs.getString("id_card"),
+                        parseEnum(Gender.class, rs.getString("gender")),
+                        rs.getString("primary_phone"),
+                        rs.getString("native_place"),
+                        parseEnum(Education.class, rs.getString("education")),
+                        parseEnum(MaritalStatus.class, rs.getString("marital_status")),
+                        getInteger(rs, "visit_count"),
+                        parseEnum(EntryMethod.class, rs.getString("entry_method")),
+                        parseEnum(RiskLevel.class, rs.getString("risk_level")),
+                        rs.getObject("create_time", LocalDateTime.class),
+                        rs.getObject("update_time", LocalDateTime.class)));
+            }
+        } catch (SQLException e) {
+            throw new IOException("数据库查询失败: " + e.getMessage(), e);
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * 将查询条件转换为WHERE子句在库内执行
+     */
+    @Override
+    public synchronized List<Petitioner> find(PetitionerFilter filter) throws IOException {
+        if (filter == null) {
+            return loadAll();
+        }
+
+        List<Object> params = new ArrayList<>();
+        List<Petitioner> result = queryRecords("SELECT data FROM petitioners" + whereClause(filter, params)
+                + " ORDER BY seq", params);
+        if (needsPostFilter(filter)) {
+            result.removeIf(petitioner -> !filter.matches(petitioner));
+        }
+        return result;
+    }
+
+    /**
+     * 用COUNT统计总数，用ORDER BY和LIMIT/OFFSET在库内取出一页
+     * 条件中有没有单独列的字段时只能逐条判断，改为遍历查询结果分页
+     */
+    @Override
+    public synchronized Page<Petitioner> findPage(PetitionerFilter filter, List<SortKey> sort, int offset, int limit)
+            throws IOException {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("分页参数不能为负数");
+        }
+        if (filter != null && needsPostFilter(filter)) {
+            return PetitionerRepository.super.findPage(filter, sort, offset, limit).withVersion(dataVersion);
+        }
+
+        List<Object> params = new ArrayList<>();
+        String where = filter != null ? whereClause(filter, params) : "";
+        int total;
+        try (PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*) FROM petitioners" + where)) {
+            for (int i = 0; i < params.size(); i++) {
+                statement.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                rs.next();
+                total = rs.getInt(1);
+            }
+        } catch (SQLException e) {
+            throw new IOException("数据库查询失败: " + e.getMessage(), e);
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT data FROM petitioners").append(where).append(" ORDER BY ");
+        if (sort != null) {
+            for (SortKey key : sort) {
+                sql.append(key.getField().sqlExpression())
+                        .append(key.isDescending() ? " DESC" : " ASC")
+                        .append(" NULLS LAST, ");
+            }
+        }
+        sql.append("seq LIMIT ? OFFSET ?");
+        params.add(limit);
+        params.add(offset);
+        return new Page<>(queryRecords(sql.toString(), params), total, offset, limit, dataVersion);
+    }
+
+    /**
+     * 生成查询条件对应的WHERE子句
+     *
+     * @param filter 查询条件
+     * @param params 用于接收参数
+     * @return 以空格开头的WHERE子句，没有条件时为空字符串
+     */
+    private static String whereClause(PetitionerFilter filter, List<Object> params) {
+        List<String> conditions = new ArrayList<>();
+
+        if (filter.getKeyword() != null) {
+            String pattern = likePattern(filter.getKeyword());
+            conditions.add("(LOWER(name) LIKE ? ESCAPE '\\' OR LOWER(id_card) LIKE ? ESCAPE '\\' "
+                    + "OR phones LIKE ? ESCAPE '\\')");
+            params.add(pattern);
+            params.add(pattern);
+            params.add(pattern);
+        }
+        if (filter.getName() != null) {
+            conditions.add("name LIKE ? ESCAPE '\\'");
+            params.add(likePattern(filter.getName()));
+        }
+        if (filter.getIdCard() != null) {
+            conditions.add("id_card LIKE ? ESCAPE '\\'");
+            params.add(likePattern(filter.getIdCard()));
+        }
+        for (FacetField field : FacetField.values()) {
+            Set<? extends Enum<?>> values = filter.getFacetValues(field);
+            String column = facetColumn(field);
+            if (values != null && column != null) {
+                conditions.add(column + " IN (" + placeholders(values.size()) + ")");
+                for (Enum<?> value : values) {
+                    params.add(value.name());
+                }
+            }
+        }
+        if (filter.getMinVisitCount() != null) {
+            conditions.add("visit_count >= ?");
+            params.add(filter.getMinVisitCount());
+        }
+        if (filter.getMaxVisitCount() != null) {
+            conditions.add("visit_count <= ?");
+            params.add(filter.getMaxVisitCount());
+        }
+        if (filter.getNativePlace() != null) {
+            conditions.add("native_place = ?");
+            params.add(filter.getNativePlace());
+        }
+        if (filter.getNativePlaceKeyword() != null) {
+            conditions.add("native_place LIKE ? ESCAPE '\\'");
+            params.add(likePattern(filter.getNativePlaceKeyword()));
+        }
+
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    /**
+     * 地址和在京交通方式没有单独的列，有这类条件时查询后逐条判断
+     */
+    private static boolean needsPostFilter(PetitionerFilter filter) {
+        return filter.getAddress() != null || filter.getFacetValues(FacetField.TRANSPORT_METHOD) != null;
+    }
+
+    /**
+     * 用GROUP BY在库内按统计字段分组计数
+     */
+    @Override
+    public synchronized void forEachStatisticsGroup(ObjIntConsumer<PetitionerSummary> consumer) throws IOException {
+        String sql = "SELECT " + STATISTICS_COLUMNS + ", COUNT(*) AS total FROM petitioners GROUP BY "
+                + STATISTICS_COLUMNS;
+        try (PreparedStatement statement = connection.prepareStatement(sql);
+             ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                PetitionerSummary group = new PetitionerSummary(null, null, null,
+                        parseEnum(Gender.class, rs.getString("gender")),
+                        null,
+                        rs.getString("native_place"),
+                        parseEnum(Education.class, rs.getString("education")),
+                        parseEnum(MaritalStatus.class, rs.getString("marital_status")),
+                        getInteger(rs, "visit_count"),
+                        parseEnum(EntryMethod.class, rs.getString("entry_method")),
+                        parseEnum(RiskLevel.class, rs.getString("risk_level")),
+                        null, null);
+                consumer.accept(group, rs.getInt("total"));
+            }
+        } catch (SQLException e) {
+            throw new IOException("数据库查询失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized Optional<Petitioner> findById(String id) {
+        if (id == null || id.isBlank()) {
+            return Optional.empty();
+        }
+        try {
+            return selectById(id);
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized Optional<Petitioner> findByIdCard(String idCard) throws IOException {
+        if (idCard == null || idCard.isBlank()) {
+            return Optional.empty();
+        }
+        List<Petitioner> found = queryRecords(
+                "SELECT data FROM petitioners WHERE id_card = ? ORDER BY update_time DESC, seq DESC LIMIT 1",
+                List.of(idCard));
+        return found.isEmpty() ? Optional.empty() : Optional.of(found.get(0));
+    }
+
+    @Override
+    public synchronized boolean existsByIdCard(String idCard) throws IOException {
+        if (idCard == null || idCard.isBlank()) {
+            return false;
+        }
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT 1 FROM petitioners WHERE id_card = ? LIMIT 1")) {
+            statement.setString(1, idCard);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next();
+            }
+        } catch (SQLException e) {
+            throw new IOException("数据库查询失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized int count() {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*) FROM petitioners");
+             ResultSet rs = statement.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        } catch (SQLException e) {
+            throw new RuntimeException("数据库查询失败: " + e.getMessage(), e);
+        }
+    }
+
+    // ==================== 修改 ====================
+
+    @Override
+    public void save(Petitioner petitioner) throws IOException {
+        if (petitioner == null) {
+            throw new IllegalArgumentException("上访人员对象不能为null");
+        }
+        saveBatch(List.of(petitioner));
+    }
+
+    /**
+     * 批量保存
+     * 先分批查出已存在的记录（用于变更事件），再用两个批处理语句分别插入和更新，
+     * 整批在一个事务内提交
+     */
+    @Override
+    public void saveBatch(List<Petitioner> petitioners) throws IOException {
+        if (petitioners == null || petitioners.isEmpty()) {
+            return;
+        }
+        for (Petitioner petitioner : petitioners) {
+            if (petitioner == null) {
+                throw new IllegalArgumentException("上访人员对象不能为null");
+            }
+        }
+
+        List<DataChangeEvent> events = new ArrayList<>(petitioners.size());
+        synchronized (this) {
+            inTransaction(() -> {
+                Set<String> ids = new LinkedHashSet<>();
+                for (Petitioner petitioner : petitioners) {
+                    ids.add(petitioner.getId());
+                }
+                Map<String, Petitioner> existing = selectByIds(ids);
+
+                try (PreparedStatement insert = connection.prepareStatement(INSERT_SQL);
+                     PreparedStatement update = connection.prepareStatement(UPDATE_SQL)) {
+                    // 同一批次内重复的ID：第一次插入，之后按更新处理
+                    for (Petitioner petitioner : petitioners) {
+                        Petitioner before = existing.put(petitioner.getId(), petitioner);
+                        if (before == null) {
+                            insert.setString(1, petitioner.getId());
+                            bindColumns(insert, petitioner, 2);
+                            insert.addBatch();
+                            events.add(DataChangeEvent.added(petitioner));
+                        } else {
+                            int next = bindColumns(update, petitioner, 1);
+                            update.setString(next, petitioner.getId());
+                            update.addBatch();
+                            events.add(DataChangeEvent.updated(before, petitioner));
+                        }
+                    }
+                    // 先插入后更新，批次内先新增再修改的记录按顺序生效
+                    insert.executeBatch();
+                    update.executeBatch();
+                }
+            });
+            fireChanges(events);
+        }
+    }
+
+    @Override
+    public boolean delete(String id) throws IOException {
+        if (id == null || id.isBlank()) {
+            return false;
+        }
+        return batchDelete(List.of(id)) > 0;
+    }
+
+    @Override
+    public int batchDelete(List<String> ids) throws IOException {
+        if (ids == null || ids.isEmpty()) {
+            return 0;
+        }
+
+        List<DataChangeEvent> events = new ArrayList<>();
+        synchronized (this) {
+            inTransaction(() -> {
+                Set<String> uniqueIds = new LinkedHashSet<>();
+                for (String id : ids) {
+                    if (id != null) {
+                        uniqueIds.add(id);
+                    }
+                }
+                Map<String, Petitioner> existing = selectByIds(uniqueIds);
+                if (existing.isEmpty()) {
+                    return;
+                }
+
+                try (PreparedStatement delete = connection.prepareStatement("DELETE FROM petitioners WHERE id = ?")) {
+                    for (Petitioner petitioner : existing.values()) {
+                        delete.setString(1, petitioner.getId());
+                        delete.addBatch();
+                        events.add(DataChangeEvent.removed(petitioner));
+                    }
+                    delete.executeBatch();
+                }
+            });
+            fireChanges(events);
+        }
+        return events.size();
+    }
+
+    @Override
+    public void clear() throws IOException {
+        synchronized (this) {
+            inTransaction(() -> {
+                try (Statement statement = connection.createStatement()) {
+                    statement.executeUpdate("DELETE FROM petitioners");
+                }
+            });
+            fireChanges(List.of(DataChangeEvent.reloaded()));
+        }
+    }
+
+    /**
+     * 替换全部数据
+     * 删除和插入在同一个事务内，插入失败时回滚，原数据保持不变。
+     * 同一ID出现多次时以最后一次为准
+     */
+    @Override
+    public void replaceAll(List<Petitioner> petitioners) throws IOException {
+        Map<String, Petitioner> records = new LinkedHashMap<>();
+        if (petitioners != null) {
+            for (Petitioner petitioner : petitioners) {
+                if (petitioner == null) {
+                    throw new IllegalArgumentException("上访人员对象不能为null");
+                }
+                records.put(petitioner.getId(), petitioner);
+            }
+        }
+
+        synchronized (this) {
+            inTransaction(() -> {
+                try (Statement statement = connection.createStatement()) {
+                    statement.executeUpdate("DELETE FROM petitioners");
+                }
+                try (PreparedStatement insert = connection.prepareStatement(INSERT_SQL)) {
+                    for (Petitioner petitioner : records.values()) {
+                        insert.setString(1, petitioner.getId());
+                        bindColumns(insert, petitioner, 2);
+                        insert.addBatch();
+                    }
+                    insert.executeBatch();
+                }
+            });
+            fireChanges(List.of(DataChangeEvent.reloaded()));
+        }
+    }
+
+    /**
+     * 数据库不在内存中缓存记录，无需重新加载
+     */
+    @Override
+    public void refresh() {
+        // 每次读取都直接查询数据库
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (!connection.isClosed()) {
+                connection.close();
+            }
+        } catch (SQLException e) {
+            throw new IOException("关闭数据库失败: " + e.getMessage(), e);
+        }
+    }
+
+    // ==================== 变更通知 ====================
+
+    @Override
+    public void addChangeListener(DataChangeListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("监听器不能为null");
+        }
+        changeListeners.add(listener);
+    }
+
+    @Override
+    public void removeChangeListener(DataChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+
+    /**
+     * 事务提交后依次通知监听器，单个监听器的异常不影响其他监听器
+     * 调用方持有对象锁，每个事件标记递增后的数据版本号
+     */
+    private void fireChanges(List<DataChangeEvent> events) {
+        for (DataChangeEvent event : events) {
+            DataChangeEvent stamped = event.atVersion(++dataVersion);
+            for (DataChangeListener listener : changeListeners) {
+                try {
+                    listener.onDataChanged(stamped);
+                } catch (RuntimeException e) {
+                    System.err.println("数据变更通知失败: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // ==================== 内部方法 ====================
+
+    /**
+     * 事务内执行的数据库操作
+     */
+    @FunctionalInterface
+    private interface SqlWork {
+        void run() throws SQLException, IOException;
+    }
+
+    /**
+     * 在一个事务内执行操作，失败时回滚
+     */
+    private void inTransaction(SqlWork work) throws IOException {
+        try {
+            connection.setAutoCommit(false);
+            try {
+                work.run();
+                connection.commit();
+            } catch (SQLException | IOException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new IOException("数据库写入失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 绑定展开列和data列
+     *
+     * @return 下一个参数的位置
+     */
+    private int bindColumns(PreparedStatement statement, Petitioner petitioner, int index)
+            throws SQLException, IOException {
+        PersonalInfo info = petitioner.getPersonalInfo();
+        PetitionCase petitionCase = petitioner.getPetitionCase();
+        RiskAssessment assessment = petitioner.getRiskAssessment();
+
+        statement.setString(index++, petitioner.getIdCard());
+        statement.setString(index++, petitioner.getName());
+        statement.setString(index++, info != null ? enumName(info.getGender()) : null);
+        statement.setString(index++, info != null ? info.getNativePlace() : null);
+        statement.setString(index++, info != null ? enumName(info.getEducation()) : null);
+        statement.setString(index++, info != null ? enumName(info.getMaritalStatus()) : null);
+        if (info != null && info.getVisitCount() != null) {
+            statement.setInt(index++, info.getVisitCount());
+        } else {
+            statement.setNull(index++, Types.INTEGER);
+        }
+        statement.setString(index++, petitionCase != null ? enumName(petitionCase.getEntryMethod()) : null);
+        statement.setString(index++, assessment != null ? enumName(assessment.getRiskLevel()) : null);
+        statement.setString(index++, info != null ? info.getPrimaryPhone() : null);
+        statement.setString(index++, info != null && info.getPhones() != null
+                ? String.join(PHONE_SEPARATOR, info.getPhones()) : null);
+        statement.setObject(index++, petitioner.getCreateTime());
+        statement.setObject(index++, petitioner.getUpdateTime());
+        statement.setString(index++, objectMapper.writeValueAsString(petitioner));
+        return index;
+    }
+
+    /**
+     * 按ID查询单条记录
+     */
+    private Optional<Petitioner> selectById(String id) throws IOException {
+        List<Petitioner> found = queryRecords("SELECT data FROM petitioners WHERE id = ?", List.of(id));
+        return found.isEmpty() ? Optional.empty() : Optional.of(found.get(0));
+    }
+
+    /**
+     * 按ID分批查询已存在的记录
+     *
+     * @return ID -> 记录（按传入ID的顺序）
+     */
+    private Map<String, Petitioner> selectByIds(Collection<String> ids) throws IOException {
+        Map<String, Petitioner> found = new HashMap<>();
+        List<String> idList = new ArrayList<>(ids);
+        for (int from = 0; from < idList.size(); from += IN_CLAUSE_CHUNK) {
+            List<String> chunk = idList.subList(from, Math.min(from + IN_CLAUSE_CHUNK, idList.size()));
+            String sql = "SELECT data FROM petitioners WHERE id IN (" + placeholders(chunk.size()) + ")";
+            for (Petitioner petitioner : queryRecords(sql, new ArrayList<>(chunk))) {
+                found.put(petitioner.getId(), petitioner);
+            }
+        }
+
+        Map<String, Petitioner> ordered = new LinkedHashMap<>();
+        for (String id : idList) {
+            Petitioner petitioner = found.get(id);
+            if (petitioner != null) {
+                ordered.put(id, petitioner);
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * 执行查询并解析data列
+     */
+    private List<Petitioner> queryRecords(String sql, List<?> params) throws IOException {
+        List<Petitioner> result = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < params.size(); i++) {
+                statement.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    result.add(objectMapper.readValue(rs.getString(1), Petitioner.class));
+                }
+            }
+        } catch (SQLException e) {
+            throw new IOException("数据库查询失败: " + e.getMessage(), e);
+        }
+        return result;
+    }
+
+    /**
+     * 生成包含匹配的LIKE模式，转义通配符
+     */
+    private static String likePattern(String value) {
+        StringBuilder pattern = new StringBuilder(value.length() + 2).append('%');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '%' || c == '_' || c == '\\') {
+                pattern.append('\\');
+            }
+            pattern.append(c);
+        }
+        return pattern.append('%').toString();
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    /**
+     * 获取枚举字段对应的列名
+     *
+     * @return 列名，没有单独的列时返回null
+     */
+    private static String facetColumn(FacetField field) {
+        return switch (field) {
+            case GENDER -> "gender";
+            case EDUCATION -> "education";
+            case MARITAL_STATUS -> "marital_status";
+            case ENTRY_METHOD -> "entry_method";
+            case RISK_LEVEL -> "risk_level";
+            case TRANSPORT_METHOD -> null;
+        };
+    }
+
+    private static String enumName(Enum<?> value) {
+        return value != null ? value.name() : null;
+    }
+
+    private static Integer getInteger(ResultSet rs, String column) throws SQLException {
+        int value = rs.getInt(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    /**
+     * 解析枚举列，无法识别的取值按空值处理
+     */
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String name) {
+        if (name == null) {
+            return null;
+        }
+        try {
+            return Enum.valueOf(type, name);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
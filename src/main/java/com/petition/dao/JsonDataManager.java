@@ -1,27 +1,164 @@
 package com.petition.dao;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.petition.model.Petitioner;
+import com.petition.model.PetitionerSummary;
 
-import java.io.File;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
 
 /**
  * JSON数据管理器
  * 负责上访人员数据的JSON文件读写操作
  *
+ * <p>持久化由两部分组成：完整的数据快照文件（petitioners.json）和追加写入的变更日志
+ * （petitioners.log）。单条新增、修改、删除只向日志追加一行并刷盘，日志超过大小或
+ * 时间阈值后由后台线程合并进快照。加载时先读快照，再按顺序重放日志。</p>
+ *
+ * <p>读取方通过{@link #currentSnapshot()}获得带版本号的不可变快照：写入方在数据锁内串行修改缓存，
+ * 读取方拿到快照后无需持锁即可遍历，长时间的统计、导出、备份不阻塞编辑。</p>
+ *
+ * <p>多个实例可以共用同一个数据目录。{@link #startWatching()}后由后台线程监视数据目录，
+ * 发现其他实例写入时：只追加了日志则只重放新增的日志行，快照被改写则与内存逐条比对，
+ * 只对修改时间（updateTime）不同的记录发出变更通知。本实例尚未落盘的修改与外部修改
+ * 冲突时，保留修改时间较新的一方。</p>
+ *
+ * <p>开启延迟写入（{@link #setWriteBehind(boolean)}）后，修改立即生效于内存并通知监听器，
+ * 日志记录交给后台持久化线程；短时间内的连续修改合并为一次追加和一次刷盘。
+ * 需要确认数据已落盘时调用{@link #flush()}或{@link #awaitDurable(long, TimeUnit)}。</p>
+ *
+ * <p>快照文件可以是JSON文本，也可以是Smile或CBOR二进制格式（见{@link StorageFormat}），
+ * 加载时根据文件头自动识别；变更日志始终是JSON文本。</p>
+ *
+ * <p>快照也可以按ID切分为多个数据段存放在segments目录下（见{@link StorageLayout}），
+ * 此时合并日志只重写包含已修改记录的数据段，重新加载时只读取发生变化的数据段。</p>
+ *
+ * <p>内存缓存及其索引、变更日志、延迟写入队列分别由{@link RecordCache}、{@link ChangeLog}、
+ * {@link WriteBehindQueue}维护，本类负责加锁、读写快照和协调三者。</p>
+ *
  * @author 刘一村
  * @version 1.0.0
  */
-public class JsonDataManager {
+public class JsonDataManager implements PetitionerRepository {
+    // ==================== 共享实例 ====================
+
+    /**
+     * 进程内共享的数据管理器实例（默认数据目录）
+     */
+    private static volatile JsonDataManager instance;
+
+    /**
+     * 获取进程内共享的数据管理器
+     * 所有服务和控制器共用同一份内存数据，首次访问时从文件加载
+     *
+     * @return 共享数据管理器实例
+     */
+    public static JsonDataManager getInstance() {
+        if (instance == null) {
+            synchronized (JsonDataManager.class) {
+                if (instance == null) {
+                    JsonDataManager manager = new JsonDataManager();
+                    try {
+                        manager.loadAll();
+                        applyConfiguredStorage(manager);
+                    } catch (IOException e) {
+                        System.err.println("加载数据失败: " + e.getMessage());
+                    }
+                    instance = manager;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 是否为进程内共享的数据管理器
+     *
+     * @return 是{@link #getInstance()}返回的实例时返回true
+     */
+    public boolean isSharedInstance() {
+        return this == instance;
+    }
+
+    /**
+     * 按配置项storageFormat、storageLayout转换数据文件格式和布局（与当前文件一致时不做任何事），
+     * 并按配置项writeBehind、watchDataDirectory设置是否延迟写入（默认关闭）、是否监视其他实例的修改（默认开启）
+     */
+    private static void applyConfiguredStorage(JsonDataManager manager) throws IOException {
+        ConfigManager configManager = new ConfigManager();
+        configManager.loadConfig();
+        StorageFormat configuredFormat = StorageFormat.fromName(
+                configManager.getString("storageFormat", null), manager.getStorageFormat());
+        if (configuredFormat != manager.getStorageFormat()) {
+            manager.convertTo(configuredFormat);
+        }
+        StorageLayout configuredLayout = StorageLayout.fromName(
+                configManager.getString("storageLayout", null), manager.getStorageLayout());
+        if (configuredLayout != manager.getStorageLayout()) {
+            manager.convertTo(configuredLayout);
+        }
+        manager.setWriteBehind(configManager.getBoolean(WRITE_BEHIND_CONFIG_KEY, false));
+        if (configManager.getBoolean(WATCH_CONFIG_KEY, true)) {
+            manager.startWatching();
+        }
+    }
+
+    /**
+     * 关闭共享实例
+     * 应用程序退出时调用，之后再次调用getInstance()将重新创建实例
+     */
+    public static void shutdownInstance() {
+        synchronized (JsonDataManager.class) {
+            if (instance != null) {
+                try {
+                    instance.close();
+                } catch (IOException e) {
+                    System.err.println("关闭数据管理器失败: " + e.getMessage());
+                }
+                instance = null;
+            }
+        }
+    }
+
     /**
      * 数据文件存储路径
      */
@@ -32,26 +169,168 @@ public class JsonDataManager {
      */
     private static final String DATA_FILE = "petitioners.json";
 
+    /**
+     * 变更日志文件名
+     */
+    private static final String LOG_FILE = "petitioners.log";
+
+    /**
+     * 数据目录锁文件名
+     */
+    private static final String LOCK_FILE = "petitioners.lock";
+
+    /**
+     * 校验和文件后缀，记录数据文件的CRC32和字节数
+     */
+    private static final String CHECKSUM_SUFFIX = ".crc";
+
+    /**
+     * 分段存储目录名
+     */
+    private static final String SEGMENT_DIR = "segments";
+
+    /**
+     * 快照读写缓冲区大小（字节）
+     * 数据按此大小分块流式写出，不在内存中生成完整的字节数组
+     */
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 配置项：是否启用延迟写入（默认关闭）
+     * 启用后保存返回时修改可能尚未写盘，进程异常退出会丢失最近约200毫秒内的修改
+     */
+    static final String WRITE_BEHIND_CONFIG_KEY = "writeBehind";
+
+    /**
+     * 配置项：是否监视数据目录中其他实例的修改
+     */
+    static final String WATCH_CONFIG_KEY = "watchDataDirectory";
+
     /**
      * Jackson ObjectMapper实例
      */
     private final ObjectMapper objectMapper;
 
+    /**
+     * 写日志用的ObjectMapper（单行输出）
+     */
+    private final ObjectMapper logMapper;
+
     /**
      * 数据文件完整路径
      */
     private final Path dataFilePath;
 
     /**
-     * 内存中的数据缓存
+     * 校验和文件完整路径
+     */
+    private final Path checksumFilePath;
+
+    /**
+     * 快照写入锁，保证同一时间只有一个线程重写数据文件
+     */
+    private final Object snapshotLock = new Object();
+
+    /**
+     * 数据目录提交锁，多个实例（包括其他进程）写数据文件时互斥。
+     * 加锁顺序：快照锁、目录锁、数据锁
+     */
+    private final DataFileLock fileLock;
+
+    /**
+     * 内存记录缓存及其索引（只在数据锁内读写，对外发布的是不可变快照）
+     */
+    private final RecordCache cache = new RecordCache();
+
+    /**
+     * 变更日志
+     */
+    private final ChangeLog changeLog;
+
+    /**
+     * 内存缓存是否已与数据文件同步
+     */
+    private boolean cacheLoaded;
+
+    /**
+     * 缓存对应的数据文件修改时间（毫秒），文件不存在时为-1
+     */
+    private long cachedModifiedTime = -1;
+
+    /**
+     * 缓存对应的数据文件大小（字节），文件不存在时为-1
+     */
+    private long cachedFileSize = -1;
+
+    /**
+     * 缓存对应的日志文件修改时间（毫秒），文件不存在时为-1
+     */
+    private long cachedLogModifiedTime = -1;
+
+    /**
+     * 缓存对应的日志文件大小（字节），文件不存在时为-1
+     */
+    private long cachedLogSize = -1;
+
+    /**
+     * 是否启用延迟写入
+     */
+    private volatile boolean writeBehind;
+
+    /**
+     * 延迟写入模式下尚未写盘的修改
+     */
+    private final WriteBehindQueue writeQueue;
+
+    /**
+     * 数据目录监视器，未开启监视时为null
      */
-    private List<Petitioner> dataCache;
+    private DataDirectoryWatcher watcher;
+
+    /**
+     * 当前数据文件的存储格式，加载时按文件头识别，写快照时沿用
+     */
+    private volatile StorageFormat storageFormat = StorageFormat.JSON;
+
+    /**
+     * 各存储格式的ObjectMapper（JSON格式直接使用objectMapper）
+     */
+    private final Map<StorageFormat, ObjectMapper> formatMappers = new EnumMap<>(StorageFormat.class);
+
+    /**
+     * 分段快照存储（segments/manifest.json存在时使用分段布局）
+     */
+    private final SegmentedSnapshotStore segmentStore;
+
+    /**
+     * 数据变更监听器
+     */
+    private final List<DataChangeListener> changeListeners = new CopyOnWriteArrayList<>();
 
     /**
      * 默认构造函数
      * 初始化ObjectMapper并配置JSON序列化选项
      */
     public JsonDataManager() {
+        this(DATA_DIR);
+    }
+
+    /**
+     * 构造函数（支持自定义数据目录）
+     *
+     * @param dataDirectory 数据目录路径
+     */
+    public JsonDataManager(String dataDirectory) {
+        this(dataDirectory, SegmentedSnapshotStore.DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * 构造函数（指定分段布局下每个数据段的记录数）
+     *
+     * @param dataDirectory 数据目录
+     * @param segmentSize 每个数据段的目标记录数
+     */
+    JsonDataManager(String dataDirectory, int segmentSize) {
         this.objectMapper = new ObjectMapper();
         // 注册JavaTimeModule以支持LocalDateTime序列化
         this.objectMapper.registerModule(new JavaTimeModule());
@@ -60,29 +339,71 @@ public class JsonDataManager {
         // 启用美化输出
         this.objectMapper.enable(SerializationFeature.INDENT_OUTPUT);
 
+        // 日志每条记录占一行，不能换行缩进
+        this.logMapper = objectMapper.copy().disable(SerializationFeature.INDENT_OUTPUT);
+
         // 初始化数据文件路径
-        this.dataFilePath = Paths.get(DATA_DIR, DATA_FILE);
-        this.dataCache = new ArrayList<>();
+        this.dataFilePath = Paths.get(dataDirectory, DATA_FILE);
+        this.checksumFilePath = checksumFileFor(dataFilePath);
+        this.fileLock = new DataFileLock(lockFileFor(dataFilePath));
+        this.segmentStore = new SegmentedSnapshotStore(segmentDirectoryFor(dataFilePath), segmentSize);
+        this.changeLog = new ChangeLog(logFileFor(dataFilePath), logMapper, () -> {
+            try {
+                compact();
+            } catch (IOException e) {
+                System.err.println("合并变更日志失败: " + e.getMessage());
+            }
+        });
+        this.writeQueue = new WriteBehindQueue(this, () -> {
+            try {
+                persistPending();
+            } catch (IOException e) {
+                System.err.println("写入变更日志失败: " + e.getMessage());
+            }
+        });
 
         // 确保数据目录存在
         ensureDataDirectoryExists();
     }
 
     /**
-     * 构造函数（支持自定义数据目录）
+     * 获取数据文件对应的变更日志路径
      *
-     * @param dataDirectory 数据目录路径
+     * @param dataFilePath 数据文件路径
+     * @return 同目录下的变更日志路径
      */
-    public JsonDataManager(String dataDirectory) {
-        this.objectMapper = new ObjectMapper();
-        this.objectMapper.registerModule(new JavaTimeModule());
-        this.objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-        this.objectMapper.enable(SerializationFeature.INDENT_OUTPUT);
+    static Path logFileFor(Path dataFilePath) {
+        return dataFilePath.resolveSibling(LOG_FILE);
+    }
 
-        this.dataFilePath = Paths.get(dataDirectory, DATA_FILE);
-        this.dataCache = new ArrayList<>();
+    /**
+     * 获取数据文件对应的分段存储目录
+     *
+     * @param dataFilePath 数据文件路径
+     * @return 同目录下的分段存储目录
+     */
+    static Path segmentDirectoryFor(Path dataFilePath) {
+        return dataFilePath.resolveSibling(SEGMENT_DIR);
+    }
 
-        ensureDataDirectoryExists();
+    /**
+     * 获取数据文件对应的数据目录锁文件
+     *
+     * @param dataFilePath 数据文件路径
+     * @return 同目录下的锁文件路径
+     */
+    static Path lockFileFor(Path dataFilePath) {
+        return dataFilePath.resolveSibling(LOCK_FILE);
+    }
+
+    /**
+     * 获取数据文件对应的校验和文件路径
+     *
+     * @param dataFilePath 数据文件路径
+     * @return 同目录下的校验和文件路径
+     */
+    static Path checksumFileFor(Path dataFilePath) {
+        return dataFilePath.resolveSibling(dataFilePath.getFileName() + CHECKSUM_SUFFIX);
     }
 
     /**
@@ -102,171 +423,1293 @@ public class JsonDataManager {
 
     /**
      * 加载所有上访人员数据
-     * 从JSON文件读取数据并更新内存缓存
+     * 数据文件自上次加载或保存后未发生变化时直接返回内存缓存，否则重新解析文件
      *
      * @return 上访人员列表
      * @throws IOException 文件读取异常
      */
-    public List<Petitioner> loadAll() throws IOException {
-        File dataFile = dataFilePath.toFile();
-
-        // 如果文件不存在，返回空列表
-        if (!dataFile.exists()) {
-            dataCache = new ArrayList<>();
-            return dataCache;
-        }
-
-        // 读取JSON文件
-        Petitioner[] petitioners = objectMapper.readValue(dataFile, Petitioner[].class);
-        dataCache = new ArrayList<>(List.of(petitioners));
+    public synchronized List<Petitioner> loadAll() throws IOException {
+        ensureCacheFresh();
+        return new ArrayList<>(cache.records());
+    }
 
-        return new ArrayList<>(dataCache);
+    /**
+     * 获取只读数据快照
+     * 与loadAll()相同的缓存校验规则，返回当前版本快照中的不可变列表，适合只读遍历的查询和统计
+     *
+     * @return 不可修改的上访人员列表
+     * @throws IOException 文件读取异常
+     */
+    public List<Petitioner> snapshot() throws IOException {
+        return currentSnapshot().getRecords();
     }
 
     /**
-     * 保存所有上访人员数据
-     * 将内存缓存中的数据写入JSON文件
+     * 获取当前版本的不可变快照
+     * 缓存自上次发布后未变化时返回同一个快照对象；调用方可在锁外遍历，
+     * 之后的修改不会影响已取得的快照
      *
-     * @param petitioners 上访人员列表
-     * @throws IOException 文件写入异常
+     * @return 数据快照
+     * @throws IOException 文件读取异常
      */
-    public void saveAll(List<Petitioner> petitioners) throws IOException {
-        // 更新内存缓存
-        this.dataCache = new ArrayList<>(petitioners);
+    public synchronized DataSnapshot currentSnapshot() throws IOException {
+        ensureCacheFresh();
+        return cache.publish();
+    }
 
-        // 写入JSON文件
-        objectMapper.writeValue(dataFilePath.toFile(), petitioners);
+    /**
+     * 获取全部记录的摘要（列表视图使用）
+     * 摘要按记录缓存，未修改的记录重复读取时不再生成新对象
+     *
+     * @return 不可修改的摘要列表，顺序与loadAll()一致
+     * @throws IOException 文件读取异常
+     */
+    public synchronized List<PetitionerSummary> summaries() throws IOException {
+        ensureCacheFresh();
+        return cache.summaries();
     }
 
     /**
-     * 根据ID查找上访人员
+     * 查找满足条件的记录
+     * 有姓名、籍贯、地址等文本条件或枚举条件时先用检索索引取候选记录，只核对候选；
+     * 没有可用索引的条件时遍历全部记录
      *
-     * @param id 上访人员ID
-     * @return Optional包装的上访人员对象，如果未找到则为空
+     * @param filter 查询条件
+     * @return 匹配的上访人员列表，顺序与loadAll()一致
+     * @throws IOException 文件读取异常
      */
-    public Optional<Petitioner> findById(String id) {
-        if (id == null || id.isBlank()) {
-            return Optional.empty();
+    @Override
+    public synchronized List<Petitioner> find(PetitionerFilter filter) throws IOException {
+        if (filter == null) {
+            return loadAll();
         }
+        ensureCacheFresh();
 
-        return dataCache.stream()
-                .filter(p -> id.equals(p.getId()))
-                .findFirst();
+        List<Petitioner> result = new ArrayList<>();
+        cache.forEachMatch(filter, result::add);
+        return result;
     }
 
     /**
-     * 保存单个上访人员
-     * 如果ID已存在则更新，否则新增
+     * 分页查找满足条件的记录
+     * 直接遍历索引候选，匹配的记录交给分页收集器，不生成完整的结果列表；
+     * 没有条件也不排序时直接截取缓存中的一段
      *
-     * @param petitioner 上访人员对象
-     * @throws IOException 文件写入异常
+     * @param filter 查询条件（可以为null）
+     * @param sort 排序条件，为空时顺序与loadAll()一致
+     * @param offset 跳过的记录数
+     * @param limit 每页条数
+     * @return 本页记录和满足条件的记录总数
+     * @throws IOException 文件读取异常
      */
-    public void save(Petitioner petitioner) throws IOException {
-        if (petitioner == null) {
-            throw new IllegalArgumentException("上访人员对象不能为null");
-        }
-
-        // 查找是否已存在
-        Optional<Petitioner> existing = findById(petitioner.getId());
+    @Override
+    public synchronized Page<Petitioner> findPage(PetitionerFilter filter, List<SortKey> sort, int offset, int limit)
+            throws IOException {
+        PageCollector collector = new PageCollector(sort, offset, limit);
+        ensureCacheFresh();
 
-        if (existing.isPresent()) {
-            // 更新现有记录
-            int index = dataCache.indexOf(existing.get());
-            dataCache.set(index, petitioner);
+        List<Petitioner> records = cache.records();
+        if (filter == null && (sort == null || sort.isEmpty())) {
+            int from = Math.min(offset, records.size());
+            int to = (int) Math.min(records.size(), (long) from + limit);
+            return new Page<>(new ArrayList<>(records.subList(from, to)), records.size(), offset, limit,
+                    cache.version());
+        }
+        if (filter == null) {
+            records.forEach(collector::accept);
         } else {
-            // 新增记录
-            dataCache.add(petitioner);
+            cache.forEachMatch(filter, collector::accept);
         }
+        return collector.toPage().withVersion(cache.version());
+    }
 
-        // 保存到文件
-        saveAll(dataCache);
+    /**
+     * 统计各枚举字段每个取值的记录数
+     * 枚举条件和计数都用枚举位图计算，文本等其他条件先求出匹配记录的位图
+     *
+     * @param filter 查询条件（可以为null）
+     * @return 字段 -> 取值（按声明顺序）-> 记录数
+     * @throws IOException 文件读取异常
+     */
+    @Override
+    public synchronized Map<FacetField, Map<Enum<?>, Integer>> facetCounts(PetitionerFilter filter)
+            throws IOException {
+        ensureCacheFresh();
+        return cache.facetCounts(filter != null ? filter : new PetitionerFilter());
     }
 
     /**
-     * 删除指定ID的上访人员
+     * 按号码片段查找记录ID
+     * 使用号码片段索引，不超过3位的片段直接取倒排表，更长的片段只核对候选记录
      *
-     * @param id 上访人员ID
-     * @return 是否删除成功
-     * @throws IOException 文件写入异常
+     * @param field 号码字段
+     * @param digits 号码片段（只含数字和X，X不区分大小写）
+     * @param prefixOnly 是否只匹配号码开头
+     * @return 匹配记录ID的迭代器，顺序与loadAll()一致，内容为调用时的数据
+     * @throws IOException 文件读取异常
      */
-    public boolean delete(String id) throws IOException {
-        if (id == null || id.isBlank()) {
-            return false;
+    @Override
+    public synchronized Iterator<String> findIdsByNumber(NumberField field, String digits, boolean prefixOnly)
+            throws IOException {
+        if (!NumberField.isNumber(digits)) {
+            throw new IllegalArgumentException("号码片段只能包含数字和X");
         }
+        ensureCacheFresh();
+        return cache.findIdsByNumber(field, digits, prefixOnly).iterator();
+    }
+
+    /**
+     * 确保内存缓存与数据文件一致
+     * 通过数据文件和日志文件的修改时间、大小判断是否被修改，仅在变化时重新解析：
+     * 快照未变而日志变长时只重放新增的日志行；否则重新读取后与内存逐条合并。
+     * 首次加载或refresh()后整体替换缓存并发出重新加载通知
+     *
+     * @throws IOException 文件读取异常
+     */
+    private void ensureCacheFresh() throws IOException {
+        BasicFileAttributes attributes = readFileAttributes(snapshotPath());
+        BasicFileAttributes logAttributes = readFileAttributes(changeLog.getPath());
 
-        boolean removed = dataCache.removeIf(p -> id.equals(p.getId()));
+        boolean snapshotUnchanged = modifiedTimeOf(attributes) == cachedModifiedTime
+                && sizeOf(attributes) == cachedFileSize;
+        if (cacheLoaded && snapshotUnchanged
+                && modifiedTimeOf(logAttributes) == cachedLogModifiedTime
+                && sizeOf(logAttributes) == cachedLogSize) {
+            return;
+        }
 
-        if (removed) {
-            // 保存到文件
-            saveAll(dataCache);
+        if (cacheLoaded && snapshotUnchanged && logAttributes != null
+                && logAttributes.size() > Math.max(cachedLogSize, 0)
+                && replayLogTail(Math.max(cachedLogSize, 0), logAttributes)) {
+            return;
         }
 
-        return removed;
+        Map<String, Petitioner> stored = readStoredState(attributes != null);
+        if (cacheLoaded) {
+            mergeStoredState(stored);
+        } else {
+            cache.replace(new ArrayList<>(stored.values()));
+            fireChange(DataChangeEvent.reloaded());
+        }
+        markCacheFresh();
+        changeLog.loaded(sizeOf(logAttributes));
     }
 
     /**
-     * 批量删除上访人员
+     * 读取文件中保存的全部数据（快照加上重放后的日志），不修改内存缓存
      *
-     * @param ids 上访人员ID列表
-     * @return 删除的记录数
-     * @throws IOException 文件写入异常
+     * @param snapshotExists 快照文件是否存在
+     * @return ID -> 记录，顺序与加载后的缓存一致
+     * @throws IOException 文件读取异常
      */
-    public int batchDelete(List<String> ids) throws IOException {
-        if (ids == null || ids.isEmpty()) {
-            return 0;
+    private Map<String, Petitioner> readStoredState(boolean snapshotExists) throws IOException {
+        Map<String, Petitioner> stored = new LinkedHashMap<>();
+        if (snapshotExists) {
+            // 读取快照（单文件或分段）
+            for (Petitioner petitioner : segmentStore.exists() ? readSegments() : readSnapshot()) {
+                stored.put(petitioner.getId(), petitioner);
+            }
         }
 
-        int count = 0;
-        for (String id : ids) {
-            boolean removed = dataCache.removeIf(p -> id.equals(p.getId()));
-            if (removed) {
-                count++;
+        // 重放快照之后的变更日志
+        changeLog.replay(stored);
+        return stored;
+    }
+
+    /**
+     * 将重新读取的数据与内存缓存逐条合并
+     * 版本号和修改时间都相同的记录保留内存中的对象，不发通知；
+     * 其余新增、修改、删除按外部修改处理
+     *
+     * @param stored 文件中保存的数据
+     */
+    private void mergeStoredState(Map<String, Petitioner> stored) {
+        List<String> removedIds = new ArrayList<>();
+        for (Petitioner petitioner : cache.records()) {
+            if (!stored.containsKey(petitioner.getId())) {
+                removedIds.add(petitioner.getId());
             }
         }
-
-        if (count > 0) {
-            // 保存到文件
-            saveAll(dataCache);
+        for (String id : removedIds) {
+            mergeExternal(id, null);
         }
 
-        return count;
+        for (Petitioner petitioner : stored.values()) {
+            Petitioner cached = cache.get(petitioner.getId());
+            if (cached == null || cached.getVersion() != petitioner.getVersion()
+                    || !Objects.equals(cached.getUpdateTime(), petitioner.getUpdateTime())) {
+                mergeExternal(petitioner.getId(), petitioner);
+            }
+        }
     }
 
     /**
-     * 获取数据总数
+     * 应用一条其他实例写入的修改
+     * 本地有同一记录尚未落盘的修改时先比较版本号，版本号相同再比较修改时间：
+     * 外部较新则放弃本地修改，并排队一条与外部一致的日志，使落盘后的结果相同；
+     * 否则保留本地修改，落盘后只覆盖这一条记录
      *
-     * @return 记录总数
+     * @param id 记录ID
+     * @param external 外部写入的记录，被删除时为null
      */
-    public int count() {
-        return dataCache.size();
+    private void mergeExternal(String id, Petitioner external) {
+        WriteBehindQueue.PendingEdit local = writeQueue.pendingEdit(id);
+        if (local != null) {
+            if (!local.isOlderThan(external)) {
+                return;
+            }
+            System.err.println("本地未保存的修改与其他实例冲突，已采用较新的版本: " + id);
+            try {
+                enqueueLog(external != null ? changeLog.putEntry(external) : changeLog.deleteEntry(List.of(id)));
+            } catch (IOException e) {
+                System.err.println("排队冲突修正日志失败: " + e.getMessage());
+            }
+        }
+
+        if (external != null) {
+            fireChange(cache.put(external));
+            return;
+        }
+        Petitioner removed = cache.remove(id);
+        if (removed != null) {
+            fireChange(DataChangeEvent.removed(removed));
+        }
     }
 
     /**
-     * 清空所有数据
+     * 记录当前数据文件和日志文件的修改时间和大小
+     * 在本实例写入文件后调用，避免下次读取时重复解析自己刚写入的数据
      *
-     * @throws IOException 文件写入异常
+     * @throws IOException 文件读取异常
      */
-    public void clear() throws IOException {
-        dataCache.clear();
-        saveAll(dataCache);
+    private void markCacheFresh() throws IOException {
+        BasicFileAttributes attributes = readFileAttributes(snapshotPath());
+        BasicFileAttributes logAttributes = readFileAttributes(changeLog.getPath());
+        cachedModifiedTime = modifiedTimeOf(attributes);
+        cachedFileSize = sizeOf(attributes);
+        cachedLogModifiedTime = modifiedTimeOf(logAttributes);
+        cachedLogSize = sizeOf(logAttributes);
+        cacheLoaded = true;
     }
 
     /**
-     * 获取数据文件路径
-     *
-     * @return 数据文件路径
+     * 当前布局下用于判断快照是否变化的文件：分段布局为清单文件，否则为数据文件
      */
-    public Path getDataFilePath() {
-        return dataFilePath;
+    private Path snapshotPath() {
+        return segmentStore.exists() ? segmentStore.getManifestPath() : dataFilePath;
     }
 
     /**
-     * 刷新内存缓存
-     * 从文件重新加载数据
+     * 获取指定存储格式的ObjectMapper
+     */
+    private synchronized ObjectMapper mapperFor(StorageFormat format) {
+        if (format == StorageFormat.JSON) {
+            return objectMapper;
+        }
+        return formatMappers.computeIfAbsent(format, StorageFormat::createMapper);
+    }
+
+    /**
+     * 读取文件属性
      *
+     * @param path 文件路径
+     * @return 文件属性，文件不存在时返回null
      * @throws IOException 文件读取异常
      */
-    public void refresh() throws IOException {
-        loadAll();
+    private BasicFileAttributes readFileAttributes(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        return Files.readAttributes(path, BasicFileAttributes.class);
+    }
+
+    private static long modifiedTimeOf(BasicFileAttributes attributes) {
+        return attributes != null ? attributes.lastModifiedTime().toMillis() : -1;
+    }
+
+    private static long sizeOf(BasicFileAttributes attributes) {
+        return attributes != null ? attributes.size() : -1;
+    }
+
+    /**
+     * 保存所有上访人员数据
+     * 将数据整体写入快照文件并清空变更日志
+     *
+     * @param petitioners 上访人员列表
+     * @throws IOException 文件写入异常
+     */
+    public void saveAll(List<Petitioner> petitioners) throws IOException {
+        synchronized (snapshotLock) {
+            try (DataFileLock.Hold hold = fileLock.acquire()) {
+                synchronized (this) {
+                    hold.checkValid();
+
+                    // 更新内存缓存
+                    cache.replace(new ArrayList<>(petitioners));
+
+                    // 写入快照，快照已包含全部数据，日志可以丢弃
+                    writeSnapshot(cache.records(), null, storageFormat);
+                    changeLog.delete();
+                    writeQueue.coveredBySnapshot(writeQueue.size());
+                    markCacheFresh();
+                    fireChange(DataChangeEvent.reloaded());
+                }
+            }
+        }
+    }
+
+    /**
+     * 将数据写入快照文件
+     * 先流式写入同目录的临时文件并刷盘，再原子重命名覆盖数据文件，
+     * 写入过程中崩溃只会留下临时文件，原数据文件保持完整
+     *
+     * @param petitioners 上访人员列表
+     * @param changedIds 分段布局下需要重写的记录ID，为null时全部重写
+     * @param format 存储格式
+     * @throws IOException 文件写入异常
+     */
+    private void writeSnapshot(List<Petitioner> petitioners, Set<String> changedIds, StorageFormat format)
+            throws IOException {
+        if (segmentStore.exists()) {
+            segmentStore.write(petitioners, changedIds, format, mapperFor(format));
+            return;
+        }
+
+        Path tempPath = dataFilePath.resolveSibling(dataFilePath.getFileName() + ".tmp");
+        Path tempChecksumPath = checksumFilePath.resolveSibling(checksumFilePath.getFileName() + ".tmp");
+
+        CRC32 crc = new CRC32();
+        long size;
+        try (FileOutputStream fos = new FileOutputStream(tempPath.toFile())) {
+            CheckedOutputStream checked = new CheckedOutputStream(
+                    new BufferedOutputStream(fos, IO_BUFFER_SIZE), crc);
+            // 由本方法负责关闭流，以便在关闭前刷盘
+            mapperFor(format).writer()
+                    .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .writeValue(checked, petitioners);
+            checked.flush();
+            fos.getChannel().force(true);
+            size = fos.getChannel().size();
+        }
+
+        Files.writeString(tempChecksumPath, Long.toHexString(crc.getValue()) + " " + size,
+                StandardCharsets.UTF_8);
+        try (FileChannel channel = FileChannel.open(tempChecksumPath, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+
+        moveAtomically(tempPath, dataFilePath);
+        moveAtomically(tempChecksumPath, checksumFilePath);
+        syncDirectory(dataFilePath.toAbsolutePath().getParent());
+    }
+
+    /**
+     * 读取分段快照
+     * 数据段按ID排序存放，加载后按创建时间排序，保持与单文件布局一致的新增顺序
+     *
+     * @return 上访人员列表
+     * @throws IOException 文件读取或校验失败
+     */
+    private List<Petitioner> readSegments() throws IOException {
+        List<Petitioner> petitioners = segmentStore.load(this::mapperFor);
+        storageFormat = segmentStore.getFormat();
+        petitioners.sort(Comparator.comparing(Petitioner::getCreateTime,
+                Comparator.nullsFirst(Comparator.naturalOrder())));
+        return petitioners;
+    }
+
+    /**
+     * 读取快照文件
+     * 根据文件头识别存储格式，解析的同时计算CRC32，与校验和文件比对；
+     * 不一致且无法解析时报告文件损坏
+     *
+     * @return 上访人员列表
+     * @throws IOException 文件读取或校验失败
+     */
+    private List<Petitioner> readSnapshot() throws IOException {
+        CRC32 crc = new CRC32();
+        Petitioner[] petitioners;
+        BufferedInputStream buffered = new BufferedInputStream(Files.newInputStream(dataFilePath), IO_BUFFER_SIZE);
+        try (InputStream in = new CheckedInputStream(buffered, crc)) {
+            // 先读文件头识别格式，再回到开头，使校验和覆盖全部字节
+            byte[] header = new byte[StorageFormat.HEADER_LENGTH];
+            buffered.mark(header.length);
+            int headerLength = buffered.readNBytes(header, 0, header.length);
+            buffered.reset();
+            StorageFormat format = StorageFormat.detect(header, headerLength);
+
+            try {
+                petitioners = mapperFor(format).readerFor(Petitioner[].class)
+                        .without(JsonParser.Feature.AUTO_CLOSE_SOURCE)
+                        .readValue(in);
+            } catch (IOException e) {
+                if (!checksumMatches(crc, -1)) {
+                    throw new IOException("数据文件已损坏（校验和不匹配）: " + dataFilePath, e);
+                }
+                throw e;
+            }
+            // 读完剩余字节，保证校验和覆盖整个文件
+            byte[] buffer = new byte[IO_BUFFER_SIZE];
+            while (in.read(buffer) >= 0) {
+                // 仅用于计算校验和
+            }
+            storageFormat = format;
+        }
+        if (!checksumMatches(crc, Files.size(dataFilePath))) {
+            // 能正常解析说明数据本身完整，可能是两次重命名之间发生了中断
+            System.err.println("数据文件校验和不匹配，已按解析结果加载: " + dataFilePath);
+        }
+
+        return new ArrayList<>(List.of(petitioners));
+    }
+
+    /**
+     * 比对校验和文件
+     *
+     * @param crc 已计算的CRC32
+     * @param size 文件字节数，-1表示不比较大小
+     * @return 校验和文件不存在或内容一致时返回true
+     */
+    private boolean checksumMatches(CRC32 crc, long size) throws IOException {
+        if (!Files.exists(checksumFilePath)) {
+            return true;
+        }
+
+        String[] parts = Files.readString(checksumFilePath, StandardCharsets.UTF_8).trim().split(" ");
+        if (parts.length != 2) {
+            return false;
+        }
+        try {
+            boolean crcMatches = Long.parseLong(parts[0], 16) == crc.getValue();
+            boolean sizeMatches = size < 0 || Long.parseLong(parts[1]) == size;
+            return crcMatches && sizeMatches;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 原子重命名文件
+     * 文件系统不支持原子移动时退化为普通覆盖
+     */
+    static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * 刷新目录元数据，使重命名在断电后依然有效
+     * 部分平台（如Windows）不支持打开目录，忽略即可
+     *
+     * @param directory 目录路径
+     */
+    static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // 平台不支持目录刷盘
+        }
+    }
+
+    /**
+     * 根据ID查找上访人员
+     * 查找前校验缓存是否与文件一致；返回缓存记录的副本，调用方修改后通过save()保存，不影响已发布的快照
+     *
+     * @param id 上访人员ID
+     * @return Optional包装的上访人员对象，如果未找到则为空
+     * @throws UncheckedIOException 文件读取异常（接口方法不声明IOException）
+     */
+    public synchronized Optional<Petitioner> findById(String id) {
+        if (id == null || id.isBlank()) {
+            return Optional.empty();
+        }
+
+        try {
+            ensureCacheFresh();
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取数据失败: " + e.getMessage(), e);
+        }
+        Petitioner cached = cache.get(id);
+        return cached != null ? Optional.of(copyOf(cached)) : Optional.empty();
+    }
+
+    /**
+     * 根据身份证号查找上访人员
+     * 查找前校验缓存是否与文件一致
+     *
+     * @param idCard 身份证号
+     * @return Optional包装的上访人员对象，如果未找到则为空
+     * @throws IOException 文件读取异常
+     */
+    public synchronized Optional<Petitioner> findByIdCard(String idCard) throws IOException {
+        if (idCard == null || idCard.isBlank()) {
+            return Optional.empty();
+        }
+
+        ensureCacheFresh();
+        String id = cache.idOfIdCard(idCard);
+        return id != null ? Optional.of(copyOf(cache.get(id))) : Optional.empty();
+    }
+
+    /**
+     * 判断身份证号是否已存在
+     *
+     * @param idCard 身份证号
+     * @return 是否已存在
+     * @throws IOException 文件读取异常
+     */
+    public synchronized boolean existsByIdCard(String idCard) throws IOException {
+        if (idCard == null || idCard.isBlank()) {
+            return false;
+        }
+
+        ensureCacheFresh();
+        return cache.idOfIdCard(idCard) != null;
+    }
+
+    /**
+     * 保存单个上访人员
+     * 如果ID已存在则更新，否则新增；只向变更日志追加该条记录。缓存中存入记录的副本，
+     * 之后调用方继续修改该对象不影响缓存和已发布的快照。
+     * 提交时持有数据目录锁，先合并其他实例已提交的修改，再分配版本号写入
+     *
+     * @param petitioner 上访人员对象
+     * @throws RecordConflictException 记录基于旧版本，编辑期间已被其他实例修改
+     * @throws IOException 文件写入异常
+     */
+    public void save(Petitioner petitioner) throws IOException {
+        if (petitioner == null) {
+            throw new IllegalArgumentException("上访人员对象不能为null");
+        }
+
+        try (DataFileLock.Hold hold = lockForCommit()) {
+            synchronized (this) {
+                ensureCacheFresh();
+                checkVersion(petitioner);
+                long previousVersion = petitioner.getVersion();
+                assignVersion(petitioner);
+                ObjectNode entry = changeLog.putEntry(petitioner);
+                try {
+                    // 先写日志，写入成功后再修改内存
+                    appendLog(entry, hold.isLocked());
+                } catch (IOException | RuntimeException e) {
+                    petitioner.setVersion(previousVersion);
+                    throw e;
+                }
+                fireChange(cache.put(recordOf(entry.get("record"))));
+            }
+        }
+    }
+
+    /**
+     * 批量保存上访人员
+     * 整批记录作为一条日志写入并刷盘，要么全部生效，要么全部不生效；缓存中存入各记录的副本
+     *
+     * @param petitioners 上访人员列表
+     * @throws RecordConflictException 其中有记录基于旧版本，整批都不保存
+     * @throws IOException 文件写入异常
+     */
+    public void saveBatch(List<Petitioner> petitioners) throws IOException {
+        if (petitioners == null || petitioners.isEmpty()) {
+            return;
+        }
+        for (Petitioner petitioner : petitioners) {
+            if (petitioner == null) {
+                throw new IllegalArgumentException("上访人员对象不能为null");
+            }
+        }
+
+        try (DataFileLock.Hold hold = lockForCommit()) {
+            synchronized (this) {
+                ensureCacheFresh();
+                for (Petitioner petitioner : petitioners) {
+                    checkVersion(petitioner);
+                }
+                long[] previousVersions = new long[petitioners.size()];
+                for (int i = 0; i < petitioners.size(); i++) {
+                    previousVersions[i] = petitioners.get(i).getVersion();
+                    assignVersion(petitioners.get(i));
+                }
+                ObjectNode entry = changeLog.putAllEntry(petitioners);
+                try {
+                    appendLog(entry, hold.isLocked());
+                } catch (IOException | RuntimeException e) {
+                    for (int i = 0; i < petitioners.size(); i++) {
+                        petitioners.get(i).setVersion(previousVersions[i]);
+                    }
+                    throw e;
+                }
+                for (JsonNode record : entry.get("records")) {
+                    fireChange(cache.put(recordOf(record)));
+                }
+            }
+        }
+    }
+
+    /**
+     * 删除指定ID的上访人员
+     *
+     * @param id 上访人员ID
+     * @return 是否删除成功
+     * @throws IOException 文件写入异常
+     */
+    public boolean delete(String id) throws IOException {
+        if (id == null || id.isBlank()) {
+            return false;
+        }
+
+        try (DataFileLock.Hold hold = lockForCommit()) {
+            synchronized (this) {
+                // 合并后再判断，记录可能已被其他实例删除
+                ensureCacheFresh();
+                if (!cache.contains(id)) {
+                    return false;
+                }
+
+                appendLog(changeLog.deleteEntry(List.of(id)), hold.isLocked());
+
+                fireChange(DataChangeEvent.removed(cache.remove(id)));
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 批量删除上访人员
+     *
+     * @param ids 上访人员ID列表
+     * @return 删除的记录数
+     * @throws IOException 文件写入异常
+     */
+    public int batchDelete(List<String> ids) throws IOException {
+        if (ids == null || ids.isEmpty()) {
+            return 0;
+        }
+
+        try (DataFileLock.Hold hold = lockForCommit()) {
+            synchronized (this) {
+                ensureCacheFresh();
+                Set<String> existingIds = new LinkedHashSet<>();
+                for (String id : ids) {
+                    if (id != null && cache.contains(id)) {
+                        existingIds.add(id);
+                    }
+                }
+
+                if (existingIds.isEmpty()) {
+                    return 0;
+                }
+
+                // 一次删除多条记录只写一行日志
+                appendLog(changeLog.deleteEntry(existingIds), hold.isLocked());
+
+                List<Petitioner> removed = new ArrayList<>(existingIds.size());
+                for (String id : existingIds) {
+                    removed.add(cache.get(id));
+                }
+
+                int count = cache.removeAll(existingIds);
+                for (Petitioner petitioner : removed) {
+                    fireChange(DataChangeEvent.removed(petitioner));
+                }
+                return count;
+            }
+        }
+    }
+
+    /**
+     * 提交前获取数据目录锁
+     * 延迟写入模式下修改只进入内存队列，由后台线程写盘时再加锁
+     *
+     * @return 持有凭证，延迟写入时为不加锁的空凭证
+     * @throws IOException 无法锁定数据目录
+     */
+    private DataFileLock.Hold lockForCommit() throws IOException {
+        return writeBehind ? DataFileLock.Hold.NONE : fileLock.acquire();
+    }
+
+    /**
+     * 复制缓存中的记录
+     * 缓存记录同时出现在已发布的快照中，只能读取，交给调用方修改的是副本
+     */
+    private Petitioner copyOf(Petitioner petitioner) {
+        return recordOf(logMapper.valueToTree(petitioner));
+    }
+
+    /**
+     * 从日志记录中的JSON节点生成缓存使用的记录对象
+     */
+    private Petitioner recordOf(JsonNode node) {
+        try {
+            return logMapper.treeToValue(node, Petitioner.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("无法复制记录: " + e.getOriginalMessage(), e);
+        }
+    }
+
+    /**
+     * 检查即将保存的记录是否基于最新版本
+     * 记录自带的版本落后于内存中的版本，说明编辑期间其他实例已保存过该记录，
+     * 整条覆盖会丢失对方的修改，因此拒绝保存。版本号为0的记录不是从数据中读出的
+     * （新建对象指定已有ID），按直接替换处理
+     *
+     * @param petitioner 待保存的记录
+     * @throws RecordConflictException 记录基于旧版本
+     */
+    private void checkVersion(Petitioner petitioner) throws RecordConflictException {
+        Petitioner cached = cache.get(petitioner.getId());
+        long version = petitioner.getVersion();
+        if (cached != null && version > 0 && version < cached.getVersion()) {
+            throw new RecordConflictException(petitioner.getId(), petitioner.getVersion(), cached.getVersion());
+        }
+    }
+
+    /**
+     * 为即将保存的记录分配版本号
+     * 新版本号比内存中的版本和记录自带的版本都大一
+     *
+     * @param petitioner 待保存的记录（已通过{@link #checkVersion(Petitioner)}检查）
+     */
+    private void assignVersion(Petitioner petitioner) {
+        Petitioner cached = cache.get(petitioner.getId());
+        long current = cached != null ? cached.getVersion() : 0;
+        petitioner.setVersion(Math.max(current, petitioner.getVersion()) + 1);
+    }
+
+    /**
+     * 获取数据总数
+     *
+     * @return 记录总数
+     */
+    public synchronized int count() {
+        return cache.size();
+    }
+
+    /**
+     * 清空所有数据
+     *
+     * @throws IOException 文件写入异常
+     */
+    public void clear() throws IOException {
+        saveAll(new ArrayList<>());
+    }
+
+    /**
+     * 获取当前数据文件的存储格式
+     *
+     * @return 存储格式
+     */
+    public StorageFormat getStorageFormat() {
+        return storageFormat;
+    }
+
+    /**
+     * 将数据文件转换为指定存储格式
+     * 以新格式重写完整快照并合并变更日志，之后的快照写入沿用该格式
+     *
+     * @param format 目标格式
+     * @throws IOException 文件读写异常
+     */
+    public void convertTo(StorageFormat format) throws IOException {
+        if (format == null) {
+            throw new IllegalArgumentException("存储格式不能为null");
+        }
+        synchronized (snapshotLock) {
+            try (DataFileLock.Hold hold = fileLock.acquire()) {
+                synchronized (this) {
+                    ensureCacheFresh();
+                    hold.checkValid();
+                    storageFormat = format;
+                    writeSnapshot(cache.records(), null, format);
+                    cache.takeDirtyIds();
+                    changeLog.delete();
+                    writeQueue.coveredBySnapshot(writeQueue.size());
+                    markCacheFresh();
+                }
+            }
+        }
+    }
+
+    /**
+     * 获取当前快照的磁盘布局
+     *
+     * @return 存储布局
+     */
+    public StorageLayout getStorageLayout() {
+        return segmentStore.exists() ? StorageLayout.SEGMENTED : StorageLayout.SINGLE_FILE;
+    }
+
+    /**
+     * 将快照转换为指定磁盘布局
+     * 先完整写入新布局再删除旧布局的文件；两种文件同时存在时以分段布局为准，
+     * 因此转换中途中断不会丢失数据
+     *
+     * @param layout 目标布局
+     * @throws IOException 文件读写异常
+     */
+    public void convertTo(StorageLayout layout) throws IOException {
+        if (layout == null) {
+            throw new IllegalArgumentException("存储布局不能为null");
+        }
+        synchronized (snapshotLock) {
+            try (DataFileLock.Hold hold = fileLock.acquire()) {
+                synchronized (this) {
+                    ensureCacheFresh();
+                    if (layout == getStorageLayout()) {
+                        return;
+                    }
+                    hold.checkValid();
+
+                    if (layout == StorageLayout.SEGMENTED) {
+                        segmentStore.write(cache.records(), null, storageFormat, mapperFor(storageFormat));
+                        Files.deleteIfExists(dataFilePath);
+                        Files.deleteIfExists(checksumFilePath);
+                    } else {
+                        // 清单仍存在时writeSnapshot会写入分段，先按单文件写出再删除分段目录
+                        Path segmentDirectory = segmentDirectoryFor(dataFilePath);
+                        Path pending = segmentDirectory.resolveSibling(SEGMENT_DIR + ".old");
+                        SegmentedSnapshotStore.delete(pending);
+                        moveAtomically(segmentDirectory, pending);
+                        writeSnapshot(cache.records(), null, storageFormat);
+                        SegmentedSnapshotStore.delete(pending);
+                    }
+                    changeLog.delete();
+                    cache.takeDirtyIds();
+                    writeQueue.coveredBySnapshot(writeQueue.size());
+                    markCacheFresh();
+                }
+            }
+        }
+    }
+
+    /**
+     * 以缩进JSON导出全部数据
+     * 无论数据文件使用哪种存储格式，都可用于查看、排查问题或交给其他系统。
+     * 导出当前版本的快照，写文件期间不持有数据锁
+     *
+     * @param target 导出文件路径
+     * @throws IOException 文件读写异常
+     */
+    public void exportJson(Path target) throws IOException {
+        List<Petitioner> records = currentSnapshot().getRecords();
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(target), IO_BUFFER_SIZE)) {
+            objectMapper.writeValue(out, records);
+        }
+    }
+
+    /**
+     * 获取数据文件路径
+     *
+     * @return 数据文件路径
+     */
+    public Path getDataFilePath() {
+        return dataFilePath;
+    }
+
+    /**
+     * 获取变更日志文件路径
+     *
+     * @return 变更日志文件路径
+     */
+    public Path getLogFilePath() {
+        return changeLog.getPath();
+    }
+
+    /**
+     * 刷新内存缓存
+     * 忽略文件修改检测，强制从文件重新加载数据；加载前先写出排队的修改
+     *
+     * @throws IOException 文件读写异常
+     */
+    public void refresh() throws IOException {
+        flush();
+        synchronized (this) {
+            cacheLoaded = false;
+            segmentStore.invalidate();
+            ensureCacheFresh();
+        }
+    }
+
+    /**
+     * 将变更日志合并进数据快照
+     * 备份或退出前调用，保证数据文件本身包含全部已确认的修改
+     *
+     * @throws IOException 文件写入异常
+     */
+    public void checkpoint() throws IOException {
+        flush();
+        compact();
+    }
+
+    /**
+     * 关闭数据管理器
+     * 停止监视数据目录，写出排队的修改，停止后台线程，合并未写入快照的日志后释放内存缓存
+     *
+     * @throws IOException 文件操作异常
+     */
+    public void close() throws IOException {
+        stopWatching();
+
+        ExecutorService executor;
+        ExecutorService persistence;
+        synchronized (this) {
+            writeBehind = false;
+            executor = changeLog.detachExecutor();
+            persistence = writeQueue.detachExecutor();
+        }
+
+        awaitShutdown(persistence);
+        flush();
+        awaitShutdown(executor);
+
+        if (changeLog.exists()) {
+            compact();
+        }
+
+        synchronized (this) {
+            cache.replace(new ArrayList<>());
+            cacheLoaded = false;
+            fireChange(DataChangeEvent.reloaded());
+        }
+    }
+
+    /**
+     * 停止后台线程并等待已提交的任务执行完毕
+     */
+    private static void awaitShutdown(ExecutorService executor) {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ==================== 外部修改监视 ====================
+
+    /**
+     * 开始监视数据目录
+     * 其他实例写入数据文件或日志后，由后台线程合并其修改并发出变更通知
+     *
+     * @throws IOException 无法监视数据目录
+     */
+    public synchronized void startWatching() throws IOException {
+        if (watcher != null) {
+            return;
+        }
+        Path absolute = dataFilePath.toAbsolutePath();
+        DataDirectoryWatcher newWatcher = new DataDirectoryWatcher(absolute.getParent(),
+                segmentDirectoryFor(absolute), this::checkExternalChanges);
+        newWatcher.start();
+        watcher = newWatcher;
+    }
+
+    /**
+     * 停止监视数据目录
+     */
+    public void stopWatching() {
+        DataDirectoryWatcher current;
+        synchronized (this) {
+            current = watcher;
+            watcher = null;
+        }
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    /**
+     * 是否正在监视数据目录
+     *
+     * @return 是否正在监视
+     */
+    public synchronized boolean isWatching() {
+        return watcher != null;
+    }
+
+    /**
+     * 检查并合并其他实例的修改
+     * 文件未变化时只比较文件属性；监视线程在目录变化时和定期调用
+     */
+    public void checkExternalChanges() {
+        synchronized (this) {
+            if (!cacheLoaded) {
+                // 尚未加载或已关闭，下次读取时自然会加载
+                return;
+            }
+            try {
+                ensureCacheFresh();
+            } catch (IOException e) {
+                System.err.println("读取其他实例的修改失败: " + e.getMessage());
+            }
+        }
+    }
+
+    // ==================== 延迟写入 ====================
+
+    /**
+     * 是否启用延迟写入
+     *
+     * @return 是否启用
+     */
+    public synchronized boolean isWriteBehind() {
+        return writeBehind;
+    }
+
+    /**
+     * 设置是否启用延迟写入
+     * 启用后增删改只修改内存并排队，由后台线程合并写盘，调用线程不等待磁盘；
+     * 关闭时先写出所有排队的修改
+     *
+     * @param writeBehind 是否启用
+     * @throws IOException 关闭时写出排队的修改失败
+     */
+    public void setWriteBehind(boolean writeBehind) throws IOException {
+        synchronized (this) {
+            this.writeBehind = writeBehind;
+        }
+        if (!writeBehind) {
+            flush();
+        }
+    }
+
+    /**
+     * 获取尚未落盘的修改数
+     *
+     * @return 排队中或正在写入的日志记录数
+     */
+    public synchronized long getPendingWriteCount() {
+        return writeQueue.getPendingCount();
+    }
+
+    /**
+     * 立即写出所有排队的修改并刷盘
+     * 在调用线程中执行写入，返回即表示调用前的全部修改已持久化。
+     * 退出、备份和恢复前调用
+     *
+     * @throws IOException 文件写入异常
+     */
+    public void flush() throws IOException {
+        persistPending();
+    }
+
+    /**
+     * 等待调用时已排队的修改由后台线程写盘
+     * 不主动触发写入，只确认持久化进度
+     *
+     * @param timeout 最长等待时间
+     * @param unit 时间单位
+     * @return 在超时前全部落盘返回true，否则返回false
+     * @throws IOException 后台写入失败
+     * @throws InterruptedException 等待被中断
+     */
+    public boolean awaitDurable(long timeout, TimeUnit unit) throws IOException, InterruptedException {
+        return writeQueue.awaitDurable(timeout, unit);
+    }
+
+    /**
+     * 将一条日志记录加入写盘队列，并登记其涉及的记录修改
+     */
+    private void enqueueLog(ObjectNode entry) throws IOException {
+        writeQueue.enqueue(changeLog.toLine(entry));
+        for (Map.Entry<String, Petitioner> change : changeLog.changesOf(entry)) {
+            Petitioner record = change.getValue();
+            if (record != null) {
+                writeQueue.recordEdit(change.getKey(), record.getVersion(), record.getUpdateTime());
+            } else {
+                // 删除视为在当前版本上的一次修改
+                Petitioner cached = cache.get(change.getKey());
+                writeQueue.recordEdit(change.getKey(), cached != null ? cached.getVersion() + 1 : 0,
+                        LocalDateTime.now());
+            }
+        }
+    }
+
+    /**
+     * 把排队的日志行一次性追加到变更日志并刷盘
+     * 持有快照锁和数据目录锁执行，与日志合并及其他实例的提交互斥；
+     * 写盘期间不持有数据锁，增删改不受影响。
+     * 写入失败时日志行放回队首，下次写入或flush()时重试
+     *
+     * @throws IOException 文件写入异常
+     */
+    private void persistPending() throws IOException {
+        synchronized (snapshotLock) {
+            try (DataFileLock.Hold hold = fileLock.acquire()) {
+                List<String> batch;
+                long target;
+                synchronized (this) {
+                    if (!writeQueue.beginPersist()) {
+                        return;
+                    }
+                    // 先合并其他实例已提交的修改，冲突的记录在此排队修正日志
+                    ensureCacheFresh();
+                    batch = writeQueue.drain();
+                    target = writeQueue.getEnqueuedSequence();
+                }
+
+                try {
+                    StringBuilder lines = new StringBuilder();
+                    for (String line : batch) {
+                        lines.append(line).append('\n');
+                    }
+                    hold.checkValid();
+                    changeLog.append(lines.toString());
+                } catch (IOException | RuntimeException e) {
+                    synchronized (this) {
+                        writeQueue.persistFailed(batch, e instanceof IOException ? (IOException) e : new IOException(e));
+                    }
+                    throw e;
+                }
+
+                synchronized (this) {
+                    writeQueue.persisted(target);
+                    afterLogAppended();
+                }
+            }
+        }
+    }
+
+    // ==================== 变更通知 ====================
+
+    /**
+     * 注册数据变更监听器
+     *
+     * @param listener 监听器
+     */
+    public void addChangeListener(DataChangeListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("监听器不能为null");
+        }
+        changeListeners.add(listener);
+    }
+
+    /**
+     * 移除数据变更监听器
+     *
+     * @param listener 监听器
+     */
+    public void removeChangeListener(DataChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+
+    /**
+     * 通知所有监听器
+     * 事件标记为当前缓存版本号（调用方已持有数据锁，变更已应用到缓存）。
+     * 单个监听器抛出的异常只记录日志，不影响数据写入和其他监听器
+     */
+    private void fireChange(DataChangeEvent event) {
+        DataChangeEvent stamped = event.atVersion(cache.version());
+        for (DataChangeListener listener : changeListeners) {
+            try {
+                listener.onDataChanged(stamped);
+            } catch (RuntimeException e) {
+                System.err.println("数据变更监听器执行失败: " + e.getMessage());
+            }
+        }
+    }
+
+    // ==================== 变更日志 ====================
+
+    /**
+     * 向变更日志追加一条记录并刷盘
+     * 方法返回即表示该修改已持久化；未持有数据目录锁时（延迟写入模式）只排队，由后台线程写盘
+     *
+     * @param entry 日志记录
+     * @param locked 调用方是否持有数据目录锁
+     * @throws IOException 文件写入异常
+     */
+    private void appendLog(ObjectNode entry, boolean locked) throws IOException {
+        if (!locked) {
+            enqueueLog(entry);
+            return;
+        }
+
+        changeLog.append(changeLog.toLine(entry) + "\n");
+        afterLogAppended();
+    }
+
+    /**
+     * 日志追加成功后更新缓存状态，日志过大或过旧时提交合并任务
+     */
+    private void afterLogAppended() throws IOException {
+        markCacheFresh();
+        changeLog.appended(cachedLogSize);
+    }
+
+    /**
+     * 重放其他实例在offset之后追加的日志行，逐条按外部修改合并
+     *
+     * @param offset 已重放的日志字节数
+     * @param logAttributes 当前日志文件属性
+     * @return 是否已处理；offset不在行首（日志被改写）时返回false，由调用方重新读取全部数据
+     * @throws IOException 文件读取异常
+     */
+    private boolean replayLogTail(long offset, BasicFileAttributes logAttributes) throws IOException {
+        long replayed = changeLog.replayTail(offset, logAttributes.size(), this::mergeExternal);
+        if (replayed < 0) {
+            return false;
+        }
+        // 只记到最后一个完整行，文件继续变长时从这里接着读
+        cachedLogModifiedTime = modifiedTimeOf(logAttributes);
+        cachedLogSize = replayed;
+        return true;
+    }
+
+    /**
+     * 合并变更日志
+     * 先在数据锁内复制当前数据并记下日志长度，在数据锁外写快照，
+     * 最后只保留合并期间新追加的日志内容。写快照期间读取不受影响；
+     * 但全程持有数据目录锁，未开启延迟写入时增删改要等待该锁，会被阻塞到快照写完
+     * （延迟写入模式下修改只排队，不等待）
+     *
+     * @throws IOException 文件写入异常
+     */
+    private void compact() throws IOException {
+        synchronized (snapshotLock) {
+            try (DataFileLock.Hold hold = fileLock.acquire()) {
+                List<Petitioner> copy;
+                long compactedLength;
+                StorageFormat format;
+                Set<String> changedIds;
+                int coveredLines;
+                synchronized (this) {
+                    changeLog.compactionStarted();
+                    ensureCacheFresh();
+                    if (!changeLog.exists()) {
+                        return;
+                    }
+                    copy = cache.publish().getRecords();
+                    coveredLines = writeQueue.size();
+                    compactedLength = changeLog.size();
+                    format = storageFormat;
+                    // 合并期间的新修改记入新的集合，留给下一次合并
+                    changedIds = cache.takeDirtyIds();
+                }
+
+                try {
+                    hold.checkValid();
+                    writeSnapshot(copy, changedIds, format);
+                } catch (IOException | RuntimeException e) {
+                    synchronized (this) {
+                        cache.restoreDirtyIds(changedIds);
+                    }
+                    throw e;
+                }
+
+                synchronized (this) {
+                    changeLog.truncateHead(compactedLength);
+                    // 排队中的修改已包含在快照里，不必再追加到日志
+                    writeQueue.coveredBySnapshot(coveredLines);
+                    markCacheFresh();
+                }
+            }
+        }
     }
 }
@@ -0,0 +1,155 @@
+package com.petition.dao;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 字符二元组倒排索引
+ * 对一个文本字段按相邻两个字符建立倒排表，单个字符也单独建表，倒排表中是按升序排列的记录序号。
+ * 包含查询取关键词各二元组倒排表的交集作为候选，候选只保证不遗漏，调用方需逐条核对原文。
+ *
+ * <p>建索引时文本逐字符转为小写，每条记录只在修改时转换一次；查询时关键词同样处理，
+ * 因此区分大小写和不区分大小写的包含查询都可以用同一个索引缩小范围。</p>
+ *
+ * @author 刘一村
+ * @version 1.0.0
+ */
+final class NgramIndex {
+    /**
+     * 单字符倒排表（字符 -> 记录序号）
+     */
+    private final Map<Integer, PostingList> unigrams = new HashMap<>();
+
+    /**
+     * 二元组倒排表（前一字符在高16位 -> 记录序号）
+     */
+    private final Map<Integer, PostingList> bigrams = new HashMap<>();
+
+    /**
+     * 各记录已建索引的文本（按记录序号，未建索引为null）
+     */
+    private String[] texts = new String[16];
+
+    /**
+     * 设置记录的文本
+     * 只更新新旧文本中不同的倒排表，文本未变化时不做任何事
+     *
+     * @param ordinal 记录序号
+     * @param text 字段文本（为null表示没有内容）
+     */
+    void put(int ordinal, String text) {
+        String folded = fold(text);
+        String old = ordinal < texts.length ? texts[ordinal] : null;
+        if (folded == null ? old == null : folded.equals(old)) {
+            return;
+        }
+        if (ordinal >= texts.length) {
+            texts = Arrays.copyOf(texts, Math.max(ordinal + 1, texts.length * 2));
+        }
+
+        Set<Integer> oldUnigrams = unigramsOf(old);
+        Set<Integer> oldBigrams = bigramsOf(old);
+        Set<Integer> newUnigrams = unigramsOf(folded);
+        Set<Integer> newBigrams = bigramsOf(folded);
+        update(unigrams, ordinal, oldUnigrams, newUnigrams);
+        update(bigrams, ordinal, oldBigrams, newBigrams);
+        texts[ordinal] = folded;
+    }
+
+    /**
+     * 删除记录的文本
+     *
+     * @param ordinal 记录序号
+     */
+    void remove(int ordinal) {
+        put(ordinal, null);
+    }
+
+    /**
+     * 清空索引
+     */
+    void clear() {
+        unigrams.clear();
+        bigrams.clear();
+        texts = new String[16];
+    }
+
+    /**
+     * 查找文本可能包含关键词的记录
+     *
+     * @param keyword 关键词（非空）
+     * @return 升序排列的候选记录序号，需由调用方核对
+     */
+    int[] candidates(String keyword) {
+        String folded = fold(keyword);
+        Set<Integer> grams = folded.length() == 1 ? Set.of((int) folded.charAt(0)) : bigramsOf(folded);
+        Map<Integer, PostingList> index = folded.length() == 1 ? unigrams : bigrams;
+        PostingList[] lists = new PostingList[grams.size()];
+        int i = 0;
+        for (int gram : grams) {
+            PostingList postings = index.get(gram);
+            if (postings == null) {
+                return new int[0];
+            }
+            lists[i++] = postings;
+        }
+        return PostingList.intersectAll(lists);
+    }
+
+    private static void update(Map<Integer, PostingList> index, int ordinal, Set<Integer> oldGrams, Set<Integer> newGrams) {
+        for (int gram : oldGrams) {
+            if (!newGrams.contains(gram)) {
+                PostingList postings = index.get(gram);
+                if (postings != null && postings.remove(ordinal) && postings.size() == 0) {
+                    index.remove(gram);
+                }
+            }
+        }
+        for (int gram : newGrams) {
+            if (!oldGrams.contains(gram)) {
+                index.computeIfAbsent(gram, key -> new PostingList()).add(ordinal);
+            }
+        }
+    }
+
+    /**
+     * 逐字符转小写
+     * 不用String.toLowerCase()：它可能按上下文改变字符数，逐字符转换才能保证
+     * 原文包含关键词时，转换后的原文也包含转换后的关键词
+     */
+    private static String fold(String text) {
+        if (text == null || text.isEmpty()) {
+            return null;
+        }
+        char[] chars = text.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    private static Set<Integer> unigramsOf(String text) {
+        if (text == null) {
+            return Set.of();
+        }
+        Set<Integer> grams = new HashSet<>();
+        for (int i = 0; i < text.length(); i++) {
+            grams.add((int) text.charAt(i));
+        }
+        return grams;
+    }
+
+    private static Set<Integer> bigramsOf(String text) {
+        if (text == null || text.length() < 2) {
+            return Set.of();
+        }
+        Set<Integer> grams = new HashSet<>();
+        for (int i = 0; i + 1 < text.length(); i++) {
+            grams.add(text.charAt(i) << 16 | text.charAt(i + 1));
+        }
+        return grams;
+    }
+}
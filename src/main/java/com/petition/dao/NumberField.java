@@ -0,0 +1,86 @@
+package com.petition.dao;
+
+import com.petition.model.Petitioner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 可按号码片段检索的字段
+ * 号码片段只能包含数字和X（身份证号校验位，不区分大小写）
+ *
+ * @author 刘一村
+ * @version 1.0.0
+ */
+public enum NumberField {
+    /**
+     * 身份证号
+     */
+    ID_CARD,
+
+    /**
+     * 手机号（任一手机号匹配即可）
+     */
+    PHONE;
+
+    /**
+     * 判断字符串是否是合法的号码片段
+     *
+     * @param digits 号码片段
+     * @return 非空且只包含数字和X时返回true
+     */
+    public static boolean isNumber(String digits) {
+        if (digits == null || digits.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < digits.length(); i++) {
+            char c = digits.charAt(i);
+            if ((c < '0' || c > '9') && c != 'X' && c != 'x') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 获取记录在该字段上的全部号码
+     *
+     * @param petitioner 上访人员
+     * @return 号码列表，没有时为空列表
+     */
+    List<String> valuesOf(Petitioner petitioner) {
+        List<String> values = new ArrayList<>();
+        if (this == ID_CARD) {
+            if (petitioner.getIdCard() != null) {
+                values.add(petitioner.getIdCard());
+            }
+        } else if (petitioner.getPersonalInfo() != null && petitioner.getPersonalInfo().getPhones() != null) {
+            for (String phone : petitioner.getPersonalInfo().getPhones()) {
+                if (phone != null) {
+                    values.add(phone);
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * 判断号码是否包含号码片段（X不区分大小写）
+     *
+     * @param value 号码
+     * @param digits 号码片段
+     * @param prefixOnly 是否只匹配开头
+     * @return 是否匹配
+     */
+    static boolean matches(String value, String digits, boolean prefixOnly) {
+        if (prefixOnly) {
+            return value.regionMatches(true, 0, digits, 0, digits.length());
+        }
+        for (int i = 0; i + digits.length() <= value.length(); i++) {
+            if (value.regionMatches(true, i, digits, 0, digits.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
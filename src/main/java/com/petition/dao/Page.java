@@ -0,0 +1,96 @@
+package com.petition.dao;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 分页查询结果：一页记录和满足条件的总数
+ *
+ * @param <T> 记录类型
+ * @author 刘一村
+ * @version 1.0.0
+ */
+public final class Page<T> {
+    private final List<T> items;
+    private final int total;
+    private final int offset;
+    private final int limit;
+    private final long version;
+
+    /**
+     * 创建不带数据版本号的分页结果
+     *
+     * @param items 本页记录
+     * @param total 满足条件的记录总数
+     * @param offset 本页第一条在全部结果中的位置
+     * @param limit 每页条数
+     */
+    public Page(List<T> items, int total, int offset, int limit) {
+        this(items, total, offset, limit, DataChangeEvent.NO_VERSION);
+    }
+
+    /**
+     * @param items 本页记录
+     * @param total 满足条件的记录总数
+     * @param offset 本页第一条在全部结果中的位置
+     * @param limit 每页条数
+     * @param version 查询时的数据版本号
+     */
+    public Page(List<T> items, int total, int offset, int limit, long version) {
+        this.items = Collections.unmodifiableList(items);
+        this.total = total;
+        this.offset = offset;
+        this.limit = limit;
+        this.version = version;
+    }
+
+    /**
+     * 标记查询时的数据版本号
+     *
+     * @param version 数据版本号
+     * @return 内容相同、带版本号的分页结果
+     */
+    public Page<T> withVersion(long version) {
+        return new Page<>(items, total, offset, limit, version);
+    }
+
+    /**
+     * 转换本页记录
+     *
+     * @param mapper 转换函数
+     * @param <R> 转换后的类型
+     * @return 总数、位置和版本号不变的新分页结果
+     */
+    public <R> Page<R> map(Function<? super T, ? extends R> mapper) {
+        List<R> mapped = items.stream().map(mapper).collect(Collectors.toList());
+        return new Page<>(mapped, total, offset, limit, version);
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * 获取查询时的数据版本号
+     * 版本号不大于该值的{@link DataChangeEvent}已反映在本页中
+     *
+     * @return 版本号，数据源不提供时为{@link DataChangeEvent#NO_VERSION}
+     */
+    public long getVersion() {
+        return version;
+    }
+}
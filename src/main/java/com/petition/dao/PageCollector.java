@@ -0,0 +1,116 @@
+package com.petition.dao;
+
+import com.petition.model.Petitioner;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 分页收集器
+ * 按遍历顺序逐条接收匹配记录，只保留一页需要的记录：不排序时只保留落在本页范围内的记录；
+ * 排序时用容量为offset + limit的堆保留最小的记录（堆顶是其中最大的，新记录比它小才替换），
+ * 不需要先取出全部结果再排序。排序值相同的记录保持遍历顺序
+ *
+ * @author 刘一村
+ * @version 1.0.0
+ */
+final class PageCollector {
+    private final Comparator<Petitioner> order;
+    private final int offset;
+    private final int limit;
+
+    /**
+     * 排序时保留的记录（堆顶为排序最靠后的一条）
+     */
+    private final PriorityQueue<Entry> heap;
+
+    /**
+     * 不排序时本页的记录
+     */
+    private final List<Petitioner> window = new ArrayList<>();
+
+    /**
+     * 已接收的匹配记录数
+     */
+    private int total;
+
+    /**
+     * @param sort 排序条件（为空表示按遍历顺序）
+     * @param offset 跳过的记录数
+     * @param limit 每页条数
+     */
+    PageCollector(List<SortKey> sort, int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("分页参数不能为负数");
+        }
+        this.offset = offset;
+        this.limit = limit;
+        this.order = SortKey.comparator(sort);
+        if (order != null) {
+            Comparator<Entry> entryOrder = Comparator.<Entry, Petitioner>comparing(entry -> entry.petitioner, order)
+                    .thenComparingInt(entry -> entry.sequence);
+            int capacity = (int) Math.min(Integer.MAX_VALUE - 8, (long) offset + limit);
+            this.heap = new PriorityQueue<>(Math.max(1, Math.min(capacity, 1024)), entryOrder.reversed());
+        } else {
+            this.heap = null;
+        }
+    }
+
+    /**
+     * 接收一条匹配记录
+     *
+     * @param petitioner 记录
+     */
+    void accept(Petitioner petitioner) {
+        int sequence = total++;
+        if (order == null) {
+            if (sequence >= offset && sequence - offset < limit) {
+                window.add(petitioner);
+            }
+            return;
+        }
+
+        long capacity = (long) offset + limit;
+        if (capacity == 0) {
+            return;
+        }
+        Entry entry = new Entry(petitioner, sequence);
+        if (heap.size() < capacity) {
+            heap.add(entry);
+        } else if (heap.comparator().compare(entry, heap.peek()) > 0) {
+            // 比堆顶靠前（堆按逆序比较）
+            heap.poll();
+            heap.add(entry);
+        }
+    }
+
+    /**
+     * 生成分页结果
+     *
+     * @return 本页记录和总数
+     */
+    Page<Petitioner> toPage() {
+        if (order == null) {
+            return new Page<>(window, total, offset, limit);
+        }
+        List<Entry> kept = new ArrayList<>(heap);
+        kept.sort(heap.comparator().reversed());
+        List<Petitioner> items = new ArrayList<>();
+        for (int i = offset; i < kept.size(); i++) {
+            items.add(kept.get(i).petitioner);
+        }
+        return new Page<>(items, total, offset, limit);
+    }
+
+    private static final class Entry {
+        private final Petitioner petitioner;
+        private final int sequence;
+
+        private Entry(Petitioner petitioner, int sequence) {
+            this.petitioner = petitioner;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,523 @@
+package com.petition.dao;
+
+import com.petition.model.PersonalInfo;
+import com.petition.model.Petitioner;
+import com.petition.model.enums.Education;
+import com.petition.model.enums.EntryMethod;
+import com.petition.model.enums.Gender;
+import com.petition.model.enums.MaritalStatus;
+import com.petition.model.enums.RiskLevel;
+import com.petition.model.enums.TransportMethod;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * 上访人员查询条件
+ * 各条件之间为“且”关系，未设置的条件不参与过滤。
+ * 内存存储用索引取候选记录后按编译好的判断链逐条核对（见{@link #explain()}），数据库存储将其转换为WHERE子句
+ *
+ * @author 刘一村
+ * @version 1.0.0
+ */
+public class PetitionerFilter {
+    /**
+     * 快速搜索关键词（小写）：姓名、身份证号（不区分大小写）或任一手机号包含即匹配
+     */
+    private String keyword;
+
+    /**
+     * 姓名包含
+     */
+    private String name;
+
+    /**
+     * 身份证号包含
+     */
+    private String idCard;
+
+    /**
+     * 危险等级属于（为空表示不限）
+     */
+    private Set<RiskLevel> riskLevels;
+
+    /**
+     * 上访次数下限（含）
+     */
+    private Integer minVisitCount;
+
+    /**
+     * 上访次数上限（含）
+     */
+    private Integer maxVisitCount;
+
+    /**
+     * 籍贯等于
+     */
+    private String nativePlace;
+
+    /**
+     * 籍贯包含
+     */
+    private String nativePlaceKeyword;
+
+    /**
+     * 家庭住址或工作单位地址包含
+     */
+    private String address;
+
+    /**
+     * 性别属于（为空表示不限）
+     */
+    private Set<Gender> genders;
+
+    /**
+     * 文化程度属于（为空表示不限）
+     */
+    private Set<Education> educations;
+
+    /**
+     * 婚姻状况属于（为空表示不限）
+     */
+    private Set<MaritalStatus> maritalStatuses;
+
+    /**
+     * 进京方式属于（为空表示不限）
+     */
+    private Set<EntryMethod> entryMethods;
+
+    /**
+     * 在京交通方式属于（为空表示不限）
+     */
+    private Set<TransportMethod> transportMethods;
+
+    /**
+     * 编译后的判断链，修改任一条件后置为null，下次判断时重新编译
+     */
+    private volatile List<Condition> conditions;
+
+    /**
+     * 判断上访人员是否满足全部条件
+     * 按判断链顺序逐条判断，遇到不满足的条件立即返回
+     *
+     * @param petitioner 上访人员
+     * @return 是否匹配
+     */
+    public boolean matches(Petitioner petitioner) {
+        for (Condition condition : conditions()) {
+            if (!condition.test.test(petitioner)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 判断上访人员是否满足某个枚举字段的条件
+     *
+     * @param field 枚举字段
+     * @param petitioner 上访人员
+     * @return 该字段没有条件或取值属于条件时返回true
+     */
+    boolean matchesFacet(FacetField field, Petitioner petitioner) {
+        Set<? extends Enum<?>> values = getFacetValues(field);
+        return values == null || values.contains(field.getValue(petitioner));
+    }
+
+    /**
+     * 判断上访人员是否满足枚举字段以外的全部条件
+     *
+     * @param petitioner 上访人员
+     * @return 是否匹配
+     */
+    boolean matchesIgnoringFacets(Petitioner petitioner) {
+        for (Condition condition : conditions()) {
+            if (condition.facet == null && !condition.test.test(petitioner)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 是否有枚举字段以外的条件
+     *
+     * @return 有关键词、姓名、身份证号、上访次数、籍贯或地址条件时返回true
+     */
+    boolean hasConditionsBesidesFacets() {
+        return keyword != null || name != null || idCard != null || minVisitCount != null
+                || maxVisitCount != null || nativePlace != null || nativePlaceKeyword != null || address != null;
+    }
+
+    /**
+     * 是否没有任何条件
+     *
+     * @return 没有条件时返回true
+     */
+    public boolean isEmpty() {
+        return conditions().isEmpty();
+    }
+
+    /**
+     * 获取枚举字段的条件
+     *
+     * @param field 枚举字段
+     * @return 允许的取值，为null表示不限
+     */
+    public Set<? extends Enum<?>> getFacetValues(FacetField field) {
+        return switch (field) {
+            case GENDER -> genders;
+            case EDUCATION -> educations;
+            case MARITAL_STATUS -> maritalStatuses;
+            case ENTRY_METHOD -> entryMethods;
+            case TRANSPORT_METHOD -> transportMethods;
+            case RISK_LEVEL -> riskLevels;
+        };
+    }
+
+    /**
+     * 说明内存存储执行查询的计划
+     * 第一行是访问路径（用哪些索引取候选记录），之后按判断顺序列出各条件的估计选择度和代价。
+     * 数据库存储把条件转换为WHERE子句，不使用该计划
+     *
+     * @return 多行文本
+     */
+    public String explain() {
+        List<Condition> chain = conditions();
+        StringBuilder builder = new StringBuilder("访问路径: ");
+        List<String> indexes = chain.stream()
+                .map(condition -> condition.index)
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+        if (chain.isEmpty()) {
+            builder.append("全部记录");
+        } else if (indexes.isEmpty()) {
+            builder.append("全部记录逐条核对");
+        } else {
+            builder.append(String.join(" ∩ ", indexes)).append("，候选记录逐条核对");
+        }
+
+        for (int i = 0; i < chain.size(); i++) {
+            Condition condition = chain.get(i);
+            builder.append('\n').append(i + 1).append(". ").append(condition.description)
+                    .append(String.format("（估计选择度 %.3f，代价 %d", condition.selectivity, condition.cost))
+                    .append(condition.index != null ? "，" + condition.index : "")
+                    .append('）');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 获取判断链，条件修改后重新编译
+     */
+    private List<Condition> conditions() {
+        List<Condition> compiled = conditions;
+        if (compiled == null) {
+            compiled = compile();
+            conditions = compiled;
+        }
+        return compiled;
+    }
+
+    /**
+     * 编译判断链
+     * 判断链按“（选择度 - 1）/ 代价”升序排列，即先判断淘汰记录多且代价低的条件，
+     * 逐条判断时尽早得出不匹配的结论；索引名称与{@link SearchIndex}取候选记录所用的索引一致
+     */
+    private List<Condition> compile() {
+        List<Condition> compiled = new ArrayList<>();
+        if (keyword != null) {
+            String word = keyword;
+            compiled.add(new Condition(null, "姓名、身份证号或手机号包含\"" + word + "\"",
+                    estimate(word, 0.1), 4 + 3 * word.length(), "（姓名二元组索引 ∪ 身份证号片段索引 ∪ 手机号片段索引）",
+                    petitioner -> matchesKeyword(petitioner, word)));
+        }
+        if (name != null) {
+            String value = name;
+            compiled.add(contains("姓名", value, 0.1, "姓名二元组索引",
+                    petitioner -> contains(petitioner.getName(), value)));
+        }
+        if (idCard != null) {
+            String value = idCard;
+            compiled.add(contains("身份证号", value, 0.1, "身份证号片段索引",
+                    petitioner -> contains(petitioner.getIdCard(), value)));
+        }
+        if (minVisitCount != null || maxVisitCount != null) {
+            int min = minVisitCount != null ? minVisitCount : Integer.MIN_VALUE;
+            int max = maxVisitCount != null ? maxVisitCount : Integer.MAX_VALUE;
+            String description = "上访次数在" + (minVisitCount != null ? minVisitCount : "-∞")
+                    + "到" + (maxVisitCount != null ? maxVisitCount : "+∞") + "之间";
+            double selectivity = minVisitCount != null && maxVisitCount != null ? 0.25 : 0.5;
+            compiled.add(new Condition(null, description, selectivity, 1, null, petitioner -> {
+                PersonalInfo info = petitioner.getPersonalInfo();
+                Integer count = info != null ? info.getVisitCount() : null;
+                return count != null && count >= min && count <= max;
+            }));
+        }
+        if (nativePlace != null) {
+            String value = nativePlace;
+            compiled.add(new Condition(null, "籍贯等于\"" + value + "\"", 0.05, 2, "籍贯二元组索引", petitioner ->
+                    petitioner.getPersonalInfo() != null && value.equals(petitioner.getPersonalInfo().getNativePlace())));
+        }
+        if (nativePlaceKeyword != null) {
+            String value = nativePlaceKeyword;
+            compiled.add(contains("籍贯", value, 0.3, "籍贯二元组索引", petitioner ->
+                    petitioner.getPersonalInfo() != null && contains(petitioner.getPersonalInfo().getNativePlace(), value)));
+        }
+        if (address != null) {
+            String value = address;
+            compiled.add(contains("家庭住址或工作单位地址", value, 0.3, "地址二元组索引", petitioner -> {
+                PersonalInfo info = petitioner.getPersonalInfo();
+                return info != null && (contains(info.getHomeAddress(), value) || contains(info.getWorkAddress(), value));
+            }));
+        }
+        for (FacetField field : FacetField.values()) {
+            Set<? extends Enum<?>> values = getFacetValues(field);
+            if (values != null) {
+                String description = field.getLabel() + "属于" + values.stream()
+                        .map(Object::toString).collect(Collectors.toList());
+                compiled.add(new Condition(field, description, (double) values.size() / field.getOptions().length,
+                        1, field.getLabel() + "位图", petitioner -> values.contains(field.getValue(petitioner))));
+            }
+        }
+
+        compiled.sort(Comparator.comparingDouble(Condition::rank));
+        return Collections.unmodifiableList(compiled);
+    }
+
+    /**
+     * 创建文本包含条件，代价随关键词长度增加
+     */
+    private static Condition contains(String label, String keyword, double perChar, String index,
+                                      Predicate<Petitioner> test) {
+        return new Condition(null, label + "包含\"" + keyword + "\"", estimate(keyword, perChar),
+                2 + keyword.length(), index, test);
+    }
+
+    /**
+     * 估计文本包含条件的选择度：关键词越长越少有记录包含，按每个字符乘以perChar估计
+     */
+    private static double estimate(String keyword, double perChar) {
+        return Math.max(1e-6, Math.pow(perChar, keyword.length()));
+    }
+
+    /**
+     * 关键词匹配：姓名、身份证号不区分大小写，手机号原样比较
+     */
+    private static boolean matchesKeyword(Petitioner petitioner, String keyword) {
+        if (petitioner.getName() != null && petitioner.getName().toLowerCase().contains(keyword)) {
+            return true;
+        }
+        if (petitioner.getIdCard() != null && petitioner.getIdCard().toLowerCase().contains(keyword)) {
+            return true;
+        }
+        if (petitioner.getPersonalInfo() != null && petitioner.getPersonalInfo().getPhones() != null) {
+            for (String phone : petitioner.getPersonalInfo().getPhones()) {
+                if (phone != null && phone.contains(keyword)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean contains(String value, String keyword) {
+        return value != null && value.contains(keyword);
+    }
+
+    /**
+     * 空白字符串视为未设置
+     */
+    private static String normalize(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    /**
+     * 判断链中的一个条件
+     */
+    private static final class Condition {
+        /**
+         * 对应的枚举字段，其他条件为null
+         */
+        private final FacetField facet;
+
+        /**
+         * 条件说明
+         */
+        private final String description;
+
+        /**
+         * 估计的选择度（满足条件的记录比例）
+         */
+        private final double selectivity;
+
+        /**
+         * 单条记录的相对判断代价
+         */
+        private final int cost;
+
+        /**
+         * 取候选记录的检索索引，没有时为null
+         */
+        private final String index;
+
+        private final Predicate<Petitioner> test;
+
+        private Condition(FacetField facet, String description, double selectivity, int cost, String index,
+                          Predicate<Petitioner> test) {
+            this.facet = facet;
+            this.description = description;
+            this.selectivity = selectivity;
+            this.cost = cost;
+            this.index = index;
+            this.test = test;
+        }
+
+        /**
+         * 排序依据：越小越先判断
+         */
+        private double rank() {
+            return (selectivity - 1) / cost;
+        }
+    }
+
+    // Getters and Setters
+
+    public String getKeyword() {
+        return keyword;
+    }
+
+    public void setKeyword(String keyword) {
+        String normalized = normalize(keyword);
+        this.keyword = normalized != null ? normalized.toLowerCase() : null;
+        conditions = null;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = normalize(name);
+        conditions = null;
+    }
+
+    public String getIdCard() {
+        return idCard;
+    }
+
+    public void setIdCard(String idCard) {
+        this.idCard = normalize(idCard);
+        conditions = null;
+    }
+
+    public Set<RiskLevel> getRiskLevels() {
+        return riskLevels;
+    }
+
+    public void setRiskLevels(Collection<RiskLevel> riskLevels) {
+        this.riskLevels = riskLevels == null || riskLevels.isEmpty() ? null : EnumSet.copyOf(riskLevels);
+        conditions = null;
+    }
+
+    public Integer getMinVisitCount() {
+        return minVisitCount;
+    }
+
+    public void setMinVisitCount(Integer minVisitCount) {
+        this.minVisitCount = minVisitCount;
+        conditions = null;
+    }
+
+    public Integer getMaxVisitCount() {
+        return maxVisitCount;
+    }
+
+    public void setMaxVisitCount(Integer maxVisitCount) {
+        this.maxVisitCount = maxVisitCount;
+        conditions = null;
+    }
+
+    public String getNativePlace() {
+        return nativePlace;
+    }
+
+    public void setNativePlace(String nativePlace) {
+        this.nativePlace = normalize(nativePlace);
+        conditions = null;
+    }
+
+    public String getNativePlaceKeyword() {
+        return nativePlaceKeyword;
+    }
+
+    public void setNativePlaceKeyword(String nativePlaceKeyword) {
+        this.nativePlaceKeyword = normalize(nativePlaceKeyword);
+        conditions = null;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public void setAddress(String address) {
+        this.address = normalize(address);
+        conditions = null;
+    }
+
+    public Set<Gender> getGenders() {
+        return genders;
+    }
+
+    public void setGenders(Collection<Gender> genders) {
+        this.genders = genders == null || genders.isEmpty() ? null : EnumSet.copyOf(genders);
+        conditions = null;
+    }
+
+    public Set<Education> getEducations() {
+        return educations;
+    }
+
+    public void setEducations(Collection<Education> educations) {
+        this.educations = educations == null || educations.isEmpty() ? null : EnumSet.copyOf(educations);
+        conditions = null;
+    }
+
+    public Set<MaritalStatus> getMaritalStatuses() {
+        return maritalStatuses;
+    }
+
+    public void setMaritalStatuses(Collection<MaritalStatus> maritalStatuses) {
+        this.maritalStatuses = maritalStatuses == null || maritalStatuses.isEmpty()
+                ? null : EnumSet.copyOf(maritalStatuses);
+        conditions = null;
+    }
+
+    public Set<EntryMethod> getEntryMethods() {
+        return entryMethods;
+    }
+
+    public void setEntryMethods(Collection<EntryMethod> entryMethods) {
+        this.entryMethods = entryMethods == null || entryMethods.isEmpty() ? null : EnumSet.copyOf(entryMethods);
+        conditions = null;
+    }
+
+    public Set<TransportMethod> getTransportMethods() {
+        return transportMethods;
+    }
+
+    public void setTransportMethods(Collection<TransportMethod> transportMethods) {
+        this.transportMethods = transportMethods == null || transportMethods.isEmpty()
+                ? null : EnumSet.copyOf(transportMethods);
+        conditions = null;
+    }
+}
@@ -0,0 +1,317 @@
+package com.petition.dao;
+
+import com.petition.model.Petitioner;
+import com.petition.model.PetitionerSummary;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * 上访人员数据仓库
+ * 服务层只依赖该接口，具体存储可以是JSON文件（{@link JsonDataManager}）
+ * 或嵌入式数据库（{@link JdbcPetitionerRepository}），由配置项storageBackend选择
+ *
+ * @author 刘一村
+ * @version 1.0.0
+ */
+public interface PetitionerRepository {
+    /**
+     * 配置项：存储后端（json或h2）
+     */
+    String BACKEND_CONFIG_KEY = "storageBackend";
+
+    /**
+     * 获取进程内共享的数据仓库
+     * 根据配置项storageBackend返回共享的JSON数据管理器或数据库仓库
+     *
+     * @return 共享数据仓库
+     */
+    static PetitionerRepository getInstance() {
+        ConfigManager configManager = new ConfigManager();
+        try {
+            configManager.loadConfig();
+        } catch (IOException e) {
+            System.err.println("读取配置失败: " + e.getMessage());
+        }
+        if (JdbcPetitionerRepository.isBackendName(configManager.getString(BACKEND_CONFIG_KEY, null))) {
+            return JdbcPetitionerRepository.getInstance();
+        }
+        return JsonDataManager.getInstance();
+    }
+
+    /**
+     * 关闭所有共享仓库
+     * 应用程序退出时调用
+     */
+    static void shutdownInstances() {
+        JdbcPetitionerRepository.shutdownInstance();
+        JsonDataManager.shutdownInstance();
+    }
+
+    /**
+     * 加载所有上访人员数据
+     *
+     * @return 可修改的上访人员列表
+     * @throws IOException 数据读取异常
+     */
+    List<Petitioner> loadAll() throws IOException;
+
+    /**
+     * 获取只读数据快照
+     *
+     * @return 不可修改的上访人员列表
+     * @throws IOException 数据读取异常
+     */
+    List<Petitioner> snapshot() throws IOException;
+
+    /**
+     * 获取全部记录的摘要（列表视图使用）
+     *
+     * @return 不可修改的摘要列表
+     * @throws IOException 数据读取异常
+     */
+    List<PetitionerSummary> summaries() throws IOException;
+
+    /**
+     * 查找满足条件的记录
+     * 默认遍历数据快照逐条判断；数据库实现将条件转换为SQL在库内执行
+     *
+     * @param filter 查询条件
+     * @return 匹配的上访人员列表，顺序与loadAll()一致
+     * @throws IOException 数据读取异常
+     */
+    default List<Petitioner> find(PetitionerFilter filter) throws IOException {
+        if (filter == null) {
+            return loadAll();
+        }
+        return snapshot().stream()
+                .filter(filter::matches)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 分页查找满足条件的记录
+     * 按排序条件取出一页并统计总数；排序时只保留offset + limit条，不对全部结果排序。
+     * 默认遍历find()的结果；JSON数据管理器直接遍历索引候选，数据库实现用ORDER BY和LIMIT在库内分页
+     *
+     * @param filter 查询条件（可以为null）
+     * @param sort 排序条件，按先后作为第一、第二排序字段；为空时顺序与loadAll()一致
+     * @param offset 跳过的记录数
+     * @param limit 每页条数
+     * @return 本页记录和满足条件的记录总数
+     * @throws IOException 数据读取异常
+     */
+    default Page<Petitioner> findPage(PetitionerFilter filter, List<SortKey> sort, int offset, int limit)
+            throws IOException {
+        PageCollector collector = new PageCollector(sort, offset, limit);
+        for (Petitioner petitioner : filter != null ? find(filter) : snapshot()) {
+            collector.accept(petitioner);
+        }
+        return collector.toPage();
+    }
+
+    /**
+     * 按号码片段查找记录ID
+     * 默认遍历数据快照逐条比较；JSON数据管理器使用号码片段索引
+     *
+     * @param field 号码字段
+     * @param digits 号码片段（只含数字和X，X不区分大小写）
+     * @param prefixOnly 是否只匹配号码开头
+     * @return 匹配记录ID的迭代器，顺序与loadAll()一致
+     * @throws IOException 数据读取异常
+     */
+    default Iterator<String> findIdsByNumber(NumberField field, String digits, boolean prefixOnly)
+            throws IOException {
+        if (!NumberField.isNumber(digits)) {
+            throw new IllegalArgumentException("号码片段只能包含数字和X");
+        }
+        List<String> ids = new ArrayList<>();
+        for (Petitioner petitioner : snapshot()) {
+            for (String value : field.valuesOf(petitioner)) {
+                if (NumberField.matches(value, digits, prefixOnly)) {
+                    ids.add(petitioner.getId());
+                    break;
+                }
+            }
+        }
+        return ids.iterator();
+    }
+
+    /**
+     * 统计各枚举字段每个取值的记录数
+     * 某个字段的计数满足除该字段以外的全部条件，即在该字段上选中该取值后的结果数。
+     * 默认遍历数据快照逐条判断；JSON数据管理器用枚举位图的交集计数
+     *
+     * @param filter 查询条件（可以为null）
+     * @return 字段 -> 取值（按声明顺序）-> 记录数
+     * @throws IOException 数据读取异常
+     */
+    default Map<FacetField, Map<Enum<?>, Integer>> facetCounts(PetitionerFilter filter) throws IOException {
+        PetitionerFilter conditions = filter != null ? filter : new PetitionerFilter();
+        Map<FacetField, Map<Enum<?>, Integer>> counts = FacetField.emptyCounts();
+        for (Petitioner petitioner : snapshot()) {
+            if (!conditions.matchesIgnoringFacets(petitioner)) {
+                continue;
+            }
+            FacetField failed = null;
+            int failures = 0;
+            for (FacetField field : FacetField.values()) {
+                if (!conditions.matchesFacet(field, petitioner)) {
+                    failed = field;
+                    failures++;
+                }
+            }
+            for (FacetField field : FacetField.values()) {
+                Enum<?> value = field.getValue(petitioner);
+                if (value != null && (failures == 0 || (failures == 1 && field == failed))) {
+                    counts.get(field).merge(value, 1, Integer::sum);
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * 按统计字段分组计数
+     * 对每组取值相同的记录回调一次，摘要中只有统计字段（危险等级、性别、文化程度、
+     * 婚姻状况、进京方式、上访次数、籍贯）有意义。默认每条记录单独回调一次，
+     * 数据库实现用GROUP BY在库内聚合
+     *
+     * @param consumer 回调（分组取值，记录数）
+     * @throws IOException 数据读取异常
+     */
+    default void forEachStatisticsGroup(ObjIntConsumer<PetitionerSummary> consumer) throws IOException {
+        for (PetitionerSummary summary : summaries()) {
+            consumer.accept(summary, 1);
+        }
+    }
+
+    /**
+     * 根据ID查找上访人员
+     *
+     * @param id 上访人员ID
+     * @return Optional包装的上访人员对象，如果未找到则为空
+     */
+    Optional<Petitioner> findById(String id);
+
+    /**
+     * 根据身份证号查找上访人员
+     *
+     * @param idCard 身份证号
+     * @return Optional包装的上访人员对象，如果未找到则为空
+     * @throws IOException 数据读取异常
+     */
+    Optional<Petitioner> findByIdCard(String idCard) throws IOException;
+
+    /**
+     * 判断身份证号是否已存在
+     *
+     * @param idCard 身份证号
+     * @return 是否已存在
+     * @throws IOException 数据读取异常
+     */
+    boolean existsByIdCard(String idCard) throws IOException;
+
+    /**
+     * 保存单个上访人员（ID已存在则更新，否则新增）
+     *
+     * @param petitioner 上访人员对象
+     * @throws IOException 数据写入异常
+     */
+    void save(Petitioner petitioner) throws IOException;
+
+    /**
+     * 批量保存上访人员，整批要么全部生效，要么全部不生效
+     *
+     * @param petitioners 上访人员列表
+     * @throws IOException 数据写入异常
+     */
+    void saveBatch(List<Petitioner> petitioners) throws IOException;
+
+    /**
+     * 删除指定ID的上访人员
+     *
+     * @param id 上访人员ID
+     * @return 是否删除成功
+     * @throws IOException 数据写入异常
+     */
+    boolean delete(String id) throws IOException;
+
+    /**
+     * 批量删除上访人员
+     *
+     * @param ids 上访人员ID列表
+     * @return 删除的记录数
+     * @throws IOException 数据写入异常
+     */
+    int batchDelete(List<String> ids) throws IOException;
+
+    /**
+     * 获取数据总数
+     *
+     * @return 记录总数
+     */
+    int count();
+
+    /**
+     * 清空所有数据
+     *
+     * @throws IOException 数据写入异常
+     */
+    void clear() throws IOException;
+
+    /**
+     * 用给定记录替换全部数据（例如从备份恢复）
+     * 默认先清空再批量保存；数据库实现在一个事务内完成，失败时保留原数据
+     *
+     * @param petitioners 新的全部记录
+     * @throws IOException 数据写入异常
+     */
+    default void replaceAll(List<Petitioner> petitioners) throws IOException {
+        clear();
+        saveBatch(petitioners);
+    }
+
+    /**
+     * 丢弃缓存，重新从存储读取
+     *
+     * @throws IOException 数据读取异常
+     */
+    void refresh() throws IOException;
+
+    /**
+     * 写出所有尚未持久化的修改
+     * 默认实现不做任何事；延迟写入的实现在返回前完成刷盘
+     *
+     * @throws IOException 数据写入异常
+     */
+    default void flush() throws IOException {
+    }
+
+    /**
+     * 关闭仓库并释放资源
+     *
+     * @throws IOException 关闭异常
+     */
+    void close() throws IOException;
+
+    /**
+     * 注册数据变更监听器
+     *
+     * @param listener 监听器
+     */
+    void addChangeListener(DataChangeListener listener);
+
+    /**
+     * 移除数据变更监听器
+     *
+     * @param listener 监听器
+     */
+    void removeChangeListener(DataChangeListener listener);
+}
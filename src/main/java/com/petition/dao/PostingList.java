@@ -0,0 +1,156 @@
+package com.petition.dao;
+
+import java.util.Arrays;
+
+/**
+ * 倒排表：按升序排列、不重复的记录序号
+ * 新记录的序号最大，通常直接追加在末尾；只在数据锁内访问
+ *
+ * @author 刘一村
+ * @version 1.0.0
+ */
+final class PostingList {
+    private int[] ids = new int[4];
+    private int size;
+
+    /**
+     * 加入记录序号（已存在时不做任何事）
+     *
+     * @param ordinal 记录序号
+     */
+    void add(int ordinal) {
+        int position = Arrays.binarySearch(ids, 0, size, ordinal);
+        if (position >= 0) {
+            return;
+        }
+        position = -position - 1;
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        System.arraycopy(ids, position, ids, position + 1, size - position);
+        ids[position] = ordinal;
+        size++;
+    }
+
+    /**
+     * 移除记录序号
+     *
+     * @param ordinal 记录序号
+     * @return 是否存在并已移除
+     */
+    boolean remove(int ordinal) {
+        int position = Arrays.binarySearch(ids, 0, size, ordinal);
+        if (position < 0) {
+            return false;
+        }
+        System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+        size--;
+        return true;
+    }
+
+    /**
+     * 获取序号个数
+     *
+     * @return 序号个数
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * 复制全部序号
+     *
+     * @return 升序数组
+     */
+    int[] toArray() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    /**
+     * 只保留候选中也在本表中的序号
+     * 候选通常远少于本表，逐个二分查找，查找起点随候选递增
+     *
+     * @param candidates 升序候选（原地修改）
+     * @param count 候选数
+     * @return 保留后的候选数
+     */
+    int retainAll(int[] candidates, int count) {
+        int kept = 0;
+        int from = 0;
+        for (int i = 0; i < count && from < size; i++) {
+            int position = Arrays.binarySearch(ids, from, size, candidates[i]);
+            if (position >= 0) {
+                candidates[kept++] = candidates[i];
+                from = position + 1;
+            } else {
+                from = -position - 1;
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * 求多个倒排表的交集
+     * 从最短的表开始，候选数只减不增
+     *
+     * @param lists 倒排表（至少一个，会被重新排序）
+     * @return 升序交集
+     */
+    static int[] intersectAll(PostingList[] lists) {
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+        int[] result = lists[0].toArray();
+        int count = result.length;
+        for (int i = 1; i < lists.length && count > 0; i++) {
+            count = lists[i].retainAll(result, count);
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    /**
+     * 求两个升序序号数组的并集
+     *
+     * @param a 升序数组
+     * @param b 升序数组
+     * @return 升序且不重复的并集
+     */
+    static int[] union(int[] a, int[] b) {
+        int[] result = new int[a.length + b.length];
+        int i = 0, j = 0, count = 0;
+        while (i < a.length || j < b.length) {
+            int next;
+            if (j >= b.length || (i < a.length && a[i] < b[j])) {
+                next = a[i++];
+            } else if (i >= a.length || b[j] < a[i]) {
+                next = b[j++];
+            } else {
+                next = a[i++];
+                j++;
+            }
+            result[count++] = next;
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    /**
+     * 求两个升序序号数组的交集
+     *
+     * @param a 升序数组
+     * @param b 升序数组
+     * @return 升序交集
+     */
+    static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, count = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (b[j] < a[i]) {
+                j++;
+            } else {
+                result[count++] = a[i++];
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+}
@@ -0,0 +1,443 @@
+package com.petition.dao;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * 记录序号的压缩位图
+ * 参照RoaringBitmap的做法：序号按高16位分块，每块根据元素个数选择容器，
+ * 不超过4096个时用升序的低16位数组，否则用65536位的位图。
+ * 稀疏的取值占用与元素个数成正比，密集的取值按位存放，与、或运算按块进行
+ *
+ * @author 刘一村
+ * @version 1.0.0
+ */
+final class RecordBitmap {
+    /**
+     * 数组容器的最大元素个数，超过后转为位图容器
+     */
+    private static final int ARRAY_LIMIT = 4096;
+
+    /**
+     * 位图容器的long个数（65536位）
+     */
+    private static final int BITMAP_WORDS = 1024;
+
+    /**
+     * 各块的高16位（升序）
+     */
+    private char[] keys = new char[4];
+
+    /**
+     * 各块的容器，与keys一一对应
+     */
+    private Container[] containers = new Container[4];
+
+    /**
+     * 块数
+     */
+    private int size;
+
+    /**
+     * 由升序序号数组创建位图
+     *
+     * @param ordinals 升序且不重复的序号
+     * @return 位图
+     */
+    static RecordBitmap of(int[] ordinals) {
+        RecordBitmap bitmap = new RecordBitmap();
+        for (int ordinal : ordinals) {
+            bitmap.add(ordinal);
+        }
+        return bitmap;
+    }
+
+    /**
+     * 加入序号
+     *
+     * @param ordinal 记录序号（非负）
+     */
+    void add(int ordinal) {
+        char high = (char) (ordinal >>> 16);
+        int index = indexOf(high);
+        if (index < 0) {
+            index = -index - 1;
+            insertContainer(index, high, new Container());
+        }
+        containers[index] = containers[index].add((char) ordinal);
+    }
+
+    /**
+     * 移除序号
+     *
+     * @param ordinal 记录序号
+     */
+    void remove(int ordinal) {
+        int index = indexOf((char) (ordinal >>> 16));
+        if (index < 0) {
+            return;
+        }
+        Container container = containers[index].remove((char) ordinal);
+        if (container.cardinality == 0) {
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+            size--;
+            containers[size] = null;
+        } else {
+            containers[index] = container;
+        }
+    }
+
+    /**
+     * 判断是否包含序号
+     *
+     * @param ordinal 记录序号
+     * @return 是否包含
+     */
+    boolean contains(int ordinal) {
+        int index = indexOf((char) (ordinal >>> 16));
+        return index >= 0 && containers[index].contains((char) ordinal);
+    }
+
+    /**
+     * 获取元素个数
+     *
+     * @return 元素个数
+     */
+    int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality;
+        }
+        return cardinality;
+    }
+
+    /**
+     * 按升序遍历全部序号
+     *
+     * @param action 对每个序号执行的操作
+     */
+    void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            containers[i].forEach(keys[i] << 16, action);
+        }
+    }
+
+    /**
+     * 取出全部序号
+     *
+     * @return 升序数组
+     */
+    int[] toArray() {
+        int[] result = new int[cardinality()];
+        int[] position = {0};
+        forEach(ordinal -> result[position[0]++] = ordinal);
+        return result;
+    }
+
+    /**
+     * 求交集
+     *
+     * @param a 位图
+     * @param b 位图
+     * @return 新位图
+     */
+    static RecordBitmap and(RecordBitmap a, RecordBitmap b) {
+        RecordBitmap result = new RecordBitmap();
+        int i = 0, j = 0;
+        while (i < a.size && j < b.size) {
+            if (a.keys[i] < b.keys[j]) {
+                i++;
+            } else if (b.keys[j] < a.keys[i]) {
+                j++;
+            } else {
+                Container container = a.containers[i].and(b.containers[j]);
+                if (container.cardinality > 0) {
+                    result.insertContainer(result.size, a.keys[i], container);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 求交集的元素个数（不生成交集）
+     *
+     * @param a 位图
+     * @param b 位图
+     * @return 交集元素个数
+     */
+    static int andCardinality(RecordBitmap a, RecordBitmap b) {
+        int cardinality = 0;
+        int i = 0, j = 0;
+        while (i < a.size && j < b.size) {
+            if (a.keys[i] < b.keys[j]) {
+                i++;
+            } else if (b.keys[j] < a.keys[i]) {
+                j++;
+            } else {
+                cardinality += a.containers[i].andCardinality(b.containers[j]);
+                i++;
+                j++;
+            }
+        }
+        return cardinality;
+    }
+
+    /**
+     * 求并集
+     *
+     * @param a 位图
+     * @param b 位图
+     * @return 新位图
+     */
+    static RecordBitmap or(RecordBitmap a, RecordBitmap b) {
+        RecordBitmap result = new RecordBitmap();
+        int i = 0, j = 0;
+        while (i < a.size || j < b.size) {
+            if (j >= b.size || (i < a.size && a.keys[i] < b.keys[j])) {
+                result.insertContainer(result.size, a.keys[i], a.containers[i].copy());
+                i++;
+            } else if (i >= a.size || b.keys[j] < a.keys[i]) {
+                result.insertContainer(result.size, b.keys[j], b.containers[j].copy());
+                j++;
+            } else {
+                result.insertContainer(result.size, a.keys[i], a.containers[i].or(b.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    private int indexOf(char high) {
+        return Arrays.binarySearch(keys, 0, size, high);
+    }
+
+    private void insertContainer(int index, char high, Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = high;
+        containers[index] = container;
+        size++;
+    }
+
+    /**
+     * 一块（65536个序号）的容器
+     * array不为null时为数组容器，否则为位图容器；修改可能转换容器类型，调用方使用返回值
+     */
+    private static final class Container {
+        private char[] array;
+        private long[] bits;
+        private int cardinality;
+
+        private Container() {
+            this.array = new char[4];
+        }
+
+        private Container(char[] array, int cardinality) {
+            this.array = array;
+            this.cardinality = cardinality;
+        }
+
+        private Container(long[] bits, int cardinality) {
+            this.bits = bits;
+            this.cardinality = cardinality;
+        }
+
+        boolean contains(char low) {
+            if (array != null) {
+                return Arrays.binarySearch(array, 0, cardinality, low) >= 0;
+            }
+            return (bits[low >>> 6] & (1L << low)) != 0;
+        }
+
+        Container add(char low) {
+            if (array == null) {
+                long mask = 1L << low;
+                if ((bits[low >>> 6] & mask) == 0) {
+                    bits[low >>> 6] |= mask;
+                    cardinality++;
+                }
+                return this;
+            }
+
+            int position = Arrays.binarySearch(array, 0, cardinality, low);
+            if (position >= 0) {
+                return this;
+            }
+            if (cardinality == ARRAY_LIMIT) {
+                Container container = toBits();
+                return container.add(low);
+            }
+            position = -position - 1;
+            if (cardinality == array.length) {
+                array = Arrays.copyOf(array, Math.min(ARRAY_LIMIT, Math.max(4, cardinality * 2)));
+            }
+            System.arraycopy(array, position, array, position + 1, cardinality - position);
+            array[position] = low;
+            cardinality++;
+            return this;
+        }
+
+        Container remove(char low) {
+            if (array == null) {
+                long mask = 1L << low;
+                if ((bits[low >>> 6] & mask) != 0) {
+                    bits[low >>> 6] &= ~mask;
+                    cardinality--;
+                }
+                return cardinality <= ARRAY_LIMIT / 2 ? toArrayContainer() : this;
+            }
+
+            int position = Arrays.binarySearch(array, 0, cardinality, low);
+            if (position >= 0) {
+                System.arraycopy(array, position + 1, array, position, cardinality - position - 1);
+                cardinality--;
+            }
+            return this;
+        }
+
+        Container and(Container other) {
+            if (array != null && other.array != null) {
+                char[] result = new char[Math.min(cardinality, other.cardinality)];
+                int i = 0, j = 0, count = 0;
+                while (i < cardinality && j < other.cardinality) {
+                    if (array[i] < other.array[j]) {
+                        i++;
+                    } else if (other.array[j] < array[i]) {
+                        j++;
+                    } else {
+                        result[count++] = array[i++];
+                        j++;
+                    }
+                }
+                return new Container(result, count);
+            }
+            if (array != null || other.array != null) {
+                Container arrayContainer = array != null ? this : other;
+                Container bitsContainer = array != null ? other : this;
+                char[] result = new char[arrayContainer.cardinality];
+                int count = 0;
+                for (int i = 0; i < arrayContainer.cardinality; i++) {
+                    if (bitsContainer.contains(arrayContainer.array[i])) {
+                        result[count++] = arrayContainer.array[i];
+                    }
+                }
+                return new Container(result, count);
+            }
+
+            long[] result = new long[BITMAP_WORDS];
+            int count = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                result[i] = bits[i] & other.bits[i];
+                count += Long.bitCount(result[i]);
+            }
+            Container container = new Container(result, count);
+            return count <= ARRAY_LIMIT ? container.toArrayContainer() : container;
+        }
+
+        int andCardinality(Container other) {
+            if (array == null && other.array == null) {
+                int count = 0;
+                for (int i = 0; i < BITMAP_WORDS; i++) {
+                    count += Long.bitCount(bits[i] & other.bits[i]);
+                }
+                return count;
+            }
+            if (array != null && other.array != null) {
+                return and(other).cardinality;
+            }
+            Container arrayContainer = array != null ? this : other;
+            Container bitsContainer = array != null ? other : this;
+            int count = 0;
+            for (int i = 0; i < arrayContainer.cardinality; i++) {
+                if (bitsContainer.contains(arrayContainer.array[i])) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        Container or(Container other) {
+            if (array == null || other.array == null) {
+                // 至少一个是位图：复制位图后并入另一个
+                Container bitsContainer = array == null ? this : other;
+                Container rest = bitsContainer == this ? other : this;
+                long[] result = bitsContainer.bits.clone();
+                if (rest.array != null) {
+                    for (int i = 0; i < rest.cardinality; i++) {
+                        result[rest.array[i] >>> 6] |= 1L << rest.array[i];
+                    }
+                } else {
+                    for (int i = 0; i < BITMAP_WORDS; i++) {
+                        result[i] |= rest.bits[i];
+                    }
+                }
+                int count = 0;
+                for (long word : result) {
+                    count += Long.bitCount(word);
+                }
+                return new Container(result, count);
+            }
+
+            char[] result = new char[cardinality + other.cardinality];
+            int i = 0, j = 0, count = 0;
+            while (i < cardinality || j < other.cardinality) {
+                if (j >= other.cardinality || (i < cardinality && array[i] < other.array[j])) {
+                    result[count++] = array[i++];
+                } else if (i >= cardinality || other.array[j] < array[i]) {
+                    result[count++] = other.array[j++];
+                } else {
+                    result[count++] = array[i++];
+                    j++;
+                }
+            }
+            Container container = new Container(result, count);
+            return count > ARRAY_LIMIT ? container.toBits() : container;
+        }
+
+        Container copy() {
+            return array != null
+                    ? new Container(Arrays.copyOf(array, Math.max(cardinality, 4)), cardinality)
+                    : new Container(bits.clone(), cardinality);
+        }
+
+        void forEach(int base, IntConsumer action) {
+            if (array != null) {
+                for (int i = 0; i < cardinality; i++) {
+                    action.accept(base | array[i]);
+                }
+                return;
+            }
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                long word = bits[i];
+                while (word != 0) {
+                    action.accept(base | (i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        private Container toBits() {
+            long[] result = new long[BITMAP_WORDS];
+            for (int i = 0; i < cardinality; i++) {
+                result[array[i] >>> 6] |= 1L << array[i];
+            }
+            return new Container(result, cardinality);
+        }
+
+        private Container toArrayContainer() {
+            char[] result = new char[Math.max(cardinality, 4)];
+            int[] count = {0};
+            forEach(0, low -> result[count[0]++] = (char) low);
+            return new Container(result, cardinality);
+        }
+    }
+}
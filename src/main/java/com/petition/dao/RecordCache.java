@@ -0,0 +1,361 @@
+package com.petition.dao;
+
+import com.petition.model.Petitioner;
+import com.petition.model.PetitionerSummary;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * 内存记录缓存
+ * 按加载和新增顺序保存全部记录，并维护主键索引、身份证号索引、检索索引和摘要缓存，
+ * 每次增删改同步更新这些索引。缓存变化时版本号递增，读取方通过{@link #publish()}
+ * 取得当前版本的不可变快照。
+ *
+ * <p>本类不做同步，只在{@link JsonDataManager}的数据锁内使用。</p>
+ *
+ * @author 刘一村
+ * @version 1.0.0
+ */
+class RecordCache {
+    /**
+     * 缓存的记录（只在数据锁内读写，对外发布的是不可变快照）
+     */
+    private List<Petitioner> records = new ArrayList<>();
+
+    /**
+     * 数据版本号，缓存每次变化后递增
+     */
+    private long version;
+
+    /**
+     * 当前版本已发布的快照，缓存变化后置空，下次读取时重新生成
+     */
+    private DataSnapshot published;
+
+    /**
+     * 主键索引：ID -> 记录在缓存列表中的位置
+     */
+    private final Map<String, Integer> idIndex = new HashMap<>();
+
+    /**
+     * 唯一索引：身份证号 -> ID
+     */
+    private final Map<String, String> idCardIndex = new HashMap<>();
+
+    /**
+     * 反向索引：ID -> 建索引时的身份证号
+     * 替换记录时据此移除旧身份证号的索引项
+     */
+    private final Map<String, String> indexedIdCards = new HashMap<>();
+
+    /**
+     * 检索索引：文本字段的字符二元组倒排表等，随增删改同步更新
+     */
+    private final SearchIndex searchIndex = new SearchIndex();
+
+    /**
+     * 记录摘要缓存（ID -> 摘要），记录被修改或删除时移除，列表视图读取时按需生成
+     */
+    private final Map<String, PetitionerSummary> summaryCache = new HashMap<>();
+
+    /**
+     * 自上次写快照后新增、修改或删除的记录ID，分段布局据此只重写相关数据段
+     */
+    private Set<String> dirtyIds = new HashSet<>();
+
+    /**
+     * 发布当前缓存的快照
+     * 缓存自上次发布后未变化时返回同一个快照对象
+     *
+     * @return 数据快照
+     */
+    DataSnapshot publish() {
+        DataSnapshot snapshot = published;
+        if (snapshot == null) {
+            snapshot = new DataSnapshot(version, records);
+            published = snapshot;
+        }
+        return snapshot;
+    }
+
+    /**
+     * 获取当前数据版本号
+     *
+     * @return 版本号
+     */
+    long version() {
+        return version;
+    }
+
+    /**
+     * 缓存发生变化：版本号递增，已发布的快照作废
+     */
+    private void bumpVersion() {
+        version++;
+        published = null;
+    }
+
+    /**
+     * 获取缓存的记录列表
+     * 返回内部列表，调用方只能在数据锁内读取，不能修改
+     *
+     * @return 按缓存顺序排列的记录
+     */
+    List<Petitioner> records() {
+        return records;
+    }
+
+    /**
+     * 获取记录数
+     *
+     * @return 记录数
+     */
+    int size() {
+        return records.size();
+    }
+
+    /**
+     * 按ID获取缓存中的记录
+     *
+     * @param id 记录ID
+     * @return 缓存中的记录（不能修改），不存在时返回null
+     */
+    Petitioner get(String id) {
+        Integer position = idIndex.get(id);
+        return position != null ? records.get(position) : null;
+    }
+
+    /**
+     * 是否包含指定ID的记录
+     *
+     * @param id 记录ID
+     * @return 是否包含
+     */
+    boolean contains(String id) {
+        return idIndex.containsKey(id);
+    }
+
+    /**
+     * 按身份证号查找记录ID
+     *
+     * @param idCard 身份证号
+     * @return 记录ID，不存在时返回null
+     */
+    String idOfIdCard(String idCard) {
+        return idCardIndex.get(idCard);
+    }
+
+    /**
+     * 获取全部记录的摘要
+     * 摘要按记录缓存，未修改的记录重复读取时不再生成新对象
+     *
+     * @return 不可修改的摘要列表，顺序与缓存一致
+     */
+    List<PetitionerSummary> summaries() {
+        List<Petitioner> snapshot = publish().getRecords();
+        List<PetitionerSummary> result = new ArrayList<>(snapshot.size());
+        for (Petitioner petitioner : snapshot) {
+            result.add(summaryCache.computeIfAbsent(petitioner.getId(), id -> PetitionerSummary.of(petitioner)));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * 按缓存顺序遍历满足条件的记录
+     * 有可用索引的条件时只核对候选记录，否则遍历全部记录
+     *
+     * @param filter 查询条件
+     * @param action 对每条匹配记录执行的操作
+     */
+    void forEachMatch(PetitionerFilter filter, Consumer<Petitioner> action) {
+        int[] candidates = searchIndex.candidates(filter);
+        if (candidates == null) {
+            for (Petitioner petitioner : records) {
+                if (filter.matches(petitioner)) {
+                    action.accept(petitioner);
+                }
+            }
+            return;
+        }
+        // 候选序号与缓存顺序一致，按序号核对即可保持顺序
+        for (int ordinal : candidates) {
+            Petitioner petitioner = searchIndex.record(ordinal);
+            if (petitioner != null && filter.matches(petitioner)) {
+                action.accept(petitioner);
+            }
+        }
+    }
+
+    /**
+     * 统计各枚举字段每个取值的记录数（见{@link SearchIndex#facetCounts(PetitionerFilter)}）
+     *
+     * @param filter 查询条件
+     * @return 字段 -> 取值 -> 记录数
+     */
+    Map<FacetField, Map<Enum<?>, Integer>> facetCounts(PetitionerFilter filter) {
+        return searchIndex.facetCounts(filter);
+    }
+
+    /**
+     * 按号码片段查找记录ID
+     *
+     * @param field 号码字段
+     * @param digits 号码片段
+     * @param prefixOnly 是否只匹配号码开头
+     * @return 匹配的记录ID，顺序与缓存一致
+     */
+    List<String> findIdsByNumber(NumberField field, String digits, boolean prefixOnly) {
+        List<String> ids = new ArrayList<>();
+        PrimitiveIterator.OfInt ordinals = searchIndex.search(field, digits, prefixOnly);
+        while (ordinals.hasNext()) {
+            ids.add(searchIndex.record(ordinals.nextInt()).getId());
+        }
+        return ids;
+    }
+
+    /**
+     * 替换全部记录并重建索引
+     *
+     * @param petitioners 新的记录列表，之后由本对象持有
+     */
+    void replace(List<Petitioner> petitioners) {
+        records = petitioners;
+        bumpVersion();
+        dirtyIds = new HashSet<>();
+        summaryCache.clear();
+
+        idIndex.clear();
+        idCardIndex.clear();
+        indexedIdCards.clear();
+        for (int i = 0; i < records.size(); i++) {
+            Petitioner petitioner = records.get(i);
+            idIndex.put(petitioner.getId(), i);
+            indexIdCard(petitioner);
+        }
+        searchIndex.rebuild(records);
+    }
+
+    /**
+     * 新增或替换记录
+     *
+     * @param petitioner 记录，之后由本对象持有
+     * @return 对应的变更事件
+     */
+    DataChangeEvent put(Petitioner petitioner) {
+        Integer position = idIndex.get(petitioner.getId());
+
+        dirtyIds.add(petitioner.getId());
+        summaryCache.remove(petitioner.getId());
+        bumpVersion();
+
+        DataChangeEvent event;
+        if (position != null) {
+            // 更新现有记录
+            event = DataChangeEvent.updated(records.set(position, petitioner), petitioner);
+        } else {
+            // 新增记录
+            idIndex.put(petitioner.getId(), records.size());
+            records.add(petitioner);
+            event = DataChangeEvent.added(petitioner);
+        }
+        indexIdCard(petitioner);
+        searchIndex.put(petitioner);
+        return event;
+    }
+
+    /**
+     * 删除记录
+     *
+     * @param id 记录ID
+     * @return 被删除的记录，不存在时返回null
+     */
+    Petitioner remove(String id) {
+        Petitioner removed = get(id);
+        if (removed != null) {
+            removeAll(Set.of(id));
+        }
+        return removed;
+    }
+
+    /**
+     * 批量删除记录
+     * 列表只压缩一次，之后重新计算被移动记录的位置
+     *
+     * @param ids 要删除的ID集合
+     * @return 实际删除的记录数
+     */
+    int removeAll(Set<String> ids) {
+        int firstPosition = records.size();
+        int count = 0;
+        for (String id : ids) {
+            Integer position = idIndex.remove(id);
+            if (position == null) {
+                continue;
+            }
+            dirtyIds.add(id);
+            summaryCache.remove(id);
+            firstPosition = Math.min(firstPosition, position);
+            String idCard = indexedIdCards.remove(id);
+            if (idCard != null && id.equals(idCardIndex.get(idCard))) {
+                idCardIndex.remove(idCard);
+            }
+            searchIndex.remove(id);
+            count++;
+        }
+
+        if (count == 0) {
+            return 0;
+        }
+
+        bumpVersion();
+        records.removeIf(p -> ids.contains(p.getId()));
+        for (int i = firstPosition; i < records.size(); i++) {
+            idIndex.put(records.get(i).getId(), i);
+        }
+        return count;
+    }
+
+    /**
+     * 取出自上次写快照后修改过的记录ID，之后的修改记入新的集合
+     *
+     * @return 修改过的记录ID
+     */
+    Set<String> takeDirtyIds() {
+        Set<String> changed = dirtyIds;
+        dirtyIds = new HashSet<>();
+        return changed;
+    }
+
+    /**
+     * 写快照失败时放回取出的记录ID，留给下一次写入
+     *
+     * @param ids 修改过的记录ID
+     */
+    void restoreDirtyIds(Set<String> ids) {
+        dirtyIds.addAll(ids);
+    }
+
+    /**
+     * 更新单条记录的身份证号索引
+     */
+    private void indexIdCard(Petitioner petitioner) {
+        String id = petitioner.getId();
+        String idCard = petitioner.getIdCard();
+        String oldIdCard = idCard != null ? indexedIdCards.put(id, idCard) : indexedIdCards.remove(id);
+
+        if (oldIdCard != null && !oldIdCard.equals(idCard) && id.equals(idCardIndex.get(oldIdCard))) {
+            idCardIndex.remove(oldIdCard);
+        }
+        if (idCard != null) {
+            idCardIndex.put(idCard, id);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.petition.dao;
+
+import java.io.IOException;
+
+/**
+ * 记录版本冲突异常
+ * 保存的记录基于旧版本，编辑期间该记录已被其他实例（或其他窗口）保存过。
+ * 为避免覆盖对方的修改，本次保存被拒绝，调用方应重新读取记录后再修改
+ *
+ * @author 刘一村
+ * @version 1.0.0
+ */
+public class RecordConflictException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final String id;
+    private final long version;
+    private final long currentVersion;
+
+    /**
+     * 构造函数
+     *
+     * @param id 记录ID
+     * @param version 保存的记录所基于的版本号
+     * @param currentVersion 数据中该记录的当前版本号
+     */
+    public RecordConflictException(String id, long version, long currentVersion) {
+        super("该记录已被其他用户修改，请重新打开后再保存（ID: " + id + "）");
+        this.id = id;
+        this.version = version;
+        this.currentVersion = currentVersion;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getCurrentVersion() {
+        return currentVersion;
+    }
+}
@@ -0,0 +1,388 @@
+package com.petition.dao;
+
+import com.petition.model.PersonalInfo;
+import com.petition.model.Petitioner;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 内存检索索引
+ * 为每条记录分配记录序号，序号顺序与数据缓存中的顺序一致，并在此基础上维护各字段的索引。
+ * 由数据管理器在增删改时同步更新，只在数据锁内访问
+ *
+ * <p>删除的记录只从各索引中移除，序号不再复用；已删除的序号超过存活记录数时
+ * 按原顺序重新编号，使序号保持紧凑。</p>
+ *
+ * @author 刘一村
+ * @version 1.0.0
+ */
+final class SearchIndex {
+    /**
+     * 已删除序号数超过该值且超过存活记录数时重新编号
+     */
+    private static final int COMPACT_THRESHOLD = 1024;
+
+    /**
+     * 建立二元组索引的文本字段
+     */
+    enum TextField {
+        /** 姓名 */
+        NAME,
+        /** 籍贯 */
+        NATIVE_PLACE,
+        /** 家庭住址和工作单位地址 */
+        ADDRESS
+    }
+
+    /**
+     * 记录ID -> 记录序号
+     */
+    private final Map<String, Integer> ordinals = new HashMap<>();
+
+    /**
+     * 各文本字段的二元组索引
+     */
+    private final Map<TextField, NgramIndex> textIndexes = new EnumMap<>(TextField.class);
+
+    /**
+     * 身份证号、手机号的号码片段索引
+     */
+    private final Map<NumberField, DigitIndex> numberIndexes = new EnumMap<>(NumberField.class);
+
+    /**
+     * 枚举字段的位图索引（字段 -> 取值 -> 记录位图）
+     */
+    private final Map<FacetField, Map<Enum<?>, RecordBitmap>> facetBitmaps = new EnumMap<>(FacetField.class);
+
+    /**
+     * 各记录建索引时的枚举取值（字段 -> 按序号存放的取值）
+     */
+    private final Map<FacetField, Enum<?>[]> facetValues = new EnumMap<>(FacetField.class);
+
+    /**
+     * 全部存活记录
+     */
+    private RecordBitmap live = new RecordBitmap();
+
+    /**
+     * 按序号存放的记录（已删除为null）
+     */
+    private Petitioner[] records = new Petitioner[16];
+
+    /**
+     * 下一个可分配的序号
+     */
+    private int nextOrdinal;
+
+    SearchIndex() {
+        for (TextField field : TextField.values()) {
+            textIndexes.put(field, new NgramIndex());
+        }
+        for (NumberField field : NumberField.values()) {
+            numberIndexes.put(field, new DigitIndex());
+        }
+        for (FacetField field : FacetField.values()) {
+            facetBitmaps.put(field, new HashMap<>());
+            facetValues.put(field, new Enum<?>[16]);
+        }
+    }
+
+    /**
+     * 按列表顺序重建全部索引
+     *
+     * @param petitioners 全部记录
+     */
+    void rebuild(List<Petitioner> petitioners) {
+        ordinals.clear();
+        textIndexes.values().forEach(NgramIndex::clear);
+        numberIndexes.values().forEach(DigitIndex::clear);
+        for (FacetField field : FacetField.values()) {
+            facetBitmaps.get(field).clear();
+            facetValues.put(field, new Enum<?>[Math.max(16, petitioners.size())]);
+        }
+        live = new RecordBitmap();
+        records = new Petitioner[Math.max(16, petitioners.size())];
+        nextOrdinal = 0;
+        for (Petitioner petitioner : petitioners) {
+            put(petitioner);
+        }
+    }
+
+    /**
+     * 新增或更新一条记录
+     * 新记录的序号排在最后，与其追加在缓存末尾一致；更新保留原序号
+     *
+     * @param petitioner 记录
+     */
+    void put(Petitioner petitioner) {
+        Integer ordinal = ordinals.get(petitioner.getId());
+        if (ordinal == null) {
+            ordinal = nextOrdinal++;
+            ordinals.put(petitioner.getId(), ordinal);
+            if (ordinal >= records.length) {
+                records = Arrays.copyOf(records, records.length * 2);
+            }
+            live.add(ordinal);
+        }
+        records[ordinal] = petitioner;
+        for (Map.Entry<TextField, NgramIndex> entry : textIndexes.entrySet()) {
+            entry.getValue().put(ordinal, textOf(entry.getKey(), petitioner));
+        }
+        for (Map.Entry<NumberField, DigitIndex> entry : numberIndexes.entrySet()) {
+            entry.getValue().put(ordinal, entry.getKey().valuesOf(petitioner));
+        }
+        for (FacetField field : FacetField.values()) {
+            setFacetValue(field, ordinal, field.getValue(petitioner));
+        }
+    }
+
+    /**
+     * 删除一条记录
+     *
+     * @param id 记录ID
+     */
+    void remove(String id) {
+        Integer ordinal = ordinals.remove(id);
+        if (ordinal == null) {
+            return;
+        }
+        records[ordinal] = null;
+        for (NgramIndex index : textIndexes.values()) {
+            index.remove(ordinal);
+        }
+        for (DigitIndex index : numberIndexes.values()) {
+            index.remove(ordinal);
+        }
+        for (FacetField field : FacetField.values()) {
+            setFacetValue(field, ordinal, null);
+        }
+        live.remove(ordinal);
+
+        int removed = nextOrdinal - ordinals.size();
+        if (removed > COMPACT_THRESHOLD && removed > ordinals.size()) {
+            rebuild(liveRecords());
+        }
+    }
+
+    /**
+     * 按序号获取记录
+     *
+     * @param ordinal 记录序号
+     * @return 记录，已删除时为null
+     */
+    Petitioner record(int ordinal) {
+        return records[ordinal];
+    }
+
+    /**
+     * 查找文本字段可能包含关键词的记录
+     *
+     * @param field 文本字段
+     * @param keyword 关键词（非空）
+     * @return 升序候选序号，需核对原文
+     */
+    int[] candidates(TextField field, String keyword) {
+        return textIndexes.get(field).candidates(keyword);
+    }
+
+    /**
+     * 按号码片段查找记录
+     *
+     * @param field 号码字段
+     * @param digits 号码片段（只含数字和X）
+     * @param prefixOnly 是否只匹配号码开头
+     * @return 按记录序号升序的迭代器，只在数据锁内使用
+     */
+    PrimitiveIterator.OfInt search(NumberField field, String digits, boolean prefixOnly) {
+        return numberIndexes.get(field).search(digits, prefixOnly);
+    }
+
+    /**
+     * 用索引缩小查询条件的候选范围
+     * 文本和号码条件的候选与枚举条件的位图取交集
+     *
+     * @param filter 查询条件
+     * @return 升序候选序号，需逐条核对全部条件；没有可用索引的条件时返回null
+     */
+    int[] candidates(PetitionerFilter filter) {
+        int[] text = textCandidates(filter);
+        RecordBitmap facets = facetBitmap(filter, null);
+        if (facets == null) {
+            return text;
+        }
+        if (text == null) {
+            return facets.toArray();
+        }
+        int[] result = new int[text.length];
+        int count = 0;
+        for (int ordinal : text) {
+            if (facets.contains(ordinal)) {
+                result[count++] = ordinal;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * 统计各枚举字段每个取值的记录数
+     * 某个字段的计数满足除该字段以外的全部条件，即选中该取值后的结果数；
+     * 其他条件先求出记录位图，每个计数只是一次位图交集计数
+     *
+     * @param filter 查询条件
+     * @return 字段 -> 取值（按声明顺序）-> 记录数
+     */
+    Map<FacetField, Map<Enum<?>, Integer>> facetCounts(PetitionerFilter filter) {
+        RecordBitmap base = live;
+        if (filter.hasConditionsBesidesFacets()) {
+            int[] text = textCandidates(filter);
+            RecordBitmap matched = new RecordBitmap();
+            for (int ordinal : text != null ? text : live.toArray()) {
+                if (filter.matchesIgnoringFacets(records[ordinal])) {
+                    matched.add(ordinal);
+                }
+            }
+            base = matched;
+        }
+
+        Map<FacetField, Map<Enum<?>, Integer>> counts = FacetField.emptyCounts();
+        for (FacetField field : FacetField.values()) {
+            RecordBitmap others = facetBitmap(filter, field);
+            RecordBitmap scope = others != null ? RecordBitmap.and(base, others) : base;
+            for (Map.Entry<Enum<?>, RecordBitmap> entry : facetBitmaps.get(field).entrySet()) {
+                counts.get(field).put(entry.getKey(), RecordBitmap.andCardinality(scope, entry.getValue()));
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * 求枚举条件对应的记录位图：同一字段的取值取并集，不同字段取交集
+     *
+     * @param filter 查询条件
+     * @param excluded 不参与计算的字段（可以为null）
+     * @return 记录位图，没有枚举条件时返回null
+     */
+    private RecordBitmap facetBitmap(PetitionerFilter filter, FacetField excluded) {
+        RecordBitmap result = null;
+        for (FacetField field : FacetField.values()) {
+            Set<? extends Enum<?>> values = filter.getFacetValues(field);
+            if (field == excluded || values == null) {
+                continue;
+            }
+            RecordBitmap union = new RecordBitmap();
+            for (Enum<?> value : values) {
+                RecordBitmap bitmap = facetBitmaps.get(field).get(value);
+                if (bitmap != null) {
+                    union = RecordBitmap.or(union, bitmap);
+                }
+            }
+            result = result == null ? union : RecordBitmap.and(result, union);
+        }
+        return result;
+    }
+
+    /**
+     * 求文本和号码条件的候选：各条件的候选取交集，关键词条件取姓名、身份证号、手机号候选的并集
+     *
+     * @return 升序候选序号，没有这类条件时返回null
+     */
+    private int[] textCandidates(PetitionerFilter filter) {
+        int[] result = null;
+        if (filter.getKeyword() != null) {
+            int[] keywordCandidates = PostingList.union(
+                    PostingList.union(candidates(TextField.NAME, filter.getKeyword()),
+                            numberIndexes.get(NumberField.ID_CARD).candidates(filter.getKeyword())),
+                    numberIndexes.get(NumberField.PHONE).candidates(filter.getKeyword()));
+            result = and(result, keywordCandidates);
+        }
+        if (filter.getName() != null) {
+            result = and(result, candidates(TextField.NAME, filter.getName()));
+        }
+        if (filter.getIdCard() != null) {
+            result = and(result, numberIndexes.get(NumberField.ID_CARD).candidates(filter.getIdCard()));
+        }
+        if (filter.getNativePlace() != null) {
+            result = and(result, candidates(TextField.NATIVE_PLACE, filter.getNativePlace()));
+        }
+        if (filter.getNativePlaceKeyword() != null) {
+            result = and(result, candidates(TextField.NATIVE_PLACE, filter.getNativePlaceKeyword()));
+        }
+        if (filter.getAddress() != null) {
+            result = and(result, candidates(TextField.ADDRESS, filter.getAddress()));
+        }
+        return result;
+    }
+
+    /**
+     * 更新记录在枚举字段上的取值及对应位图
+     */
+    private void setFacetValue(FacetField field, int ordinal, Enum<?> value) {
+        Enum<?>[] values = facetValues.get(field);
+        if (ordinal >= values.length) {
+            values = Arrays.copyOf(values, Math.max(ordinal + 1, values.length * 2));
+            facetValues.put(field, values);
+        }
+        Enum<?> old = values[ordinal];
+        if (old == value) {
+            return;
+        }
+        Map<Enum<?>, RecordBitmap> bitmaps = facetBitmaps.get(field);
+        if (old != null) {
+            bitmaps.get(old).remove(ordinal);
+        }
+        if (value != null) {
+            bitmaps.computeIfAbsent(value, key -> new RecordBitmap()).add(ordinal);
+        }
+        values[ordinal] = value;
+    }
+
+    private static int[] and(int[] current, int[] candidates) {
+        return current == null ? candidates : PostingList.intersect(current, candidates);
+    }
+
+    private List<Petitioner> liveRecords() {
+        return Arrays.stream(records, 0, nextOrdinal)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 获取记录在文本字段上的内容
+     */
+    private static String textOf(TextField field, Petitioner petitioner) {
+        PersonalInfo info = petitioner.getPersonalInfo();
+        return switch (field) {
+            case NAME -> petitioner.getName();
+            case NATIVE_PLACE -> info != null ? info.getNativePlace() : null;
+            case ADDRESS -> info != null
+                    ? joinLines(Arrays.asList(info.getHomeAddress(), info.getWorkAddress())) : null;
+        };
+    }
+
+    /**
+     * 多个值分行拼接，跳过空值
+     */
+    private static String joinLines(List<String> values) {
+        if (values == null) {
+            return null;
+        }
+        StringBuilder builder = new StringBuilder();
+        for (String value : values) {
+            if (value != null && !value.isEmpty()) {
+                if (builder.length() > 0) {
+                    builder.append('\n');
+                }
+                builder.append(value);
+            }
+        }
+        return builder.length() > 0 ? builder.toString() : null;
+    }
+}
@@ -0,0 +1,491 @@
+package com.petition.dao;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.petition.model.Petitioner;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * 分段快照存储
+ * 将全部记录按ID排序后切分为固定大小的数据段文件，由清单文件（manifest.json）
+ * 记录每个数据段的文件名、ID范围、记录数和CRC32校验和。
+ *
+ * <p>数据段文件写入后不再修改：重写数据段时使用新文件名，清单文件原子替换后
+ * 才删除旧文件，因此清单始终指向一组完整的数据段。保存时只重写包含已修改记录的
+ * 数据段；重新加载时只读取文件名发生变化的数据段，其余数据段沿用已解析的记录。</p>
+ *
+ * @author 刘一村
+ * @version 1.0.0
+ */
+class SegmentedSnapshotStore {
+    /**
+     * 清单文件名
+     */
+    static final String MANIFEST_FILE = "manifest.json";
+
+    /**
+     * 数据段文件后缀
+     */
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    /**
+     * 默认每个数据段的记录数
+     */
+    static final int DEFAULT_SEGMENT_SIZE = 1000;
+
+    /**
+     * 读写缓冲区大小（字节）
+     */
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 数据段信息（清单中的一项）
+     */
+    static class SegmentInfo {
+        private String file;
+        private String minId;
+        private String maxId;
+        private int count;
+        private String crc;
+        private long size;
+
+        public String getFile() {
+            return file;
+        }
+
+        public void setFile(String file) {
+            this.file = file;
+        }
+
+        public String getMinId() {
+            return minId;
+        }
+
+        public void setMinId(String minId) {
+            this.minId = minId;
+        }
+
+        public String getMaxId() {
+            return maxId;
+        }
+
+        public void setMaxId(String maxId) {
+            this.maxId = maxId;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public String getCrc() {
+            return crc;
+        }
+
+        public void setCrc(String crc) {
+            this.crc = crc;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public void setSize(long size) {
+            this.size = size;
+        }
+    }
+
+    /**
+     * 清单文件内容
+     */
+    static class Manifest {
+        private String format = StorageFormat.JSON.name();
+        private long nextSequence = 1;
+        private List<SegmentInfo> segments = new ArrayList<>();
+
+        public String getFormat() {
+            return format;
+        }
+
+        public void setFormat(String format) {
+            this.format = format;
+        }
+
+        public long getNextSequence() {
+            return nextSequence;
+        }
+
+        public void setNextSequence(long nextSequence) {
+            this.nextSequence = nextSequence;
+        }
+
+        public List<SegmentInfo> getSegments() {
+            return segments;
+        }
+
+        public void setSegments(List<SegmentInfo> segments) {
+            this.segments = segments;
+        }
+    }
+
+    /**
+     * 数据段目录
+     */
+    private final Path directory;
+
+    /**
+     * 清单文件路径
+     */
+    private final Path manifestPath;
+
+    /**
+     * 每个数据段的目标记录数，超过两倍时拆分
+     */
+    private final int segmentSize;
+
+    /**
+     * 清单读写用的ObjectMapper
+     */
+    private final ObjectMapper manifestMapper;
+
+    /**
+     * 最近一次读取或写入的清单
+     */
+    private Manifest manifest;
+
+    /**
+     * 已解析的数据段（文件名 -> 记录），数据段文件不会被原地修改，按文件名缓存即可
+     */
+    private final Map<String, List<Petitioner>> loadedSegments = new HashMap<>();
+
+    /**
+     * 构造函数
+     *
+     * @param directory 数据段目录
+     * @param segmentSize 每个数据段的目标记录数
+     */
+    SegmentedSnapshotStore(Path directory, int segmentSize) {
+        if (segmentSize < 1) {
+            throw new IllegalArgumentException("数据段大小必须大于0");
+        }
+        this.directory = directory;
+        this.manifestPath = directory.resolve(MANIFEST_FILE);
+        this.segmentSize = segmentSize;
+        this.manifestMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    }
+
+    /**
+     * 清单文件是否存在（即数据是否以分段方式存储）
+     */
+    boolean exists() {
+        return Files.exists(manifestPath);
+    }
+
+    Path getManifestPath() {
+        return manifestPath;
+    }
+
+    /**
+     * 获取数据段使用的存储格式
+     */
+    synchronized StorageFormat getFormat() throws IOException {
+        return StorageFormat.fromName(readManifest().getFormat(), StorageFormat.JSON);
+    }
+
+    /**
+     * 获取当前清单中的数据段数量
+     */
+    synchronized int getSegmentCount() throws IOException {
+        return readManifest().getSegments().size();
+    }
+
+    /**
+     * 获取清单中记录的总数（不读取数据段）
+     */
+    synchronized int count() throws IOException {
+        int total = 0;
+        for (SegmentInfo segment : readManifest().getSegments()) {
+            total += segment.getCount();
+        }
+        return total;
+    }
+
+    /**
+     * 丢弃已解析的数据段，下次加载时全部重新读取
+     */
+    synchronized void invalidate() {
+        manifest = null;
+        loadedSegments.clear();
+    }
+
+    /**
+     * 加载全部数据段
+     * 文件名与上次加载或写入时相同的数据段直接复用已解析的记录
+     *
+     * @param mappers 按存储格式获取ObjectMapper
+     * @return 所有记录（按数据段顺序）
+     * @throws IOException 文件读取或校验失败
+     */
+    synchronized List<Petitioner> load(Function<StorageFormat, ObjectMapper> mappers) throws IOException {
+        manifest = null;
+        Manifest current = readManifest();
+
+        Set<String> files = new HashSet<>();
+        List<Petitioner> records = new ArrayList<>();
+        for (SegmentInfo segment : current.getSegments()) {
+            List<Petitioner> segmentRecords = loadedSegments.get(segment.getFile());
+            if (segmentRecords == null) {
+                segmentRecords = readSegment(segment, mappers);
+                loadedSegments.put(segment.getFile(), segmentRecords);
+            }
+            files.add(segment.getFile());
+            records.addAll(segmentRecords);
+        }
+        loadedSegments.keySet().retainAll(files);
+        return records;
+    }
+
+    /**
+     * 写入数据
+     * dirtyIds为null时全部重写；否则只重写包含这些ID的数据段，
+     * 新增记录按ID归入对应范围的数据段
+     *
+     * @param records 当前全部记录
+     * @param dirtyIds 自上次写入后新增、修改或删除的记录ID
+     * @param format 存储格式
+     * @param mapper 该格式的ObjectMapper
+     * @throws IOException 文件写入异常
+     */
+    synchronized void write(List<Petitioner> records, Collection<String> dirtyIds,
+               StorageFormat format, ObjectMapper mapper) throws IOException {
+        Files.createDirectories(directory);
+
+        manifest = null;
+        Manifest previous = exists() ? readManifest() : null;
+        boolean fullRewrite = dirtyIds == null || previous == null
+                || previous.getSegments().isEmpty()
+                || !format.name().equals(previous.getFormat());
+
+        Manifest next = new Manifest();
+        next.setFormat(format.name());
+        next.setNextSequence(previous != null ? previous.getNextSequence() : 1);
+
+        if (fullRewrite) {
+            List<Petitioner> sorted = new ArrayList<>(records);
+            sorted.sort(Comparator.comparing(Petitioner::getId));
+            for (int from = 0; from < sorted.size(); from += segmentSize) {
+                List<Petitioner> chunk = sorted.subList(from, Math.min(from + segmentSize, sorted.size()));
+                next.getSegments().add(writeSegment(next, chunk, mapper));
+            }
+        } else {
+            List<SegmentInfo> oldSegments = previous.getSegments();
+
+            // 按ID范围把当前记录分配到原有数据段
+            List<List<Petitioner>> groups = new ArrayList<>(oldSegments.size());
+            for (int i = 0; i < oldSegments.size(); i++) {
+                groups.add(new ArrayList<>());
+            }
+            for (Petitioner petitioner : records) {
+                groups.get(segmentIndexFor(oldSegments, petitioner.getId())).add(petitioner);
+            }
+
+            Set<Integer> dirtySegments = new TreeSet<>();
+            for (String id : dirtyIds) {
+                dirtySegments.add(segmentIndexFor(oldSegments, id));
+            }
+
+            for (int i = 0; i < oldSegments.size(); i++) {
+                if (!dirtySegments.contains(i)) {
+                    next.getSegments().add(oldSegments.get(i));
+                    continue;
+                }
+                List<Petitioner> group = groups.get(i);
+                group.sort(Comparator.comparing(Petitioner::getId));
+                // 超过两倍目标大小时拆分，清空的数据段直接丢弃
+                int pieces = group.size() > 2 * segmentSize
+                        ? (group.size() + segmentSize - 1) / segmentSize : 1;
+                int pieceSize = (group.size() + pieces - 1) / Math.max(pieces, 1);
+                for (int from = 0; from < group.size(); from += pieceSize) {
+                    List<Petitioner> chunk = group.subList(from, Math.min(from + pieceSize, group.size()));
+                    next.getSegments().add(writeSegment(next, chunk, mapper));
+                }
+            }
+        }
+
+        writeManifest(next);
+        manifest = next;
+
+        // 清单已切换，删除不再引用的数据段文件
+        Set<String> referenced = new HashSet<>();
+        for (SegmentInfo segment : next.getSegments()) {
+            referenced.add(segment.getFile());
+        }
+        loadedSegments.keySet().retainAll(referenced);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(SEGMENT_SUFFIX) && !referenced.contains(name)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * 删除整个数据段目录
+     *
+     * @param directory 数据段目录
+     * @throws IOException 文件删除异常
+     */
+    static void delete(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        // 先删除清单，中途失败时剩下的数据段文件不会再被使用
+        Files.deleteIfExists(directory.resolve(MANIFEST_FILE));
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    /**
+     * 查找ID所属的数据段：最后一个minId不大于该ID的数据段，比所有数据段都小时归入第一个
+     */
+    private static int segmentIndexFor(List<SegmentInfo> segments, String id) {
+        int low = 0;
+        int high = segments.size() - 1;
+        int result = 0;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (segments.get(mid).getMinId().compareTo(id) <= 0) {
+                result = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 读取清单（缓存最近一次读取或写入的结果）
+     */
+    private Manifest readManifest() throws IOException {
+        if (manifest == null) {
+            manifest = exists() ? manifestMapper.readValue(manifestPath.toFile(), Manifest.class) : new Manifest();
+        }
+        return manifest;
+    }
+
+    /**
+     * 原子写入清单文件
+     */
+    private void writeManifest(Manifest content) throws IOException {
+        Path tempPath = manifestPath.resolveSibling(MANIFEST_FILE + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tempPath.toFile())) {
+            manifestMapper.writer()
+                    .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .writeValue(fos, content);
+            fos.getChannel().force(true);
+        }
+        JsonDataManager.moveAtomically(tempPath, manifestPath);
+        JsonDataManager.syncDirectory(directory);
+    }
+
+    /**
+     * 写入一个新的数据段文件并刷盘
+     */
+    private SegmentInfo writeSegment(Manifest target, List<Petitioner> records, ObjectMapper mapper)
+            throws IOException {
+        long sequence = target.getNextSequence();
+        target.setNextSequence(sequence + 1);
+        String fileName = String.format("segment-%08d%s", sequence, SEGMENT_SUFFIX);
+        Path path = directory.resolve(fileName);
+
+        CRC32 crc = new CRC32();
+        long size;
+        try (FileOutputStream fos = new FileOutputStream(path.toFile())) {
+            CheckedOutputStream checked = new CheckedOutputStream(
+                    new BufferedOutputStream(fos, IO_BUFFER_SIZE), crc);
+            mapper.writer()
+                    .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .writeValue(checked, records);
+            checked.flush();
+            fos.getChannel().force(true);
+            size = fos.getChannel().size();
+        }
+
+        SegmentInfo info = new SegmentInfo();
+        info.setFile(fileName);
+        info.setMinId(records.get(0).getId());
+        info.setMaxId(records.get(records.size() - 1).getId());
+        info.setCount(records.size());
+        info.setCrc(Long.toHexString(crc.getValue()));
+        info.setSize(size);
+
+        loadedSegments.put(fileName, List.copyOf(records));
+        return info;
+    }
+
+    /**
+     * 读取并校验一个数据段
+     */
+    private List<Petitioner> readSegment(SegmentInfo segment, Function<StorageFormat, ObjectMapper> mappers)
+            throws IOException {
+        Path path = directory.resolve(segment.getFile());
+        CRC32 crc = new CRC32();
+        Petitioner[] petitioners;
+
+        BufferedInputStream buffered = new BufferedInputStream(Files.newInputStream(path), IO_BUFFER_SIZE);
+        try (InputStream in = new CheckedInputStream(buffered, crc)) {
+            byte[] header = new byte[StorageFormat.HEADER_LENGTH];
+            buffered.mark(header.length);
+            int headerLength = buffered.readNBytes(header, 0, header.length);
+            buffered.reset();
+
+            petitioners = mappers.apply(StorageFormat.detect(header, headerLength))
+                    .readerFor(Petitioner[].class)
+                    .without(JsonParser.Feature.AUTO_CLOSE_SOURCE)
+                    .readValue(in);
+            byte[] buffer = new byte[IO_BUFFER_SIZE];
+            while (in.read(buffer) >= 0) {
+                // 仅用于计算校验和
+            }
+        }
+
+        if (!Long.toHexString(crc.getValue()).equals(segment.getCrc())
+                || petitioners.length != segment.getCount()) {
+            throw new IOException("数据段已损坏（校验和不匹配）: " + path);
+        }
+        return List.of(petitioners);
+    }
+}
@@ -0,0 +1,93 @@
+package com.petition.dao;
+
+import com.petition.model.Petitioner;
+import com.petition.model.enums.RiskLevel;
+
+import java.util.Comparator;
+import java.util.function.Function;
+
+/**
+ * 查询结果的排序字段
+ * 空值无论升序降序都排在最后，各存储后端的排序结果一致
+ *
+ * @author 刘一村
+ * @version 1.0.0
+ */
+public enum SortField {
+    /**
+     * 姓名
+     */
+    NAME,
+
+    /**
+     * 身份证号
+     */
+    ID_CARD,
+
+    /**
+     * 上访次数
+     */
+    VISIT_COUNT,
+
+    /**
+     * 危险等级（按等级高低，不按名称）
+     */
+    RISK_LEVEL,
+
+    /**
+     * 创建时间
+     */
+    CREATE_TIME,
+
+    /**
+     * 更新时间
+     */
+    UPDATE_TIME;
+
+    /**
+     * 获取按该字段排序的比较器
+     *
+     * @param descending 是否降序
+     * @return 比较器，空值排在最后
+     */
+    Comparator<Petitioner> comparator(boolean descending) {
+        return switch (this) {
+            case NAME -> compare(Petitioner::getName, descending);
+            case ID_CARD -> compare(Petitioner::getIdCard, descending);
+            case VISIT_COUNT -> compare(p -> p.getPersonalInfo() != null ? p.getPersonalInfo().getVisitCount() : null,
+                    descending);
+            case RISK_LEVEL -> compare(p -> p.getRiskAssessment() != null ? p.getRiskAssessment().getRiskLevel() : null,
+                    descending);
+            case CREATE_TIME -> compare(Petitioner::getCreateTime, descending);
+            case UPDATE_TIME -> compare(Petitioner::getUpdateTime, descending);
+        };
+    }
+
+    /**
+     * 获取排序用的SQL表达式
+     *
+     * @return 列名；危险等级按枚举顺序转换为数字
+     */
+    String sqlExpression() {
+        return switch (this) {
+            case NAME -> "name";
+            case ID_CARD -> "id_card";
+            case VISIT_COUNT -> "visit_count";
+            case RISK_LEVEL -> {
+                StringBuilder expression = new StringBuilder("CASE risk_level");
+                for (RiskLevel level : RiskLevel.values()) {
+                    expression.append(" WHEN '").append(level.name()).append("' THEN ").append(level.ordinal());
+                }
+                yield expression.append(" END").toString();
+            }
+            case CREATE_TIME -> "create_time";
+            case UPDATE_TIME -> "update_time";
+        };
+    }
+
+    private static <T extends Comparable<? super T>> Comparator<Petitioner> compare(
+            Function<Petitioner, T> key, boolean descending) {
+        Comparator<T> order = descending ? Comparator.<T>reverseOrder() : Comparator.<T>naturalOrder();
+        return Comparator.comparing(key, Comparator.nullsLast(order));
+    }
+}
@@ -0,0 +1,91 @@
+package com.petition.dao;
+
+import com.petition.model.Petitioner;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 排序条件：排序字段和方向
+ *
+ * @author 刘一村
+ * @version 1.0.0
+ */
+public final class SortKey {
+    private final SortField field;
+    private final boolean descending;
+
+    private SortKey(SortField field, boolean descending) {
+        this.field = Objects.requireNonNull(field, "排序字段不能为空");
+        this.descending = descending;
+    }
+
+    /**
+     * 升序
+     *
+     * @param field 排序字段
+     * @return 排序条件
+     */
+    public static SortKey asc(SortField field) {
+        return new SortKey(field, false);
+    }
+
+    /**
+     * 降序
+     *
+     * @param field 排序字段
+     * @return 排序条件
+     */
+    public static SortKey desc(SortField field) {
+        return new SortKey(field, true);
+    }
+
+    /**
+     * 合并排序条件
+     * 与数据仓库分页时的排序一致（排序值相同的记录再按录入顺序排列，比较器不包含这一层）
+     *
+     * @param sort 排序条件（可以为null）
+     * @return 比较器，没有排序条件时返回null
+     */
+    public static Comparator<Petitioner> comparator(List<SortKey> sort) {
+        Comparator<Petitioner> result = null;
+        if (sort != null) {
+            for (SortKey key : sort) {
+                Comparator<Petitioner> next = key.getField().comparator(key.isDescending());
+                result = result == null ? next : result.thenComparing(next);
+            }
+        }
+        return result;
+    }
+
+    public SortField getField() {
+        return field;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SortKey)) {
+            return false;
+        }
+        SortKey other = (SortKey) o;
+        return field == other.field && descending == other.descending;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(field, descending);
+    }
+
+    @Override
+    public String toString() {
+        return field + (descending ? " DESC" : " ASC");
+    }
+}
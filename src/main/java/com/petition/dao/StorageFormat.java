@@ -0,0 +1,105 @@
+package com.petition.dao;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * 数据文件存储格式
+ * 二进制格式都以固定的文件头开始，加载时根据文件头自动识别：
+ * Smile以":)\n"开头，CBOR写入自描述标签0xD9D9F7，其余按JSON文本解析
+ *
+ * @author 刘一村
+ * @version 1.0.0
+ */
+public enum StorageFormat {
+    /**
+     * JSON文本（缩进输出，便于查看和导出）
+     */
+    JSON,
+
+    /**
+     * Jackson Smile二进制JSON
+     */
+    SMILE,
+
+    /**
+     * CBOR（RFC 8949）
+     */
+    CBOR;
+
+    /**
+     * 识别格式需要读取的文件头字节数
+     */
+    static final int HEADER_LENGTH = 3;
+
+    /**
+     * 创建该格式的ObjectMapper
+     * 日期统一写为ISO字符串，与JSON格式保持一致
+     *
+     * @return ObjectMapper实例
+     */
+    ObjectMapper createMapper() {
+        ObjectMapper mapper;
+        switch (this) {
+            case SMILE:
+                mapper = SmileMapper.builder()
+                        .enable(SmileGenerator.Feature.WRITE_HEADER)
+                        .build();
+                break;
+            case CBOR:
+                mapper = CBORMapper.builder()
+                        .enable(CBORGenerator.Feature.WRITE_TYPE_HEADER)
+                        .build();
+                break;
+            default:
+                mapper = new ObjectMapper();
+                mapper.enable(SerializationFeature.INDENT_OUTPUT);
+                break;
+        }
+        mapper.registerModule(new JavaTimeModule());
+        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        return mapper;
+    }
+
+    /**
+     * 根据文件头识别格式
+     *
+     * @param header 文件开头的字节
+     * @param length 有效字节数
+     * @return 识别出的格式，无法识别时按JSON处理
+     */
+    static StorageFormat detect(byte[] header, int length) {
+        if (length >= 3 && header[0] == ':' && header[1] == ')' && header[2] == '\n') {
+            return SMILE;
+        }
+        if (length >= 3 && (header[0] & 0xFF) == 0xD9 && (header[1] & 0xFF) == 0xD9
+                && (header[2] & 0xFF) == 0xF7) {
+            return CBOR;
+        }
+        return JSON;
+    }
+
+    /**
+     * 按名称解析格式（不区分大小写）
+     *
+     * @param name 格式名称
+     * @param defaultFormat 名称为空或无法识别时使用的格式
+     * @return 存储格式
+     */
+    public static StorageFormat fromName(String name, StorageFormat defaultFormat) {
+        if (name == null || name.isBlank()) {
+            return defaultFormat;
+        }
+        for (StorageFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name.trim())) {
+                return format;
+            }
+        }
+        return defaultFormat;
+    }
+}
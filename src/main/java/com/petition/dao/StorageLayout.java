@@ -0,0 +1,38 @@
+package com.petition.dao;
+
+/**
+ * 数据快照的磁盘布局
+ *
+ * @author 刘一村
+ * @version 1.0.0
+ */
+public enum StorageLayout {
+    /**
+     * 单个数据文件（petitioners.json）
+     */
+    SINGLE_FILE,
+
+    /**
+     * 分段存储（segments目录下的清单文件和固定大小的数据段文件）
+     */
+    SEGMENTED;
+
+    /**
+     * 按名称解析布局（不区分大小写）
+     *
+     * @param name 布局名称
+     * @param defaultLayout 名称为空或无法识别时使用的布局
+     * @return 存储布局
+     */
+    public static StorageLayout fromName(String name, StorageLayout defaultLayout) {
+        if (name == null || name.isBlank()) {
+            return defaultLayout;
+        }
+        for (StorageLayout layout : values()) {
+            if (layout.name().equalsIgnoreCase(name.trim())) {
+                return layout;
+            }
+        }
+        return defaultLayout;
+    }
+}
@@ -0,0 +1,316 @@
+package com.petition.dao;
+
+import com.petition.model.Petitioner;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 延迟写入队列
+ * 延迟写入模式下，已应用到内存的修改以日志行的形式在此排队，由后台线程定时一次性追加到变更日志。
+ * 每排队一条日志序号加一，写盘（或被快照覆盖）后推进已持久化序号，
+ * 等待持久化的线程据此判断自己关心的修改是否已落盘。
+ *
+ * <p>同时记录每条记录最近一次尚未落盘的修改（排队序号、版本号、修改时间），
+ * 其他实例写入同一记录时据此判断保留哪一方。</p>
+ *
+ * <p>本类与{@link JsonDataManager}共用同一把数据锁：除{@link #awaitDurable(long, TimeUnit)}外，
+ * 所有方法都要求调用方已持有该锁。</p>
+ *
+ * @author 刘一村
+ * @version 1.0.0
+ */
+class WriteBehindQueue {
+    /**
+     * 首条待写修改到实际写盘之间的等待时间（毫秒）
+     * 这段时间内的后续修改与其合并为一次写入
+     */
+    private static final long WRITE_BEHIND_DELAY_MILLIS = 200;
+
+    /**
+     * 数据锁（数据管理器对象），持久化进度变化时在其上通知
+     */
+    private final Object lock;
+
+    /**
+     * 写盘任务，由后台线程执行
+     */
+    private final Runnable persistTask;
+
+    /**
+     * 已应用到内存、尚未写盘的日志行（按修改顺序）
+     */
+    private List<String> lines = new ArrayList<>();
+
+    /**
+     * 已排队的修改序号（每排队一条日志加一）
+     */
+    private long enqueuedSequence;
+
+    /**
+     * 已刷盘（或已包含在快照中）的修改序号
+     */
+    private long durableSequence;
+
+    /**
+     * 最近一次后台写入失败的异常，之后写入成功时清除
+     */
+    private IOException failure;
+
+    /**
+     * 是否已提交后台写盘任务
+     */
+    private boolean scheduled;
+
+    /**
+     * 后台持久化线程
+     */
+    private ScheduledExecutorService executor;
+
+    /**
+     * 尚未落盘的记录修改（ID -> 排队序号和修改时间），与外部修改冲突时据此取舍
+     */
+    private final Map<String, PendingEdit> pendingEdits = new HashMap<>();
+
+    /**
+     * 构造函数
+     *
+     * @param lock 数据锁
+     * @param persistTask 写盘任务，排队后延迟提交给后台线程
+     */
+    WriteBehindQueue(Object lock, Runnable persistTask) {
+        this.lock = lock;
+        this.persistTask = persistTask;
+    }
+
+    /**
+     * 将一条日志行加入队列，并在需要时提交后台写盘任务
+     * 之后调用{@link #recordEdit(String, long, LocalDateTime)}登记该行涉及的记录
+     *
+     * @param line 日志行（不含换行符）
+     */
+    void enqueue(String line) {
+        lines.add(line);
+        enqueuedSequence++;
+        schedule();
+    }
+
+    /**
+     * 登记最近排队的日志行对某条记录的修改
+     *
+     * @param id 记录ID
+     * @param version 修改后记录的版本号
+     * @param updateTime 修改后记录的修改时间（删除时为排队时间）
+     */
+    void recordEdit(String id, long version, LocalDateTime updateTime) {
+        pendingEdits.put(id, new PendingEdit(enqueuedSequence, version, updateTime));
+    }
+
+    /**
+     * 获取记录尚未落盘的修改
+     *
+     * @param id 记录ID
+     * @return 未落盘的修改，没有时返回null
+     */
+    PendingEdit pendingEdit(String id) {
+        return pendingEdits.get(id);
+    }
+
+    /**
+     * 开始一次写盘：清除已提交标记，之后排队的修改会再次提交写盘任务
+     *
+     * @return 队列中是否有待写的日志行
+     */
+    boolean beginPersist() {
+        scheduled = false;
+        return !lines.isEmpty();
+    }
+
+    /**
+     * 取出全部待写的日志行
+     *
+     * @return 按修改顺序排列的日志行
+     */
+    List<String> drain() {
+        List<String> batch = lines;
+        lines = new ArrayList<>();
+        return batch;
+    }
+
+    /**
+     * 写盘失败：日志行放回队首，下次写入或flush()时重试
+     *
+     * @param batch 取出的日志行
+     * @param e 写盘异常
+     */
+    void persistFailed(List<String> batch, IOException e) {
+        batch.addAll(lines);
+        lines = batch;
+        failure = e;
+        lock.notifyAll();
+    }
+
+    /**
+     * 写盘成功：推进已持久化序号
+     *
+     * @param sequence 已写出的最后一条日志的序号
+     */
+    void persisted(long sequence) {
+        durableSequence = sequence;
+        pendingEdits.values().removeIf(edit -> edit.sequence <= durableSequence);
+        failure = null;
+        lock.notifyAll();
+    }
+
+    /**
+     * 将队首若干条日志行标记为已持久化（其修改已包含在刚写出的快照中）
+     *
+     * @param coveredLines 快照覆盖的队首日志行数
+     */
+    void coveredBySnapshot(int coveredLines) {
+        if (coveredLines == 0) {
+            return;
+        }
+        lines.subList(0, coveredLines).clear();
+        persisted(enqueuedSequence - lines.size());
+    }
+
+    /**
+     * 获取队列中的日志行数
+     *
+     * @return 日志行数
+     */
+    int size() {
+        return lines.size();
+    }
+
+    /**
+     * 获取已排队的修改序号
+     *
+     * @return 最后一条排队日志的序号
+     */
+    long getEnqueuedSequence() {
+        return enqueuedSequence;
+    }
+
+    /**
+     * 获取尚未落盘的修改数
+     *
+     * @return 排队中或正在写入的日志记录数
+     */
+    long getPendingCount() {
+        return enqueuedSequence - durableSequence;
+    }
+
+    /**
+     * 等待调用时已排队的修改写盘
+     * 不主动触发写入，只确认持久化进度
+     *
+     * @param timeout 最长等待时间
+     * @param unit 时间单位
+     * @return 在超时前全部落盘返回true，否则返回false
+     * @throws IOException 后台写入失败
+     * @throws InterruptedException 等待被中断
+     */
+    boolean awaitDurable(long timeout, TimeUnit unit) throws IOException, InterruptedException {
+        synchronized (lock) {
+            long target = enqueuedSequence;
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            while (durableSequence < target) {
+                if (failure != null) {
+                    throw new IOException("后台写入数据失败: " + failure.getMessage(), failure);
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 提交后台写盘任务
+     * 任务延迟执行，期间排队的修改由同一次写入带走
+     */
+    private void schedule() {
+        if (scheduled) {
+            return;
+        }
+
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "DataPersistenceThread");
+                thread.setDaemon(true); // 设置为守护线程
+                return thread;
+            });
+        }
+
+        scheduled = true;
+        executor.schedule(persistTask, WRITE_BEHIND_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 取出后台持久化线程，之后排队时重新创建
+     *
+     * @return 持久化线程，未创建时返回null
+     */
+    ExecutorService detachExecutor() {
+        ExecutorService current = executor;
+        executor = null;
+        return current;
+    }
+
+    /**
+     * 尚未落盘的记录修改
+     */
+    static final class PendingEdit {
+        /**
+         * 最近一次修改的排队序号
+         */
+        private final long sequence;
+
+        /**
+         * 修改后记录的版本号
+         */
+        private final long version;
+
+        /**
+         * 修改后记录的修改时间（删除时为排队时间）
+         */
+        private final LocalDateTime updateTime;
+
+        private PendingEdit(long sequence, long version, LocalDateTime updateTime) {
+            this.sequence = sequence;
+            this.version = version;
+            this.updateTime = updateTime;
+        }
+
+        /**
+         * 判断外部写入的记录是否比本修改新
+         * 先比较版本号，版本号相同再比较修改时间
+         *
+         * @param external 外部写入的记录，被删除时为null
+         * @return 外部记录较新时返回true
+         */
+        boolean isOlderThan(Petitioner external) {
+            if (external == null) {
+                return false;
+            }
+            if (external.getVersion() != version) {
+                return external.getVersion() > version;
+            }
+            LocalDateTime externalTime = external.getUpdateTime();
+            return externalTime != null && updateTime != null && externalTime.isAfter(updateTime);
+        }
+    }
+}
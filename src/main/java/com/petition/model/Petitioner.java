@@ -29,6 +29,12 @@ public class Petitioner {
      */
     private LocalDateTime updateTime;
 
+    /**
+     * 记录版本号
+     * 每次保存由数据层加一，多个实例共用数据目录时据此判断修改是否基于最新版本
+     */
+    private long version;
+
     /**
      * 个人信息模块（17个字段）
      * 包含基本身份信息、联系方式、职业住址、上访相关信息和照片
@@ -120,6 +126,14 @@ public class Petitioner {
         this.updateTime = updateTime;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     public PersonalInfo getPersonalInfo() {
         return personalInfo;
     }
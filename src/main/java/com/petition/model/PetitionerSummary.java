@@ -0,0 +1,150 @@
+package com.petition.model;
+
+import com.petition.model.enums.EntryMethod;
+import com.petition.model.enums.Education;
+import com.petition.model.enums.Gender;
+import com.petition.model.enums.MaritalStatus;
+import com.petition.model.enums.RiskLevel;
+
+import java.time.LocalDateTime;
+
+/**
+ * 上访人员摘要（列表视图使用的只读投影）
+ * 只保留列表显示和筛选需要的字段，不引用案件内容、轨迹、照片等大字段，
+ * 完整记录在打开详情或编辑页面时按ID读取
+ *
+ * @author 刘一村
+ * @version 1.0.0
+ */
+public final class PetitionerSummary {
+    private final String id;
+    private final String name;
+    private final String idCard;
+    private final Gender gender;
+    private final String primaryPhone;
+    private final String nativePlace;
+    private final Education education;
+    private final MaritalStatus maritalStatus;
+    private final Integer visitCount;
+    private final EntryMethod entryMethod;
+    private final RiskLevel riskLevel;
+    private final LocalDateTime createTime;
+    private final LocalDateTime updateTime;
+
+    private PetitionerSummary(Petitioner petitioner) {
+        PersonalInfo info = petitioner.getPersonalInfo();
+        PetitionCase petitionCase = petitioner.getPetitionCase();
+        RiskAssessment assessment = petitioner.getRiskAssessment();
+
+        this.id = petitioner.getId();
+        this.name = info != null ? info.getName() : null;
+        this.idCard = info != null ? info.getIdCard() : null;
+        this.gender = info != null ? info.getGender() : null;
+        this.primaryPhone = info != null ? info.getPrimaryPhone() : null;
+        this.nativePlace = info != null ? info.getNativePlace() : null;
+        this.education = info != null ? info.getEducation() : null;
+        this.maritalStatus = info != null ? info.getMaritalStatus() : null;
+        this.visitCount = info != null ? info.getVisitCount() : null;
+        this.entryMethod = petitionCase != null ? petitionCase.getEntryMethod() : null;
+        this.riskLevel = assessment != null ? assessment.getRiskLevel() : null;
+        this.createTime = petitioner.getCreateTime();
+        this.updateTime = petitioner.getUpdateTime();
+    }
+
+    /**
+     * 完整构造函数（由存储层直接按字段构建，不经过完整记录）
+     */
+    public PetitionerSummary(String id, String name, String idCard, Gender gender, String primaryPhone,
+                             String nativePlace, Education education, MaritalStatus maritalStatus,
+                             Integer visitCount, EntryMethod entryMethod, RiskLevel riskLevel,
+                             LocalDateTime createTime, LocalDateTime updateTime) {
+        this.id = id;
+        this.name = name;
+        this.idCard = idCard;
+        this.gender = gender;
+        this.primaryPhone = primaryPhone;
+        this.nativePlace = nativePlace;
+        this.education = education;
+        this.maritalStatus = maritalStatus;
+        this.visitCount = visitCount;
+        this.entryMethod = entryMethod;
+        this.riskLevel = riskLevel;
+        this.createTime = createTime;
+        this.updateTime = updateTime;
+    }
+
+    /**
+     * 由完整记录生成摘要
+     *
+     * @param petitioner 上访人员
+     * @return 摘要
+     */
+    public static PetitionerSummary of(Petitioner petitioner) {
+        if (petitioner == null) {
+            throw new IllegalArgumentException("上访人员对象不能为null");
+        }
+        return new PetitionerSummary(petitioner);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getIdCard() {
+        return idCard;
+    }
+
+    public Gender getGender() {
+        return gender;
+    }
+
+    public String getPrimaryPhone() {
+        return primaryPhone;
+    }
+
+    public String getNativePlace() {
+        return nativePlace;
+    }
+
+    public Education getEducation() {
+        return education;
+    }
+
+    public MaritalStatus getMaritalStatus() {
+        return maritalStatus;
+    }
+
+    public Integer getVisitCount() {
+        return visitCount;
+    }
+
+    public EntryMethod getEntryMethod() {
+        return entryMethod;
+    }
+
+    public RiskLevel getRiskLevel() {
+        return riskLevel;
+    }
+
+    public LocalDateTime getCreateTime() {
+        return createTime;
+    }
+
+    public LocalDateTime getUpdateTime() {
+        return updateTime;
+    }
+
+    @Override
+    public String toString() {
+        return "PetitionerSummary{" +
+                "id='" + id + '\'' +
+                ", name='" + name + '\'' +
+                ", idCard='" + idCard + '\'' +
+                ", riskLevel=" + riskLevel +
+                '}';
+    }
+}
@@ -0,0 +1,144 @@
+package com.petition.service;
+
+import com.petition.dao.PetitionerFilter;
+import com.petition.dao.SortKey;
+import com.petition.model.Petitioner;
+import com.petition.model.enums.Education;
+import com.petition.model.enums.EntryMethod;
+import com.petition.model.enums.Gender;
+import com.petition.model.enums.MaritalStatus;
+import com.petition.model.enums.RiskLevel;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 编译后的上访人员查询
+ * 查询条件在编译时复制并转换为{@link PetitionerFilter}，判断链只编译一次：
+ * 条件按估计的选择度和判断代价排序，数据仓库核对候选记录和{@link #matches(Petitioner)}
+ * 用的是同一条判断链。
+ *
+ * <p>整体查询由{@link QueryService#query(CompiledQuery)}交给数据仓库执行：JSON存储用检索索引
+ * （姓名、籍贯二元组索引，身份证号片段索引，枚举位图）取候选记录后核对，数据库存储转换为WHERE子句；
+ * {@link #matches(Petitioner)}用于判断单条记录，例如数据变更后更新已有的查询结果。</p>
+ *
+ * @author 刘一村
+ * @version 1.0.0
+ */
+public final class CompiledQuery {
+    private final String name;
+    private final String idCard;
+    private final String nativePlace;
+    private final String nativePlaceKeyword;
+    private final Set<RiskLevel> riskLevels;
+    private final Set<Gender> genders;
+    private final Set<Education> educations;
+    private final Set<MaritalStatus> maritalStatuses;
+    private final Set<EntryMethod> entryMethods;
+    private final Integer minVisitCount;
+    private final Integer maxVisitCount;
+    private final List<SortKey> sort;
+
+    /**
+     * 判断单条记录用的查询条件，只在本对象内使用，不会被修改
+     */
+    private final PetitionerFilter filter;
+
+    /**
+     * 编译查询（复制查询条件）
+     *
+     * @param query 查询条件
+     */
+    CompiledQuery(PetitionerQuery query) {
+        this.name = query.getName();
+        this.idCard = query.getIdCard();
+        this.nativePlace = query.getNativePlace();
+        this.nativePlaceKeyword = query.getNativePlaceKeyword();
+        this.riskLevels = copy(query.getRiskLevels());
+        this.genders = copy(query.getGenders());
+        this.educations = copy(query.getEducations());
+        this.maritalStatuses = copy(query.getMaritalStatuses());
+        this.entryMethods = copy(query.getEntryMethods());
+        this.minVisitCount = query.getMinVisitCount();
+        this.maxVisitCount = query.getMaxVisitCount();
+        this.sort = query.getSort();
+        this.filter = toFilter();
+    }
+
+    /**
+     * 判断上访人员是否满足全部条件
+     *
+     * @param petitioner 上访人员
+     * @return 是否匹配
+     */
+    public boolean matches(Petitioner petitioner) {
+        return filter.matches(petitioner);
+    }
+
+    /**
+     * 获取排序条件
+     *
+     * @return 不可修改的排序条件，为空表示按录入顺序
+     */
+    public List<SortKey> getSort() {
+        return sort;
+    }
+
+    /**
+     * 是否没有任何条件
+     *
+     * @return 没有条件时返回true
+     */
+    public boolean isEmpty() {
+        return filter.isEmpty();
+    }
+
+    /**
+     * 转换为数据仓库的查询条件
+     *
+     * @return 新的查询条件对象
+     */
+    public PetitionerFilter toFilter() {
+        PetitionerFilter filter = new PetitionerFilter();
+        filter.setName(name);
+        filter.setIdCard(idCard);
+        filter.setNativePlace(nativePlace);
+        filter.setNativePlaceKeyword(nativePlaceKeyword);
+        filter.setRiskLevels(riskLevels);
+        filter.setGenders(genders);
+        filter.setEducations(educations);
+        filter.setMaritalStatuses(maritalStatuses);
+        filter.setEntryMethods(entryMethods);
+        filter.setMinVisitCount(minVisitCount);
+        filter.setMaxVisitCount(maxVisitCount);
+        return filter;
+    }
+
+    /**
+     * 说明查询计划
+     * 即JSON存储执行时的访问路径和判断链（见{@link PetitionerFilter#explain()}），
+     * 有排序条件时最后一行是排序方式
+     *
+     * @return 多行文本
+     */
+    public String explain() {
+        StringBuilder builder = new StringBuilder(filter.explain());
+        if (!sort.isEmpty()) {
+            builder.append("\n排序: ").append(sort.stream().map(Object::toString).collect(Collectors.joining(", ")))
+                    .append("（分页时只保留前offset + limit条）");
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        return explain();
+    }
+
+    private static <E extends Enum<E>> Set<E> copy(Set<E> values) {
+        return values != null ? Collections.unmodifiableSet(EnumSet.copyOf(values)) : null;
+    }
+}
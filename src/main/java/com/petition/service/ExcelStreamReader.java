@@ -0,0 +1,243 @@
+package com.petition.service;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * Excel流式读取器
+ * 基于POI事件模型（XSSFReader + SAX）逐行读取xlsx文件的第一个工作表，
+ * 不构建整个工作簿的对象树，内存占用与表格大小无关。
+ * 单元格无法解析时只把该行作为错误行交给回调，不中断后续行的读取
+ *
+ * @author 刘一村
+ * @version 1.0.0
+ */
+class ExcelStreamReader {
+    /**
+     * 行处理回调
+     */
+    interface RowHandler {
+        /**
+         * 处理一行数据
+         *
+         * @param rowIndex 行索引（从0开始，与Sheet.getRow的索引一致）
+         * @param cells 单元格值，长度为列数，空单元格为null
+         */
+        void handleRow(int rowIndex, String[] cells);
+
+        /**
+         * 处理无法解析的行
+         * 默认抛出解析异常，中断读取
+         *
+         * @param rowIndex 行索引（从0开始）
+         * @param error 该行第一个无法解析的单元格的异常
+         */
+        default void handleRowError(int rowIndex, RuntimeException error) {
+            throw error;
+        }
+    }
+
+    /**
+     * 读取的列数
+     */
+    private final int columnCount;
+
+    /**
+     * 构造函数
+     *
+     * @param columnCount 读取的列数，超出的列被忽略
+     */
+    ExcelStreamReader(int columnCount) {
+        this.columnCount = columnCount;
+    }
+
+    /**
+     * 逐行读取第一个工作表
+     *
+     * @param filePath Excel文件路径
+     * @param handler 行处理回调
+     * @throws IOException 文件读取或格式异常
+     */
+    void read(String filePath, RowHandler handler) throws IOException {
+        File file = new File(filePath);
+        if (!file.isFile()) {
+            throw new FileNotFoundException("文件不存在: " + filePath);
+        }
+
+        try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable sharedStrings = new ReadOnlySharedStringsTable(pkg);
+
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                return;
+            }
+
+            try (InputStream sheet = sheets.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new SheetHandler(sharedStrings, handler));
+                parser.parse(new InputSource(sheet));
+            }
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("无法读取Excel文件: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 工作表XML的SAX处理器
+     * 单元格取值规则与ImportService原先按单元格类型取值一致：
+     * 文本去除首尾空格，数字取整数部分，布尔转为true/false，公式和错误值视为空
+     */
+    private class SheetHandler extends DefaultHandler {
+        private final ReadOnlySharedStringsTable sharedStrings;
+        private final RowHandler handler;
+        private final StringBuilder text = new StringBuilder();
+
+        private String[] cells;
+        private int rowIndex = -1;
+        private int nextColumn;
+        private int column;
+        private String cellType;
+        private boolean hasFormula;
+        private boolean collecting;
+
+        /**
+         * 当前行第一个无法解析的单元格的异常
+         */
+        private RuntimeException rowError;
+
+        SheetHandler(ReadOnlySharedStringsTable sharedStrings, RowHandler handler) {
+            this.sharedStrings = sharedStrings;
+            this.handler = handler;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "row":
+                    String r = attributes.getValue("r");
+                    rowIndex = r != null ? Integer.parseInt(r) - 1 : rowIndex + 1;
+                    cells = new String[columnCount];
+                    nextColumn = 0;
+                    rowError = null;
+                    break;
+                case "c":
+                    String ref = attributes.getValue("r");
+                    column = ref != null ? columnIndexOf(ref) : nextColumn;
+                    nextColumn = column + 1;
+                    cellType = attributes.getValue("t");
+                    hasFormula = false;
+                    text.setLength(0);
+                    break;
+                case "f":
+                    hasFormula = true;
+                    break;
+                case "v":
+                case "t":
+                    collecting = true;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (collecting) {
+                text.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            switch (localName) {
+                case "v":
+                case "t":
+                    collecting = false;
+                    break;
+                case "c":
+                    if (column < columnCount && rowError == null) {
+                        try {
+                            cells[column] = cellValue();
+                        } catch (RuntimeException e) {
+                            rowError = new IllegalArgumentException(
+                                    "第" + (column + 1) + "列无法解析: " + e.getMessage(), e);
+                        }
+                    }
+                    break;
+                case "row":
+                    if (rowError != null) {
+                        handler.handleRowError(rowIndex, rowError);
+                    } else {
+                        handler.handleRow(rowIndex, cells);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        /**
+         * 按单元格类型转换当前单元格的值
+         */
+        private String cellValue() {
+            if (hasFormula) {
+                return null;
+            }
+
+            String value = text.toString();
+            if (cellType == null || "n".equals(cellType)) {
+                if (value.isEmpty()) {
+                    return null;
+                }
+                // 处理数字类型（可能是身份证号等）
+                return String.valueOf((long) Double.parseDouble(value));
+            }
+
+            switch (cellType) {
+                case "s":
+                    if (value.isEmpty()) {
+                        return null;
+                    }
+                    return sharedStrings.getItemAt(Integer.parseInt(value)).getString().trim();
+                case "inlineStr":
+                    return value.trim();
+                case "b":
+                    return String.valueOf("1".equals(value));
+                default:
+                    return null;
+            }
+        }
+    }
+
+    /**
+     * 将单元格引用（如"AB12"）转换为从0开始的列索引
+     */
+    static int columnIndexOf(String cellReference) {
+        int column = 0;
+        for (int i = 0; i < cellReference.length(); i++) {
+            char c = cellReference.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                break;
+            }
+            column = column * 26 + (c - 'A' + 1);
+        }
+        return column - 1;
+    }
+}
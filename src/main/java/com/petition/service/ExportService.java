@@ -1,13 +1,17 @@
 package com.petition.service;
 
 import com.petition.dao.JsonDataManager;
+import com.petition.dao.PetitionerRepository;
 import com.petition.model.*;
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 
+import java.io.BufferedWriter;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 
@@ -20,15 +24,50 @@ import java.util.List;
  */
 public class ExportService {
     /**
-     * 数据管理器
+     * Excel表头
      */
-    private final JsonDataManager dataManager;
+    private static final String[] EXCEL_HEADERS = {
+        "姓名", "身份证号", "性别", "籍贯", "学历", "婚姻状态",
+        "联系电话", "职业", "常住地址", "上访次数",
+        "在京关系人", "关系", "诉求内容", "进京方式", "在京通行方式", "危险等级"
+    };
+
+    /**
+     * CSV写出缓冲区大小
+     */
+    private static final int CSV_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 默认内存行窗口大小
+     */
+    private static final int DEFAULT_EXCEL_ROW_WINDOW = 100;
+
+    /**
+     * 用于估算列宽的采样行数
+     */
+    private static final int COLUMN_WIDTH_SAMPLE_ROWS = 200;
+
+    /**
+     * 列宽上限（字符数）
+     */
+    private static final int MAX_COLUMN_CHARS = 60;
+
+    /**
+     * 数据仓库（JSON文件或嵌入式数据库）
+     */
+    private final PetitionerRepository dataManager;
+
+    /**
+     * Excel导出时内存中保留的行数，超出的行写入临时文件
+     */
+    private int excelRowWindow = DEFAULT_EXCEL_ROW_WINDOW;
 
     /**
      * 默认构造函数
+     * 使用进程内共享的数据仓库（按配置选择存储后端）
      */
     public ExportService() {
-        this.dataManager = new JsonDataManager();
+        this.dataManager = PetitionerRepository.getInstance();
     }
 
     /**
@@ -40,6 +79,15 @@ public class ExportService {
         this.dataManager = new JsonDataManager(dataDirectory);
     }
 
+    /**
+     * 带数据仓库的构造函数
+     *
+     * @param dataManager 数据仓库实例
+     */
+    public ExportService(PetitionerRepository dataManager) {
+        this.dataManager = dataManager;
+    }
+
     /**
      * 导出所有数据到Excel
      *
@@ -54,6 +102,8 @@ public class ExportService {
 
     /**
      * 导出指定数据到Excel
+     * 使用SXSSF流式写出，内存中只保留最近excelRowWindow行；
+     * 列宽按前若干行的字符数估算，不逐个单元格测量字体
      *
      * @param filePath 导出文件路径
      * @param petitioners 要导出的数据列表
@@ -61,22 +111,32 @@ public class ExportService {
      * @throws IOException 文件操作异常
      */
     public int exportToExcel(String filePath, List<Petitioner> petitioners) throws IOException {
-        try (Workbook workbook = new XSSFWorkbook()) {
-            Sheet sheet = workbook.createSheet("上访人员数据");
+        SXSSFWorkbook workbook = new SXSSFWorkbook(excelRowWindow);
+        try {
+            workbook.setCompressTempFiles(true);
+            SXSSFSheet sheet = workbook.createSheet("上访人员数据");
+
+            // 各列采样得到的最大字符宽度
+            int[] columnChars = new int[EXCEL_HEADERS.length];
 
             // 创建表头
-            createExcelHeader(sheet);
+            createExcelHeader(sheet, createHeaderStyle(workbook), columnChars);
 
             // 创建数据行
             int rowNum = 1;
             for (Petitioner p : petitioners) {
-                Row row = sheet.createRow(rowNum++);
+                Row row = sheet.createRow(rowNum);
                 fillExcelRow(row, p);
+                if (rowNum <= COLUMN_WIDTH_SAMPLE_ROWS) {
+                    sampleColumnWidths(row, columnChars);
+                }
+                rowNum++;
             }
 
-            // 自动调整列宽
-            for (int i = 0; i < 16; i++) {
-                sheet.autoSizeColumn(i);
+            // 根据采样结果设置列宽
+            for (int i = 0; i < columnChars.length; i++) {
+                int chars = Math.min(columnChars[i], MAX_COLUMN_CHARS) + 2;
+                sheet.setColumnWidth(i, chars * 256);
             }
 
             // 写入文件
@@ -85,36 +145,105 @@ public class ExportService {
             }
 
             return petitioners.size();
+        } finally {
+            // 删除SXSSF的临时文件
+            workbook.dispose();
+            workbook.close();
         }
     }
 
     /**
-     * 创建Excel表头
+     * 创建表头样式
+     * 每个工作簿只创建一次，所有表头单元格共用
      *
-     * @param sheet Excel工作表
+     * @param workbook 工作簿
+     * @return 表头样式
      */
-    private void createExcelHeader(Sheet sheet) {
-        Row headerRow = sheet.createRow(0);
-
-        // 创建表头样式
-        CellStyle headerStyle = sheet.getWorkbook().createCellStyle();
-        Font headerFont = sheet.getWorkbook().createFont();
+    private CellStyle createHeaderStyle(Workbook workbook) {
+        CellStyle headerStyle = workbook.createCellStyle();
+        Font headerFont = workbook.createFont();
         headerFont.setBold(true);
         headerStyle.setFont(headerFont);
         headerStyle.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
         headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+        return headerStyle;
+    }
 
-        String[] headers = {
-            "姓名", "身份证号", "性别", "籍贯", "学历", "婚姻状态",
-            "联系电话", "职业", "常住地址", "上访次数",
-            "在京关系人", "关系", "诉求内容", "进京方式", "在京通行方式", "危险等级"
-        };
+    /**
+     * 创建Excel表头
+     *
+     * @param sheet Excel工作表
+     * @param headerStyle 表头样式
+     * @param columnChars 各列字符宽度（同时记录表头宽度）
+     */
+    private void createExcelHeader(Sheet sheet, CellStyle headerStyle, int[] columnChars) {
+        Row headerRow = sheet.createRow(0);
 
-        for (int i = 0; i < headers.length; i++) {
+        for (int i = 0; i < EXCEL_HEADERS.length; i++) {
             Cell cell = headerRow.createCell(i);
-            cell.setCellValue(headers[i]);
+            cell.setCellValue(EXCEL_HEADERS[i]);
             cell.setCellStyle(headerStyle);
+            columnChars[i] = displayWidth(EXCEL_HEADERS[i]);
+        }
+    }
+
+    /**
+     * 记录一行中各列的显示宽度
+     *
+     * @param row Excel行
+     * @param columnChars 各列字符宽度
+     */
+    private void sampleColumnWidths(Row row, int[] columnChars) {
+        for (int i = 0; i < columnChars.length; i++) {
+            Cell cell = row.getCell(i);
+            if (cell == null) {
+                continue;
+            }
+            int width = cell.getCellType() == CellType.NUMERIC
+                    ? String.valueOf((long) cell.getNumericCellValue()).length()
+                    : displayWidth(cell.getStringCellValue());
+            columnChars[i] = Math.max(columnChars[i], width);
+        }
+    }
+
+    /**
+     * 估算字符串的显示宽度
+     * 中文等全角字符按两个字符宽度计算
+     *
+     * @param value 字符串
+     * @return 显示宽度（字符数）
+     */
+    private static int displayWidth(String value) {
+        if (value == null) {
+            return 0;
+        }
+        int width = 0;
+        for (int i = 0; i < value.length(); i++) {
+            width += value.charAt(i) < 0x0800 ? 1 : 2;
+        }
+        return width;
+    }
+
+    /**
+     * 获取Excel导出的内存行窗口大小
+     *
+     * @return 行窗口大小
+     */
+    public int getExcelRowWindow() {
+        return excelRowWindow;
+    }
+
+    /**
+     * 设置Excel导出的内存行窗口大小
+     * 窗口越大写出越快，但占用内存越多
+     *
+     * @param excelRowWindow 行窗口大小（至少为1）
+     */
+    public void setExcelRowWindow(int excelRowWindow) {
+        if (excelRowWindow < 1) {
+            throw new IllegalArgumentException("行窗口大小必须大于0");
         }
+        this.excelRowWindow = excelRowWindow;
     }
 
     /**
@@ -171,14 +300,14 @@ public class ExportService {
 
     /**
      * 导出所有数据到CSV
+     * 直接遍历数据管理器的只读快照，不复制整个列表
      *
      * @param filePath 导出文件路径
      * @return 导出的记录数
      * @throws IOException 文件操作异常
      */
     public int exportToCsv(String filePath) throws IOException {
-        List<Petitioner> allData = dataManager.loadAll();
-        return exportToCsv(filePath, allData);
+        return exportToCsv(filePath, dataManager.snapshot());
     }
 
     /**
@@ -190,8 +319,8 @@ public class ExportService {
      * @throws IOException 文件操作异常
      */
     public int exportToCsv(String filePath, List<Petitioner> petitioners) throws IOException {
-        try (OutputStreamWriter writer = new OutputStreamWriter(
-                new FileOutputStream(filePath), StandardCharsets.UTF_8)) {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(filePath), StandardCharsets.UTF_8), CSV_BUFFER_SIZE)) {
 
             // 写入BOM头（让Excel正确识别UTF-8编码）
             writer.write('\uFEFF');
@@ -201,87 +330,124 @@ public class ExportService {
             writer.write("在京关系人,关系,诉求内容,进京方式,在京通行方式,危险等级\n");
 
             // 写入数据行
+            int count = 0;
             for (Petitioner p : petitioners) {
-                writer.write(toCsvRow(p));
-                writer.write("\n");
+                writeCsvRow(writer, p);
+                writer.write('\n');
+                count++;
             }
 
-            return petitioners.size();
+            return count;
         }
     }
 
     /**
-     * 将上访人员对象转换为CSV行
+     * 将上访人员对象作为一行CSV写出
+     * 字段直接写入缓冲区，不为每行构造中间字符串
      *
+     * @param writer 输出
      * @param petitioner 上访人员对象
-     * @return CSV行字符串
+     * @throws IOException 写入异常
      */
-    private String toCsvRow(Petitioner petitioner) {
-        StringBuilder sb = new StringBuilder();
-
+    private void writeCsvRow(Writer writer, Petitioner petitioner) throws IOException {
         // 个人信息
         PersonalInfo info = petitioner.getPersonalInfo();
         if (info != null) {
-            sb.append(csvEscape(info.getName())).append(",");
-            sb.append(csvEscape(info.getIdCard())).append(",");
-            sb.append(csvEscape(info.getGender() != null ? info.getGender().toString() : "")).append(",");
-            sb.append(csvEscape(info.getNativePlace())).append(",");
-            sb.append(csvEscape(info.getEducation() != null ? info.getEducation().toString() : "")).append(",");
-            sb.append(csvEscape(info.getMaritalStatus() != null ? info.getMaritalStatus().toString() : "")).append(",");
-            sb.append(csvEscape(info.getPhones() != null ? String.join(";", info.getPhones()) : "")).append(",");
-            sb.append(csvEscape(info.getOccupation())).append(",");
-            sb.append(csvEscape(info.getHomeAddress())).append(",");
-            sb.append(info.getVisitCount() != null ? info.getVisitCount() : 0).append(",");
+            writeCsvField(writer, info.getName());
+            writeCsvField(writer, info.getIdCard());
+            writeCsvField(writer, info.getGender() != null ? info.getGender().toString() : null);
+            writeCsvField(writer, info.getNativePlace());
+            writeCsvField(writer, info.getEducation() != null ? info.getEducation().toString() : null);
+            writeCsvField(writer, info.getMaritalStatus() != null ? info.getMaritalStatus().toString() : null);
+            writeCsvField(writer, info.getPhones() != null ? String.join(";", info.getPhones()) : null);
+            writeCsvField(writer, info.getOccupation());
+            writeCsvField(writer, info.getHomeAddress());
+            writer.write(Integer.toString(info.getVisitCount() != null ? info.getVisitCount() : 0));
+            writer.write(',');
         } else {
-            sb.append(",,,,,,,,,,");
+            writer.write(",,,,,,,,,,");
         }
 
         // 在京关系人
         BeijingContact contact = petitioner.getBeijingContact();
         if (contact != null) {
-            sb.append(csvEscape(contact.getContactName())).append(",");
-            sb.append(csvEscape(contact.getRelationship())).append(",");
+            writeCsvField(writer, contact.getContactName());
+            writeCsvField(writer, contact.getRelationship());
         } else {
-            sb.append(",,");
+            writer.write(",,");
         }
 
         // 信访案件
         PetitionCase petitionCase = petitioner.getPetitionCase();
         if (petitionCase != null) {
-            sb.append(csvEscape(petitionCase.getPetitionContent())).append(",");
-            sb.append(csvEscape(petitionCase.getEntryMethod() != null ? petitionCase.getEntryMethod().toString() : "")).append(",");
-            sb.append(csvEscape(petitionCase.getTransportInBeijing() != null ? petitionCase.getTransportInBeijing().toString() : "")).append(",");
+            writeCsvField(writer, petitionCase.getPetitionContent());
+            writeCsvField(writer, petitionCase.getEntryMethod() != null ? petitionCase.getEntryMethod().toString() : null);
+            writeCsvField(writer, petitionCase.getTransportInBeijing() != null ? petitionCase.getTransportInBeijing().toString() : null);
         } else {
-            sb.append(",,,");
+            writer.write(",,,");
         }
 
-        // 评估结果
+        // 评估结果（最后一列，不带分隔符）
         RiskAssessment assessment = petitioner.getRiskAssessment();
         if (assessment != null && assessment.getRiskLevel() != null) {
-            sb.append(csvEscape(assessment.getRiskLevel().toString()));
+            writeCsvEscaped(writer, assessment.getRiskLevel().toString());
         }
+    }
 
-        return sb.toString();
+    /**
+     * 写出一个CSV字段及其后的逗号
+     *
+     * @param writer 输出
+     * @param value 原始值
+     * @throws IOException 写入异常
+     */
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        writeCsvEscaped(writer, value);
+        writer.write(',');
     }
 
     /**
-     * CSV字段转义
-     * 处理包含逗号、引号、换行符的字段
+     * CSV字段转义并写出
+     * 包含逗号、引号、换行符的字段用引号包围，并将引号转义为两个引号；
+     * 只扫描一遍：找到第一个特殊字符后从该位置继续逐字符写出
      *
+     * @param writer 输出
      * @param value 原始值
-     * @return 转义后的值
+     * @throws IOException 写入异常
      */
-    private String csvEscape(String value) {
+    private static void writeCsvEscaped(Writer writer, String value) throws IOException {
         if (value == null) {
-            return "";
+            return;
+        }
+
+        int length = value.length();
+        int first = 0;
+        while (first < length && !isCsvSpecial(value.charAt(first))) {
+            first++;
+        }
+
+        if (first == length) {
+            writer.write(value);
+            return;
         }
 
-        // 如果包含逗号、引号或换行符，需要用引号包围，并将引号转义为两个引号
-        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
-            return "\"" + value.replace("\"", "\"\"") + "\"";
+        writer.write('"');
+        writer.write(value, 0, first);
+        for (int i = first; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
         }
+        writer.write('"');
+    }
 
-        return value;
+    /**
+     * 判断字符是否需要引号包围
+     */
+    private static boolean isCsvSpecial(char c) {
+        return c == ',' || c == '"' || c == '\n' || c == '\r';
     }
 
     /**
@@ -1,12 +1,10 @@
 package com.petition.service;
 
 import com.petition.dao.JsonDataManager;
+import com.petition.dao.PetitionerRepository;
 import com.petition.model.*;
 import com.petition.model.enums.*;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.*;
 
@@ -19,9 +17,9 @@ import java.util.*;
  */
 public class ImportService {
     /**
-     * 数据管理器
+     * 数据仓库（JSON文件或嵌入式数据库）
      */
-    private final JsonDataManager dataManager;
+    private final PetitionerRepository dataManager;
 
     /**
      * 上访人员服务（用于数据验证和保存）
@@ -30,9 +28,10 @@ public class ImportService {
 
     /**
      * 默认构造函数
+     * 使用进程内共享的数据仓库（按配置选择存储后端）
      */
     public ImportService() {
-        this.dataManager = new JsonDataManager();
+        this.dataManager = PetitionerRepository.getInstance();
         this.petitionerService = new PetitionerService(dataManager);
     }
 
@@ -46,8 +45,25 @@ public class ImportService {
         this.petitionerService = new PetitionerService(dataManager);
     }
 
+    /**
+     * 带数据仓库的构造函数
+     *
+     * @param dataManager 数据仓库实例
+     */
+    public ImportService(PetitionerRepository dataManager) {
+        this.dataManager = dataManager;
+        this.petitionerService = new PetitionerService(dataManager);
+    }
+
+    /**
+     * Excel导入模板的列数
+     */
+    private static final int COLUMN_COUNT = 16;
+
     /**
      * 从Excel文件导入数据
+     * 以流式方式逐行读取工作表，先解析和校验全部行，按身份证号去重（包括表内重复），
+     * 最后整批一次写入
      *
      * @param filePath Excel文件路径
      * @param skipDuplicates 是否跳过重复数据（true跳过，false报错）
@@ -61,49 +77,61 @@ public class ImportService {
 
         ImportResult result = new ImportResult();
 
-        try (FileInputStream fis = new FileInputStream(filePath);
-             Workbook workbook = new XSSFWorkbook(fis)) {
+        // 待提交的记录及其身份证号（用于检查表内重复）
+        List<Petitioner> batch = new ArrayList<>();
+        Set<String> batchIdCards = new HashSet<>();
 
-            Sheet sheet = workbook.getSheetAt(0);
-            int totalRows = sheet.getLastRowNum();
-
-            // 跳过表头，从第二行开始
-            for (int i = 1; i <= totalRows; i++) {
-                Row row = sheet.getRow(i);
-                if (row == null) {
-                    continue;
+        new ExcelStreamReader(COLUMN_COUNT).read(filePath, new ExcelStreamReader.RowHandler() {
+            @Override
+            public void handleRow(int i, String[] cells) {
+                // 跳过表头，从第二行开始
+                if (i < 1) {
+                    return;
                 }
 
                 try {
                     // 解析行数据
-                    Petitioner petitioner = parseRowData(row);
+                    Petitioner petitioner = parseRowData(cells);
 
                     // 验证数据
                     List<String> errors = validateImportData(petitioner);
                     if (!errors.isEmpty()) {
                         result.addError(i, String.join("; ", errors));
-                        continue;
+                        return;
                     }
 
                     // 检查重复
-                    if (isDuplicate(petitioner)) {
+                    if (batchIdCards.contains(petitioner.getIdCard()) || isDuplicate(petitioner)) {
                         if (skipDuplicates) {
                             result.addSkipped(i, "身份证号已存在: " + petitioner.getIdCard());
-                            continue;
                         } else {
                             result.addError(i, "身份证号已存在: " + petitioner.getIdCard());
-                            continue;
                         }
+                        return;
                     }
 
-                    // 保存数据
-                    petitionerService.addPetitioner(petitioner);
-                    result.incrementSuccess();
+                    // 加入待提交批次
+                    batch.add(petitioner);
+                    batchIdCards.add(petitioner.getIdCard());
 
                 } catch (Exception e) {
                     result.addError(i, "解析失败: " + e.getMessage());
                 }
             }
+
+            @Override
+            public void handleRowError(int i, RuntimeException error) {
+                // 无法解析的单元格只影响所在行，表头除外
+                if (i >= 1) {
+                    result.addError(i, "解析失败: " + error.getMessage());
+                }
+            }
+        });
+
+        // 整批提交，只写一次数据文件
+        petitionerService.addPetitioners(batch);
+        for (int i = 0; i < batch.size(); i++) {
+            result.incrementSuccess();
         }
 
         return result;
@@ -112,32 +140,32 @@ public class ImportService {
     /**
      * 解析Excel行数据为Petitioner对象
      *
-     * @param row Excel行
+     * @param cells 按列排列的单元格值，空单元格为null
      * @return Petitioner对象
      */
-    private Petitioner parseRowData(Row row) {
+    private Petitioner parseRowData(String[] cells) {
         // 个人信息
         PersonalInfo personalInfo = new PersonalInfo();
-        personalInfo.setName(getCellValue(row, 0));
-        personalInfo.setIdCard(getCellValue(row, 1));
-        personalInfo.setGender(parseGender(getCellValue(row, 2)));
-        personalInfo.setNativePlace(getCellValue(row, 3));
-        personalInfo.setEducation(parseEducation(getCellValue(row, 4)));
-        personalInfo.setMaritalStatus(parseMaritalStatus(getCellValue(row, 5)));
+        personalInfo.setName(cells[0]);
+        personalInfo.setIdCard(cells[1]);
+        personalInfo.setGender(parseGender(cells[2]));
+        personalInfo.setNativePlace(cells[3]);
+        personalInfo.setEducation(parseEducation(cells[4]));
+        personalInfo.setMaritalStatus(parseMaritalStatus(cells[5]));
 
         // 联系电话（可能多个，用逗号分隔）
-        String phones = getCellValue(row, 6);
+        String phones = cells[6];
         if (phones != null && !phones.isBlank()) {
             for (String phone : phones.split("[,，]")) {
                 personalInfo.addPhone(phone.trim());
             }
         }
 
-        personalInfo.setOccupation(getCellValue(row, 7));
-        personalInfo.setHomeAddress(getCellValue(row, 8));
+        personalInfo.setOccupation(cells[7]);
+        personalInfo.setHomeAddress(cells[8]);
 
         // 上访次数
-        String visitCountStr = getCellValue(row, 9);
+        String visitCountStr = cells[9];
         if (visitCountStr != null && !visitCountStr.isBlank()) {
             try {
                 personalInfo.setVisitCount(Integer.parseInt(visitCountStr));
@@ -148,48 +176,22 @@ public class ImportService {
 
         // 在京关系人
         BeijingContact beijingContact = new BeijingContact();
-        beijingContact.setContactName(getCellValue(row, 10));
-        beijingContact.setRelationship(getCellValue(row, 11));
+        beijingContact.setContactName(cells[10]);
+        beijingContact.setRelationship(cells[11]);
 
         // 信访案件
         PetitionCase petitionCase = new PetitionCase();
-        petitionCase.setPetitionContent(getCellValue(row, 12));
-        petitionCase.setEntryMethod(parseEntryMethod(getCellValue(row, 13)));
-        petitionCase.setTransportInBeijing(parseTransportMethod(getCellValue(row, 14)));
+        petitionCase.setPetitionContent(cells[12]);
+        petitionCase.setEntryMethod(parseEntryMethod(cells[13]));
+        petitionCase.setTransportInBeijing(parseTransportMethod(cells[14]));
 
         // 评估结果
         RiskAssessment riskAssessment = new RiskAssessment();
-        riskAssessment.setRiskLevel(parseRiskLevel(getCellValue(row, 15)));
+        riskAssessment.setRiskLevel(parseRiskLevel(cells[15]));
 
         return new Petitioner(personalInfo, beijingContact, petitionCase, riskAssessment);
     }
 
-    /**
-     * 获取单元格的字符串值
-     *
-     * @param row Excel行
-     * @param cellIndex 单元格索引
-     * @return 单元格值
-     */
-    private String getCellValue(Row row, int cellIndex) {
-        Cell cell = row.getCell(cellIndex);
-        if (cell == null) {
-            return null;
-        }
-
-        switch (cell.getCellType()) {
-            case STRING:
-                return cell.getStringCellValue().trim();
-            case NUMERIC:
-                // 处理数字类型（可能是身份证号等）
-                return String.valueOf((long) cell.getNumericCellValue());
-            case BOOLEAN:
-                return String.valueOf(cell.getBooleanCellValue());
-            default:
-                return null;
-        }
-    }
-
     /**
      * 解析性别
      */
@@ -292,9 +294,7 @@ public class ImportService {
             return false;
         }
 
-        List<Petitioner> existing = dataManager.loadAll();
-        return existing.stream()
-                .anyMatch(p -> idCard.equals(p.getIdCard()));
+        return dataManager.existsByIdCard(idCard);
     }
 
     /**
@@ -0,0 +1,426 @@
+package com.petition.service;
+
+import com.petition.dao.DataChangeEvent;
+import com.petition.dao.Page;
+import com.petition.dao.SortKey;
+import com.petition.model.Petitioner;
+import com.petition.model.PetitionerSummary;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 实时查询结果页
+ * 保存查询结果的当前一页和满足条件的总数，数据变更后逐条判断事件对本页的影响：
+ * 不改变本页成员和顺序的变更直接改写对应的行（或只调整总数），
+ * 只有可能改变本页内容时（记录跨过页边界、排序位置变化、页前的记录增删）才重新读取本页。
+ * 页内用ID -> 行号索引定位事件对应的行，每个事件O(1)
+ *
+ * <p>读取本页时记录查询所见的数据版本号，版本号不大于它的事件（读取期间合并外部修改发出的事件、
+ * 读取时已在界面线程排队的事件）已反映在本页中，不再重复应用。</p>
+ *
+ * <p>显示的行写入调用方提供的列表（例如表格的数据列表），逐行修改时只改动受影响的行。</p>
+ *
+ * @author 刘一村
+ * @version 1.0.0
+ */
+public class LiveQueryPage {
+    /**
+     * 事件记录相对本页的位置
+     */
+    private enum Position {
+        /**
+         * 排在本页之前
+         */
+        BEFORE,
+
+        /**
+         * 落在本页范围内
+         */
+        INSIDE,
+
+        /**
+         * 接在本页末尾（本页是未满的最后一页）
+         */
+        END,
+
+        /**
+         * 排在本页之后
+         */
+        AFTER,
+
+        /**
+         * 无法确定
+         */
+        UNKNOWN
+    }
+
+    private final QueryService queryService;
+
+    /**
+     * 显示的行（摘要）
+     */
+    private final List<PetitionerSummary> rows;
+
+    /**
+     * 与各行对应的完整记录，用于判断排序位置
+     */
+    private final List<Petitioner> records = new ArrayList<>();
+
+    /**
+     * ID -> 行号
+     */
+    private final Map<String, Integer> rowIndex = new HashMap<>();
+
+    /**
+     * 当前查询，为null表示尚未查询
+     */
+    private CompiledQuery query;
+
+    /**
+     * 查询的排序，为null表示按录入顺序
+     */
+    private Comparator<Petitioner> order;
+
+    private int pageSize;
+
+    /**
+     * 当前页（从0开始）
+     */
+    private int pageIndex;
+
+    /**
+     * 满足条件的记录总数
+     */
+    private int total;
+
+    /**
+     * 本页读取时的数据版本号，数据源不提供版本号时为{@link DataChangeEvent#NO_VERSION}
+     */
+    private long loadedVersion = DataChangeEvent.NO_VERSION;
+
+    /**
+     * 构造函数
+     *
+     * @param queryService 查询服务
+     * @param rows 显示的行，由本对象写入
+     * @param pageSize 每页条数
+     */
+    public LiveQueryPage(QueryService queryService, List<PetitionerSummary> rows, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("每页条数必须大于0");
+        }
+        this.queryService = queryService;
+        this.rows = rows;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * 执行新的查询并读取第一页
+     *
+     * @param query 编译后的查询
+     * @throws IOException 数据读取异常
+     */
+    public void setQuery(CompiledQuery query) throws IOException {
+        this.query = query;
+        this.order = SortKey.comparator(query.getSort());
+        load(0);
+    }
+
+    /**
+     * 修改每页条数并读取第一页
+     *
+     * @param pageSize 每页条数
+     * @throws IOException 数据读取异常
+     */
+    public void setPageSize(int pageSize) throws IOException {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("每页条数必须大于0");
+        }
+        this.pageSize = pageSize;
+        load(0);
+    }
+
+    /**
+     * 读取指定页
+     * 页码超出范围（例如删除了最后一页的记录）时读取最后一页
+     *
+     * @param pageIndex 页码（从0开始）
+     * @throws IOException 数据读取异常
+     */
+    public void load(int pageIndex) throws IOException {
+        if (query == null) {
+            return;
+        }
+        int index = Math.max(0, pageIndex);
+        Page<Petitioner> page = queryService.findPage(query, index * pageSize, pageSize);
+        if (page.getItems().isEmpty() && index > 0 && page.getTotal() > 0) {
+            index = (page.getTotal() - 1) / pageSize;
+            page = queryService.findPage(query, index * pageSize, pageSize);
+        }
+        this.pageIndex = index;
+        this.total = page.getTotal();
+        this.loadedVersion = page.getVersion();
+
+        records.clear();
+        records.addAll(page.getItems());
+        List<PetitionerSummary> summaries = new ArrayList<>(records.size());
+        for (Petitioner petitioner : records) {
+            summaries.add(PetitionerSummary.of(petitioner));
+        }
+        rows.clear();
+        rows.addAll(summaries);
+        rowIndex.clear();
+        reindex(0);
+    }
+
+    /**
+     * 清空查询和结果
+     */
+    public void clear() {
+        query = null;
+        order = null;
+        pageIndex = 0;
+        total = 0;
+        loadedVersion = DataChangeEvent.NO_VERSION;
+        records.clear();
+        rows.clear();
+        rowIndex.clear();
+    }
+
+    /**
+     * 应用一批数据变更
+     * 逐条判断事件：已反映在本页中的跳过，与结果无关的忽略，不改变本页成员和顺序的直接改写行或调整总数；
+     * 遇到可能改变本页内容的事件时重新读取本页，之后只处理读取后才发生的事件
+     * （数据源不提供版本号时认为重新读取已反映整批变更）
+     *
+     * @param events 按发生顺序排列的变更事件
+     * @return 是否重新读取了本页
+     * @throws IOException 数据读取异常
+     */
+    public boolean apply(List<DataChangeEvent> events) throws IOException {
+        if (query == null) {
+            return false;
+        }
+        boolean reloaded = false;
+        for (DataChangeEvent event : events) {
+            if (isReflected(event)) {
+                continue;
+            }
+            if (!applyEvent(event)) {
+                load(pageIndex);
+                reloaded = true;
+                if (loadedVersion == DataChangeEvent.NO_VERSION) {
+                    return true;
+                }
+            }
+        }
+        return reloaded;
+    }
+
+    /**
+     * 事件是否已反映在本页读取的数据中
+     */
+    private boolean isReflected(DataChangeEvent event) {
+        long version = event.getVersion();
+        return version != DataChangeEvent.NO_VERSION && version <= loadedVersion;
+    }
+
+    /**
+     * 应用单个事件
+     *
+     * @return 已应用时返回true，需要重新读取本页时返回false
+     */
+    private boolean applyEvent(DataChangeEvent event) {
+        if (event.getType() == DataChangeEvent.Type.RELOADED) {
+            return false;
+        }
+        Petitioner before = event.getBefore();
+        Petitioner after = event.getAfter();
+        boolean matchedBefore = before != null && query.matches(before);
+        boolean matchesAfter = after != null && query.matches(after);
+
+        Integer row = rowIndex.get(event.getId());
+        if (row != null) {
+            if (!matchesAfter) {
+                // 离开结果：只有最后一页可以直接删除该行，否则需要从下一页补上一条
+                if (!isLastPage() || (records.size() == 1 && pageIndex > 0)) {
+                    return false;
+                }
+                removeRow(row);
+                total--;
+                return true;
+            }
+            if (!staysInPlace(row, after)) {
+                return false;
+            }
+            records.set(row, after);
+            rows.set(row, PetitionerSummary.of(after));
+            return true;
+        }
+
+        if (!matchedBefore && !matchesAfter) {
+            // 与查询结果无关
+            return true;
+        }
+        if (matchedBefore && matchesAfter) {
+            if (order == null) {
+                // 按录入顺序时修改不改变位置
+                return true;
+            }
+            Position from = positionOfExisting(before);
+            return from == positionOfExisting(after) && (from == Position.BEFORE || from == Position.AFTER);
+        }
+        if (matchesAfter) {
+            Position to = event.getType() == DataChangeEvent.Type.ADDED
+                    ? positionOfNew(after) : order != null ? positionOfExisting(after) : Position.UNKNOWN;
+            if (to == Position.END) {
+                appendRow(after);
+                total++;
+                return true;
+            }
+            if (to == Position.AFTER) {
+                total++;
+                return true;
+            }
+            return false;
+        }
+        // 不在本页的记录离开结果
+        Position from = order != null ? positionOfExisting(before) : pageIndex == 0 ? Position.AFTER : Position.UNKNOWN;
+        if (from == Position.AFTER) {
+            total--;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 本页内的记录修改后是否仍留在原位
+     * 排序值不变，或仍严格位于前后两行之间（首行、末行还要求不会移出本页）
+     */
+    private boolean staysInPlace(int row, Petitioner after) {
+        if (order == null) {
+            return true;
+        }
+        int change = order.compare(after, records.get(row));
+        if (change == 0) {
+            return true;
+        }
+        if (row > 0) {
+            if (order.compare(records.get(row - 1), after) >= 0) {
+                return false;
+            }
+        } else if (pageIndex > 0 && change < 0) {
+            return false;
+        }
+        if (row < records.size() - 1) {
+            return order.compare(after, records.get(row + 1)) < 0;
+        }
+        return isLastPage() || change < 0;
+    }
+
+    /**
+     * 新增记录的位置：按录入顺序时排在全部结果最后，排序时按排序值比较
+     */
+    private Position positionOfNew(Petitioner petitioner) {
+        if (order != null) {
+            return positionOfExisting(petitioner);
+        }
+        return isLastPage() && records.size() < pageSize ? Position.END : Position.AFTER;
+    }
+
+    /**
+     * 按排序值判断记录相对本页的位置，与本页首行或末行排序值相同时无法确定
+     */
+    private Position positionOfExisting(Petitioner petitioner) {
+        if (records.isEmpty()) {
+            return pageIndex == 0 ? Position.END : Position.UNKNOWN;
+        }
+        int first = order.compare(petitioner, records.get(0));
+        if (first < 0) {
+            return pageIndex == 0 ? Position.INSIDE : Position.BEFORE;
+        }
+        int last = order.compare(petitioner, records.get(records.size() - 1));
+        if (last > 0) {
+            return isLastPage() && records.size() < pageSize ? Position.END : Position.AFTER;
+        }
+        return first == 0 || last == 0 ? Position.UNKNOWN : Position.INSIDE;
+    }
+
+    /**
+     * 本页之后是否没有其他结果
+     */
+    private boolean isLastPage() {
+        return pageIndex * pageSize + records.size() >= total;
+    }
+
+    private void appendRow(Petitioner petitioner) {
+        rowIndex.put(petitioner.getId(), records.size());
+        records.add(petitioner);
+        rows.add(PetitionerSummary.of(petitioner));
+    }
+
+    private void removeRow(int row) {
+        rowIndex.remove(records.remove(row).getId());
+        rows.remove(row);
+        reindex(row);
+    }
+
+    /**
+     * 重新登记从指定行开始的行号
+     */
+    private void reindex(int from) {
+        for (int i = from; i < records.size(); i++) {
+            rowIndex.put(records.get(i).getId(), i);
+        }
+    }
+
+    /**
+     * 查找记录在本页中的行号
+     *
+     * @param id 上访人员ID
+     * @return 行号，不在本页时返回-1
+     */
+    public int indexOf(String id) {
+        Integer row = rowIndex.get(id);
+        return row != null ? row : -1;
+    }
+
+    /**
+     * 是否已执行查询
+     *
+     * @return 已执行查询时返回true
+     */
+    public boolean hasQuery() {
+        return query != null;
+    }
+
+    public CompiledQuery getQuery() {
+        return query;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public int getPageIndex() {
+        return pageIndex;
+    }
+
+    /**
+     * 获取总页数（没有结果时为1）
+     *
+     * @return 总页数
+     */
+    public int getPageCount() {
+        return Math.max(1, (total + pageSize - 1) / pageSize);
+    }
+
+    public int getTotal() {
+        return total;
+    }
+}
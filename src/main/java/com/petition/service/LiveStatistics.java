@@ -0,0 +1,168 @@
+package com.petition.service;
+
+import com.petition.dao.DataChangeEvent;
+import com.petition.dao.DataChangeListener;
+import com.petition.dao.JsonDataManager;
+import com.petition.model.Petitioner;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 实时统计
+ * 订阅数据管理器的变更通知，每次新增、修改、删除只按该记录增减计数（O(1)），
+ * 读取统计时直接返回缓存的快照，不再扫描全部数据。
+ * 首次读取或数据整体重新加载后做一次全量统计。
+ *
+ * @author 刘一村
+ * @version 1.0.0
+ */
+public class LiveStatistics implements DataChangeListener {
+    /**
+     * 共享数据管理器对应的实时统计
+     */
+    private static volatile LiveStatistics instance;
+
+    /**
+     * 获取共享数据管理器对应的实时统计
+     * 共享数据管理器被关闭并重新创建后，实时统计随之重建
+     *
+     * @return 共享实例
+     */
+    public static LiveStatistics getInstance() {
+        JsonDataManager manager = JsonDataManager.getInstance();
+        LiveStatistics current = instance;
+        if (current == null || current.dataManager != manager) {
+            synchronized (LiveStatistics.class) {
+                current = instance;
+                if (current == null || current.dataManager != manager) {
+                    if (current != null) {
+                        current.close();
+                    }
+                    current = new LiveStatistics(manager);
+                    instance = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 数据管理器
+     */
+    private final JsonDataManager dataManager;
+
+    /**
+     * 计数器，为null表示需要全量重建
+     */
+    private StatisticsAccumulator accumulator;
+
+    /**
+     * 各记录上一次计入统计时的取值（ID -> 统计贡献），修改时据此扣除旧值
+     */
+    private final Map<String, StatisticsAccumulator.Contribution> contributions = new HashMap<>();
+
+    /**
+     * 最近生成的快照，计数变化后置为null
+     */
+    private StatisticsSnapshot current;
+
+    /**
+     * 构造函数
+     * 注册到数据管理器，统计在首次读取时建立
+     *
+     * @param dataManager 数据管理器
+     */
+    public LiveStatistics(JsonDataManager dataManager) {
+        this.dataManager = dataManager;
+        dataManager.addChangeListener(this);
+    }
+
+    /**
+     * 获取当前统计快照
+     * 计数未变化时返回同一个快照对象
+     *
+     * @return 统计快照
+     * @throws IOException 数据读取异常
+     */
+    public StatisticsSnapshot getStatistics() throws IOException {
+        // 与变更通知相同的加锁顺序：先数据管理器，后本对象
+        synchronized (dataManager) {
+            // 校验数据文件是否被外部修改，修改时会收到RELOADED通知
+            List<Petitioner> data = dataManager.snapshot();
+            synchronized (this) {
+                if (accumulator == null) {
+                    rebuild(data);
+                }
+                if (current == null) {
+                    current = accumulator.snapshot();
+                }
+                return current;
+            }
+        }
+    }
+
+    /**
+     * 停止接收变更通知
+     */
+    public void close() {
+        dataManager.removeChangeListener(this);
+        synchronized (this) {
+            reset();
+        }
+    }
+
+    @Override
+    public synchronized void onDataChanged(DataChangeEvent event) {
+        if (event.getType() == DataChangeEvent.Type.RELOADED) {
+            reset();
+            return;
+        }
+        if (accumulator == null) {
+            // 尚未建立统计，首次读取时全量计算
+            return;
+        }
+
+        // 先扣除该记录上一次计入的取值
+        StatisticsAccumulator.Contribution old = contributions.remove(event.getId());
+        if (old != null) {
+            accumulator.remove(old);
+        }
+
+        if (event.getAfter() != null) {
+            StatisticsAccumulator.Contribution contribution =
+                    StatisticsAccumulator.Contribution.of(event.getAfter());
+            contributions.put(event.getId(), contribution);
+            accumulator.add(contribution);
+        }
+        current = null;
+    }
+
+    /**
+     * 全量统计
+     */
+    private void rebuild(List<Petitioner> data) {
+        accumulator = new StatisticsAccumulator();
+        contributions.clear();
+        for (Petitioner p : data) {
+            StatisticsAccumulator.Contribution contribution = StatisticsAccumulator.Contribution.of(p);
+            StatisticsAccumulator.Contribution old = contributions.put(p.getId(), contribution);
+            if (old != null) {
+                accumulator.remove(old);
+            }
+            accumulator.add(contribution);
+        }
+        current = null;
+    }
+
+    /**
+     * 丢弃增量状态
+     */
+    private void reset() {
+        accumulator = null;
+        contributions.clear();
+        current = null;
+    }
+}
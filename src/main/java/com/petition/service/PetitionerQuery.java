@@ -0,0 +1,211 @@
+package com.petition.service;
+
+import com.petition.dao.SortKey;
+import com.petition.model.enums.Education;
+import com.petition.model.enums.EntryMethod;
+import com.petition.model.enums.Gender;
+import com.petition.model.enums.MaritalStatus;
+import com.petition.model.enums.RiskLevel;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 上访人员查询
+ * 人员列表、高级查询页面和{@link QueryService.QueryCriteria}共用的查询条件，
+ * 各条件之间为“且”关系，未设置的条件不参与过滤。
+ * 文本条件在设置时去掉首尾空白（空白视为未设置），使用前调用{@link #compile()}编译
+ *
+ * @author 刘一村
+ * @version 1.0.0
+ */
+public class PetitionerQuery {
+    /**
+     * 姓名包含
+     */
+    private String name;
+
+    /**
+     * 身份证号包含
+     */
+    private String idCard;
+
+    /**
+     * 籍贯等于
+     */
+    private String nativePlace;
+
+    /**
+     * 籍贯包含
+     */
+    private String nativePlaceKeyword;
+
+    /**
+     * 危险等级属于（为空表示不限）
+     */
+    private Set<RiskLevel> riskLevels;
+
+    /**
+     * 性别属于（为空表示不限）
+     */
+    private Set<Gender> genders;
+
+    /**
+     * 文化程度属于（为空表示不限）
+     */
+    private Set<Education> educations;
+
+    /**
+     * 婚姻状况属于（为空表示不限）
+     */
+    private Set<MaritalStatus> maritalStatuses;
+
+    /**
+     * 进京方式属于（为空表示不限）
+     */
+    private Set<EntryMethod> entryMethods;
+
+    /**
+     * 上访次数下限（含）
+     */
+    private Integer minVisitCount;
+
+    /**
+     * 上访次数上限（含）
+     */
+    private Integer maxVisitCount;
+
+    /**
+     * 排序条件（为空表示按录入顺序）
+     */
+    private List<SortKey> sort = List.of();
+
+    /**
+     * 编译查询
+     * 判断链按估计的选择度和判断代价排序，之后修改本对象不影响已编译的查询
+     *
+     * @return 编译后的查询
+     */
+    public CompiledQuery compile() {
+        return new CompiledQuery(this);
+    }
+
+    /**
+     * 空白字符串视为未设置
+     */
+    private static String normalize(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    /**
+     * 空集合视为不限
+     */
+    private static <E extends Enum<E>> Set<E> toSet(Collection<E> values, Class<E> type) {
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        Set<E> set = EnumSet.noneOf(type);
+        set.addAll(values);
+        return set;
+    }
+
+    // Getters and Setters
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = normalize(name);
+    }
+
+    public String getIdCard() {
+        return idCard;
+    }
+
+    public void setIdCard(String idCard) {
+        this.idCard = normalize(idCard);
+    }
+
+    public String getNativePlace() {
+        return nativePlace;
+    }
+
+    public void setNativePlace(String nativePlace) {
+        this.nativePlace = normalize(nativePlace);
+    }
+
+    public String getNativePlaceKeyword() {
+        return nativePlaceKeyword;
+    }
+
+    public void setNativePlaceKeyword(String nativePlaceKeyword) {
+        this.nativePlaceKeyword = normalize(nativePlaceKeyword);
+    }
+
+    public Set<RiskLevel> getRiskLevels() {
+        return riskLevels;
+    }
+
+    public void setRiskLevels(Collection<RiskLevel> riskLevels) {
+        this.riskLevels = toSet(riskLevels, RiskLevel.class);
+    }
+
+    public Set<Gender> getGenders() {
+        return genders;
+    }
+
+    public void setGenders(Collection<Gender> genders) {
+        this.genders = toSet(genders, Gender.class);
+    }
+
+    public Set<Education> getEducations() {
+        return educations;
+    }
+
+    public void setEducations(Collection<Education> educations) {
+        this.educations = toSet(educations, Education.class);
+    }
+
+    public Set<MaritalStatus> getMaritalStatuses() {
+        return maritalStatuses;
+    }
+
+    public void setMaritalStatuses(Collection<MaritalStatus> maritalStatuses) {
+        this.maritalStatuses = toSet(maritalStatuses, MaritalStatus.class);
+    }
+
+    public Set<EntryMethod> getEntryMethods() {
+        return entryMethods;
+    }
+
+    public void setEntryMethods(Collection<EntryMethod> entryMethods) {
+        this.entryMethods = toSet(entryMethods, EntryMethod.class);
+    }
+
+    public Integer getMinVisitCount() {
+        return minVisitCount;
+    }
+
+    public void setMinVisitCount(Integer minVisitCount) {
+        this.minVisitCount = minVisitCount;
+    }
+
+    public Integer getMaxVisitCount() {
+        return maxVisitCount;
+    }
+
+    public void setMaxVisitCount(Integer maxVisitCount) {
+        this.maxVisitCount = maxVisitCount;
+    }
+
+    public List<SortKey> getSort() {
+        return sort;
+    }
+
+    public void setSort(List<SortKey> sort) {
+        this.sort = sort != null ? List.copyOf(sort) : List.of();
+    }
+}
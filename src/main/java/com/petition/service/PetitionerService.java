@@ -1,11 +1,16 @@
 package com.petition.service;
 
+import com.petition.dao.DataChangeListener;
 import com.petition.dao.JsonDataManager;
+import com.petition.dao.PetitionerRepository;
 import com.petition.model.Petitioner;
+import com.petition.model.PetitionerSummary;
 
 import java.io.IOException;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * 上访人员管理服务
@@ -16,15 +21,16 @@ import java.util.Optional;
  */
 public class PetitionerService {
     /**
-     * 数据管理器
+     * 数据仓库（JSON文件或嵌入式数据库）
      */
-    private final JsonDataManager dataManager;
+    private final PetitionerRepository dataManager;
 
     /**
      * 默认构造函数
+     * 使用进程内共享的数据仓库（按配置选择存储后端）
      */
     public PetitionerService() {
-        this.dataManager = new JsonDataManager();
+        this.dataManager = PetitionerRepository.getInstance();
     }
 
     /**
@@ -37,11 +43,11 @@ public class PetitionerService {
     }
 
     /**
-     * 带数据管理器的构造函数
+     * 带数据仓库的构造函数
      *
-     * @param dataManager 数据管理器实例
+     * @param dataManager 数据仓库实例
      */
-    public PetitionerService(JsonDataManager dataManager) {
+    public PetitionerService(PetitionerRepository dataManager) {
         this.dataManager = dataManager;
     }
 
@@ -55,6 +61,17 @@ public class PetitionerService {
         return dataManager.loadAll();
     }
 
+    /**
+     * 获取所有上访人员的摘要
+     * 列表和查询页面只显示少量字段，使用摘要代替完整记录
+     *
+     * @return 摘要列表
+     * @throws IOException 数据读取异常
+     */
+    public List<PetitionerSummary> getAllSummaries() throws IOException {
+        return dataManager.summaries();
+    }
+
     /**
      * 根据ID获取上访人员
      *
@@ -67,7 +84,7 @@ public class PetitionerService {
 
     /**
      * 添加上访人员
-     * 自动加载最新数据，添加新人员，然后保存
+     * 通过身份证号索引检查重复，然后保存
      *
      * @param petitioner 上访人员对象
      * @throws IOException 数据操作异常
@@ -81,18 +98,45 @@ public class PetitionerService {
         validatePetitioner(petitioner);
 
         // 检查身份证号是否已存在
-        dataManager.loadAll();
         String idCard = petitioner.getIdCard();
-        if (idCard != null) {
-            boolean exists = dataManager.loadAll().stream()
-                    .anyMatch(p -> idCard.equals(p.getIdCard()));
-            if (exists) {
+        if (dataManager.existsByIdCard(idCard)) {
+            throw new IllegalArgumentException("身份证号已存在: " + idCard);
+        }
+
+        // 保存数据
+        dataManager.save(petitioner);
+    }
+
+    /**
+     * 批量添加上访人员
+     * 全部通过校验和查重后作为一个批次写入，任一记录不合法则整批不写入
+     *
+     * @param petitioners 上访人员列表
+     * @throws IOException 数据操作异常
+     */
+    public void addPetitioners(List<Petitioner> petitioners) throws IOException {
+        if (petitioners == null || petitioners.isEmpty()) {
+            return;
+        }
+
+        Set<String> batchIdCards = new HashSet<>();
+        for (Petitioner petitioner : petitioners) {
+            if (petitioner == null) {
+                throw new IllegalArgumentException("上访人员对象不能为null");
+            }
+
+            // 验证必填字段
+            validatePetitioner(petitioner);
+
+            // 检查身份证号是否已存在（包括同一批次内的重复）
+            String idCard = petitioner.getIdCard();
+            if (!batchIdCards.add(idCard) || dataManager.existsByIdCard(idCard)) {
                 throw new IllegalArgumentException("身份证号已存在: " + idCard);
             }
         }
 
         // 保存数据
-        dataManager.save(petitioner);
+        dataManager.saveBatch(petitioners);
     }
 
     /**
@@ -161,6 +205,25 @@ public class PetitionerService {
         return dataManager.count();
     }
 
+    /**
+     * 注册数据变更监听器
+     * 新增、修改、删除后按记录通知，界面据此增量更新而不必重新加载全部数据
+     *
+     * @param listener 监听器
+     */
+    public void addChangeListener(DataChangeListener listener) {
+        dataManager.addChangeListener(listener);
+    }
+
+    /**
+     * 移除数据变更监听器
+     *
+     * @param listener 监听器
+     */
+    public void removeChangeListener(DataChangeListener listener) {
+        dataManager.removeChangeListener(listener);
+    }
+
     /**
      * 验证上访人员必填字段
      *
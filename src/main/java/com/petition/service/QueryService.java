@@ -1,11 +1,18 @@
 package com.petition.service;
 
+import com.petition.dao.FacetField;
 import com.petition.dao.JsonDataManager;
+import com.petition.dao.Page;
+import com.petition.dao.PetitionerFilter;
+import com.petition.dao.PetitionerRepository;
 import com.petition.model.Petitioner;
+import com.petition.model.PetitionerSummary;
 import com.petition.model.enums.RiskLevel;
 
 import java.io.IOException;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -17,15 +24,16 @@ import java.util.stream.Collectors;
  */
 public class QueryService {
     /**
-     * 数据管理器
+     * 数据仓库（JSON文件或嵌入式数据库）
      */
-    private final JsonDataManager dataManager;
+    private final PetitionerRepository dataManager;
 
     /**
      * 默认构造函数
+     * 使用进程内共享的数据仓库（按配置选择存储后端）
      */
     public QueryService() {
-        this.dataManager = new JsonDataManager();
+        this.dataManager = PetitionerRepository.getInstance();
     }
 
     /**
@@ -38,11 +46,11 @@ public class QueryService {
     }
 
     /**
-     * 带数据管理器的构造函数
+     * 带数据仓库的构造函数
      *
-     * @param dataManager 数据管理器实例
+     * @param dataManager 数据仓库实例
      */
-    public QueryService(JsonDataManager dataManager) {
+    public QueryService(PetitionerRepository dataManager) {
         this.dataManager = dataManager;
     }
 
@@ -59,64 +67,86 @@ public class QueryService {
             return List.of();
         }
 
-        String searchKey = keyword.trim().toLowerCase();
-        List<Petitioner> allData = dataManager.loadAll();
-
-        return allData.stream()
-                .filter(p -> matchesKeyword(p, searchKey))
-                .collect(Collectors.toList());
+        PetitionerFilter filter = new PetitionerFilter();
+        filter.setKeyword(keyword);
+        return dataManager.find(filter);
     }
 
     /**
-     * 判断上访人员是否匹配搜索关键词
+     * 高级查询
+     * 支持多条件组合查询，数据库存储时条件在库内执行
      *
-     * @param petitioner 上访人员
-     * @param keyword 关键词（小写）
-     * @return 是否匹配
+     * @param criteria 查询条件
+     * @return 匹配的上访人员列表
+     * @throws IOException 数据读取异常
      */
-    private boolean matchesKeyword(Petitioner petitioner, String keyword) {
-        // 搜索姓名
-        if (petitioner.getName() != null &&
-            petitioner.getName().toLowerCase().contains(keyword)) {
-            return true;
+    public List<Petitioner> advancedQuery(QueryCriteria criteria) throws IOException {
+        if (criteria == null) {
+            return dataManager.loadAll();
         }
 
-        // 搜索身份证号
-        if (petitioner.getIdCard() != null &&
-            petitioner.getIdCard().toLowerCase().contains(keyword)) {
-            return true;
-        }
+        return dataManager.find(criteria.toFilter());
+    }
 
-        // 搜索手机号
-        if (petitioner.getPersonalInfo() != null &&
-            petitioner.getPersonalInfo().getPhones() != null) {
-            for (String phone : petitioner.getPersonalInfo().getPhones()) {
-                if (phone != null && phone.contains(keyword)) {
-                    return true;
-                }
-            }
+    /**
+     * 执行编译后的查询
+     * 条件交给数据仓库执行，JSON存储用检索索引取候选记录，数据库存储在库内执行
+     *
+     * @param query 编译后的查询
+     * @return 匹配记录的摘要，顺序与loadAll()一致
+     * @throws IOException 数据读取异常
+     */
+    public List<PetitionerSummary> query(CompiledQuery query) throws IOException {
+        if (query.isEmpty()) {
+            return dataManager.summaries();
         }
-
-        return false;
+        return dataManager.find(query.toFilter()).stream()
+                .map(PetitionerSummary::of)
+                .collect(Collectors.toList());
     }
 
     /**
-     * 高级查询
-     * 支持多条件组合查询
+     * 取出编译后查询的全部完整记录（导出等需要全部字段的场合）
      *
-     * @param criteria 查询条件
-     * @return 匹配的上访人员列表
+     * @param query 编译后的查询
+     * @return 匹配的上访人员列表，按查询的排序条件排列，没有排序条件时顺序与loadAll()一致
      * @throws IOException 数据读取异常
      */
-    public List<Petitioner> advancedQuery(QueryCriteria criteria) throws IOException {
-        if (criteria == null) {
-            return dataManager.loadAll();
+    public List<Petitioner> findAll(CompiledQuery query) throws IOException {
+        PetitionerFilter filter = query.isEmpty() ? null : query.toFilter();
+        if (!query.getSort().isEmpty()) {
+            return dataManager.findPage(filter, query.getSort(), 0, Integer.MAX_VALUE).getItems();
         }
+        return filter == null ? dataManager.loadAll() : dataManager.find(filter);
+    }
 
-        List<Petitioner> allData = dataManager.loadAll();
-        return allData.stream()
-                .filter(criteria::matches)
-                .collect(Collectors.toList());
+    /**
+     * 分页执行编译后的查询
+     * 按查询的排序条件取出一页并返回满足条件的总数，不取出全部结果：
+     * 内存存储用容量为offset + limit的堆选出本页，数据库存储用ORDER BY和LIMIT在库内分页
+     *
+     * @param query 编译后的查询
+     * @param offset 跳过的记录数
+     * @param limit 每页条数
+     * @return 本页摘要和总数
+     * @throws IOException 数据读取异常
+     */
+    public Page<PetitionerSummary> query(CompiledQuery query, int offset, int limit) throws IOException {
+        return findPage(query, offset, limit).map(PetitionerSummary::of);
+    }
+
+    /**
+     * 分页执行编译后的查询，返回完整记录
+     *
+     * @param query 编译后的查询
+     * @param offset 跳过的记录数
+     * @param limit 每页条数
+     * @return 本页记录和总数
+     * @throws IOException 数据读取异常
+     */
+    public Page<Petitioner> findPage(CompiledQuery query, int offset, int limit) throws IOException {
+        PetitionerFilter filter = query.isEmpty() ? null : query.toFilter();
+        return dataManager.findPage(filter, query.getSort(), offset, limit);
     }
 
     /**
@@ -131,11 +161,9 @@ public class QueryService {
             return dataManager.loadAll();
         }
 
-        List<Petitioner> allData = dataManager.loadAll();
-        return allData.stream()
-                .filter(p -> p.getRiskAssessment() != null &&
-                            riskLevel.equals(p.getRiskAssessment().getRiskLevel()))
-                .collect(Collectors.toList());
+        PetitionerFilter filter = new PetitionerFilter();
+        filter.setRiskLevels(List.of(riskLevel));
+        return dataManager.find(filter);
     }
 
     /**
@@ -147,23 +175,10 @@ public class QueryService {
      * @throws IOException 数据读取异常
      */
     public List<Petitioner> filterByVisitCount(int minCount, Integer maxCount) throws IOException {
-        List<Petitioner> allData = dataManager.loadAll();
-
-        return allData.stream()
-                .filter(p -> {
-                    if (p.getPersonalInfo() == null ||
-                        p.getPersonalInfo().getVisitCount() == null) {
-                        return false;
-                    }
-
-                    int count = p.getPersonalInfo().getVisitCount();
-                    if (count < minCount) {
-                        return false;
-                    }
-
-                    return maxCount == null || count <= maxCount;
-                })
-                .collect(Collectors.toList());
+        PetitionerFilter filter = new PetitionerFilter();
+        filter.setMinVisitCount(minCount);
+        filter.setMaxVisitCount(maxCount);
+        return dataManager.find(filter);
     }
 
     /**
@@ -174,11 +189,9 @@ public class QueryService {
      * @throws IOException 数据读取异常
      */
     public List<Petitioner> getHighRiskPetitioners() throws IOException {
-        List<Petitioner> allData = dataManager.loadAll();
-
-        return allData.stream()
-                .filter(Petitioner::isHighRisk)
-                .collect(Collectors.toList());
+        PetitionerFilter filter = new PetitionerFilter();
+        filter.setRiskLevels(EnumSet.of(RiskLevel.HIGH, RiskLevel.CRITICAL));
+        return dataManager.find(filter);
     }
 
     /**
@@ -193,13 +206,22 @@ public class QueryService {
             return List.of();
         }
 
-        List<Petitioner> allData = dataManager.loadAll();
-        String searchPlace = nativePlace.trim();
+        PetitionerFilter filter = new PetitionerFilter();
+        filter.setNativePlace(nativePlace);
+        return dataManager.find(filter);
+    }
 
-        return allData.stream()
-                .filter(p -> p.getPersonalInfo() != null &&
-                            searchPlace.equals(p.getPersonalInfo().getNativePlace()))
-                .collect(Collectors.toList());
+    /**
+     * 分组计数
+     * 统计性别、文化程度、婚姻状况、进京方式、在京交通方式、危险等级各取值的记录数，
+     * 某个字段的计数不受该字段自身条件限制，用于在筛选界面显示各选项的结果数
+     *
+     * @param filter 查询条件（可以为null）
+     * @return 字段 -> 取值（按声明顺序）-> 记录数
+     * @throws IOException 数据读取异常
+     */
+    public Map<FacetField, Map<Enum<?>, Integer>> facetCounts(PetitionerFilter filter) throws IOException {
+        return dataManager.facetCounts(filter);
     }
 
     /**
@@ -214,6 +236,11 @@ public class QueryService {
         private Integer maxVisitCount;
         private String nativePlace;
 
+        /**
+         * 编译后的查询，首次使用时编译，修改任一条件后置为null
+         */
+        private CompiledQuery compiled;
+
         public QueryCriteria() {
         }
 
@@ -224,55 +251,44 @@ public class QueryService {
          * @return 是否匹配
          */
         public boolean matches(Petitioner petitioner) {
-            // 姓名匹配
-            if (name != null && !name.isBlank()) {
-                if (petitioner.getName() == null ||
-                    !petitioner.getName().contains(name.trim())) {
-                    return false;
-                }
-            }
-
-            // 身份证号匹配
-            if (idCard != null && !idCard.isBlank()) {
-                if (petitioner.getIdCard() == null ||
-                    !petitioner.getIdCard().contains(idCard.trim())) {
-                    return false;
-                }
-            }
+            return compiled().matches(petitioner);
+        }
 
-            // 危险等级匹配
-            if (riskLevel != null) {
-                if (petitioner.getRiskAssessment() == null ||
-                    !riskLevel.equals(petitioner.getRiskAssessment().getRiskLevel())) {
-                    return false;
-                }
-            }
+        /**
+         * 转换为数据仓库的查询条件
+         *
+         * @return 查询条件
+         */
+        public PetitionerFilter toFilter() {
+            return compiled().toFilter();
+        }
 
-            // 上访次数匹配
-            if (minVisitCount != null || maxVisitCount != null) {
-                if (petitioner.getPersonalInfo() == null ||
-                    petitioner.getPersonalInfo().getVisitCount() == null) {
-                    return false;
-                }
-
-                int count = petitioner.getPersonalInfo().getVisitCount();
-                if (minVisitCount != null && count < minVisitCount) {
-                    return false;
-                }
-                if (maxVisitCount != null && count > maxVisitCount) {
-                    return false;
-                }
+        /**
+         * 获取编译后的查询，条件未修改时复用上一次的编译结果
+         */
+        private CompiledQuery compiled() {
+            if (compiled == null) {
+                compiled = toQuery().compile();
             }
+            return compiled;
+        }
 
-            // 籍贯匹配
-            if (nativePlace != null && !nativePlace.isBlank()) {
-                if (petitioner.getPersonalInfo() == null ||
-                    !nativePlace.trim().equals(petitioner.getPersonalInfo().getNativePlace())) {
-                    return false;
-                }
+        /**
+         * 转换为统一的查询模型
+         *
+         * @return 查询条件
+         */
+        public PetitionerQuery toQuery() {
+            PetitionerQuery query = new PetitionerQuery();
+            query.setName(name);
+            query.setIdCard(idCard);
+            if (riskLevel != null) {
+                query.setRiskLevels(List.of(riskLevel));
             }
-
-            return true;
+            query.setMinVisitCount(minVisitCount);
+            query.setMaxVisitCount(maxVisitCount);
+            query.setNativePlace(nativePlace);
+            return query;
         }
 
         // Getters and Setters
@@ -283,6 +299,7 @@ public class QueryService {
 
         public void setName(String name) {
             this.name = name;
+            compiled = null;
         }
 
         public String getIdCard() {
@@ -291,6 +308,7 @@ public class QueryService {
 
         public void setIdCard(String idCard) {
             this.idCard = idCard;
+            compiled = null;
         }
 
         public RiskLevel getRiskLevel() {
@@ -299,6 +317,7 @@ public class QueryService {
 
         public void setRiskLevel(RiskLevel riskLevel) {
             this.riskLevel = riskLevel;
+            compiled = null;
         }
 
         public Integer getMinVisitCount() {
@@ -307,6 +326,7 @@ public class QueryService {
 
         public void setMinVisitCount(Integer minVisitCount) {
             this.minVisitCount = minVisitCount;
+            compiled = null;
         }
 
         public Integer getMaxVisitCount() {
@@ -315,6 +335,7 @@ public class QueryService {
 
         public void setMaxVisitCount(Integer maxVisitCount) {
             this.maxVisitCount = maxVisitCount;
+            compiled = null;
         }
 
         public String getNativePlace() {
@@ -323,6 +344,7 @@ public class QueryService {
 
         public void setNativePlace(String nativePlace) {
             this.nativePlace = nativePlace;
+            compiled = null;
         }
     }
 }
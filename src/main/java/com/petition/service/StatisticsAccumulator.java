@@ -0,0 +1,222 @@
+package com.petition.service;
+
+import com.petition.model.PersonalInfo;
+import com.petition.model.PetitionCase;
+import com.petition.model.Petitioner;
+import com.petition.model.PetitionerSummary;
+import com.petition.model.RiskAssessment;
+import com.petition.model.enums.*;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 统计累加器
+ * 一次遍历同时累计所有分布，计数保存在按枚举序号索引的int数组中，
+ * 不为每次计数装箱；支持按记录加减（见LiveStatistics），最终生成不可变的统计快照
+ *
+ * @author 刘一村
+ * @version 1.0.0
+ */
+class StatisticsAccumulator {
+    private int totalCount;
+    private final int[] riskLevelCounts = new int[RiskLevel.values().length];
+    private final int[] genderCounts = new int[Gender.values().length];
+    private final int[] educationCounts = new int[Education.values().length];
+    private final int[] maritalStatusCounts = new int[MaritalStatus.values().length];
+    private final int[] entryMethodCounts = new int[EntryMethod.values().length];
+
+    /**
+     * 单独计数的最大上访次数，超过该次数的记录统一计入溢出桶
+     * 与统计视图最高的区间（10次以上）一致
+     */
+    static final int MAX_COUNTED_VISITS = 10;
+
+    /**
+     * 上访次数直方图（下标为上访次数，最后一格为超过{@link #MAX_COUNTED_VISITS}次的溢出桶）
+     */
+    private final int[] visitCountHistogram = new int[MAX_COUNTED_VISITS + 2];
+
+    /**
+     * 籍贯计数（数组只作为可变计数器使用）
+     */
+    private final Map<String, int[]> nativePlaceCounts = new HashMap<>();
+
+    /**
+     * 一条记录对各项统计的贡献
+     * 只保存参与统计的字段；增量维护时用它扣除记录修改前的取值，
+     * 不依赖可能已被调用方原地修改的记录对象
+     */
+    static final class Contribution {
+        private static final int NONE = -1;
+
+        private final int riskLevel;
+        private final int gender;
+        private final int education;
+        private final int maritalStatus;
+        private final int entryMethod;
+        private final int visitCount;
+        private final String nativePlace;
+
+        private Contribution(Petitioner petitioner) {
+            RiskAssessment assessment = petitioner.getRiskAssessment();
+            riskLevel = assessment != null ? ordinalOf(assessment.getRiskLevel()) : NONE;
+
+            PersonalInfo info = petitioner.getPersonalInfo();
+            if (info != null) {
+                gender = ordinalOf(info.getGender());
+                education = ordinalOf(info.getEducation());
+                maritalStatus = ordinalOf(info.getMaritalStatus());
+                visitCount = visitCountOf(info.getVisitCount());
+                nativePlace = info.getNativePlace();
+            } else {
+                gender = NONE;
+                education = NONE;
+                maritalStatus = NONE;
+                visitCount = NONE;
+                nativePlace = null;
+            }
+
+            PetitionCase petitionCase = petitioner.getPetitionCase();
+            entryMethod = petitionCase != null ? ordinalOf(petitionCase.getEntryMethod()) : NONE;
+        }
+
+        private Contribution(PetitionerSummary summary) {
+            riskLevel = ordinalOf(summary.getRiskLevel());
+            gender = ordinalOf(summary.getGender());
+            education = ordinalOf(summary.getEducation());
+            maritalStatus = ordinalOf(summary.getMaritalStatus());
+            visitCount = visitCountOf(summary.getVisitCount());
+            nativePlace = summary.getNativePlace();
+            entryMethod = ordinalOf(summary.getEntryMethod());
+        }
+
+        /**
+         * 提取记录当前的统计取值
+         *
+         * @param petitioner 上访人员
+         * @return 统计贡献
+         */
+        static Contribution of(Petitioner petitioner) {
+            return new Contribution(petitioner);
+        }
+
+        /**
+         * 提取摘要（或数据库分组结果）中的统计取值
+         *
+         * @param summary 上访人员摘要
+         * @return 统计贡献
+         */
+        static Contribution of(PetitionerSummary summary) {
+            return new Contribution(summary);
+        }
+
+        private static int ordinalOf(Enum<?> value) {
+            return value != null ? value.ordinal() : NONE;
+        }
+
+        private static int visitCountOf(Integer value) {
+            return value != null ? Math.min(Math.max(0, value), MAX_COUNTED_VISITS + 1) : NONE;
+        }
+    }
+
+    /**
+     * 累加一条记录
+     *
+     * @param petitioner 上访人员
+     */
+    void add(Petitioner petitioner) {
+        if (petitioner != null) {
+            apply(Contribution.of(petitioner), 1);
+        }
+    }
+
+    /**
+     * 累加一条记录的统计贡献
+     *
+     * @param contribution 统计贡献
+     */
+    void add(Contribution contribution) {
+        apply(contribution, 1);
+    }
+
+    /**
+     * 按记录数累加相同取值的一组记录
+     *
+     * @param contribution 统计贡献
+     * @param count 记录数
+     */
+    void add(Contribution contribution, int count) {
+        apply(contribution, count);
+    }
+
+    /**
+     * 扣除一条记录的统计贡献
+     *
+     * @param contribution 之前累加过的统计贡献
+     */
+    void remove(Contribution contribution) {
+        apply(contribution, -1);
+    }
+
+    /**
+     * 按增量累计一条记录的各项取值
+     */
+    private void apply(Contribution contribution, int delta) {
+        totalCount += delta;
+        addCount(riskLevelCounts, contribution.riskLevel, delta);
+        addCount(genderCounts, contribution.gender, delta);
+        addCount(educationCounts, contribution.education, delta);
+        addCount(maritalStatusCounts, contribution.maritalStatus, delta);
+        addCount(entryMethodCounts, contribution.entryMethod, delta);
+        addCount(visitCountHistogram, contribution.visitCount, delta);
+
+        String nativePlace = contribution.nativePlace;
+        if (nativePlace != null) {
+            int[] counter = nativePlaceCounts.computeIfAbsent(nativePlace, k -> new int[1]);
+            counter[0] += delta;
+            if (counter[0] <= 0) {
+                nativePlaceCounts.remove(nativePlace);
+            }
+        }
+    }
+
+    private static void addCount(int[] counts, int ordinal, int delta) {
+        if (ordinal != Contribution.NONE) {
+            counts[ordinal] += delta;
+        }
+    }
+
+    /**
+     * 生成当前计数的不可变快照
+     *
+     * @return 统计快照
+     */
+    StatisticsSnapshot snapshot() {
+        Map<String, Integer> nativePlaces = new HashMap<>(nativePlaceCounts.size() * 2);
+        for (Map.Entry<String, int[]> entry : nativePlaceCounts.entrySet()) {
+            nativePlaces.put(entry.getKey(), entry.getValue()[0]);
+        }
+
+        return new StatisticsSnapshot(totalCount,
+                toEnumMap(RiskLevel.class, riskLevelCounts),
+                toEnumMap(Gender.class, genderCounts),
+                toEnumMap(Education.class, educationCounts),
+                toEnumMap(MaritalStatus.class, maritalStatusCounts),
+                toEnumMap(EntryMethod.class, entryMethodCounts),
+                visitCountHistogram.clone(),
+                nativePlaces);
+    }
+
+    /**
+     * 将按序号索引的计数数组转换为EnumMap（所有取值都有条目）
+     */
+    private static <E extends Enum<E>> Map<E, Integer> toEnumMap(Class<E> type, int[] counts) {
+        Map<E, Integer> map = new EnumMap<>(type);
+        for (E value : type.getEnumConstants()) {
+            map.put(value, counts[value.ordinal()]);
+        }
+        return map;
+    }
+}
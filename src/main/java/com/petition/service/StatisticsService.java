@@ -1,32 +1,45 @@
 package com.petition.service;
 
 import com.petition.dao.JsonDataManager;
-import com.petition.model.Petitioner;
+import com.petition.dao.PetitionerRepository;
 import com.petition.model.enums.*;
 
 import java.io.IOException;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 /**
  * 统计服务
  * 提供各种统计分析功能
  *
+ * <p>共享数据管理器使用共享的实时统计；为其他数据管理器创建的实时统计会注册变更监听器，
+ * 不再使用时应调用{@link #close()}注销。</p>
+ *
  * @author 刘一村
  * @version 1.0.0
  */
-public class StatisticsService {
+public class StatisticsService implements AutoCloseable {
+    /**
+     * 数据仓库（JSON文件或嵌入式数据库）
+     */
+    private final PetitionerRepository dataManager;
+
+    /**
+     * 随数据变更增量维护的统计（仅JSON存储；数据库存储为null，统计在库内聚合）
+     */
+    private final LiveStatistics liveStatistics;
+
     /**
-     * 数据管理器
+     * 实时统计是否由本服务创建（关闭服务时注销其监听器；共享实时统计不注销）
      */
-    private final JsonDataManager dataManager;
+    private final boolean ownsLiveStatistics;
 
     /**
      * 默认构造函数
+     * 使用进程内共享的数据仓库（按配置选择存储后端）
      */
     public StatisticsService() {
-        this.dataManager = new JsonDataManager();
+        this(PetitionerRepository.getInstance());
     }
 
     /**
@@ -35,16 +48,38 @@ public class StatisticsService {
      * @param dataDirectory 数据目录路径
      */
     public StatisticsService(String dataDirectory) {
-        this.dataManager = new JsonDataManager(dataDirectory);
+        this(new JsonDataManager(dataDirectory));
     }
 
     /**
-     * 带数据管理器的构造函数
+     * 带数据仓库的构造函数
+     * 共享数据管理器复用共享的实时统计，其他JSON数据管理器创建本服务专用的实时统计
      *
-     * @param dataManager 数据管理器实例
+     * @param dataManager 数据仓库实例
      */
-    public StatisticsService(JsonDataManager dataManager) {
+    public StatisticsService(PetitionerRepository dataManager) {
         this.dataManager = dataManager;
+        if (!(dataManager instanceof JsonDataManager)) {
+            this.liveStatistics = null;
+            this.ownsLiveStatistics = false;
+        } else if (((JsonDataManager) dataManager).isSharedInstance()) {
+            this.liveStatistics = LiveStatistics.getInstance();
+            this.ownsLiveStatistics = false;
+        } else {
+            this.liveStatistics = new LiveStatistics((JsonDataManager) dataManager);
+            this.ownsLiveStatistics = true;
+        }
+    }
+
+    /**
+     * 关闭统计服务
+     * 注销本服务创建的实时统计的变更监听器，共享实时统计不受影响
+     */
+    @Override
+    public void close() {
+        if (ownsLiveStatistics) {
+            liveStatistics.close();
+        }
     }
 
     /**
@@ -57,30 +92,33 @@ public class StatisticsService {
     }
 
     /**
-     * 获取危险等级分布
+     * 获取统计快照
+     * 计数随每次新增、修改、删除增量更新，数据未变化时直接返回缓存的快照；
+     * 只有首次读取或数据整体重新加载后才遍历一次全部数据。
+     * 数据库存储不在内存中保存记录，每次按统计字段GROUP BY聚合
      *
-     * @return 危险等级分布Map（等级 -> 人数）
+     * @return 统计快照
      * @throws IOException 数据读取异常
      */
-    public Map<RiskLevel, Integer> getRiskLevelDistribution() throws IOException {
-        List<Petitioner> allData = dataManager.loadAll();
-        Map<RiskLevel, Integer> distribution = new HashMap<>();
-
-        // 初始化所有等级为0
-        for (RiskLevel level : RiskLevel.values()) {
-            distribution.put(level, 0);
+    public StatisticsSnapshot getStatistics() throws IOException {
+        if (liveStatistics != null) {
+            return liveStatistics.getStatistics();
         }
 
-        // 统计每个等级的人数
-        for (Petitioner p : allData) {
-            if (p.getRiskAssessment() != null &&
-                p.getRiskAssessment().getRiskLevel() != null) {
-                RiskLevel level = p.getRiskAssessment().getRiskLevel();
-                distribution.put(level, distribution.get(level) + 1);
-            }
-        }
+        StatisticsAccumulator accumulator = new StatisticsAccumulator();
+        dataManager.forEachStatisticsGroup((group, count) ->
+                accumulator.add(StatisticsAccumulator.Contribution.of(group), count));
+        return accumulator.snapshot();
+    }
 
-        return distribution;
+    /**
+     * 获取危险等级分布
+     *
+     * @return 危险等级分布Map（等级 -> 人数）
+     * @throws IOException 数据读取异常
+     */
+    public Map<RiskLevel, Integer> getRiskLevelDistribution() throws IOException {
+        return getStatistics().getRiskLevelDistribution();
     }
 
     /**
@@ -91,37 +129,7 @@ public class StatisticsService {
      * @throws IOException 数据读取异常
      */
     public Map<String, Integer> getVisitCountDistribution() throws IOException {
-        List<Petitioner> allData = dataManager.loadAll();
-        Map<String, Integer> distribution = new HashMap<>();
-
-        // 初始化区间
-        distribution.put("0次", 0);
-        distribution.put("1-2次", 0);
-        distribution.put("3-5次", 0);
-        distribution.put("6-10次", 0);
-        distribution.put("10次以上", 0);
-
-        // 统计
-        for (Petitioner p : allData) {
-            if (p.getPersonalInfo() != null &&
-                p.getPersonalInfo().getVisitCount() != null) {
-                int count = p.getPersonalInfo().getVisitCount();
-
-                if (count == 0) {
-                    distribution.put("0次", distribution.get("0次") + 1);
-                } else if (count <= 2) {
-                    distribution.put("1-2次", distribution.get("1-2次") + 1);
-                } else if (count <= 5) {
-                    distribution.put("3-5次", distribution.get("3-5次") + 1);
-                } else if (count <= 10) {
-                    distribution.put("6-10次", distribution.get("6-10次") + 1);
-                } else {
-                    distribution.put("10次以上", distribution.get("10次以上") + 1);
-                }
-            }
-        }
-
-        return distribution;
+        return getStatistics().getVisitCountDistribution();
     }
 
     /**
@@ -131,18 +139,7 @@ public class StatisticsService {
      * @throws IOException 数据读取异常
      */
     public Map<String, Integer> getNativePlaceDistribution() throws IOException {
-        List<Petitioner> allData = dataManager.loadAll();
-        Map<String, Integer> distribution = new HashMap<>();
-
-        for (Petitioner p : allData) {
-            if (p.getPersonalInfo() != null &&
-                p.getPersonalInfo().getNativePlace() != null) {
-                String nativePlace = p.getPersonalInfo().getNativePlace();
-                distribution.put(nativePlace, distribution.getOrDefault(nativePlace, 0) + 1);
-            }
-        }
-
-        return distribution;
+        return getStatistics().getNativePlaceDistribution();
     }
 
     /**
@@ -152,24 +149,7 @@ public class StatisticsService {
      * @throws IOException 数据读取异常
      */
     public Map<EntryMethod, Integer> getEntryMethodDistribution() throws IOException {
-        List<Petitioner> allData = dataManager.loadAll();
-        Map<EntryMethod, Integer> distribution = new HashMap<>();
-
-        // 初始化所有方式为0
-        for (EntryMethod method : EntryMethod.values()) {
-            distribution.put(method, 0);
-        }
-
-        // 统计
-        for (Petitioner p : allData) {
-            if (p.getPetitionCase() != null &&
-                p.getPetitionCase().getEntryMethod() != null) {
-                EntryMethod method = p.getPetitionCase().getEntryMethod();
-                distribution.put(method, distribution.get(method) + 1);
-            }
-        }
-
-        return distribution;
+        return getStatistics().getEntryMethodDistribution();
     }
 
     /**
@@ -179,24 +159,7 @@ public class StatisticsService {
      * @throws IOException 数据读取异常
      */
     public Map<Education, Integer> getEducationDistribution() throws IOException {
-        List<Petitioner> allData = dataManager.loadAll();
-        Map<Education, Integer> distribution = new HashMap<>();
-
-        // 初始化所有学历为0
-        for (Education edu : Education.values()) {
-            distribution.put(edu, 0);
-        }
-
-        // 统计
-        for (Petitioner p : allData) {
-            if (p.getPersonalInfo() != null &&
-                p.getPersonalInfo().getEducation() != null) {
-                Education edu = p.getPersonalInfo().getEducation();
-                distribution.put(edu, distribution.get(edu) + 1);
-            }
-        }
-
-        return distribution;
+        return getStatistics().getEducationDistribution();
     }
 
     /**
@@ -206,24 +169,7 @@ public class StatisticsService {
      * @throws IOException 数据读取异常
      */
     public Map<Gender, Integer> getGenderDistribution() throws IOException {
-        List<Petitioner> allData = dataManager.loadAll();
-        Map<Gender, Integer> distribution = new HashMap<>();
-
-        // 初始化
-        for (Gender gender : Gender.values()) {
-            distribution.put(gender, 0);
-        }
-
-        // 统计
-        for (Petitioner p : allData) {
-            if (p.getPersonalInfo() != null &&
-                p.getPersonalInfo().getGender() != null) {
-                Gender gender = p.getPersonalInfo().getGender();
-                distribution.put(gender, distribution.get(gender) + 1);
-            }
-        }
-
-        return distribution;
+        return getStatistics().getGenderDistribution();
     }
 
     /**
@@ -233,24 +179,7 @@ public class StatisticsService {
      * @throws IOException 数据读取异常
      */
     public Map<MaritalStatus, Integer> getMaritalStatusDistribution() throws IOException {
-        List<Petitioner> allData = dataManager.loadAll();
-        Map<MaritalStatus, Integer> distribution = new HashMap<>();
-
-        // 初始化
-        for (MaritalStatus status : MaritalStatus.values()) {
-            distribution.put(status, 0);
-        }
-
-        // 统计
-        for (Petitioner p : allData) {
-            if (p.getPersonalInfo() != null &&
-                p.getPersonalInfo().getMaritalStatus() != null) {
-                MaritalStatus status = p.getPersonalInfo().getMaritalStatus();
-                distribution.put(status, distribution.get(status) + 1);
-            }
-        }
-
-        return distribution;
+        return getStatistics().getMaritalStatusDistribution();
     }
 
     /**
@@ -260,28 +189,25 @@ public class StatisticsService {
      * @throws IOException 数据读取异常
      */
     public int getHighRiskCount() throws IOException {
-        List<Petitioner> allData = dataManager.loadAll();
-
-        return (int) allData.stream()
-                .filter(Petitioner::isHighRisk)
-                .count();
+        return getStatistics().getHighRiskCount();
     }
 
     /**
      * 获取统计摘要
-     * 返回包含各项统计数据的摘要信息
+     * 返回包含各项统计数据的摘要信息，所有项来自同一次遍历
      *
      * @return 统计摘要Map
      * @throws IOException 数据读取异常
      */
     public Map<String, Object> getStatisticsSummary() throws IOException {
+        StatisticsSnapshot statistics = getStatistics();
         Map<String, Object> summary = new HashMap<>();
 
-        summary.put("totalCount", getTotalCount());
-        summary.put("highRiskCount", getHighRiskCount());
-        summary.put("riskLevelDistribution", getRiskLevelDistribution());
-        summary.put("visitCountDistribution", getVisitCountDistribution());
-        summary.put("genderDistribution", getGenderDistribution());
+        summary.put("totalCount", statistics.getTotalCount());
+        summary.put("highRiskCount", statistics.getHighRiskCount());
+        summary.put("riskLevelDistribution", statistics.getRiskLevelDistribution());
+        summary.put("visitCountDistribution", statistics.getVisitCountDistribution());
+        summary.put("genderDistribution", statistics.getGenderDistribution());
 
         return summary;
     }
@@ -0,0 +1,175 @@
+package com.petition.service;
+
+import com.petition.model.enums.*;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 统计快照
+ * 某一时刻全部统计结果的不可变视图，由一次遍历生成，
+ * 多个图表和卡片可以共用同一个快照而无需重复扫描数据
+ *
+ * @author 刘一村
+ * @version 1.0.0
+ */
+public final class StatisticsSnapshot {
+    private final int totalCount;
+    private final Map<RiskLevel, Integer> riskLevelDistribution;
+    private final Map<Gender, Integer> genderDistribution;
+    private final Map<Education, Integer> educationDistribution;
+    private final Map<MaritalStatus, Integer> maritalStatusDistribution;
+    private final Map<EntryMethod, Integer> entryMethodDistribution;
+    private final int[] visitCountHistogram;
+    private final Map<String, Integer> visitCountDistribution;
+    private final Map<String, Integer> nativePlaceDistribution;
+
+    /**
+     * 构造函数（由StatisticsAccumulator创建，传入的集合不再被修改）
+     */
+    StatisticsSnapshot(int totalCount,
+                       Map<RiskLevel, Integer> riskLevelDistribution,
+                       Map<Gender, Integer> genderDistribution,
+                       Map<Education, Integer> educationDistribution,
+                       Map<MaritalStatus, Integer> maritalStatusDistribution,
+                       Map<EntryMethod, Integer> entryMethodDistribution,
+                       int[] visitCountHistogram,
+                       Map<String, Integer> nativePlaceDistribution) {
+        this.totalCount = totalCount;
+        this.riskLevelDistribution = Collections.unmodifiableMap(riskLevelDistribution);
+        this.genderDistribution = Collections.unmodifiableMap(genderDistribution);
+        this.educationDistribution = Collections.unmodifiableMap(educationDistribution);
+        this.maritalStatusDistribution = Collections.unmodifiableMap(maritalStatusDistribution);
+        this.entryMethodDistribution = Collections.unmodifiableMap(entryMethodDistribution);
+        this.visitCountHistogram = visitCountHistogram;
+        this.visitCountDistribution = Collections.unmodifiableMap(buildVisitCountDistribution());
+        this.nativePlaceDistribution = Collections.unmodifiableMap(nativePlaceDistribution);
+    }
+
+    /**
+     * 按统计服务的区间汇总上访次数：0次、1-2次、3-5次、6-10次、10次以上
+     */
+    private Map<String, Integer> buildVisitCountDistribution() {
+        Map<String, Integer> distribution = new LinkedHashMap<>();
+        distribution.put("0次", countVisitsBetween(0, 0));
+        distribution.put("1-2次", countVisitsBetween(1, 2));
+        distribution.put("3-5次", countVisitsBetween(3, 5));
+        distribution.put("6-10次", countVisitsBetween(6, 10));
+        distribution.put("10次以上", countVisitsBetween(11, Integer.MAX_VALUE));
+        return distribution;
+    }
+
+    /**
+     * 获取总人数
+     *
+     * @return 总人数
+     */
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * 获取高危人员数量（高危和极高危）
+     *
+     * @return 高危人员数量
+     */
+    public int getHighRiskCount() {
+        return getRiskLevelCount(RiskLevel.HIGH) + getRiskLevelCount(RiskLevel.CRITICAL);
+    }
+
+    /**
+     * 获取指定危险等级的人数
+     *
+     * @param level 危险等级
+     * @return 人数
+     */
+    public int getRiskLevelCount(RiskLevel level) {
+        return riskLevelDistribution.get(level);
+    }
+
+    /**
+     * 统计上访次数在指定闭区间内的人数
+     * 超过10次的记录只按一个桶统计，因此区间上限超过10次时下限不能超过11次
+     *
+     * @param min 最小次数
+     * @param max 最大次数
+     * @return 人数
+     * @throws IllegalArgumentException 区间落在10次以上且下限超过11次
+     */
+    public int countVisitsBetween(int min, int max) {
+        int overflow = visitCountHistogram.length - 1;
+        if (min > overflow) {
+            throw new IllegalArgumentException("10次以上的上访次数不再细分，区间下限不能超过" + overflow);
+        }
+        int count = 0;
+        int upper = Math.min(max, overflow);
+        for (int i = Math.max(min, 0); i <= upper; i++) {
+            count += visitCountHistogram[i];
+        }
+        return count;
+    }
+
+    /**
+     * 获取危险等级分布
+     *
+     * @return 危险等级分布（只读）
+     */
+    public Map<RiskLevel, Integer> getRiskLevelDistribution() {
+        return riskLevelDistribution;
+    }
+
+    /**
+     * 获取性别分布
+     *
+     * @return 性别分布（只读）
+     */
+    public Map<Gender, Integer> getGenderDistribution() {
+        return genderDistribution;
+    }
+
+    /**
+     * 获取学历分布
+     *
+     * @return 学历分布（只读）
+     */
+    public Map<Education, Integer> getEducationDistribution() {
+        return educationDistribution;
+    }
+
+    /**
+     * 获取婚姻状态分布
+     *
+     * @return 婚姻状态分布（只读）
+     */
+    public Map<MaritalStatus, Integer> getMaritalStatusDistribution() {
+        return maritalStatusDistribution;
+    }
+
+    /**
+     * 获取进京方式分布
+     *
+     * @return 进京方式分布（只读）
+     */
+    public Map<EntryMethod, Integer> getEntryMethodDistribution() {
+        return entryMethodDistribution;
+    }
+
+    /**
+     * 获取上访次数区间分布
+     *
+     * @return 上访次数分布（只读，按区间顺序）
+     */
+    public Map<String, Integer> getVisitCountDistribution() {
+        return visitCountDistribution;
+    }
+
+    /**
+     * 获取籍贯分布
+     *
+     * @return 籍贯分布（只读）
+     */
+    public Map<String, Integer> getNativePlaceDistribution() {
+        return nativePlaceDistribution;
+    }
+}
@@ -1,12 +1,21 @@
 package com.petition.dao;
 
+import com.petition.model.Petitioner;
 import org.junit.jupiter.api.*;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -266,4 +275,100 @@ class BackupManagerTest {
         assertFalse(restoredContent.contains("modified"));
         assertTrue(restoredContent.contains("test"));
     }
+
+    @Test
+    @Order(13)
+    @DisplayName("测试备份前合并变更日志")
+    void testBackupIncludesChangeLog() throws IOException {
+        JsonDataManager dataManager = new JsonDataManager(TEST_DATA_DIR);
+        Petitioner petitioner = new Petitioner();
+        petitioner.getPersonalInfo().setName("张三");
+        dataManager.save(petitioner);
+
+        BackupManager managerWithData = new BackupManager(
+                dataManager.getDataFilePath(), TEST_BACKUP_DIR, 5, dataManager);
+        Path backupPath = managerWithData.backup();
+
+        // 备份文件包含仅写入日志的记录
+        assertTrue(Files.readString(backupPath).contains(petitioner.getId()));
+        assertFalse(Files.exists(dataManager.getLogFilePath()));
+    }
+
+    @Test
+    @Order(14)
+    @DisplayName("测试恢复时等待数据目录锁")
+    void testRestoreWaitsForDirectoryLock() throws Exception {
+        JsonDataManager dataManager = new JsonDataManager(TEST_DATA_DIR);
+        Petitioner first = new Petitioner();
+        first.getPersonalInfo().setName("张三");
+        dataManager.save(first);
+        BackupManager managerWithData = new BackupManager(
+                dataManager.getDataFilePath(), TEST_BACKUP_DIR, 5, dataManager);
+        String backupName = managerWithData.backup().getFileName().toString();
+
+        Petitioner second = new Petitioner();
+        second.getPersonalInfo().setName("李四");
+        dataManager.save(second);
+        dataManager.checkpoint();
+
+        // 其他线程持有数据目录锁期间不能替换数据文件
+        DataFileLock lock = new DataFileLock(JsonDataManager.lockFileFor(dataManager.getDataFilePath()));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> restore;
+            try (DataFileLock.Hold hold = lock.acquire()) {
+                hold.checkValid();
+                restore = executor.submit(() -> managerWithData.restore(backupName));
+                assertThrows(TimeoutException.class, () -> restore.get(300, TimeUnit.MILLISECONDS));
+                assertTrue(Files.readString(dataManager.getDataFilePath()).contains(second.getId()));
+            }
+            assertTrue(restore.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // 恢复后数据管理器已刷新
+        assertEquals(1, dataManager.count());
+        assertTrue(dataManager.findById(first.getId()).isPresent());
+        assertFalse(dataManager.findById(second.getId()).isPresent());
+    }
+
+    @Test
+    @Order(15)
+    @DisplayName("测试数据库存储的备份和恢复")
+    void testBackupAndRestoreRepository() throws IOException {
+        JdbcPetitionerRepository repository = new JdbcPetitionerRepository(TEST_DATA_DIR + "/h2");
+        try {
+            Petitioner first = new Petitioner();
+            first.getPersonalInfo().setName("张三");
+            repository.save(first);
+            BackupManager repositoryBackup = new BackupManager(repository, TEST_BACKUP_DIR, 5);
+            Path backupPath = repositoryBackup.backup();
+            assertTrue(Files.readString(backupPath).contains(first.getId()));
+
+            Petitioner second = new Petitioner();
+            second.getPersonalInfo().setName("李四");
+            repository.save(second);
+            List<DataChangeEvent> events = new ArrayList<>();
+            repository.addChangeListener(events::add);
+
+            // 恢复在数据库内替换全部记录，不涉及JSON数据文件
+            assertTrue(repositoryBackup.restore(backupPath.getFileName().toString()));
+            assertEquals(1, repository.count());
+            assertEquals("张三", repository.findById(first.getId()).orElseThrow().getName());
+            assertFalse(repository.findById(second.getId()).isPresent());
+            assertEquals(List.of(DataChangeEvent.Type.RELOADED),
+                    events.stream().map(DataChangeEvent::getType).collect(Collectors.toList()));
+            assertFalse(Files.exists(Paths.get(TEST_DATA_DIR, "h2", "petitioners.json")));
+
+            // 恢复前的数据另存为安全备份
+            try (Stream<Path> files = Files.list(Paths.get(TEST_BACKUP_DIR))) {
+                Path safety = files.filter(path -> path.getFileName().toString().startsWith("before_restore_"))
+                        .findFirst().orElseThrow();
+                assertTrue(Files.readString(safety).contains(second.getId()));
+            }
+        } finally {
+            repository.close();
+        }
+    }
 }
@@ -0,0 +1,261 @@
+package com.petition.dao;
+
+import com.petition.model.*;
+import com.petition.model.enums.*;
+import com.petition.service.QueryService;
+import com.petition.service.StatisticsService;
+import com.petition.service.StatisticsSnapshot;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JdbcPetitionerRepository单元测试
+ * 测试嵌入式数据库数据仓库的增删改查、条件下推和统计聚合
+ *
+ * @author 刘一村
+ * @version 1.0.0
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class JdbcPetitionerRepositoryTest {
+    private static final String TEST_DATA_DIR = "test_jdbc_data";
+    private JdbcPetitionerRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        // 使用测试专用目录
+        repository = new JdbcPetitionerRepository(TEST_DATA_DIR);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        repository.close();
+
+        // 清理测试数据
+        Path testDir = Paths.get(TEST_DATA_DIR);
+        if (Files.exists(testDir)) {
+            Files.walk(testDir)
+                 .sorted((a, b) -> b.compareTo(a)) // 逆序删除（先删文件再删目录）
+                 .forEach(path -> {
+                     try {
+                         Files.deleteIfExists(path);
+                     } catch (IOException e) {
+                         e.printStackTrace();
+                     }
+                 });
+        }
+    }
+
+    /**
+     * 创建测试用上访人员对象
+     */
+    private Petitioner createTestPetitioner(String name, String idCard, RiskLevel riskLevel, int visitCount) {
+        PersonalInfo personalInfo = new PersonalInfo();
+        personalInfo.setName(name);
+        personalInfo.setIdCard(idCard);
+        personalInfo.setGender(Gender.MALE);
+        personalInfo.setEducation(Education.BACHELOR);
+        personalInfo.setMaritalStatus(MaritalStatus.MARRIED);
+        personalInfo.setNativePlace("山东省济南市");
+        personalInfo.setVisitCount(visitCount);
+        personalInfo.addPhone("13800138000");
+
+        PetitionCase petitionCase = new PetitionCase();
+        petitionCase.setPetitionContent("测试诉求内容");
+        petitionCase.setEntryMethod(EntryMethod.HIGH_SPEED_RAIL);
+
+        RiskAssessment riskAssessment = new RiskAssessment();
+        riskAssessment.setRiskLevel(riskLevel);
+
+        return new Petitioner(personalInfo, new BeijingContact(), petitionCase, riskAssessment);
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("测试保存、查找、更新和删除")
+    void testCrud() throws IOException {
+        Petitioner petitioner = createTestPetitioner("张三", "370102199001011234", RiskLevel.LOW, 1);
+        repository.save(petitioner);
+
+        assertEquals(1, repository.count());
+        assertEquals("张三", repository.findById(petitioner.getId()).get().getName());
+        assertTrue(repository.existsByIdCard("370102199001011234"));
+        assertFalse(repository.existsByIdCard("370102199001010000"));
+        assertEquals("测试诉求内容",
+                repository.findByIdCard("370102199001011234").get().getPetitionCase().getPetitionContent());
+
+        petitioner.getPersonalInfo().setName("张三丰");
+        repository.save(petitioner);
+        assertEquals(1, repository.count());
+        assertEquals("张三丰", repository.findById(petitioner.getId()).get().getName());
+
+        assertTrue(repository.delete(petitioner.getId()));
+        assertFalse(repository.delete(petitioner.getId()));
+        assertEquals(0, repository.count());
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("测试批量保存保持插入顺序并通知监听器")
+    void testSaveBatch() throws IOException {
+        List<DataChangeEvent> events = new ArrayList<>();
+        repository.addChangeListener(events::add);
+
+        List<Petitioner> petitioners = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            petitioners.add(createTestPetitioner("批量" + i, String.format("3701021990010%05d", i),
+                    RiskLevel.LOW, i % 5));
+        }
+        repository.saveBatch(petitioners);
+
+        assertEquals(1200, repository.count());
+        assertEquals(1200, events.size());
+        List<PetitionerSummary> summaries = repository.summaries();
+        assertEquals("批量0", summaries.get(0).getName());
+        assertEquals("批量1199", summaries.get(1199).getName());
+        assertEquals(RiskLevel.LOW, summaries.get(5).getRiskLevel());
+
+        // 已存在的记录按更新处理，顺序不变
+        petitioners.get(0).getPersonalInfo().setName("已修改");
+        repository.saveBatch(List.of(petitioners.get(0)));
+        assertEquals(DataChangeEvent.Type.UPDATED, events.get(events.size() - 1).getType());
+        assertEquals("已修改", repository.loadAll().get(0).getName());
+
+        assertEquals(2, repository.batchDelete(List.of(petitioners.get(1).getId(),
+                petitioners.get(2).getId(), "不存在")));
+        assertEquals(1198, repository.count());
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("测试查询条件在库内执行")
+    void testFindPushdown() throws IOException {
+        repository.saveBatch(List.of(
+                createTestPetitioner("张三", "370102199001011234", RiskLevel.HIGH, 3),
+                createTestPetitioner("张四", "370102199002021234", RiskLevel.LOW, 8),
+                createTestPetitioner("李五_", "37010219900303123X", RiskLevel.CRITICAL, 12)));
+        QueryService queryService = new QueryService(repository);
+
+        assertEquals(2, queryService.quickSearch("张").size());
+        assertEquals(1, queryService.quickSearch("123x").size());
+        assertEquals(3, queryService.quickSearch("138001").size());
+        assertEquals(2, queryService.getHighRiskPetitioners().size());
+        assertEquals(2, queryService.filterByVisitCount(5, null).size());
+        assertEquals(1, queryService.filterByVisitCount(5, 10).size());
+        assertEquals(3, queryService.filterByNativePlace("山东省济南市").size());
+
+        // LIKE通配符按普通字符处理
+        QueryService.QueryCriteria criteria = new QueryService.QueryCriteria();
+        criteria.setName("_");
+        assertEquals(1, queryService.advancedQuery(criteria).size());
+
+        criteria = new QueryService.QueryCriteria();
+        criteria.setName("张");
+        criteria.setRiskLevel(RiskLevel.LOW);
+        List<Petitioner> result = queryService.advancedQuery(criteria);
+        assertEquals(1, result.size());
+        assertEquals("张四", result.get(0).getName());
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("测试统计在库内聚合且与内存统计一致")
+    void testStatisticsPushdown() throws IOException {
+        List<Petitioner> petitioners = new ArrayList<>();
+        RiskLevel[] levels = RiskLevel.values();
+        for (int i = 0; i < 40; i++) {
+            petitioners.add(createTestPetitioner("统计" + i, String.format("3701021990020%05d", i),
+                    levels[i % levels.length], i % 13));
+        }
+        repository.saveBatch(petitioners);
+
+        JsonDataManager jsonManager = new JsonDataManager(TEST_DATA_DIR);
+        jsonManager.saveAll(petitioners);
+
+        StatisticsSnapshot fromDatabase = new StatisticsService(repository).getStatistics();
+        StatisticsSnapshot fromMemory;
+        try (StatisticsService memoryStatistics = new StatisticsService(jsonManager)) {
+            fromMemory = memoryStatistics.getStatistics();
+        }
+
+        assertEquals(fromMemory.getTotalCount(), fromDatabase.getTotalCount());
+        assertEquals(fromMemory.getRiskLevelDistribution(), fromDatabase.getRiskLevelDistribution());
+        assertEquals(fromMemory.getVisitCountDistribution(), fromDatabase.getVisitCountDistribution());
+        assertEquals(fromMemory.getNativePlaceDistribution(), fromDatabase.getNativePlaceDistribution());
+        assertEquals(fromMemory.getEntryMethodDistribution(), fromDatabase.getEntryMethodDistribution());
+        jsonManager.close();
+    }
+
+    @Test
+    @Order(5)
+    @DisplayName("测试从JSON数据导入")
+    void testImportJsonIfEmpty() throws IOException {
+        JsonDataManager jsonManager = new JsonDataManager(TEST_DATA_DIR);
+        jsonManager.saveAll(List.of(
+                createTestPetitioner("张三", "370102199001011234", RiskLevel.LOW, 1),
+                createTestPetitioner("李四", "370102199002021234", RiskLevel.HIGH, 2)));
+        jsonManager.close();
+
+        assertEquals(2, repository.importJsonIfEmpty(TEST_DATA_DIR));
+        assertEquals(2, repository.count());
+        assertEquals("李四", repository.summaries().get(1).getName());
+
+        // 数据库已有数据时不再导入
+        assertEquals(0, repository.importJsonIfEmpty(TEST_DATA_DIR));
+        assertEquals(2, repository.count());
+    }
+
+    @Test
+    @Order(6)
+    @DisplayName("测试在库内排序分页且与内存排序一致")
+    void testFindPage() throws IOException {
+        RiskLevel[] levels = RiskLevel.values();
+        List<Petitioner> petitioners = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            Petitioner petitioner = createTestPetitioner("人员" + (i * 37 % 100),
+                    String.format("3701021990%08d", i), i % 13 == 0 ? null : levels[i % levels.length], i % 17);
+            if (i % 11 == 0) {
+                petitioner.getPersonalInfo().setVisitCount(null);
+            }
+            petitioners.add(petitioner);
+        }
+        repository.saveBatch(petitioners);
+
+        PetitionerFilter filter = new PetitionerFilter();
+        filter.setMinVisitCount(3);
+        List<List<SortKey>> sorts = List.of(
+                List.of(),
+                List.of(SortKey.desc(SortField.RISK_LEVEL), SortKey.asc(SortField.NAME)),
+                List.of(SortKey.asc(SortField.VISIT_COUNT)));
+        for (PetitionerFilter condition : Arrays.asList(null, filter)) {
+            List<Petitioner> matched = condition != null ? repository.find(condition) : repository.loadAll();
+            for (List<SortKey> sort : sorts) {
+                List<Petitioner> expected = new ArrayList<>(matched);
+                if (!sort.isEmpty()) {
+                    expected.sort(SortKey.comparator(sort));
+                }
+                for (int offset : new int[]{0, 45, 290}) {
+                    Page<Petitioner> page = repository.findPage(condition, sort, offset, 20);
+                    assertEquals(matched.size(), page.getTotal());
+                    assertEquals(ids(expected.subList(Math.min(offset, expected.size()),
+                                    Math.min(offset + 20, expected.size()))),
+                            ids(page.getItems()), sort + " " + offset);
+                }
+            }
+        }
+    }
+
+    private static List<String> ids(List<Petitioner> petitioners) {
+        List<String> ids = new ArrayList<>();
+        petitioners.forEach(petitioner -> ids.add(petitioner.getId()));
+        return ids;
+    }
+}
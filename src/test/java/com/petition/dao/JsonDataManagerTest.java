@@ -8,9 +8,21 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -318,4 +330,846 @@ class JsonDataManagerTest {
         // 验证数据已更新
         assertEquals(2, dataManager.count());
     }
+
+    @Test
+    @Order(13)
+    @DisplayName("测试文件未变化时复用内存缓存")
+    void testLoadAllReusesCacheWhenFileUnchanged() throws IOException {
+        dataManager.save(createTestPetitioner("张三", "370102199001011234"));
+
+        List<Petitioner> first = dataManager.loadAll();
+        List<Petitioner> second = dataManager.loadAll();
+
+        // 未重新解析文件，返回的是同一批对象
+        assertSame(first.get(0), second.get(0));
+        assertSame(first.get(0), dataManager.snapshot().get(0));
+    }
+
+    @Test
+    @Order(14)
+    @DisplayName("测试检测其他实例对文件的修改")
+    void testLoadAllDetectsExternalChange() throws IOException {
+        dataManager.save(createTestPetitioner("张三", "370102199001011234"));
+
+        JsonDataManager otherManager = new JsonDataManager(TEST_DATA_DIR);
+        assertEquals(1, otherManager.loadAll().size());
+
+        // 通过当前实例写入新数据
+        dataManager.save(createTestPetitioner("李四", "370102199002021234"));
+
+        // 另一实例应检测到文件变化并重新加载
+        assertEquals(2, otherManager.loadAll().size());
+        assertEquals(2, otherManager.snapshot().size());
+    }
+
+    @Test
+    @Order(15)
+    @DisplayName("测试只读快照不可修改")
+    void testSnapshotIsReadOnly() throws IOException {
+        dataManager.save(createTestPetitioner("张三", "370102199001011234"));
+
+        List<Petitioner> snapshot = dataManager.snapshot();
+        assertThrows(UnsupportedOperationException.class,
+                () -> snapshot.add(createTestPetitioner("李四", "370102199002021234")));
+    }
+
+    @Test
+    @Order(16)
+    @DisplayName("测试单条保存只追加变更日志")
+    void testSaveAppendsToLog() throws IOException {
+        List<Petitioner> initial = new ArrayList<>();
+        initial.add(createTestPetitioner("张三", "370102199001011234"));
+        dataManager.saveAll(initial);
+        String snapshotBefore = Files.readString(dataManager.getDataFilePath());
+
+        // 新增、修改、删除都只写日志
+        Petitioner p2 = createTestPetitioner("李四", "370102199002021234");
+        dataManager.save(p2);
+        p2.getPersonalInfo().setName("李四光");
+        dataManager.save(p2);
+        dataManager.delete(initial.get(0).getId());
+
+        assertEquals(snapshotBefore, Files.readString(dataManager.getDataFilePath()));
+        assertEquals(3, Files.readAllLines(dataManager.getLogFilePath()).size());
+
+        // 新实例通过重放日志得到相同结果
+        JsonDataManager newDataManager = new JsonDataManager(TEST_DATA_DIR);
+        List<Petitioner> loaded = newDataManager.loadAll();
+        assertEquals(1, loaded.size());
+        assertEquals("李四光", loaded.get(0).getName());
+    }
+
+    @Test
+    @Order(17)
+    @DisplayName("测试合并变更日志")
+    void testCheckpoint() throws IOException {
+        dataManager.save(createTestPetitioner("张三", "370102199001011234"));
+        dataManager.save(createTestPetitioner("李四", "370102199002021234"));
+        assertTrue(Files.exists(dataManager.getLogFilePath()));
+
+        dataManager.checkpoint();
+
+        // 日志已合并进数据文件
+        assertFalse(Files.exists(dataManager.getLogFilePath()));
+        JsonDataManager newDataManager = new JsonDataManager(TEST_DATA_DIR);
+        assertEquals(2, newDataManager.loadAll().size());
+    }
+
+    @Test
+    @Order(18)
+    @DisplayName("测试忽略未写完的日志记录")
+    void testTornLogTailIgnored() throws IOException {
+        Petitioner petitioner = createTestPetitioner("张三", "370102199001011234");
+        dataManager.save(petitioner);
+
+        // 模拟写日志时崩溃留下的半行记录
+        Files.writeString(dataManager.getLogFilePath(), "{\"op\":\"PUT\",\"record\":{\"id\":\"abc",
+                StandardOpenOption.APPEND);
+
+        JsonDataManager newDataManager = new JsonDataManager(TEST_DATA_DIR);
+        List<Petitioner> loaded = newDataManager.loadAll();
+        assertEquals(1, loaded.size());
+        assertEquals(petitioner.getId(), loaded.get(0).getId());
+    }
+
+    @Test
+    @Order(19)
+    @DisplayName("测试快照写入不留临时文件并生成校验和")
+    void testSnapshotWriteIsAtomic() throws IOException {
+        List<Petitioner> petitioners = new ArrayList<>();
+        petitioners.add(createTestPetitioner("张三", "370102199001011234"));
+        dataManager.saveAll(petitioners);
+
+        Path dataFile = dataManager.getDataFilePath();
+        assertFalse(Files.exists(dataFile.resolveSibling(dataFile.getFileName() + ".tmp")));
+        assertTrue(Files.exists(JsonDataManager.checksumFileFor(dataFile)));
+
+        // 校验通过后可以正常加载
+        JsonDataManager newDataManager = new JsonDataManager(TEST_DATA_DIR);
+        assertEquals(1, newDataManager.loadAll().size());
+    }
+
+    @Test
+    @Order(20)
+    @DisplayName("测试检测被截断的数据文件")
+    void testTruncatedSnapshotDetected() throws IOException {
+        List<Petitioner> petitioners = new ArrayList<>();
+        petitioners.add(createTestPetitioner("张三", "370102199001011234"));
+        petitioners.add(createTestPetitioner("李四", "370102199002021234"));
+        dataManager.saveAll(petitioners);
+
+        // 模拟写入中途断电留下的半个文件
+        Path dataFile = dataManager.getDataFilePath();
+        byte[] content = Files.readAllBytes(dataFile);
+        Files.write(dataFile, Arrays.copyOf(content, content.length / 2));
+
+        JsonDataManager newDataManager = new JsonDataManager(TEST_DATA_DIR);
+        IOException e = assertThrows(IOException.class, newDataManager::loadAll);
+        assertTrue(e.getMessage().contains("校验和不匹配"));
+    }
+
+    @Test
+    @Order(21)
+    @DisplayName("测试身份证号索引随增删改同步")
+    void testIdCardIndex() throws IOException {
+        Petitioner p1 = createTestPetitioner("张三", "370102199001011234");
+        Petitioner p2 = createTestPetitioner("李四", "370102199002021234");
+        dataManager.save(p1);
+        dataManager.save(p2);
+
+        assertEquals(p1.getId(), dataManager.findByIdCard("370102199001011234").get().getId());
+        assertTrue(dataManager.existsByIdCard("370102199002021234"));
+
+        // 直接修改缓存对象的身份证号后保存，旧号码应从索引中移除
+        p1.getPersonalInfo().setIdCard("370102199009091234");
+        dataManager.save(p1);
+        assertFalse(dataManager.existsByIdCard("370102199001011234"));
+        assertTrue(dataManager.existsByIdCard("370102199009091234"));
+
+        // 删除后索引同步更新，其余记录仍能按ID找到
+        dataManager.delete(p1.getId());
+        assertFalse(dataManager.existsByIdCard("370102199009091234"));
+        assertEquals("李四", dataManager.findById(p2.getId()).get().getName());
+    }
+
+    @Test
+    @Order(22)
+    @DisplayName("测试数据变更通知")
+    void testChangeListener() throws IOException {
+        dataManager.loadAll();
+        List<DataChangeEvent> events = new ArrayList<>();
+        dataManager.addChangeListener(events::add);
+
+        Petitioner p1 = createTestPetitioner("张三", "370102199001011234");
+        Petitioner p2 = createTestPetitioner("李四", "370102199002021234");
+        dataManager.save(p1);
+        dataManager.saveBatch(List.of(p2));
+
+        Petitioner updated = createTestPetitioner("张三丰", "370102199001011234");
+        updated.setId(p1.getId());
+        dataManager.save(updated);
+        dataManager.batchDelete(List.of(p1.getId(), p2.getId()));
+
+        assertEquals(5, events.size());
+        assertEquals(DataChangeEvent.Type.ADDED, events.get(0).getType());
+        assertEquals(DataChangeEvent.Type.ADDED, events.get(1).getType());
+        assertEquals(DataChangeEvent.Type.UPDATED, events.get(2).getType());
+        assertEquals("张三", events.get(2).getBefore().getName());
+        assertEquals("张三丰", events.get(2).getAfter().getName());
+        assertEquals(DataChangeEvent.Type.REMOVED, events.get(3).getType());
+        assertEquals(p1.getId(), events.get(3).getId());
+        assertEquals(DataChangeEvent.Type.REMOVED, events.get(4).getType());
+
+        // 整体保存通知重新加载
+        dataManager.saveAll(new ArrayList<>());
+        assertEquals(DataChangeEvent.Type.RELOADED, events.get(5).getType());
+    }
+
+    @Test
+    @Order(23)
+    @DisplayName("测试二进制存储格式转换与自动识别")
+    void testStorageFormatConversion() throws IOException {
+        List<Petitioner> petitioners = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            petitioners.add(createTestPetitioner("格式" + i, String.format("3701021990010%05d", i)));
+        }
+        dataManager.saveAll(petitioners);
+        long jsonSize = Files.size(dataManager.getDataFilePath());
+        assertEquals(StorageFormat.JSON, dataManager.getStorageFormat());
+
+        for (StorageFormat format : List.of(StorageFormat.SMILE, StorageFormat.CBOR)) {
+            dataManager.convertTo(format);
+            assertTrue(Files.size(dataManager.getDataFilePath()) < jsonSize);
+
+            // 新实例根据文件头识别格式
+            JsonDataManager reader = new JsonDataManager(TEST_DATA_DIR);
+            List<Petitioner> loaded = reader.loadAll();
+            assertEquals(format, reader.getStorageFormat());
+            assertEquals(20, loaded.size());
+            assertEquals("格式7", loaded.get(7).getName());
+            assertNotNull(loaded.get(7).getCreateTime());
+
+            // 后续修改沿用该格式
+            reader.save(createTestPetitioner("追加", "370102199012121234"));
+            reader.checkpoint();
+            JsonDataManager reopened = new JsonDataManager(TEST_DATA_DIR);
+            assertEquals(21, reopened.loadAll().size());
+            assertEquals(format, reopened.getStorageFormat());
+            reader.delete(reader.findByIdCard("370102199012121234").get().getId());
+            reader.checkpoint();
+            dataManager.refresh();
+        }
+
+        // 转回JSON，并可随时导出JSON
+        dataManager.convertTo(StorageFormat.JSON);
+        assertEquals('[', Files.readString(dataManager.getDataFilePath()).trim().charAt(0));
+        dataManager.convertTo(StorageFormat.SMILE);
+        Path exported = Paths.get(TEST_DATA_DIR, "export.json");
+        dataManager.exportJson(exported);
+        assertTrue(Files.readString(exported).contains("格式19"));
+    }
+
+    @Test
+    @Order(24)
+    @DisplayName("测试分段存储只重写修改的数据段")
+    void testSegmentedLayout() throws IOException {
+        JsonDataManager segmented = new JsonDataManager(TEST_DATA_DIR, 10);
+        List<Petitioner> petitioners = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            petitioners.add(createTestPetitioner("分段" + i, String.format("3701021990020%05d", i)));
+        }
+        segmented.saveAll(petitioners);
+
+        segmented.convertTo(StorageLayout.SEGMENTED);
+        assertEquals(StorageLayout.SEGMENTED, segmented.getStorageLayout());
+        assertFalse(Files.exists(segmented.getDataFilePath()));
+        Path segmentDir = JsonDataManager.segmentDirectoryFor(segmented.getDataFilePath());
+        List<Path> before;
+        try (Stream<Path> files = Files.list(segmentDir)) {
+            before = files.filter(f -> f.toString().endsWith(".seg")).sorted().collect(Collectors.toList());
+        }
+        assertEquals(5, before.size());
+
+        // 修改一条记录，合并后只有一个数据段被替换
+        Petitioner target = segmented.findByIdCard("370102199002000007").get();
+        target.getPersonalInfo().setName("已修改");
+        segmented.save(target);
+        segmented.checkpoint();
+        List<Path> after;
+        try (Stream<Path> files = Files.list(segmentDir)) {
+            after = files.filter(f -> f.toString().endsWith(".seg")).sorted().collect(Collectors.toList());
+        }
+        assertEquals(5, after.size());
+        List<Path> unchanged = new ArrayList<>(before);
+        unchanged.retainAll(after);
+        assertEquals(4, unchanged.size());
+
+        // 新实例自动识别分段布局
+        JsonDataManager reader = new JsonDataManager(TEST_DATA_DIR);
+        List<Petitioner> loaded = reader.loadAll();
+        assertEquals(StorageLayout.SEGMENTED, reader.getStorageLayout());
+        assertEquals(50, loaded.size());
+        assertEquals("已修改", reader.findByIdCard("370102199002000007").get().getName());
+
+        // 删除后重新加载
+        reader.delete(target.getId());
+        reader.checkpoint();
+        segmented.refresh();
+        assertEquals(49, segmented.loadAll().size());
+
+        // 分段布局下备份导出为单个JSON文件
+        Path exported = Paths.get(TEST_DATA_DIR, "export.json");
+        segmented.exportJson(exported);
+        assertTrue(Files.readString(exported).contains("分段49"));
+
+        // 转回单文件
+        segmented.convertTo(StorageLayout.SINGLE_FILE);
+        assertEquals(StorageLayout.SINGLE_FILE, segmented.getStorageLayout());
+        assertFalse(Files.exists(segmentDir));
+        assertEquals(49, new JsonDataManager(TEST_DATA_DIR).loadAll().size());
+    }
+
+    @Test
+    @Order(25)
+    @DisplayName("测试延迟写入合并连续修改并可等待落盘")
+    void testWriteBehind() throws IOException, InterruptedException {
+        dataManager.setWriteBehind(true);
+        assertTrue(dataManager.isWriteBehind());
+
+        // 修改立即对内存可见，日志由后台线程写入
+        List<Petitioner> petitioners = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            Petitioner petitioner = createTestPetitioner("延迟" + i, String.format("3701021990030%05d", i));
+            petitioners.add(petitioner);
+            dataManager.save(petitioner);
+        }
+        assertEquals(30, dataManager.count());
+        assertTrue(dataManager.awaitDurable(10, TimeUnit.SECONDS));
+        assertEquals(0, dataManager.getPendingWriteCount());
+        assertEquals(30, new JsonDataManager(TEST_DATA_DIR).loadAll().size());
+
+        // flush()在调用线程中写出排队的修改
+        dataManager.delete(petitioners.get(0).getId());
+        dataManager.batchDelete(List.of(petitioners.get(1).getId(), petitioners.get(2).getId()));
+        dataManager.flush();
+        assertEquals(0, dataManager.getPendingWriteCount());
+        assertEquals(27, new JsonDataManager(TEST_DATA_DIR).loadAll().size());
+
+        // 合并日志时排队的修改已包含在快照中
+        Petitioner target = petitioners.get(3);
+        target.getPersonalInfo().setName("已修改");
+        dataManager.save(target);
+        dataManager.checkpoint();
+        assertFalse(Files.exists(dataManager.getLogFilePath()));
+        assertEquals("已修改", new JsonDataManager(TEST_DATA_DIR).findByIdCard(target.getIdCard()).get().getName());
+
+        // 关闭时写出所有排队的修改
+        dataManager.save(createTestPetitioner("关闭前", "370102199003100000"));
+        dataManager.close();
+        assertFalse(dataManager.isWriteBehind());
+        assertEquals(28, new JsonDataManager(TEST_DATA_DIR).loadAll().size());
+    }
+
+    @Test
+    @Order(26)
+    @DisplayName("测试不可变版本快照可与写入并行遍历")
+    void testVersionedSnapshot() throws Exception {
+        Petitioner first = createTestPetitioner("快照0", "370102199004000000");
+        dataManager.save(first);
+
+        DataSnapshot before = dataManager.currentSnapshot();
+        assertSame(before, dataManager.currentSnapshot());
+        assertThrows(UnsupportedOperationException.class,
+                () -> before.getRecords().add(createTestPetitioner("非法", "370102199004099999")));
+
+        // 修改后发布新版本，旧快照保持不变
+        dataManager.save(createTestPetitioner("快照1", "370102199004000001"));
+        DataSnapshot after = dataManager.currentSnapshot();
+        assertTrue(after.getVersion() > before.getVersion());
+        assertEquals(1, before.size());
+        assertEquals(2, after.size());
+
+        dataManager.delete(first.getId());
+        assertEquals(2, after.size());
+        assertEquals(1, dataManager.currentSnapshot().size());
+
+        // 后台线程遍历快照的同时持续写入
+        List<Throwable> errors = new ArrayList<>();
+        Thread reader = new Thread(() -> {
+            try {
+                for (int round = 0; round < 200; round++) {
+                    DataSnapshot snapshot = dataManager.currentSnapshot();
+                    int count = 0;
+                    for (Petitioner petitioner : snapshot.getRecords()) {
+                        assertNotNull(petitioner.getId());
+                        count++;
+                    }
+                    assertEquals(snapshot.size(), count);
+                }
+            } catch (Throwable e) {
+                errors.add(e);
+            }
+        });
+        reader.start();
+        for (int i = 0; i < 100; i++) {
+            dataManager.save(createTestPetitioner("并发" + i, String.format("3701021990041%05d", i)));
+        }
+        reader.join();
+        assertTrue(errors.isEmpty(), () -> errors.get(0).toString());
+        assertEquals(101, dataManager.currentSnapshot().size());
+    }
+
+    @Test
+    @Order(27)
+    @DisplayName("测试其他实例的修改按记录合并")
+    void testMergeExternalChanges() throws IOException {
+        Petitioner first = createTestPetitioner("合并0", "370102199005000000");
+        Petitioner second = createTestPetitioner("合并1", "370102199005000001");
+        dataManager.saveAll(List.of(first, second));
+        assertEquals(2, dataManager.loadAll().size());
+
+        List<DataChangeEvent> events = new ArrayList<>();
+        dataManager.addChangeListener(events::add);
+
+        // 其他实例只追加了日志：按行重放，发出逐条通知
+        JsonDataManager other = new JsonDataManager(TEST_DATA_DIR);
+        Petitioner added = createTestPetitioner("合并2", "370102199005000002");
+        other.save(added);
+        dataManager.checkExternalChanges();
+        assertEquals(1, events.size());
+        assertEquals(DataChangeEvent.Type.ADDED, events.get(0).getType());
+        assertEquals(3, dataManager.count());
+
+        // 其他实例合并日志后修改一条记录：只有修改时间变化的记录发出通知
+        other.checkpoint();
+        Petitioner unchanged = dataManager.loadAll().get(0);
+        Petitioner changed = other.findById(second.getId()).get();
+        changed.getPersonalInfo().setName("外部修改");
+        changed.touch();
+        other.save(changed);
+        other.checkpoint();
+        events.clear();
+        dataManager.checkExternalChanges();
+        assertEquals(1, events.size());
+        assertEquals(DataChangeEvent.Type.UPDATED, events.get(0).getType());
+        assertEquals("外部修改", dataManager.findById(second.getId()).get().getName());
+        assertSame(unchanged, dataManager.loadAll().get(0));
+
+        // 本地未落盘的修改较旧：采用外部版本，落盘后结果一致
+        dataManager.setWriteBehind(true);
+        Petitioner local = createTestPetitioner("本地修改", "370102199005000000");
+        local.setId(first.getId());
+        local.setUpdateTime(LocalDateTime.now().minusMinutes(5));
+        dataManager.save(local);
+        Petitioner remote = other.findById(first.getId()).get();
+        remote.getPersonalInfo().setName("外部较新");
+        remote.setUpdateTime(LocalDateTime.now());
+        other.save(remote);
+        dataManager.checkExternalChanges();
+        assertEquals("外部较新", dataManager.findById(first.getId()).get().getName());
+        dataManager.flush();
+        assertEquals("外部较新", new JsonDataManager(TEST_DATA_DIR).findByIdCard("370102199005000000").get().getName());
+
+        // 本地未落盘的修改较新：保留本地版本，落盘后覆盖外部修改
+        Petitioner newer = createTestPetitioner("本地较新", "370102199005000001");
+        newer.setId(second.getId());
+        newer.setUpdateTime(LocalDateTime.now().plusMinutes(5));
+        dataManager.save(newer);
+        Petitioner older = other.findById(second.getId()).get();
+        older.getPersonalInfo().setName("外部较旧");
+        older.touch();
+        other.save(older);
+        dataManager.checkExternalChanges();
+        assertEquals("本地较新", dataManager.findById(second.getId()).get().getName());
+        dataManager.flush();
+        assertEquals("本地较新", new JsonDataManager(TEST_DATA_DIR).findByIdCard("370102199005000001").get().getName());
+        other.close();
+    }
+
+    @Test
+    @Order(28)
+    @DisplayName("测试监视数据目录自动发现其他实例的修改")
+    void testWatchDataDirectory() throws Exception {
+        dataManager.save(createTestPetitioner("监视0", "370102199006000000"));
+        dataManager.startWatching();
+        assertTrue(dataManager.isWatching());
+
+        JsonDataManager other = new JsonDataManager(TEST_DATA_DIR);
+        other.save(createTestPetitioner("监视1", "370102199006000001"));
+
+        // 文件系统通知或定期检查后自动合并
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(15);
+        while (dataManager.count() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(2, dataManager.count());
+
+        dataManager.close();
+        assertFalse(dataManager.isWatching());
+        other.close();
+    }
+
+    @Test
+    @Order(29)
+    @DisplayName("测试多个实例同时保存不丢失修改并按记录解决冲突")
+    void testConcurrentInstances() throws Exception {
+        Petitioner shared = createTestPetitioner("共享", "370102199007000000");
+        dataManager.save(shared);
+        assertEquals(1, shared.getVersion());
+
+        // 两个实例同时保存，提交时互斥，彼此的修改都保留
+        JsonDataManager other = new JsonDataManager(TEST_DATA_DIR);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> writer = executor.submit(() -> {
+            for (int i = 0; i < 50; i++) {
+                other.save(createTestPetitioner("实例B" + i, String.format("37010219900710%04d", i)));
+            }
+            return null;
+        });
+        for (int i = 0; i < 50; i++) {
+            dataManager.save(createTestPetitioner("实例A" + i, String.format("37010219900720%04d", i)));
+        }
+        writer.get();
+        executor.shutdown();
+        assertEquals(101, new JsonDataManager(TEST_DATA_DIR).loadAll().size());
+        // 另一实例最后几次保存之后本实例没有再提交，先合并再比较
+        dataManager.checkExternalChanges();
+        assertEquals(101, dataManager.count());
+
+        // 基于旧版本的修改：拒绝保存，不覆盖另一实例的修改
+        Petitioner stale = other.findByIdCard("370102199007000000").get();
+        assertEquals(1, stale.getVersion());
+        shared.getPersonalInfo().setName("实例A修改");
+        dataManager.save(shared);
+        assertEquals(2, shared.getVersion());
+
+        stale.getPersonalInfo().setName("实例B修改");
+        RecordConflictException conflict = assertThrows(RecordConflictException.class, () -> other.save(stale));
+        assertEquals(1, conflict.getVersion());
+        assertEquals(2, conflict.getCurrentVersion());
+        assertEquals(1, stale.getVersion());
+
+        // 重新读取后再修改可以保存
+        Petitioner reloaded = other.findById(shared.getId()).get();
+        assertEquals("实例A修改", reloaded.getName());
+        reloaded.getPersonalInfo().setName("实例B修改");
+        other.save(reloaded);
+        assertEquals(3, reloaded.getVersion());
+
+        dataManager.checkExternalChanges();
+        Petitioner merged = dataManager.findById(shared.getId()).get();
+        assertEquals("实例B修改", merged.getName());
+        assertEquals(3, merged.getVersion());
+        assertEquals(101, dataManager.count());
+        other.close();
+    }
+
+    @Test
+    @Order(30)
+    @DisplayName("测试文本索引查询结果与逐条判断一致")
+    void testTextIndexFind() throws IOException {
+        String[] surnames = {"张", "王", "李", "赵", "欧阳"};
+        String[] places = {"山东省济南市", "河北省石家庄市", "河南省郑州市", "北京市"};
+        List<Petitioner> petitioners = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Petitioner petitioner = createTestPetitioner(surnames[i % surnames.length] + "测" + (i % 37),
+                    String.format("3701021990080%05d", i));
+            petitioner.getPersonalInfo().setNativePlace(places[i % places.length]);
+            petitioner.getPersonalInfo().setHomeAddress(places[(i + 1) % places.length] + "幸福路" + (i % 11) + "号");
+            petitioners.add(petitioner);
+        }
+        dataManager.saveAll(petitioners);
+
+        // 修改和删除后索引同步更新
+        Petitioner renamed = dataManager.findById(petitioners.get(5).getId()).get();
+        renamed.getPersonalInfo().setName("Abc司马");
+        dataManager.save(renamed);
+        dataManager.delete(petitioners.get(10).getId());
+
+        List<PetitionerFilter> filters = new ArrayList<>();
+        for (String keyword : new String[]{"张", "欧阳测", "测3", "司马", "abc", "不存在", "00012", "1380"}) {
+            PetitionerFilter filter = new PetitionerFilter();
+            filter.setKeyword(keyword);
+            filters.add(filter);
+        }
+        PetitionerFilter byName = new PetitionerFilter();
+        byName.setName("Abc");
+        filters.add(byName);
+        PetitionerFilter byPlace = new PetitionerFilter();
+        byPlace.setNativePlaceKeyword("河");
+        byPlace.setAddress("幸福路7");
+        filters.add(byPlace);
+        PetitionerFilter combined = new PetitionerFilter();
+        combined.setName("王测");
+        combined.setNativePlace("北京市");
+        combined.setMinVisitCount(0);
+        filters.add(combined);
+
+        List<Petitioner> all = dataManager.loadAll();
+        for (PetitionerFilter filter : filters) {
+            List<Petitioner> expected = all.stream().filter(filter::matches).collect(Collectors.toList());
+            assertEquals(expected, dataManager.find(filter));
+        }
+        assertEquals(1, dataManager.find(byName).size());
+        assertFalse(dataManager.find(byPlace).isEmpty());
+    }
+
+    @Test
+    @Order(31)
+    @DisplayName("测试号码片段索引的前缀和包含查找")
+    void testNumberIndex() throws IOException {
+        List<Petitioner> petitioners = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            String idCard = String.format("%06d1990%04d%03d", 370100 + i % 7, 101 + i % 1200, i % 1000)
+                    + (i % 10 == 0 ? "X" : String.valueOf(i % 10));
+            Petitioner petitioner = createTestPetitioner("号码" + i, idCard);
+            petitioner.getPersonalInfo().addPhone(String.format("139%08d", i * 7919L % 100000000L));
+            if (i % 100 == 0) {
+                petitioner.getPersonalInfo().addPhone("010-" + (6000000 + i));
+            }
+            petitioners.add(petitioner);
+        }
+        dataManager.saveAll(petitioners);
+
+        // 修改和删除后索引同步更新
+        Petitioner changed = dataManager.findById(petitioners.get(3).getId()).get();
+        changed.getPersonalInfo().setIdCard("11010119800101777X");
+        dataManager.save(changed);
+        dataManager.delete(petitioners.get(4).getId());
+
+        List<Petitioner> all = dataManager.loadAll();
+        String[] fragments = {"3", "37", "370", "3701", "370102", "1990", "777x", "0101", "6000100", "139", "13800138000",
+                "999999999999"};
+        for (NumberField field : NumberField.values()) {
+            for (String fragment : fragments) {
+                for (boolean prefixOnly : new boolean[]{false, true}) {
+                    List<String> expected = all.stream()
+                            .filter(p -> field.valuesOf(p).stream()
+                                    .anyMatch(value -> NumberField.matches(value, fragment, prefixOnly)))
+                            .map(Petitioner::getId)
+                            .collect(Collectors.toList());
+                    List<String> actual = new ArrayList<>();
+                    dataManager.findIdsByNumber(field, fragment, prefixOnly).forEachRemaining(actual::add);
+                    assertEquals(expected, actual, field + " " + fragment + " " + prefixOnly);
+                }
+            }
+        }
+
+        List<String> found = new ArrayList<>();
+        dataManager.findIdsByNumber(NumberField.ID_CARD, "777x", false).forEachRemaining(found::add);
+        assertEquals(List.of(changed.getId()), found);
+
+        // 含分隔符的号码：数字片段不跨分隔符，含分隔符的关键词逐条核对
+        PetitionerFilter filter = new PetitionerFilter();
+        filter.setKeyword("010-600");
+        assertEquals(30, dataManager.find(filter).size());
+        assertThrows(IllegalArgumentException.class,
+                () -> dataManager.findIdsByNumber(NumberField.PHONE, "010-", false));
+    }
+
+    @Test
+    @Order(32)
+    @DisplayName("测试枚举位图的组合筛选和分组计数")
+    void testFacetFilterAndCounts() throws IOException {
+        Gender[] genders = Gender.values();
+        Education[] educations = Education.values();
+        RiskLevel[] riskLevels = RiskLevel.values();
+        EntryMethod[] entryMethods = EntryMethod.values();
+        List<Petitioner> petitioners = new ArrayList<>();
+        for (int i = 0; i < 9000; i++) {
+            Petitioner petitioner = createTestPetitioner((i % 3 == 0 ? "王" : "李") + i,
+                    String.format("1101011990%08d", i));
+            petitioner.getPersonalInfo().setGender(genders[i % genders.length]);
+            petitioner.getPersonalInfo().setEducation(i % 11 == 0 ? null : educations[i % educations.length]);
+            petitioner.getPetitionCase().setEntryMethod(entryMethods[i % entryMethods.length]);
+            petitioner.getRiskAssessment().setRiskLevel(riskLevels[i * 7 % riskLevels.length]);
+            petitioners.add(petitioner);
+        }
+        dataManager.saveAll(petitioners);
+
+        // 修改和删除后位图同步更新
+        Petitioner changed = dataManager.findById(petitioners.get(5).getId()).get();
+        changed.getRiskAssessment().setRiskLevel(RiskLevel.CRITICAL);
+        changed.getPersonalInfo().setGender(Gender.FEMALE);
+        dataManager.save(changed);
+        dataManager.delete(petitioners.get(6).getId());
+
+        PetitionerFilter filter = new PetitionerFilter();
+        filter.setGenders(EnumSet.of(Gender.FEMALE));
+        filter.setRiskLevels(EnumSet.of(RiskLevel.HIGH, RiskLevel.CRITICAL));
+        filter.setEducations(EnumSet.of(educations[0], educations[1]));
+
+        List<Petitioner> all = dataManager.loadAll();
+        for (String name : new String[]{null, "王"}) {
+            filter.setName(name);
+            List<Petitioner> expected = all.stream().filter(filter::matches).collect(Collectors.toList());
+            assertFalse(expected.isEmpty());
+            assertEquals(expected, dataManager.find(filter));
+
+            Map<FacetField, Map<Enum<?>, Integer>> counts = dataManager.facetCounts(filter);
+            for (FacetField field : FacetField.values()) {
+                for (Enum<?> option : field.getOptions()) {
+                    long count = all.stream()
+                            .filter(filter::matchesIgnoringFacets)
+                            .filter(p -> Arrays.stream(FacetField.values())
+                                    .allMatch(other -> other == field || filter.matchesFacet(other, p)))
+                            .filter(p -> field.getValue(p) == option)
+                            .count();
+                    assertEquals(count, counts.get(field).get(option).longValue(), field + " " + option);
+                }
+            }
+        }
+
+        // 在京交通方式都相同，分组计数中其他取值为0
+        Map<Enum<?>, Integer> transportCounts = dataManager.facetCounts(null).get(FacetField.TRANSPORT_METHOD);
+        assertEquals(8999, transportCounts.get(TransportMethod.SUBWAY));
+        assertEquals(TransportMethod.values().length, transportCounts.size());
+    }
+
+    @Test
+    @Order(33)
+    @DisplayName("测试排序分页只取出一页且结果与完整排序一致")
+    void testFindPage() throws IOException {
+        RiskLevel[] levels = RiskLevel.values();
+        List<Petitioner> petitioners = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Petitioner petitioner = createTestPetitioner((i % 4 == 0 ? "王" : "李") + (i * 7919 % 1000),
+                    String.format("1101011990%08d", i));
+            petitioner.getPersonalInfo().setVisitCount(i % 9 == 0 ? null : i * 31 % 50);
+            petitioner.getRiskAssessment().setRiskLevel(levels[i * 3 % levels.length]);
+            petitioners.add(petitioner);
+        }
+        dataManager.saveAll(petitioners);
+
+        PetitionerFilter filter = new PetitionerFilter();
+        filter.setName("王");
+        List<List<SortKey>> sorts = List.of(
+                List.of(),
+                List.of(SortKey.desc(SortField.VISIT_COUNT)),
+                List.of(SortKey.asc(SortField.RISK_LEVEL), SortKey.desc(SortField.NAME)));
+        for (PetitionerFilter condition : Arrays.asList(null, filter)) {
+            List<Petitioner> matched = condition != null ? dataManager.find(condition) : dataManager.loadAll();
+            for (List<SortKey> sort : sorts) {
+                List<Petitioner> expected = new ArrayList<>(matched);
+                if (!sort.isEmpty()) {
+                    expected.sort(SortKey.comparator(sort));
+                }
+                for (int offset : new int[]{0, 30, 490, 1990, 5000}) {
+                    Page<Petitioner> page = dataManager.findPage(condition, sort, offset, 30);
+                    assertEquals(matched.size(), page.getTotal());
+                    List<Petitioner> expectedPage = expected.subList(Math.min(offset, expected.size()),
+                            Math.min(offset + 30, expected.size()));
+                    assertEquals(expectedPage.stream().map(Petitioner::getId).collect(Collectors.toList()),
+                            page.getItems().stream().map(Petitioner::getId).collect(Collectors.toList()),
+                            sort + " " + offset);
+                }
+            }
+        }
+
+        // 空值排在最后
+        Page<Petitioner> last = dataManager.findPage(null, List.of(SortKey.asc(SortField.VISIT_COUNT)), 1990, 10);
+        assertTrue(last.getItems().stream().allMatch(p -> p.getPersonalInfo().getVisitCount() == null));
+        assertThrows(IllegalArgumentException.class, () -> dataManager.findPage(null, List.of(), -1, 10));
+    }
+
+    @Test
+    @Order(34)
+    @DisplayName("测试编辑记录不影响已发布的快照")
+    void testSnapshotIsolatedFromEdits() throws IOException {
+        Petitioner petitioner = createTestPetitioner("张三", "110101199001011234");
+        dataManager.save(petitioner);
+        // 保存后继续修改调用方的对象不影响缓存
+        petitioner.getPersonalInfo().setName("张三丰");
+        assertEquals("张三", dataManager.findById(petitioner.getId()).orElseThrow().getName());
+
+        List<DataChangeEvent> events = new ArrayList<>();
+        dataManager.addChangeListener(events::add);
+        DataSnapshot before = dataManager.currentSnapshot();
+
+        // 与编辑表单相同：取出记录、原地修改后保存
+        Petitioner editing = dataManager.findById(petitioner.getId()).orElseThrow();
+        editing.getPersonalInfo().setName("李四");
+        assertEquals("张三", dataManager.snapshot().get(0).getName());
+        dataManager.save(editing);
+
+        assertEquals("张三", before.getRecords().get(0).getName());
+        assertEquals("李四", dataManager.snapshot().get(0).getName());
+        assertEquals(1, events.size());
+        assertNotSame(events.get(0).getBefore(), events.get(0).getAfter());
+        assertEquals("张三", events.get(0).getBefore().getName());
+        assertEquals("李四", events.get(0).getAfter().getName());
+    }
+
+    @Test
+    @Order(35)
+    @DisplayName("测试按ID查找时读取其他实例的修改")
+    void testFindByIdDetectsExternalChange() throws IOException {
+        Petitioner petitioner = createTestPetitioner("张三", "370102199001011234");
+        dataManager.save(petitioner);
+
+        JsonDataManager otherManager = new JsonDataManager(TEST_DATA_DIR);
+        try {
+            Petitioner edited = otherManager.findById(petitioner.getId()).orElseThrow();
+            edited.getPersonalInfo().setName("张三丰");
+            otherManager.save(edited);
+            Petitioner added = createTestPetitioner("李四", "370102199002021234");
+            otherManager.save(added);
+
+            // 未开启监视，也未调用loadAll()，按ID查找时就应看到另一实例写入的数据
+            assertEquals("张三丰", dataManager.findById(petitioner.getId()).orElseThrow().getName());
+            assertTrue(dataManager.findById(added.getId()).isPresent());
+        } finally {
+            otherManager.close();
+        }
+    }
+
+    @Test
+    @Order(36)
+    @DisplayName("测试两个实例同时编辑同一条记录不丢失修改")
+    void testConcurrentEditsOfSameRecord() throws Exception {
+        Petitioner petitioner = createTestPetitioner("张三", "370102199001011234");
+        dataManager.save(petitioner);
+
+        JsonDataManager otherManager = new JsonDataManager(TEST_DATA_DIR);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // 两个实例都基于同一版本打开编辑，各改一个字段后同时保存
+            Petitioner first = dataManager.findById(petitioner.getId()).orElseThrow();
+            Petitioner second = otherManager.findById(petitioner.getId()).orElseThrow();
+            first.getPersonalInfo().setName("张三丰");
+            second.getPersonalInfo().setVisitCount(9);
+
+            Future<?> firstSave = executor.submit(() -> {
+                dataManager.save(first);
+                return null;
+            });
+            Future<?> secondSave = executor.submit(() -> {
+                otherManager.save(second);
+                return null;
+            });
+            int conflicts = 0;
+            for (Future<?> save : List.of(firstSave, secondSave)) {
+                try {
+                    save.get();
+                } catch (ExecutionException e) {
+                    assertInstanceOf(RecordConflictException.class, e.getCause());
+                    conflicts++;
+                }
+            }
+            // 先提交的一方成功，后提交的一方被拒绝，不会整条覆盖先提交的修改
+            assertEquals(1, conflicts);
+
+            Petitioner saved = new JsonDataManager(TEST_DATA_DIR).findById(petitioner.getId()).orElseThrow();
+            assertEquals(2, saved.getVersion());
+            if ("张三丰".equals(saved.getName())) {
+                assertEquals(petitioner.getPersonalInfo().getVisitCount(), saved.getPersonalInfo().getVisitCount());
+            } else {
+                assertEquals("张三", saved.getName());
+                assertEquals(9, saved.getPersonalInfo().getVisitCount());
+            }
+        } finally {
+            executor.shutdown();
+            otherManager.close();
+        }
+    }
 }
@@ -450,4 +450,56 @@ class ExportServiceTest {
         // CSV中多个电话用分号分隔
         assertTrue(dataLine.contains("13800138001;13800138002;13800138003"));
     }
+
+    @Test
+    @Order(17)
+    @DisplayName("测试小行窗口流式导出Excel")
+    void testExcelStreamingWithSmallWindow() throws IOException {
+        List<Petitioner> petitioners = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            petitioners.add(createTestPetitioner("流式" + i,
+                String.format("1101011990010%05d", i), i));
+        }
+
+        exportService.setExcelRowWindow(10);
+        assertEquals(10, exportService.getExcelRowWindow());
+        int count = exportService.exportToExcel(TEST_EXCEL_FILE, petitioners);
+        assertEquals(50, count);
+
+        try (Workbook workbook = new XSSFWorkbook(new FileInputStream(TEST_EXCEL_FILE))) {
+            Sheet sheet = workbook.getSheetAt(0);
+            // 已刷出到临时文件的行也应完整写入
+            assertEquals(51, sheet.getPhysicalNumberOfRows());
+            assertEquals("流式0", sheet.getRow(1).getCell(0).getStringCellValue());
+            assertEquals("流式49", sheet.getRow(50).getCell(0).getStringCellValue());
+            assertEquals("姓名", sheet.getRow(0).getCell(0).getStringCellValue());
+            // 身份证号列宽按字符数估算，应宽于姓名列
+            assertTrue(sheet.getColumnWidth(1) > sheet.getColumnWidth(0));
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> exportService.setExcelRowWindow(0));
+    }
+
+    @Test
+    @Order(18)
+    @DisplayName("测试CSV批量导出行数与列数")
+    void testCsvBulkExport() throws IOException {
+        List<Petitioner> petitioners = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            petitioners.add(createTestPetitioner("批量" + i,
+                String.format("1101011990010%05d", i), i));
+        }
+        dataManager.saveAll(petitioners);
+
+        int count = exportService.exportToCsv(TEST_CSV_FILE);
+        assertEquals(2000, count);
+
+        List<String> lines = Files.readAllLines(Paths.get(TEST_CSV_FILE), StandardCharsets.UTF_8);
+        assertEquals(2001, lines.size());
+        for (int i = 1; i < lines.size(); i++) {
+            // 16列，15个分隔符
+            assertEquals(15, lines.get(i).chars().filter(c -> c == ',').count());
+        }
+        assertTrue(lines.get(2000).startsWith("批量1999,"));
+    }
 }
@@ -7,12 +7,18 @@ import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.junit.jupiter.api.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -404,4 +410,109 @@ class ImportServiceTest {
         assertFalse(errors.isEmpty());
         assertTrue(errors.stream().anyMatch(e -> e.contains("姓名不能为空")));
     }
+
+    @Test
+    @Order(13)
+    @DisplayName("测试表内重复身份证号")
+    void testImportDuplicateWithinSheet() throws IOException {
+        createTestExcelFile(TEST_EXCEL_FILE, 3);
+
+        // 第4行与第2行身份证号相同
+        try (FileInputStream fis = new FileInputStream(TEST_EXCEL_FILE);
+             Workbook workbook = new XSSFWorkbook(fis)) {
+            Row row = workbook.getSheetAt(0).createRow(4);
+            row.createCell(0).setCellValue("重复人员");
+            row.createCell(1).setCellValue("370102199001010002");
+            try (FileOutputStream fos = new FileOutputStream(TEST_EXCEL_FILE)) {
+                workbook.write(fos);
+            }
+        }
+
+        ImportService.ImportResult result = importService.importFromExcel(TEST_EXCEL_FILE, true);
+
+        assertEquals(3, result.getSuccessCount());
+        assertEquals(1, result.getSkippedCount());
+        assertEquals(4, result.getSkipped().get(0).getRowNumber());
+        assertEquals(3, dataManager.loadAll().size());
+    }
+
+    @Test
+    @Order(14)
+    @DisplayName("测试整批导入只写一条日志")
+    void testImportCommitsSingleBatch() throws IOException {
+        createTestExcelFile(TEST_EXCEL_FILE, 20);
+
+        ImportService.ImportResult result = importService.importFromExcel(TEST_EXCEL_FILE, false);
+
+        assertEquals(20, result.getSuccessCount());
+        assertEquals(1, Files.readAllLines(dataManager.getLogFilePath()).size());
+        assertEquals(20, dataManager.loadAll().size());
+    }
+
+    @Test
+    @Order(15)
+    @DisplayName("测试流式读取保持行号和数字单元格取值")
+    void testStreamingImportRowNumbers() throws IOException {
+        try (Workbook workbook = new XSSFWorkbook()) {
+            Sheet sheet = workbook.createSheet("上访人员数据");
+            sheet.createRow(0).createCell(0).setCellValue("姓名");
+
+            // 身份证号以数字单元格保存
+            Row row1 = sheet.createRow(1);
+            row1.createCell(0).setCellValue("张三");
+            row1.createCell(1).setCellValue(370102199001011234.0);
+            row1.createCell(9).setCellValue(3);
+
+            // 中间空两行，第5行姓名为空
+            Row row5 = sheet.createRow(5);
+            row5.createCell(1).setCellValue("370102199005051234");
+
+            try (FileOutputStream fos = new FileOutputStream(TEST_EXCEL_FILE)) {
+                workbook.write(fos);
+            }
+        }
+
+        ImportService.ImportResult result = importService.importFromExcel(TEST_EXCEL_FILE, false);
+
+        assertEquals(1, result.getSuccessCount());
+        assertEquals(1, result.getErrorCount());
+        assertEquals(5, result.getErrors().get(0).getRowNumber());
+
+        Petitioner imported = dataManager.loadAll().get(0);
+        assertEquals(3, imported.getPersonalInfo().getVisitCount());
+        assertEquals(18, imported.getIdCard().length());
+    }
+
+    @Test
+    @Order(16)
+    @DisplayName("测试单元格无法解析时只记为该行错误")
+    void testImportMalformedCell() throws IOException {
+        createTestExcelFile(TEST_EXCEL_FILE, 3);
+        // 把第2条数据的上访次数（数字单元格）改成无法解析的值
+        Path file = Paths.get(TEST_EXCEL_FILE);
+        byte[] original = Files.readAllBytes(file);
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(original));
+             ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(file))) {
+            for (ZipEntry entry = in.getNextEntry(); entry != null; entry = in.getNextEntry()) {
+                byte[] content = in.readAllBytes();
+                if (entry.getName().startsWith("xl/worksheets/")) {
+                    String xml = new String(content, StandardCharsets.UTF_8);
+                    String malformed = xml.replaceFirst("(<c r=\"J3\"[^>]*><v>)[^<]*(</v>)", "$1不是数字$2");
+                    assertNotEquals(xml, malformed);
+                    content = malformed.getBytes(StandardCharsets.UTF_8);
+                }
+                out.putNextEntry(new ZipEntry(entry.getName()));
+                out.write(content);
+                out.closeEntry();
+            }
+        }
+
+        ImportService.ImportResult result = importService.importFromExcel(TEST_EXCEL_FILE, false);
+
+        assertEquals(2, result.getSuccessCount());
+        assertEquals(1, result.getErrorCount());
+        assertEquals(2, result.getErrors().get(0).getRowNumber());
+        assertTrue(result.getErrors().get(0).getMessage().contains("第10列"));
+        assertEquals(2, dataManager.loadAll().size());
+    }
 }
@@ -0,0 +1,269 @@
+package com.petition.service;
+
+import com.petition.dao.DataChangeEvent;
+import com.petition.dao.JsonDataManager;
+import com.petition.dao.Page;
+import com.petition.dao.SortField;
+import com.petition.dao.SortKey;
+import com.petition.model.*;
+import com.petition.model.enums.*;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * LiveQueryPage单元测试
+ *
+ * @author 刘一村
+ * @version 1.0.0
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class LiveQueryPageTest {
+    private static final String TEST_DATA_DIR = "test_live_page_data";
+    private JsonDataManager dataManager;
+    private final List<DataChangeEvent> events = new ArrayList<>();
+
+    /**
+     * 重新读取本页的次数
+     */
+    private int queries;
+
+    /**
+     * 下一次读取本页时先保存的记录，模拟读取期间发生的变更
+     */
+    private Petitioner savedDuringLoad;
+
+    private QueryService queryService;
+
+    @BeforeEach
+    void setUp() {
+        dataManager = new JsonDataManager(TEST_DATA_DIR);
+        queryService = new QueryService(dataManager) {
+            @Override
+            public Page<Petitioner> findPage(CompiledQuery query, int offset, int limit) throws IOException {
+                queries++;
+                if (savedDuringLoad != null) {
+                    Petitioner petitioner = savedDuringLoad;
+                    savedDuringLoad = null;
+                    dataManager.save(petitioner);
+                }
+                return super.findPage(query, offset, limit);
+            }
+        };
+        dataManager.addChangeListener(events::add);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        dataManager.close();
+        Path testDir = Paths.get(TEST_DATA_DIR);
+        if (Files.exists(testDir)) {
+            Files.walk(testDir)
+                 .sorted((a, b) -> b.compareTo(a))
+                 .forEach(path -> {
+                     try {
+                         Files.deleteIfExists(path);
+                     } catch (IOException e) {
+                         e.printStackTrace();
+                     }
+                 });
+        }
+    }
+
+    private Petitioner createPetitioner(String name, RiskLevel riskLevel, int visitCount) {
+        PersonalInfo personalInfo = new PersonalInfo();
+        personalInfo.setName(name);
+        personalInfo.setIdCard("37010219900101" + String.format("%04d", visitCount));
+        personalInfo.setGender(Gender.MALE);
+        personalInfo.setVisitCount(visitCount);
+        return new Petitioner(personalInfo, new BeijingContact(), new PetitionCase(), new RiskAssessment(riskLevel));
+    }
+
+    /**
+     * 把积累的事件交给结果页
+     */
+    private boolean deliver(LiveQueryPage page) throws IOException {
+        List<DataChangeEvent> batch = new ArrayList<>(events);
+        events.clear();
+        return page.apply(batch);
+    }
+
+    private static List<String> names(List<PetitionerSummary> rows) {
+        return rows.stream().map(PetitionerSummary::getName).collect(Collectors.toList());
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("测试本页以外的修改不重新查询")
+    void testEditOutsidePage() throws IOException {
+        List<Petitioner> petitioners = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            petitioners.add(createPetitioner(String.format("人员%02d", i), RiskLevel.LOW, i));
+        }
+        dataManager.saveBatch(petitioners);
+
+        PetitionerQuery query = new PetitionerQuery();
+        query.setSort(List.of(SortKey.asc(SortField.NAME)));
+        List<PetitionerSummary> rows = new ArrayList<>();
+        LiveQueryPage page = new LiveQueryPage(queryService, rows, 5);
+        page.setQuery(query.compile());
+        page.load(1);
+        events.clear();
+        queries = 0;
+        List<String> shown = List.of("人员05", "人员06", "人员07", "人员08", "人员09");
+        assertEquals(shown, names(rows));
+
+        // 本页之后的记录修改非排序字段、改名后仍在本页之后
+        Petitioner outside = dataManager.findById(petitioners.get(20).getId()).orElseThrow();
+        outside.getPersonalInfo().setVisitCount(99);
+        dataManager.save(outside);
+        Petitioner renamed = dataManager.findById(petitioners.get(25).getId()).orElseThrow();
+        renamed.getPersonalInfo().setName("人员26甲");
+        dataManager.save(renamed);
+        assertFalse(deliver(page));
+        assertEquals(0, queries);
+        assertEquals(shown, names(rows));
+
+        // 本页内的记录修改非排序字段：只改写该行
+        Petitioner inside = dataManager.findById(petitioners.get(7).getId()).orElseThrow();
+        inside.getPersonalInfo().setVisitCount(70);
+        dataManager.save(inside);
+        assertFalse(deliver(page));
+        assertEquals(0, queries);
+        assertEquals(70, rows.get(2).getVisitCount());
+        assertEquals(2, page.indexOf(inside.getId()));
+
+        // 新增排在本页之后的记录：只调整总数
+        dataManager.save(createPetitioner("人员99", RiskLevel.LOW, 99));
+        assertFalse(deliver(page));
+        assertEquals(0, queries);
+        assertEquals(31, page.getTotal());
+
+        // 删除本页之前的记录：本页整体前移，需要重新查询
+        dataManager.delete(petitioners.get(0).getId());
+        assertTrue(deliver(page));
+        assertEquals(1, queries);
+        assertEquals(List.of("人员06", "人员07", "人员08", "人员09", "人员10"), names(rows));
+        assertEquals(30, page.getTotal());
+        assertEquals(-1, page.indexOf(petitioners.get(5).getId()));
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("测试逐条应用变更后与重新查询的结果一致")
+    void testIncrementalMatchesRequery() throws IOException {
+        Random random = new Random(42);
+        RiskLevel[] levels = RiskLevel.values();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Petitioner petitioner = createPetitioner("人员" + i, levels[random.nextInt(levels.length)],
+                    random.nextInt(6));
+            dataManager.save(petitioner);
+            ids.add(petitioner.getId());
+        }
+
+        List<List<SortKey>> sorts = List.of(List.of(), List.of(SortKey.desc(SortField.VISIT_COUNT)),
+                List.of(SortKey.asc(SortField.NAME)));
+        int applied = 0;
+        int requeried = 0;
+        int next = 40;
+        for (List<SortKey> sort : sorts) {
+            PetitionerQuery query = new PetitionerQuery();
+            query.setRiskLevels(List.of(RiskLevel.LOW, RiskLevel.HIGH));
+            query.setSort(sort);
+            CompiledQuery compiled = query.compile();
+            List<PetitionerSummary> rows = new ArrayList<>();
+            LiveQueryPage page = new LiveQueryPage(queryService, rows, 4);
+            page.setQuery(compiled);
+            events.clear();
+
+            for (int step = 0; step < 150; step++) {
+                if (step % 25 == 0) {
+                    page.load(random.nextInt(page.getPageCount()));
+                }
+                int operation = random.nextInt(4);
+                if (operation == 0 || ids.isEmpty()) {
+                    Petitioner added = createPetitioner("人员" + next++, levels[random.nextInt(levels.length)],
+                            random.nextInt(6));
+                    dataManager.save(added);
+                    ids.add(added.getId());
+                } else if (operation == 1) {
+                    dataManager.delete(ids.remove(random.nextInt(ids.size())));
+                } else {
+                    Petitioner edited = dataManager.findById(ids.get(random.nextInt(ids.size()))).orElseThrow();
+                    if (operation == 2) {
+                        edited.getPersonalInfo().setVisitCount(random.nextInt(6));
+                    } else {
+                        edited.getRiskAssessment().setRiskLevel(levels[random.nextInt(levels.length)]);
+                    }
+                    dataManager.save(edited);
+                }
+
+                if (deliver(page)) {
+                    requeried++;
+                } else {
+                    applied++;
+                }
+                Page<Petitioner> expected = queryService.findPage(compiled,
+                        page.getPageIndex() * page.getPageSize(), page.getPageSize());
+                assertEquals(expected.getTotal(), page.getTotal(), sort + " step " + step);
+                assertEquals(expected.getItems().stream().map(Petitioner::getId).collect(Collectors.toList()),
+                        rows.stream().map(PetitionerSummary::getId).collect(Collectors.toList()),
+                        sort + " step " + step);
+                for (int i = 0; i < rows.size(); i++) {
+                    assertEquals(i, page.indexOf(rows.get(i).getId()));
+                    assertEquals(expected.getItems().get(i).getPersonalInfo().getVisitCount(),
+                            rows.get(i).getVisitCount());
+                }
+            }
+        }
+        // 多数变更不影响当前页，不需要重新查询
+        assertTrue(applied > requeried, applied + " / " + requeried);
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("测试读取期间发生的变更不重复应用")
+    void testEventDuringLoad() throws IOException {
+        List<Petitioner> petitioners = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            petitioners.add(createPetitioner(String.format("人员%02d", i), RiskLevel.LOW, i));
+        }
+        dataManager.saveBatch(petitioners);
+
+        PetitionerQuery query = new PetitionerQuery();
+        query.setSort(List.of(SortKey.asc(SortField.NAME)));
+        List<PetitionerSummary> rows = new ArrayList<>();
+        LiveQueryPage page = new LiveQueryPage(queryService, rows, 5);
+        page.setQuery(query.compile());
+        events.clear();
+
+        // 读取第二页时新增一条排在本页之后的记录，事件在读取完成后才交给结果页
+        savedDuringLoad = createPetitioner("人员99", RiskLevel.LOW, 99);
+        page.load(1);
+        assertEquals(31, page.getTotal());
+        assertEquals(1, events.size());
+        queries = 0;
+        assertFalse(deliver(page));
+        assertEquals(0, queries);
+        assertEquals(31, page.getTotal());
+
+        // 同一批中读取之后的变更照常应用
+        savedDuringLoad = createPetitioner("人员98", RiskLevel.LOW, 98);
+        page.load(1);
+        dataManager.delete(petitioners.get(29).getId());
+        assertEquals(2, events.size());
+        assertFalse(deliver(page));
+        assertEquals(31, page.getTotal());
+        assertEquals(List.of("人员05", "人员06", "人员07", "人员08", "人员09"), names(rows));
+    }
+}
@@ -1,5 +1,7 @@
 package com.petition.service;
 
+import com.petition.dao.DataChangeEvent;
+import com.petition.dao.DataChangeListener;
 import com.petition.dao.JsonDataManager;
 import com.petition.model.*;
 import com.petition.model.enums.*;
@@ -9,6 +11,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -261,4 +264,88 @@ class PetitionerServiceTest {
 
         assertEquals(0, service.getTotalCount());
     }
+
+    @Test
+    @Order(15)
+    @DisplayName("测试批量添加上访人员")
+    void testAddPetitioners() throws IOException {
+        service.addPetitioner(createTestPetitioner("张三", "370102199001011234"));
+
+        service.addPetitioners(List.of(
+                createTestPetitioner("李四", "370102199002021234"),
+                createTestPetitioner("王五", "370102199003031234")));
+        assertEquals(3, service.getAllPetitioners().size());
+
+        // 批次中任一记录重复，整批都不写入
+        assertThrows(IllegalArgumentException.class, () -> service.addPetitioners(List.of(
+                createTestPetitioner("赵六", "370102199004041234"),
+                createTestPetitioner("张三", "370102199001011234"))));
+        assertThrows(IllegalArgumentException.class, () -> service.addPetitioners(List.of(
+                createTestPetitioner("赵六", "370102199004041234"),
+                createTestPetitioner("孙七", "370102199004041234"))));
+        assertEquals(3, service.getAllPetitioners().size());
+    }
+
+    @Test
+    @Order(16)
+    @DisplayName("测试人员摘要列表")
+    void testGetAllSummaries() throws IOException {
+        Petitioner p1 = createTestPetitioner("张三", "370102199001011234");
+        Petitioner p2 = createTestPetitioner("李四", "370102199002021234");
+        service.addPetitioners(List.of(p1, p2));
+
+        List<PetitionerSummary> summaries = service.getAllSummaries();
+        assertEquals(2, summaries.size());
+        assertEquals(p1.getId(), summaries.get(0).getId());
+        assertEquals("张三", summaries.get(0).getName());
+        assertEquals("370102199002021234", summaries.get(1).getIdCard());
+
+        // 未修改的记录复用摘要对象，修改后重新生成
+        p2.getPersonalInfo().setName("李四四");
+        service.updatePetitioner(p2);
+        List<PetitionerSummary> updated = service.getAllSummaries();
+        assertSame(summaries.get(0), updated.get(0));
+        assertNotSame(summaries.get(1), updated.get(1));
+        assertEquals("李四四", updated.get(1).getName());
+
+        // 完整记录按ID读取
+        assertEquals("李四四", service.getPetitionerById(updated.get(1).getId()).get().getName());
+
+        service.deletePetitioner(p1.getId());
+        assertEquals(1, service.getAllSummaries().size());
+    }
+
+    @Test
+    @Order(17)
+    @DisplayName("测试变更事件携带修改前后的记录")
+    void testChangeEvents() throws IOException {
+        List<DataChangeEvent> events = new ArrayList<>();
+        // 首次读取数据文件时还会收到重新加载通知，这里只关心按记录的变更
+        DataChangeListener listener = event -> {
+            if (event.getType() != DataChangeEvent.Type.RELOADED) {
+                events.add(event);
+            }
+        };
+        service.addChangeListener(listener);
+
+        Petitioner petitioner = createTestPetitioner("张三", "370102199001011234");
+        service.addPetitioner(petitioner);
+        petitioner.getPersonalInfo().setName("张三丰");
+        service.updatePetitioner(petitioner);
+        service.deletePetitioner(petitioner.getId());
+
+        assertEquals(3, events.size());
+        assertEquals(DataChangeEvent.Type.ADDED, events.get(0).getType());
+        assertNull(events.get(0).getBefore());
+        assertEquals(DataChangeEvent.Type.UPDATED, events.get(1).getType());
+        assertEquals("张三丰", events.get(1).getAfter().getName());
+        assertEquals(DataChangeEvent.Type.REMOVED, events.get(2).getType());
+        assertEquals(petitioner.getId(), events.get(2).getId());
+        assertNull(events.get(2).getAfter());
+
+        // 移除后不再收到通知
+        service.removeChangeListener(listener);
+        service.addPetitioner(createTestPetitioner("李四", "370102199002021234"));
+        assertEquals(3, events.size());
+    }
 }
@@ -9,7 +9,10 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -243,4 +246,43 @@ class QueryServiceTest {
         assertEquals(1, results.size());
         assertEquals("张三", results.get(0).getName());
     }
+
+    @Test
+    @Order(15)
+    @DisplayName("测试编译查询的判断顺序和执行结果")
+    void testCompiledQuery() throws IOException {
+        PetitionerQuery query = new PetitionerQuery();
+        query.setNativePlaceKeyword(" 山东 ");
+        query.setRiskLevels(List.of(RiskLevel.LOW, RiskLevel.HIGH));
+        query.setMinVisitCount(2);
+        query.setGenders(List.of(Gender.MALE));
+        CompiledQuery compiled = query.compile();
+
+        // 之后修改查询对象不影响已编译的查询
+        query.setNativePlaceKeyword("河北");
+
+        String[] plan = compiled.explain().split("\n");
+        assertEquals(5, plan.length);
+        assertTrue(plan[0].contains("籍贯二元组索引"));
+        // 枚举和数值条件代价低，先于文本包含判断
+        assertEquals(Set.of("危险等级", "性别", "上访次数"), Arrays.stream(plan, 1, 4)
+                .map(line -> line.substring(3, line.indexOf(line.contains("属于") ? "属于" : "在")))
+                .collect(Collectors.toSet()));
+        assertTrue(plan[4].startsWith("4. 籍贯包含\"山东\""));
+        // 数据仓库核对候选记录用的是同一条判断链
+        assertEquals(compiled.explain(), compiled.toFilter().explain());
+
+        List<PetitionerSummary> results = queryService.query(compiled);
+        assertEquals(List.of("张三", "李四"),
+                results.stream().map(PetitionerSummary::getName).collect(Collectors.toList()));
+        for (Petitioner petitioner : dataManager.loadAll()) {
+            assertEquals(results.stream().anyMatch(s -> s.getId().equals(petitioner.getId())),
+                    compiled.matches(petitioner));
+        }
+
+        PetitionerQuery empty = new PetitionerQuery();
+        empty.setName("  ");
+        assertTrue(empty.compile().isEmpty());
+        assertEquals(5, queryService.query(empty.compile()).size());
+    }
 }
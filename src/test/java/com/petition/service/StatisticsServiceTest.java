@@ -9,6 +9,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -36,6 +37,7 @@ class StatisticsServiceTest {
 
     @AfterEach
     void tearDown() throws IOException {
+        statisticsService.close();
         // 清理测试数据
         Path testDir = Paths.get(TEST_DATA_DIR);
         if (Files.exists(testDir)) {
@@ -208,4 +210,138 @@ class StatisticsServiceTest {
         assertNotNull(summary.get("visitCountDistribution"));
         assertNotNull(summary.get("genderDistribution"));
     }
+
+    @Test
+    @Order(11)
+    @DisplayName("测试统计快照一次遍历得到全部分布")
+    void testGetStatisticsSnapshot() throws IOException {
+        StatisticsSnapshot statistics = statisticsService.getStatistics();
+
+        assertEquals(10, statistics.getTotalCount());
+        assertEquals(4, statistics.getHighRiskCount());
+        assertEquals(3, statistics.getRiskLevelCount(RiskLevel.MEDIUM));
+        assertEquals(6, statistics.getGenderDistribution().get(Gender.MALE));
+        assertEquals(4, statistics.getNativePlaceDistribution().get("山东"));
+        assertEquals(1, statistics.getMaritalStatusDistribution().get(MaritalStatus.WIDOWED));
+        assertEquals(2, statistics.getVisitCountDistribution().get("10次以上"));
+        // 仪表盘使用的区间
+        assertEquals(10, statistics.countVisitsBetween(0, Integer.MAX_VALUE));
+        assertEquals(2, statistics.countVisitsBetween(11, Integer.MAX_VALUE));
+
+        // 快照只读
+        assertThrows(UnsupportedOperationException.class,
+            () -> statistics.getRiskLevelDistribution().put(RiskLevel.LOW, 0));
+    }
+
+    @Test
+    @Order(12)
+    @DisplayName("测试统计累加器扣除记录")
+    void testAccumulatorRemove() {
+        StatisticsAccumulator accumulator = new StatisticsAccumulator();
+        Petitioner first = createPetitioner("王五", Gender.MALE, RiskLevel.HIGH, 30, "河北",
+            Education.MASTER, MaritalStatus.MARRIED, EntryMethod.TRAIN);
+        Petitioner second = createPetitioner("赵六", Gender.FEMALE, RiskLevel.LOW, 1, "河北",
+            Education.BACHELOR, MaritalStatus.UNMARRIED, EntryMethod.AIRPLANE);
+        StatisticsAccumulator.Contribution firstContribution = StatisticsAccumulator.Contribution.of(first);
+        accumulator.add(firstContribution);
+        accumulator.add(second);
+        // 原地修改记录后，仍按累加时的取值扣除
+        first.getRiskAssessment().setRiskLevel(RiskLevel.LOW);
+        accumulator.remove(firstContribution);
+
+        StatisticsSnapshot statistics = accumulator.snapshot();
+        assertEquals(1, statistics.getTotalCount());
+        assertEquals(0, statistics.getHighRiskCount());
+        assertEquals(0, statistics.getGenderDistribution().get(Gender.MALE));
+        assertEquals(1, statistics.getNativePlaceDistribution().get("河北"));
+        assertEquals(0, statistics.countVisitsBetween(11, Integer.MAX_VALUE));
+        assertEquals(1, statistics.getEntryMethodDistribution().get(EntryMethod.AIRPLANE));
+    }
+
+    @Test
+    @Order(13)
+    @DisplayName("测试统计随增删改增量更新")
+    void testLiveStatistics() throws IOException {
+        StatisticsSnapshot before = statisticsService.getStatistics();
+        // 数据未变化时返回同一快照
+        assertSame(before, statisticsService.getStatistics());
+
+        // 新增
+        Petitioner added = createPetitioner("新增", Gender.FEMALE, RiskLevel.CRITICAL, 30, "山西",
+            Education.MASTER, MaritalStatus.MARRIED, EntryMethod.TRAIN);
+        dataManager.save(added);
+        StatisticsSnapshot statistics = statisticsService.getStatistics();
+        assertEquals(11, statistics.getTotalCount());
+        assertEquals(5, statistics.getHighRiskCount());
+        assertEquals(1, statistics.getNativePlaceDistribution().get("山西"));
+        assertEquals(3, statistics.getVisitCountDistribution().get("10次以上"));
+
+        // 原地修改后保存，旧值应被扣除
+        added.getRiskAssessment().setRiskLevel(RiskLevel.LOW);
+        added.getPersonalInfo().setNativePlace("山东");
+        dataManager.save(added);
+        statistics = statisticsService.getStatistics();
+        assertEquals(11, statistics.getTotalCount());
+        assertEquals(4, statistics.getHighRiskCount());
+        assertEquals(4, statistics.getRiskLevelCount(RiskLevel.LOW));
+        assertNull(statistics.getNativePlaceDistribution().get("山西"));
+        assertEquals(5, statistics.getNativePlaceDistribution().get("山东"));
+
+        // 删除
+        dataManager.delete(added.getId());
+        statistics = statisticsService.getStatistics();
+        assertEquals(10, statistics.getTotalCount());
+        assertEquals(4, statistics.getNativePlaceDistribution().get("山东"));
+        assertEquals(before.getRiskLevelDistribution(), statistics.getRiskLevelDistribution());
+        assertEquals(before.getVisitCountDistribution(), statistics.getVisitCountDistribution());
+    }
+
+    @Test
+    @Order(14)
+    @DisplayName("测试外部修改数据文件后统计重建")
+    void testLiveStatisticsAfterExternalChange() throws IOException {
+        assertEquals(10, statisticsService.getStatistics().getTotalCount());
+
+        // 另一个实例整体改写数据文件
+        JsonDataManager other = new JsonDataManager(TEST_DATA_DIR);
+        List<Petitioner> data = other.loadAll();
+        other.saveAll(data.subList(0, 3));
+
+        assertEquals(3, statisticsService.getStatistics().getTotalCount());
+    }
+
+    @Test
+    @Order(15)
+    @DisplayName("测试超大上访次数计入10次以上")
+    void testHugeVisitCount() throws IOException {
+        StatisticsSnapshot before = statisticsService.getStatistics();
+
+        Petitioner huge = createPetitioner("极大", Gender.MALE, RiskLevel.LOW, 0, "山西",
+            Education.BACHELOR, MaritalStatus.MARRIED, EntryMethod.TRAIN);
+        huge.getPersonalInfo().setIdCard("370102199001019999");
+        huge.getPersonalInfo().setVisitCount(Integer.MAX_VALUE);
+        dataManager.save(huge);
+        Petitioner large = createPetitioner("较大", Gender.FEMALE, RiskLevel.LOW, 0, "山西",
+            Education.BACHELOR, MaritalStatus.MARRIED, EntryMethod.TRAIN);
+        large.getPersonalInfo().setIdCard("370102199001019998");
+        large.getPersonalInfo().setVisitCount(100_000_000);
+        dataManager.save(large);
+
+        // 增量更新和全量重建结果一致
+        StatisticsSnapshot statistics = statisticsService.getStatistics();
+        assertEquals(12, statistics.getTotalCount());
+        assertEquals(4, statistics.getVisitCountDistribution().get("10次以上"));
+        assertEquals(4, statistics.countVisitsBetween(11, Integer.MAX_VALUE));
+        assertEquals(12, statistics.countVisitsBetween(0, Integer.MAX_VALUE));
+        try (StatisticsService rebuilt = new StatisticsService(new JsonDataManager(TEST_DATA_DIR))) {
+            assertEquals(4, rebuilt.getStatistics().countVisitsBetween(11, Integer.MAX_VALUE));
+        }
+        assertThrows(IllegalArgumentException.class, () -> statistics.countVisitsBetween(20, 30));
+
+        // 删除后扣回溢出桶
+        dataManager.delete(huge.getId());
+        dataManager.delete(large.getId());
+        assertEquals(before.getVisitCountDistribution(),
+            statisticsService.getStatistics().getVisitCountDistribution());
+    }
 }